@@ -30,10 +30,9 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.StringTokenizer;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import javax.swing.Action;
@@ -107,6 +106,7 @@ import org.openstreetmap.josm.tools.PlatformHookOsx;
 import org.openstreetmap.josm.tools.PlatformHookUnixoid;
 import org.openstreetmap.josm.tools.PlatformHookWindows;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.TaskGraph;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -461,6 +461,9 @@ public abstract class Main {
 
     private static volatile InitStatusListener initListener;
 
+    /** Tasks run during startup, see {@link #getStartupReport()} */
+    private static final List<TaskGraph> startupTasks = new CopyOnWriteArrayList<>();
+
     public interface InitStatusListener {
 
         Object updateStatus(String event);
@@ -489,22 +492,31 @@ public abstract class Main {
     public void initialize() {
         fileWatcher.start();
 
-        new InitializationTask(tr("Executing platform startup hook"), platform::startupHook).call();
-
-        new InitializationTask(tr("Building main menu"), this::initializeMainWindow).call();
+        String platformHook = tr("Executing platform startup hook");
+        String mainMenu = tr("Building main menu");
+        String osmApi = tr("Initializing OSM API");
+        String validator = tr("Initializing validator");
+        String presets = tr("Initializing presets");
+        String mapStyles = tr("Initializing map styles");
+        String imagery = tr("Loading imagery preferences");
 
-        undoRedo.addCommandQueueListener(redoUndoListener);
+        // Initialization tasks, run in parallel as far as their dependencies allow.
+        // The Swing components are created on the calling thread, the menu must be built before it is filled.
+        TaskGraph tasks = new TaskGraph("main-init");
+        tasks.addOnCallerThread(platformHook, new InitializationTask(platformHook, platform::startupHook));
+        tasks.addOnCallerThread(mainMenu, new InitializationTask(mainMenu, () -> {
+            initializeMainWindow();
 
-        // creating toolbar
-        contentPanePrivate.add(toolbar.control, BorderLayout.NORTH);
+            undoRedo.addCommandQueueListener(redoUndoListener);
 
-        registerActionShortcut(menu.help, Shortcut.registerShortcut("system:help", tr("Help"),
-                KeyEvent.VK_F1, Shortcut.DIRECT));
+            // creating toolbar
+            contentPanePrivate.add(toolbar.control, BorderLayout.NORTH);
 
-        // contains several initialization tasks to be executed (in parallel) by a ExecutorService
-        List<Callable<Void>> tasks = new ArrayList<>();
+            registerActionShortcut(menu.help, Shortcut.registerShortcut("system:help", tr("Help"),
+                    KeyEvent.VK_F1, Shortcut.DIRECT));
+        }), platformHook);
 
-        tasks.add(new InitializationTask(tr("Initializing OSM API"), () -> {
+        tasks.add(osmApi, new InitializationTask(osmApi, () -> {
                 // We try to establish an API connection early, so that any API
                 // capabilities are already known to the editor instance. However
                 // if it goes wrong that's not critical at this stage.
@@ -513,41 +525,39 @@ public abstract class Main {
                 } catch (OsmTransferCanceledException | OsmApiInitializationException e) {
                     Main.warn(getErrorMessage(Utils.getRootCause(e)));
                 }
-            }));
+            }), platformHook);
 
-        tasks.add(new InitializationTask(tr("Initializing validator"), OsmValidator::initialize));
+        tasks.add(validator, new InitializationTask(validator, OsmValidator::initialize), platformHook);
 
-        tasks.add(new InitializationTask(tr("Initializing presets"), TaggingPresets::initialize));
+        tasks.add(presets, new InitializationTask(presets, TaggingPresets::initialize), mainMenu);
 
-        tasks.add(new InitializationTask(tr("Initializing map styles"), MapPaintPreference::initialize));
+        tasks.add(mapStyles, new InitializationTask(mapStyles, MapPaintPreference::initialize), mainMenu);
 
-        tasks.add(new InitializationTask(tr("Loading imagery preferences"), ImageryPreference::initialize));
+        tasks.add(imagery, new InitializationTask(imagery, ImageryPreference::initialize), mainMenu);
 
-        try {
-            ExecutorService service = Executors.newFixedThreadPool(
-                    Runtime.getRuntime().availableProcessors(), Utils.newThreadFactory("main-init-%d", Thread.NORM_PRIORITY));
-            for (Future<Void> i : service.invokeAll(tasks)) {
-                i.get();
-            }
-            // asynchronous initializations to be completed eventually
-            service.submit((Runnable) TMSLayer::getCache);
-            service.submit((Runnable) OsmValidator::initializeTests);
-            service.submit(OverpassTurboQueryWizard::getInstance);
-            service.shutdown();
-        } catch (InterruptedException | ExecutionException ex) {
-            throw new RuntimeException(ex);
-        }
+        // asynchronous initializations to be completed eventually
+        tasks.addInBackground("TMS cache", TMSLayer::getCache, platformHook);
+        tasks.addInBackground("Validator tests", OsmValidator::initializeTests, validator);
+        tasks.addInBackground("Overpass Turbo query wizard", OverpassTurboQueryWizard::getInstance, platformHook);
 
         // hooks for the jmapviewer component
         FeatureAdapter.registerBrowserAdapter(OpenBrowser::displayUrl);
         FeatureAdapter.registerTranslationAdapter(I18n.getTranslationAdapter());
         FeatureAdapter.registerLoggingAdapter(name -> Logging.getLogger());
 
-        new InitializationTask(tr("Updating user interface"), () -> {
+        String userInterface = tr("Updating user interface");
+        tasks.addOnCallerThread(userInterface, new InitializationTask(userInterface, () -> {
             toolbar.refreshToolbarControl();
             toolbar.control.updateUI();
             contentPanePrivate.updateUI();
-        }).call();
+        }), osmApi, validator, presets, mapStyles, imagery);
+
+        addStartupTasks(tasks);
+        try {
+            tasks.run();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 
     /**
@@ -558,7 +568,7 @@ public abstract class Main {
         // can be implementd by subclasses
     }
 
-    private static class InitializationTask implements Callable<Void> {
+    private static class InitializationTask implements Runnable {
 
         private final String name;
         private final Runnable task;
@@ -569,7 +579,7 @@ public abstract class Main {
         }
 
         @Override
-        public Void call() {
+        public void run() {
             Object status = null;
             if (initListener != null) {
                 status = initListener.updateStatus(name);
@@ -578,10 +588,37 @@ public abstract class Main {
             if (initListener != null) {
                 initListener.finish(status);
             }
-            return null;
         }
     }
 
+    /**
+     * Adds the tasks run during startup to the startup report. The tasks of the main object and of the plugin
+     * loading are added automatically.
+     * @param tasks the task graph
+     * @see #getStartupReport()
+     * @since xxx
+     */
+    public static void addStartupTasks(TaskGraph tasks) {
+        startupTasks.add(tasks);
+    }
+
+    /**
+     * Returns the startup report: the start time, duration and thread of each task run during startup.
+     * @return the startup report, or an empty string if no task has been run yet
+     * @see TaskGraph#getReport()
+     * @since xxx
+     */
+    public static String getStartupReport() {
+        StringBuilder sb = new StringBuilder();
+        for (TaskGraph tasks : startupTasks) {
+            String report = tasks.getReport();
+            if (!report.isEmpty()) {
+                sb.append(report).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
     /**
      * Returns the main layer manager that is used by the map view.
      * @return The layer manager. The value returned will never change.
@@ -827,6 +864,7 @@ public abstract class Main {
         }
         // Remove all layers because somebody may rely on layerRemoved events (like AutosaveTask)
         getLayerManager().resetState();
+        pref.flush();
         try {
             pref.saveDefaults();
         } catch (IOException ex) {
@@ -26,6 +26,7 @@ import org.openstreetmap.josm.io.NMEAImporter;
 import org.openstreetmap.josm.io.NoteImporter;
 import org.openstreetmap.josm.io.OsmChangeImporter;
 import org.openstreetmap.josm.io.OsmImporter;
+import org.openstreetmap.josm.io.PbfImporter;
 import org.openstreetmap.josm.io.WMSLayerImporter;
 import org.openstreetmap.josm.io.session.SessionImporter;
 import org.openstreetmap.josm.tools.Utils;
@@ -59,6 +60,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
 
         final List<Class<? extends FileImporter>> importerNames = Arrays.asList(
                 OsmImporter.class,
+                PbfImporter.class,
                 OsmChangeImporter.class,
                 GpxImporter.class,
                 NMEAImporter.class,
@@ -101,6 +103,7 @@ public class ExtensionFileFilter extends FileFilter implements java.io.FileFilte
                 org.openstreetmap.josm.io.OsmExporter.class,
                 org.openstreetmap.josm.io.OsmGzipExporter.class,
                 org.openstreetmap.josm.io.OsmBzip2Exporter.class,
+                org.openstreetmap.josm.io.PbfExporter.class,
                 org.openstreetmap.josm.io.GeoJSONExporter.class,
                 org.openstreetmap.josm.io.WMSLayerExporter.class,
                 org.openstreetmap.josm.io.NoteExporter.class
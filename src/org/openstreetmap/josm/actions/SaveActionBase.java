@@ -20,6 +20,7 @@ import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.widgets.AbstractFileChooser;
 import org.openstreetmap.josm.io.FileExporter;
+import org.openstreetmap.josm.io.PbfExporter;
 import org.openstreetmap.josm.tools.Shortcut;
 
 /**
@@ -90,23 +91,26 @@ public abstract class SaveActionBase extends DiskAccessAction {
             return false;
 
         try {
-            boolean exported = false;
-            boolean canceled = false;
+            FileExporter usedExporter = null;
             for (FileExporter exporter : ExtensionFileFilter.getExporters()) {
                 if (exporter.acceptFile(file, layer)) {
                     exporter.exportData(file, layer);
-                    exported = true;
-                    canceled = exporter.isCanceled();
+                    usedExporter = exporter;
                     break;
                 }
             }
-            if (!exported) {
+            if (usedExporter == null) {
                 JOptionPane.showMessageDialog(Main.parent, tr("No Exporter found! Nothing saved."), tr("Warning"),
                         JOptionPane.WARNING_MESSAGE);
                 return false;
-            } else if (canceled) {
+            } else if (usedExporter.isCanceled()) {
                 return false;
             }
+            if (layer instanceof OsmDataLayer && usedExporter instanceof PbfExporter) {
+                // the file does not keep modified and deleted primitives, the layer still has to be saved
+                addToFileOpenHistory(file);
+                return true;
+            }
             if (!layer.isRenamed()) {
                 layer.setName(file.getName());
             }
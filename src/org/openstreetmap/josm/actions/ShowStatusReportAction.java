@@ -264,6 +264,10 @@ public final class ShowStatusReportAction extends JosmAction {
         StringBuilder text = new StringBuilder();
         String reportHeader = getReportHeader();
         text.append(reportHeader);
+        String startupReport = Main.getStartupReport();
+        if (!startupReport.isEmpty()) {
+            text.append("Startup tasks:\n").append(paramCleanup(startupReport)).append('\n');
+        }
         try {
             Map<String, Setting<?>> settings = Main.pref.getAllSettings();
             Set<String> keys = new HashSet<>(settings.keySet());
@@ -55,6 +55,7 @@ import org.openstreetmap.josm.gui.widgets.AbstractTextComponentValidator;
 import org.openstreetmap.josm.gui.widgets.HistoryComboBox;
 import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.Shortcut;
+import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 import org.openstreetmap.josm.tools.Utils;
 
 public class SearchAction extends JosmAction implements ParameterizedAction {
@@ -670,11 +671,15 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
                     foundMatches = selection.size();
                 }
 
-                Collection<OsmPrimitive> all;
-                if (setting.allElements) {
-                    all = ds.allPrimitives();
+                Collection<? extends OsmPrimitive> all;
+                if (setting.mode == SearchMode.in_selection) {
+                    // only selected primitives can be removed from the selection
+                    all = new ArrayList<>(selection);
                 } else {
-                    all = ds.getPrimitives(OsmPrimitive::isSelectable);
+                    all = getCandidates(matcher);
+                }
+                if (!setting.allElements) {
+                    all = new SubclassFilteredCollection<OsmPrimitive, OsmPrimitive>(all, OsmPrimitive::isSelectable);
                 }
                 final ProgressMonitor subMonitor = getProgressMonitor().createSubTaskMonitor(all.size(), false);
                 subMonitor.beginTask(trn("Searching in {0} object", "Searching in {0} objects", all.size(), all.size()));
@@ -712,6 +717,23 @@ public class SearchAction extends JosmAction implements ParameterizedAction {
             }
         }
 
+        /**
+         * Returns the primitives which may match, found with the indexes of the data set if possible.
+         * @param matcher the compiled search
+         * @return a copy of the primitives which may match, or all primitives of the data set
+         */
+        private Collection<? extends OsmPrimitive> getCandidates(SearchCompiler.Match matcher) {
+            ds.getReadLock().lock();
+            try {
+                Collection<? extends OsmPrimitive> candidates = matcher.getCandidates(ds);
+                if (candidates != null)
+                    return new ArrayList<>(candidates);
+            } finally {
+                ds.getReadLock().unlock();
+            }
+            return ds.allPrimitives();
+        }
+
         @Override
         protected void finish() {
             if (canceled) {
@@ -7,13 +7,16 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.io.PushbackReader;
 import java.io.StringReader;
 import java.text.Normalizer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -24,12 +27,15 @@ import org.openstreetmap.josm.actions.search.PushbackTokenizer.Range;
 import org.openstreetmap.josm.actions.search.PushbackTokenizer.Token;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.TagIndex;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.mappaint.Environment;
@@ -273,6 +279,29 @@ public class SearchCompiler {
             return false;
         }
 
+        /**
+         * Returns the primitives of a dataset which may match this criterion, found with the indexes of the dataset.
+         * All matching primitives are returned, but some returned primitives may not match.
+         * <p>
+         * Lock the dataset with {@link DataSet#getReadLock()} while the returned collection is used.
+         * @param ds the dataset
+         * @return the primitives which may match, or {@code null} if all primitives of the dataset have to be tested
+         * @since xxx
+         */
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            return null;
+        }
+
+        /**
+         * Determines if this criterion depends on state which is not part of the data, like the selection or the map
+         * view. The result of such a criterion may change without any change of the data.
+         * @return {@code true} if this criterion depends on the selection or the map view
+         * @since xxx
+         */
+        public boolean isStateDependent() {
+            return false;
+        }
+
         @Override
         public final boolean test(OsmPrimitive object) {
             return match(object);
@@ -310,6 +339,11 @@ public class SearchCompiler {
         public Match getOperand() {
             return match;
         }
+
+        @Override
+        public boolean isStateDependent() {
+            return match.isStateDependent();
+        }
     }
 
     /**
@@ -346,9 +380,30 @@ public class SearchCompiler {
             return rhs;
         }
 
+        @Override
+        public boolean isStateDependent() {
+            return lhs.isStateDependent() || rhs.isStateDependent();
+        }
+
         protected static String parenthesis(Match m) {
             return '(' + m.toString() + ')';
         }
+
+        /**
+         * Returns the union of the candidates of both sides.
+         * @param left the candidates of the left hand side, can be {@code null}
+         * @param right the candidates of the right hand side, can be {@code null}
+         * @return the union of both collections, or {@code null} if one of them is {@code null}
+         */
+        protected static Collection<? extends OsmPrimitive> union(Collection<? extends OsmPrimitive> left,
+                Collection<? extends OsmPrimitive> right) {
+            if (left == null || right == null)
+                return null;
+            Set<OsmPrimitive> union = Collections.newSetFromMap(new IdentityHashMap<>(left.size() + right.size()));
+            union.addAll(left);
+            union.addAll(right);
+            return union;
+        }
     }
 
     /**
@@ -373,6 +428,11 @@ public class SearchCompiler {
         public boolean match(Tagged osm) {
             return false;
         }
+
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            return Collections.emptyList();
+        }
     }
 
     /**
@@ -453,6 +513,19 @@ public class SearchCompiler {
             return lhs.match(osm) && rhs.match(osm);
         }
 
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            // the candidates of one side are enough, the other side is tested on them
+            Collection<? extends OsmPrimitive> left = lhs.getCandidates(ds);
+            Collection<? extends OsmPrimitive> right = rhs.getCandidates(ds);
+            if (left == null)
+                return right;
+            else if (right == null || left.size() <= right.size())
+                return left;
+            else
+                return right;
+        }
+
         @Override
         public String toString() {
             return (lhs instanceof AbstractBinaryMatch && !(lhs instanceof And) ? parenthesis(lhs) : lhs) + " && "
@@ -483,6 +556,11 @@ public class SearchCompiler {
             return lhs.match(osm) || rhs.match(osm);
         }
 
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            return union(lhs.getCandidates(ds), rhs.getCandidates(ds));
+        }
+
         @Override
         public String toString() {
             return (lhs instanceof AbstractBinaryMatch && !(lhs instanceof Or) ? parenthesis(lhs) : lhs) + " || "
@@ -513,6 +591,11 @@ public class SearchCompiler {
             return lhs.match(osm) ^ rhs.match(osm);
         }
 
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            return union(lhs.getCandidates(ds), rhs.getCandidates(ds));
+        }
+
         @Override
         public String toString() {
             return (lhs instanceof AbstractBinaryMatch && !(lhs instanceof Xor) ? parenthesis(lhs) : lhs) + " ^ "
@@ -688,6 +771,22 @@ public class SearchCompiler {
             return false;
         }
 
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            if (keyPattern != null || "timestamp".equals(key))
+                return null;
+            TagIndex index = ds.getTagIndex();
+            if (caseSensitive)
+                return index.getPrimitives(key);
+            Set<OsmPrimitive> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (String k : index.getKeys()) {
+                if (key.equalsIgnoreCase(k)) {
+                    candidates.addAll(index.getPrimitives(k));
+                }
+            }
+            return candidates;
+        }
+
         @Override
         public String toString() {
             return key + '=' + value;
@@ -866,6 +965,13 @@ public class SearchCompiler {
             throw new AssertionError("Missed state");
         }
 
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            if (mode == Mode.EXACT || mode == Mode.ANY_VALUE)
+                return ds.getTagIndex().getPrimitives(key);
+            return null;
+        }
+
         @Override
         public String toString() {
             return key + '=' + value;
@@ -956,6 +1062,11 @@ public class SearchCompiler {
             return type.equals(osm.getType());
         }
 
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            return ds.getPrimitivesByType(type);
+        }
+
         @Override
         public String toString() {
             return "type=" + type;
@@ -1265,6 +1376,11 @@ public class SearchCompiler {
             return osm.getDataSet().isSelected(osm);
         }
 
+        @Override
+        public boolean isStateDependent() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return "selected";
@@ -1529,6 +1645,35 @@ public class SearchCompiler {
             return Collections.singleton(Main.map.mapView.getRealBounds());
         }
 
+        @Override
+        public Collection<? extends OsmPrimitive> getCandidates(DataSet ds) {
+            Collection<Bounds> bounds = getBounds(null);
+            if (bounds == null)
+                return Collections.emptyList();
+            // a way or relation with a node in view has its bounding box in view
+            Bounds view = bounds.iterator().next();
+            BBox bbox = new BBox(view.getMin(), view.getMax());
+            List<OsmPrimitive> candidates = new ArrayList<>(ds.searchNodes(bbox));
+            candidates.addAll(ds.searchWays(bbox));
+            if (all) {
+                // ways without nodes and relations whose members have no nodes are "all in view" as well
+                for (OsmPrimitive w : ds.getPrimitivesByType(OsmPrimitiveType.WAY)) {
+                    if (((Way) w).getNodesCount() == 0) {
+                        candidates.add(w);
+                    }
+                }
+                candidates.addAll(ds.getPrimitivesByType(OsmPrimitiveType.RELATION));
+            } else {
+                candidates.addAll(ds.searchRelations(bbox));
+            }
+            return candidates;
+        }
+
+        @Override
+        public boolean isStateDependent() {
+            return true;
+        }
+
         @Override
         public String toString() {
             return all ? "allinview" : "inview";
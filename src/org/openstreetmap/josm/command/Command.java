@@ -2,12 +2,11 @@
 package org.openstreetmap.josm.command;
 
 import java.awt.GridBagLayout;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Objects;
 
 import javax.swing.JOptionPane;
@@ -20,9 +19,6 @@ import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.PrimitiveData;
-import org.openstreetmap.josm.data.osm.Relation;
-import org.openstreetmap.josm.data.osm.Way;
-import org.openstreetmap.josm.data.osm.visitor.AbstractVisitor;
 import org.openstreetmap.josm.gui.ConditionalOptionPaneUtil;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
@@ -48,25 +44,6 @@ public abstract class Command implements PseudoCommand {
     /** IS_INCOMPLETE: operation on incomplete target */
     public static final int IS_INCOMPLETE = 2;
 
-    private static final class CloneVisitor extends AbstractVisitor {
-        public final Map<OsmPrimitive, PrimitiveData> orig = new LinkedHashMap<>();
-
-        @Override
-        public void visit(Node n) {
-            orig.put(n, n.save());
-        }
-
-        @Override
-        public void visit(Way w) {
-            orig.put(w, w.save());
-        }
-
-        @Override
-        public void visit(Relation e) {
-            orig.put(e, e.save());
-        }
-    }
-
     /**
      * Small helper for holding the interesting part of the old data state of the objects.
      */
@@ -130,8 +107,20 @@ public abstract class Command implements PseudoCommand {
         }
     }
 
-    /** the map of OsmPrimitives in the original state to OsmPrimitives in cloned state */
-    private Map<OsmPrimitive, PrimitiveData> cloneMap = new HashMap<>();
+    private static final OsmPrimitive[] NO_PRIMITIVES = new OsmPrimitive[0];
+    private static final PrimitiveDelta[] NO_STATES = new PrimitiveDelta[0];
+
+    /** the primitives remembered by {@link #executeCommand} */
+    private OsmPrimitive[] primitives = NO_PRIMITIVES;
+    /**
+     * the original states of {@link #primitives}, {@code null} while they are in the undo journal.
+     * Not part of the equality of commands, since it depends on how the undo data is stored.
+     */
+    private transient PrimitiveDelta[] states = NO_STATES;
+    /** the location of {@link #states} in the undo journal, if spilled */
+    private transient UndoJournal.Entry journalEntry;
+    /** the estimated memory usage, or -1 if not computed yet */
+    private transient long memoryUsage = -1;
 
     /** the layer which this command is applied to */
     private final OsmDataLayer layer;
@@ -163,16 +152,94 @@ public abstract class Command implements PseudoCommand {
      * @see #invalidateAffectedLayers()
      */
     public boolean executeCommand() {
-        CloneVisitor visitor = new CloneVisitor();
-        Collection<OsmPrimitive> all = new ArrayList<>();
+        Collection<OsmPrimitive> all = new LinkedHashSet<>();
         fillModifiedData(all, all, all);
-        for (OsmPrimitive osm : all) {
-            osm.accept(visitor);
+        discardUndoData();
+        primitives = all.toArray(new OsmPrimitive[all.size()]);
+        states = new PrimitiveDelta[primitives.length];
+        for (int i = 0; i < primitives.length; i++) {
+            states[i] = new PrimitiveDelta(primitives[i].save());
+        }
+        memoryUsage = -1;
+        return true;
+    }
+
+    /**
+     * Reduces the memory used to undo this command, by keeping only what the command changed in the primitives.
+     * <p>
+     * This has to be called right after {@link #executeCommand}, before any other change is made to the primitives.
+     * Afterwards, undoing the command is only possible as long as the primitives are in the state left by the command.
+     * This is the case for the commands managed by the {@link org.openstreetmap.josm.data.UndoRedoHandler}, which are
+     * undone in reverse order.
+     * @since xxx
+     */
+    public void compactUndoData() {
+        if (states != null) {
+            for (int i = 0; i < states.length; i++) {
+                states[i].compact(primitives[i]);
+            }
+            memoryUsage = -1;
         }
-        cloneMap = visitor.orig;
+    }
+
+    /**
+     * Returns an estimate of the memory used by this command to be undone, in bytes.
+     * @return the estimated memory usage
+     * @since xxx
+     */
+    public long getMemoryUsage() {
+        if (memoryUsage < 0) {
+            long size = 64 + 8L * primitives.length;
+            if (states != null) {
+                size += 16 + 8L * states.length;
+                for (PrimitiveDelta state : states) {
+                    size += state.getMemoryUsage();
+                }
+            }
+            memoryUsage = size;
+        }
+        return memoryUsage;
+    }
+
+    /**
+     * Writes the data needed to undo this command to the journal, and frees the memory it used.
+     * @param journal the undo journal
+     * @return {@code true} if some data has been written
+     * @throws IOException if the journal cannot be written
+     */
+    boolean spillUndoData(UndoJournal journal) throws IOException {
+        if (states == null || states.length == 0)
+            return false;
+        journalEntry = journal.write(states);
+        states = null;
+        memoryUsage = -1;
         return true;
     }
 
+    /**
+     * Frees the space used by this command in the undo journal, if any.
+     */
+    void discardUndoData() {
+        if (journalEntry != null) {
+            journalEntry.release();
+            journalEntry = null;
+            if (states == null) {
+                states = NO_STATES;
+                primitives = NO_PRIMITIVES;
+            }
+        }
+    }
+
+    private PrimitiveDelta[] getStates() {
+        if (states == null) {
+            states = (PrimitiveDelta[]) journalEntry.read();
+            journalEntry.release();
+            journalEntry = null;
+            memoryUsage = -1;
+        }
+        return states;
+    }
+
     /**
      * Undoes the command.
      * It can be assumed that all objects are in the same state they were before.
@@ -181,10 +248,11 @@ public abstract class Command implements PseudoCommand {
      * This implementation undoes all objects stored by a former call to executeCommand.
      */
     public void undoCommand() {
-        for (Entry<OsmPrimitive, PrimitiveData> e : cloneMap.entrySet()) {
-            OsmPrimitive primitive = e.getKey();
+        PrimitiveDelta[] originals = getStates();
+        for (int i = 0; i < primitives.length; i++) {
+            OsmPrimitive primitive = primitives[i];
             if (primitive.getDataSet() != null) {
-                e.getKey().load(e.getValue());
+                primitive.load(originals[i].getOriginal(primitive));
             }
         }
     }
@@ -208,7 +276,11 @@ public abstract class Command implements PseudoCommand {
      * @return The original version of the requested object, if any
      */
     public PrimitiveData getOrig(OsmPrimitive osm) {
-        return cloneMap.get(osm);
+        for (int i = 0; i < primitives.length; i++) {
+            if (primitives[i] == osm)
+                return getStates()[i].getOriginal(osm);
+        }
+        return null;
     }
 
     /**
@@ -246,7 +318,7 @@ public abstract class Command implements PseudoCommand {
      */
     @Override
     public Collection<? extends OsmPrimitive> getParticipatingPrimitives() {
-        return cloneMap.keySet();
+        return Collections.unmodifiableList(Arrays.asList(primitives));
     }
 
     /**
@@ -321,7 +393,7 @@ public abstract class Command implements PseudoCommand {
 
     @Override
     public int hashCode() {
-        return Objects.hash(cloneMap, layer);
+        return Objects.hash(Arrays.hashCode(primitives), layer);
     }
 
     @Override
@@ -329,7 +401,7 @@ public abstract class Command implements PseudoCommand {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Command command = (Command) obj;
-        return Objects.equals(cloneMap, command.cloneMap) &&
+        return Arrays.equals(primitives, command.primitives) &&
                 Objects.equals(layer, command.layer);
     }
 
@@ -3,11 +3,11 @@ package org.openstreetmap.josm.command;
 
 import static org.openstreetmap.josm.tools.I18n.trn;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Objects;
 
 import javax.swing.Icon;
@@ -49,9 +49,13 @@ public class MoveCommand extends Command {
     private double backupY;
 
     /**
-     * List of all old states of the objects.
+     * Old states of the nodes: latitude, longitude, east and north of each node, {@code NaN} if unknown.
      */
-    private final List<OldNodeState> oldState = new LinkedList<>();
+    private final double[] oldCoordinates;
+    /**
+     * Old modified states of the nodes.
+     */
+    private final BitSet oldModified = new BitSet();
 
     /**
      * Constructs a new {@code MoveCommand} to move a primitive.
@@ -94,8 +98,17 @@ public class MoveCommand extends Command {
         this.y = y;
         Objects.requireNonNull(objects, "objects");
         this.nodes = AllNodesVisitor.getAllNodes(objects);
+        oldCoordinates = new double[4 * nodes.size()];
+        int i = 0;
         for (Node n : this.nodes) {
-            oldState.add(new OldNodeState(n));
+            LatLon ll = n.getCoor();
+            EastNorth en = n.getEastNorth();
+            oldCoordinates[4 * i] = ll == null ? Double.NaN : ll.lat();
+            oldCoordinates[4 * i + 1] = ll == null ? Double.NaN : ll.lon();
+            oldCoordinates[4 * i + 2] = en == null ? Double.NaN : en.east();
+            oldCoordinates[4 * i + 3] = en == null ? Double.NaN : en.north();
+            oldModified.set(i, n.isModified());
+            i++;
         }
     }
 
@@ -195,12 +208,13 @@ public class MoveCommand extends Command {
     }
 
     private void updateCoordinates() {
-        Iterator<OldNodeState> it = oldState.iterator();
+        int i = 0;
         for (Node n : nodes) {
-            OldNodeState os = it.next();
-            if (os.getEastNorth() != null) {
-                n.setEastNorth(os.getEastNorth().add(x, y));
+            double east = oldCoordinates[4 * i + 2];
+            if (!Double.isNaN(east)) {
+                n.setEastNorth(new EastNorth(east + x, oldCoordinates[4 * i + 3] + y));
             }
+            i++;
         }
     }
 
@@ -221,11 +235,12 @@ public class MoveCommand extends Command {
 
     @Override
     public void undoCommand() {
-        Iterator<OldNodeState> it = oldState.iterator();
+        int i = 0;
         for (Node n : nodes) {
-            OldNodeState os = it.next();
-            n.setCoor(os.getLatLon());
-            n.setModified(os.isModified());
+            double lat = oldCoordinates[4 * i];
+            n.setCoor(Double.isNaN(lat) ? null : new LatLon(lat, oldCoordinates[4 * i + 1]));
+            n.setModified(oldModified.get(i));
+            i++;
         }
     }
 
@@ -251,6 +266,11 @@ public class MoveCommand extends Command {
         return nodes;
     }
 
+    @Override
+    public long getMemoryUsage() {
+        return super.getMemoryUsage() + 64 + 48L * nodes.size() + 8L * oldCoordinates.length;
+    }
+
     /**
      * Gets the offset.
      * @return The current offset.
@@ -261,7 +281,7 @@ public class MoveCommand extends Command {
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), nodes, startEN, x, y, backupX, backupY, oldState);
+        return Objects.hash(super.hashCode(), nodes, startEN, x, y, backupX, backupY, Arrays.hashCode(oldCoordinates), oldModified);
     }
 
     @Override
@@ -276,6 +296,7 @@ public class MoveCommand extends Command {
                 Double.compare(that.backupY, backupY) == 0 &&
                 Objects.equals(nodes, that.nodes) &&
                 Objects.equals(startEN, that.startEN) &&
-                Objects.equals(oldState, that.oldState);
+                Arrays.equals(oldCoordinates, that.oldCoordinates) &&
+                Objects.equals(oldModified, that.oldModified);
     }
 }
@@ -0,0 +1,212 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.command;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.data.osm.WayData;
+
+/**
+ * The state of a primitive before a command, as needed to undo the command.
+ * <p>
+ * When the command is executed, the complete state of the primitive is saved. Once the command has been executed,
+ * {@link #compact} drops the parts which the command did not change: only the old tags, coordinates, nodes or members
+ * are kept if they changed, along with the deleted, modified and incomplete flags. When the command is undone, the
+ * other parts are taken from the primitive, which is then in the same state as after the command. If the user,
+ * timestamp, changeset or version changed, for instance when resolving a conflict, the complete state is kept.
+ * <p>
+ * The primitive may also have been changed without commands in between, for instance by an upload or by merging
+ * downloaded data. This is detected with a hash of the state left by the command. In that case, only the parts that
+ * the command changed are restored, and the primitive is marked as modified, since it now differs from the uploaded
+ * or merged state.
+ * @since xxx
+ */
+final class PrimitiveDelta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte DELETED = 1;
+    private static final byte MODIFIED = 2;
+    private static final byte INCOMPLETE = 4;
+    private static final byte COORDINATES = 8;
+
+    /** the complete state of the primitive, {@code null} once compacted */
+    private PrimitiveData data;
+    private byte flags;
+    /** the old tags as alternating keys and values, or {@code null} if unchanged */
+    private String[] keys;
+    /** the old coordinates, if {@link #COORDINATES} is set */
+    private double lat = Double.NaN;
+    private double lon = Double.NaN;
+    /** the old node ids, or {@code null} if unchanged */
+    private long[] nodes;
+    /** the old members, or {@code null} if unchanged */
+    private RelationMemberData[] members;
+    /** the hash of the state of the primitive right after the command, see {@link #hash} */
+    private int hashAfter;
+
+    /**
+     * Constructs a new {@code PrimitiveDelta} from the complete state of a primitive.
+     * @param data the state of the primitive
+     */
+    PrimitiveDelta(PrimitiveData data) {
+        this.data = data;
+    }
+
+    /**
+     * Determines if only the changes are kept.
+     * @return {@code true} if {@link #compact} dropped the complete state
+     */
+    boolean isCompact() {
+        return data == null;
+    }
+
+    /**
+     * Drops the parts of the state that are the same as the current state of the primitive.
+     * Does nothing if already compacted.
+     * @param osm the primitive, in the state right after the command
+     */
+    void compact(OsmPrimitive osm) {
+        if (data == null)
+            return;
+        PrimitiveData current = osm.save();
+        if (current.getType() != data.getType()
+                || current.getVersion() != data.getVersion()
+                || current.getChangesetId() != data.getChangesetId()
+                || current.getRawTimestamp() != data.getRawTimestamp()
+                || current.getUser() != data.getUser())
+            return;
+        flags = (byte) ((data.isDeleted() ? DELETED : 0) | (data.isModified() ? MODIFIED : 0) | (data.isIncomplete() ? INCOMPLETE : 0));
+        TagMap oldKeys = data.getKeys();
+        if (!oldKeys.equals(current.getKeys())) {
+            keys = new String[2 * oldKeys.size()];
+            int i = 0;
+            for (Map.Entry<String, String> tag : oldKeys.entrySet()) {
+                keys[i++] = tag.getKey();
+                keys[i++] = tag.getValue();
+            }
+        }
+        if (data instanceof NodeData) {
+            LatLon oldCoor = ((NodeData) data).getCoor();
+            if (!Objects.equals(oldCoor, ((NodeData) current).getCoor())) {
+                flags |= COORDINATES;
+                if (oldCoor != null) {
+                    lat = oldCoor.lat();
+                    lon = oldCoor.lon();
+                }
+            }
+        } else if (data instanceof WayData) {
+            List<Long> oldNodes = ((WayData) data).getNodes();
+            if (!oldNodes.equals(((WayData) current).getNodes())) {
+                nodes = new long[oldNodes.size()];
+                for (int i = 0; i < nodes.length; i++) {
+                    nodes[i] = oldNodes.get(i);
+                }
+            }
+        } else if (data instanceof RelationData) {
+            List<RelationMemberData> oldMembers = ((RelationData) data).getMembers();
+            if (!oldMembers.equals(((RelationData) current).getMembers())) {
+                members = oldMembers.toArray(new RelationMemberData[oldMembers.size()]);
+            }
+        }
+        hashAfter = hash(current);
+        data = null;
+    }
+
+    /**
+     * Returns the state of the primitive before the command.
+     * @param osm the primitive, in the state right after the command
+     * @return the state of the primitive before the command
+     */
+    PrimitiveData getOriginal(OsmPrimitive osm) {
+        if (data != null)
+            return data;
+        PrimitiveData original = osm.save();
+        boolean changedSince = hash(original) != hashAfter;
+        if (keys != null) {
+            original.setKeys(new TagMap(keys));
+        }
+        original.setDeleted((flags & DELETED) != 0);
+        if (changedSince) {
+            // uploaded or merged: the restored parts differ from that state, keep the current completeness
+            original.setModified(true);
+        } else {
+            original.setModified((flags & MODIFIED) != 0);
+            original.setIncomplete((flags & INCOMPLETE) != 0);
+        }
+        if ((flags & COORDINATES) != 0) {
+            ((NodeData) original).setCoor(Double.isNaN(lat) ? null : new LatLon(lat, lon));
+        }
+        if (nodes != null) {
+            List<Long> nodeIds = new ArrayList<>(nodes.length);
+            for (long id : nodes) {
+                nodeIds.add(id);
+            }
+            ((WayData) original).setNodes(nodeIds);
+        }
+        if (members != null) {
+            ((RelationData) original).setMembers(Arrays.asList(members));
+        }
+        return original;
+    }
+
+    /**
+     * Returns an estimate of the memory used by this state, in bytes.
+     * @return the estimated memory usage
+     */
+    long getMemoryUsage() {
+        if (data != null) {
+            long size = 80 + tagsSize(data.getKeys());
+            if (data instanceof WayData) {
+                size += 40 + 24L * ((WayData) data).getNodesCount();
+            } else if (data instanceof RelationData) {
+                size += 40 + 48L * ((RelationData) data).getMembersCount();
+            }
+            return size;
+        }
+        long size = 56;
+        if (keys != null) {
+            size += 16 + 8L * keys.length;
+        }
+        if (nodes != null) {
+            size += 16 + 8L * nodes.length;
+        }
+        if (members != null) {
+            size += 16 + 48L * members.length;
+        }
+        return size;
+    }
+
+    private static long tagsSize(TagMap tags) {
+        return tags.isEmpty() ? 0 : 16 + 16L * tags.size();
+    }
+
+    /**
+     * Computes a hash of the complete state of a primitive, to detect changes made without commands.
+     * @param d the state of the primitive
+     * @return the hash
+     */
+    private static int hash(PrimitiveData d) {
+        int hash = Objects.hash(d.getUniqueId(), d.getVersion(), d.getChangesetId(), d.getRawTimestamp(), d.getUser(),
+                d.isDeleted(), d.isModified(), d.isIncomplete(), d.isVisible(), d.getKeys());
+        if (d instanceof NodeData) {
+            hash = 31 * hash + Objects.hashCode(((NodeData) d).getCoor());
+        } else if (d instanceof WayData) {
+            hash = 31 * hash + ((WayData) d).getNodes().hashCode();
+        } else if (d instanceof RelationData) {
+            hash = 31 * hash + ((RelationData) d).getMembers().hashCode();
+        }
+        return hash;
+    }
+}
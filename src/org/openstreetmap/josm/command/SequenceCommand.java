@@ -3,6 +3,7 @@ package org.openstreetmap.josm.command;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
@@ -56,6 +57,8 @@ public class SequenceCommand extends Command {
                 undoCommands(i-1);
                 return false;
             }
+            // the following commands may change the same primitives
+            sequence[i].compactUndoData();
         }
         sequenceComplete = true;
         return true;
@@ -116,6 +119,32 @@ public class SequenceCommand extends Command {
         return prims;
     }
 
+    @Override
+    public long getMemoryUsage() {
+        long size = super.getMemoryUsage() + 16 + 8L * sequence.length;
+        for (Command c : sequence) {
+            size += c.getMemoryUsage();
+        }
+        return size;
+    }
+
+    @Override
+    boolean spillUndoData(UndoJournal journal) throws IOException {
+        boolean spilled = super.spillUndoData(journal);
+        for (Command c : sequence) {
+            spilled |= c.spillUndoData(journal);
+        }
+        return spilled;
+    }
+
+    @Override
+    void discardUndoData() {
+        super.discardUndoData();
+        for (Command c : sequence) {
+            c.discardUndoData();
+        }
+    }
+
     protected final void setSequence(Command ... sequence) {
         this.sequence = Utils.copyArray(sequence);
     }
@@ -0,0 +1,217 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.command;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A temporary file holding the undo data of old commands, to free the memory they use.
+ * <p>
+ * The data needed to undo a command is compressed and appended to the file. It is read back when the command is
+ * undone. When more than half of the file is taken by data which is not needed anymore, the remaining data is copied
+ * to a new file. The file is truncated once no command refers to it anymore, and deleted when JOSM exits.
+ * @since xxx
+ */
+public class UndoJournal {
+
+    /**
+     * The location of the undo data of a command in the journal.
+     */
+    final class Entry {
+        private final int generation;
+        /** the position in the file, changed when the journal is compacted */
+        private long offset;
+        private final int length;
+
+        private Entry(int generation, long offset, int length) {
+            this.generation = generation;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Reads the undo data from the journal.
+         * @return the undo data
+         * @throws UncheckedIOException if the journal cannot be read
+         */
+        Object read() {
+            try {
+                return UndoJournal.this.read(this);
+            } catch (IOException | ClassNotFoundException e) {
+                throw new UncheckedIOException(new IOException("Cannot read undo journal", e));
+            }
+        }
+
+        /**
+         * Tells the journal that the undo data is not needed anymore.
+         */
+        void release() {
+            UndoJournal.this.release(this);
+        }
+    }
+
+    /** the journal is compacted when the space taken by released entries exceeds both this size and the live size */
+    static final long COMPACT_MIN_SIZE = 1024 * 1024;
+
+    private File file;
+    private RandomAccessFile raf;
+    private final Set<Entry> liveEntries = new HashSet<>();
+    private long liveSize;
+    /** incremented when the journal is cleared, to ignore the entries written before */
+    private int generation;
+
+    /**
+     * Writes the data needed to undo a command to the journal, and frees the memory it used.
+     * Does nothing if the data of the command is already in the journal, or if there is no data to write.
+     * @param command the command
+     * @return {@code true} if some data has been written
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized boolean spill(Command command) throws IOException {
+        return command.spillUndoData(this);
+    }
+
+    /**
+     * Frees the space used by the undo data of a command which has been dropped.
+     * @param command the command
+     */
+    public synchronized void discard(Command command) {
+        command.discardUndoData();
+    }
+
+    /**
+     * Returns the size of the journal file.
+     * @return the size of the journal file, in bytes
+     */
+    public synchronized long getSize() {
+        try {
+            return raf == null ? 0 : raf.length();
+        } catch (IOException e) {
+            Main.warn(e);
+            return 0;
+        }
+    }
+
+    /**
+     * Deletes the journal file. The commands whose undo data was in the journal cannot be undone anymore.
+     */
+    public synchronized void clear() {
+        liveEntries.clear();
+        liveSize = 0;
+        generation++;
+        if (raf != null) {
+            Utils.close(raf);
+            raf = null;
+            Utils.deleteFile(file);
+            file = null;
+        }
+    }
+
+    synchronized Entry write(Serializable data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeObject(data);
+        } finally {
+            deflater.end();
+        }
+        if (raf == null) {
+            file = createFile();
+            raf = new RandomAccessFile(file, "rw");
+        }
+        long offset = raf.length();
+        raf.seek(offset);
+        raf.write(bytes.toByteArray());
+        Entry entry = new Entry(generation, offset, bytes.size());
+        liveEntries.add(entry);
+        liveSize += entry.length;
+        return entry;
+    }
+
+    private static File createFile() throws IOException {
+        File f = File.createTempFile("josm-undo", ".bin");
+        f.deleteOnExit();
+        return f;
+    }
+
+    private synchronized Object read(Entry entry) throws IOException, ClassNotFoundException {
+        if (raf == null || entry.generation != generation)
+            throw new IOException("Undo journal has been cleared");
+        try (ObjectInputStream in = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(readBytes(entry))))) {
+            return in.readObject();
+        }
+    }
+
+    private byte[] readBytes(Entry entry) throws IOException {
+        byte[] bytes = new byte[entry.length];
+        raf.seek(entry.offset);
+        raf.readFully(bytes);
+        return bytes;
+    }
+
+    private synchronized void release(Entry entry) {
+        if (raf == null || entry.generation != generation || !liveEntries.remove(entry))
+            return;
+        liveSize -= entry.length;
+        try {
+            if (liveEntries.isEmpty()) {
+                raf.setLength(0);
+            } else {
+                long releasedSize = raf.length() - liveSize;
+                if (releasedSize > COMPACT_MIN_SIZE && releasedSize > liveSize) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            Main.warn(e);
+        }
+    }
+
+    /**
+     * Copies the live entries to a new file, and deletes the old one.
+     * If the copy fails, the old file is kept.
+     * @throws IOException if an I/O error occurs
+     */
+    private void compact() throws IOException {
+        List<Entry> entries = new ArrayList<>(liveEntries);
+        entries.sort(Comparator.comparingLong(e -> e.offset));
+        long[] offsets = new long[entries.size()];
+        File newFile = createFile();
+        RandomAccessFile newRaf = new RandomAccessFile(newFile, "rw");
+        try {
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = newRaf.getFilePointer();
+                newRaf.write(readBytes(entries.get(i)));
+            }
+        } catch (IOException e) {
+            Utils.close(newRaf);
+            Utils.deleteFile(newFile);
+            throw e;
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            entries.get(i).offset = offsets[i];
+        }
+        Utils.close(raf);
+        Utils.deleteFile(file);
+        raf = newRaf;
+        file = newFile;
+    }
+}
@@ -1,7 +1,6 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data;
 
-import static org.openstreetmap.josm.tools.I18n.marktr;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.Color;
@@ -17,6 +16,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -35,6 +37,10 @@ import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -63,6 +69,7 @@ import org.openstreetmap.josm.data.preferences.ListSetting;
 import org.openstreetmap.josm.data.preferences.LongProperty;
 import org.openstreetmap.josm.data.preferences.MapListSetting;
 import org.openstreetmap.josm.data.preferences.PreferencesReader;
+import org.openstreetmap.josm.data.preferences.PreferencesSnapshot;
 import org.openstreetmap.josm.data.preferences.PreferencesWriter;
 import org.openstreetmap.josm.data.preferences.Setting;
 import org.openstreetmap.josm.data.preferences.StringSetting;
@@ -127,6 +134,41 @@ public class Preferences {
      */
     private boolean saveOnPut = true;
 
+    /**
+     * Delay in milliseconds between a change and the saving of the preferences file, unless another change occurs.
+     */
+    private static final long SAVE_DELAY = 1000;
+
+    /**
+     * Maximum delay in milliseconds between the first unsaved change and the saving of the preferences file.
+     */
+    private static final long MAX_SAVE_DELAY = 5000;
+
+    /**
+     * Serializes the writing of the preferences files. Must be acquired before the lock on this object, if both are needed.
+     */
+    private final Object saveLock = new Object();
+
+    /**
+     * Determines if some settings have changed since the preferences file was last saved.
+     */
+    private boolean dirty;
+
+    /**
+     * Saves the preferences file in the background, created when first needed.
+     */
+    private ScheduledExecutorService saveExecutor;
+
+    /**
+     * The scheduled saving of the preferences file, if any.
+     */
+    private ScheduledFuture<?> pendingSave;
+
+    /**
+     * Time of the first unsaved change, as returned by {@link System#nanoTime()}.
+     */
+    private long firstUnsavedChange;
+
     /**
      * Maps the setting name to the current value of the setting.
      * The map must not contain null as key or value. The mapped setting objects
@@ -355,6 +397,26 @@ public class Preferences {
         return new File(getCacheDirectory(), "default_preferences.xml");
     }
 
+    /**
+     * Returns the binary snapshot of the user preferences file, used to load the preferences faster.
+     * @return the snapshot of the user preferences file
+     * @see PreferencesSnapshot
+     * @since xxx
+     */
+    public File getSnapshotFile() {
+        return new File(getPreferencesDirectory(), "preferences.xml.snapshot");
+    }
+
+    /**
+     * Returns the binary snapshot of the cache file for default preferences, used to load the preferences faster.
+     * @return the snapshot of the cache file for default preferences
+     * @see PreferencesSnapshot
+     * @since xxx
+     */
+    public File getDefaultsSnapshotFile() {
+        return new File(getCacheDirectory(), "default_preferences.xml.snapshot");
+    }
+
     /**
      * Returns the user plugin directory.
      * @return The user plugin directory
@@ -569,25 +631,107 @@ public class Preferences {
     }
 
     /**
-     * Called after every put. In case of a problem, do nothing but output the error in log.
+     * Saves the preferences file now. Changed settings are otherwise saved shortly after the change, see
+     * {@link #enableSaveOnPut}.
      * @throws IOException if any I/O error occurs
      */
-    public synchronized void save() throws IOException {
-        save(getPreferenceFile(), settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY), false);
+    public void save() throws IOException {
+        synchronized (saveLock) {
+            List<Entry<String, Setting<?>>> settings;
+            synchronized (this) {
+                /* currently unused, but may help to fix configuration issues in future */
+                putInteger("josm.version", Version.getInstance().getVersion());
+
+                updateSystemProperties();
+                cancelPendingSave();
+                settings = settingsMap.entrySet().stream().filter(NO_DEFAULT_SETTINGS_ENTRY)
+                        .map(AbstractMap.SimpleImmutableEntry::new).collect(Collectors.toList());
+            }
+            File prefFile = getPreferenceFile();
+            save(prefFile, settings.stream(), false);
+            PreferencesSnapshot.write(getSnapshotFile(), prefFile, settings, Version.getInstance().getVersion());
+        }
     }
 
-    public synchronized void saveDefaults() throws IOException {
-        save(getDefaultsCacheFile(), defaultsMap.entrySet().stream(), true);
+    /**
+     * Saves the default preferences cache file.
+     * @throws IOException if any I/O error occurs
+     */
+    public void saveDefaults() throws IOException {
+        synchronized (saveLock) {
+            List<Entry<String, Setting<?>>> settings;
+            synchronized (this) {
+                settings = defaultsMap.entrySet().stream()
+                        .map(AbstractMap.SimpleImmutableEntry::new).collect(Collectors.toList());
+            }
+            File defFile = getDefaultsCacheFile();
+            save(defFile, settings.stream(), true);
+            PreferencesSnapshot.write(getDefaultsSnapshotFile(), defFile, settings, Version.getInstance().getVersion());
+        }
     }
 
-    protected void save(File prefFile, Stream<Entry<String, Setting<?>>> settings, boolean defaults) throws IOException {
-        if (!defaults) {
-            /* currently unused, but may help to fix configuration issues in future */
-            putInteger("josm.version", Version.getInstance().getVersion());
+    /**
+     * Saves the preferences file if some settings have changed since it was last saved.
+     * This is called after changes, and when JOSM exits.
+     * In case of a problem, do nothing but output the error in log.
+     * @since xxx
+     */
+    public void flush() {
+        synchronized (saveLock) {
+            synchronized (this) {
+                if (!dirty)
+                    return;
+            }
+            try {
+                save();
+            } catch (IOException e) {
+                Main.warn(e, tr("Failed to persist preferences to ''{0}''", getPreferenceFile().getAbsoluteFile()));
+            }
+        }
+    }
 
-            updateSystemProperties();
+    /**
+     * Marks the preferences as changed and schedules the saving of the preferences file. Changes made within
+     * {@link #SAVE_DELAY} of each other are saved together, but no later than {@link #MAX_SAVE_DELAY} after the first one.
+     */
+    private synchronized void scheduleSave() {
+        long now = System.nanoTime();
+        if (!dirty) {
+            dirty = true;
+            firstUnsavedChange = now;
+        }
+        if (pendingSave != null) {
+            if (TimeUnit.NANOSECONDS.toMillis(now - firstUnsavedChange) + SAVE_DELAY > MAX_SAVE_DELAY)
+                return;
+            pendingSave.cancel(false);
         }
+        if (saveExecutor == null) {
+            saveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "preferences-saver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "preferences-flush"));
+        }
+        pendingSave = saveExecutor.schedule(this::flush, SAVE_DELAY, TimeUnit.MILLISECONDS);
+    }
 
+    private synchronized void cancelPendingSave() {
+        dirty = false;
+        if (pendingSave != null) {
+            pendingSave.cancel(false);
+            pendingSave = null;
+        }
+    }
+
+    /**
+     * Writes settings to a preferences file. The file is replaced atomically, after a backup copy has been made.
+     * @param prefFile the preferences file
+     * @param settings the settings to write
+     * @param defaults {@code true} to write default settings
+     * @throws IOException if any I/O error occurs
+     */
+    protected void save(File prefFile, Stream<Entry<String, Setting<?>>> settings, boolean defaults) throws IOException {
         File backupFile = new File(prefFile + "_backup");
 
         // Backup old preferences if there are old preferences
@@ -595,14 +739,19 @@ public class Preferences {
             Utils.copyFile(prefFile, backupFile);
         }
 
+        File tmpFile = new File(prefFile + "_tmp");
         try (PreferencesWriter writer = new PreferencesWriter(
-                new PrintWriter(new File(prefFile + "_tmp"), StandardCharsets.UTF_8.name()), false, defaults)) {
+                new PrintWriter(tmpFile, StandardCharsets.UTF_8.name()), false, defaults)) {
             writer.write(settings);
         }
 
-        File tmpFile = new File(prefFile + "_tmp");
-        Utils.copyFile(tmpFile, prefFile);
-        Utils.deleteFile(tmpFile, marktr("Unable to delete temporary file {0}"));
+        setCorrectPermissions(tmpFile);
+        try {
+            Files.move(tmpFile.toPath(), prefFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Main.trace(e);
+            Files.move(tmpFile.toPath(), prefFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
 
         setCorrectPermissions(prefFile);
         setCorrectPermissions(backupFile);
@@ -634,13 +783,24 @@ public class Preferences {
      */
     protected void load() throws IOException, SAXException, XMLStreamException {
         File pref = getPreferenceFile();
-        PreferencesReader.validateXML(pref);
-        PreferencesReader reader = new PreferencesReader(pref, false);
-        reader.parse();
+        PreferencesSnapshot snapshot = PreferencesSnapshot.read(getSnapshotFile(), pref);
+        SortedMap<String, Setting<?>> settings;
+        int version;
+        if (snapshot != null) {
+            settings = snapshot.getSettings();
+            version = snapshot.getVersion();
+        } else {
+            PreferencesReader.validateXML(pref);
+            PreferencesReader reader = new PreferencesReader(pref, false);
+            reader.parse();
+            settings = reader.getSettings();
+            version = reader.getVersion();
+            PreferencesSnapshot.write(getSnapshotFile(), pref, settings.entrySet(), version);
+        }
         settingsMap.clear();
-        settingsMap.putAll(reader.getSettings());
+        settingsMap.putAll(settings);
         updateSystemProperties();
-        removeObsolete(reader.getVersion());
+        removeObsolete(version);
     }
 
     /**
@@ -654,12 +814,20 @@ public class Preferences {
      */
     protected void loadDefaults() throws IOException, XMLStreamException, SAXException {
         File def = getDefaultsCacheFile();
-        PreferencesReader.validateXML(def);
-        PreferencesReader reader = new PreferencesReader(def, true);
-        reader.parse();
+        PreferencesSnapshot snapshot = PreferencesSnapshot.read(getDefaultsSnapshotFile(), def);
+        SortedMap<String, Setting<?>> settings;
+        if (snapshot != null) {
+            settings = snapshot.getSettings();
+        } else {
+            PreferencesReader.validateXML(def);
+            PreferencesReader reader = new PreferencesReader(def, true);
+            reader.parse();
+            settings = reader.getSettings();
+            PreferencesSnapshot.write(getDefaultsSnapshotFile(), def, settings.entrySet(), reader.getVersion());
+        }
         defaultsMap.clear();
         long minTime = System.currentTimeMillis() / 1000 - MAX_AGE_DEFAULT_PREFERENCES;
-        for (Entry<String, Setting<?>> e : reader.getSettings().entrySet()) {
+        for (Entry<String, Setting<?>> e : settings.entrySet()) {
             if (e.getValue().getTime() >= minTime) {
                 defaultsMap.put(e.getKey(), e.getValue());
             }
@@ -791,6 +959,7 @@ public class Preferences {
         userdataDir = null;
         saveOnPut = true;
         initSuccessful = false;
+        cancelPendingSave();
     }
 
     /**
@@ -961,8 +1130,8 @@ public class Preferences {
     }
 
     /**
-     * Set a value for a certain setting. The changed setting is saved to the preference file immediately.
-     * Due to caching mechanisms on modern operating systems and hardware, this shouldn't be a performance problem.
+     * Set a value for a certain setting. The preference file is saved shortly after the change, together with the
+     * other changes made in the meantime.
      * @param key the unique identifier for the setting
      * @param setting the value of the setting. In case it is null, the key-value entry will be removed.
      * @return {@code true}, if something has changed (i.e. value is different than before)
@@ -988,11 +1157,7 @@ public class Preferences {
                 settingsMap.put(key, settingCopy);
             }
             if (saveOnPut) {
-                try {
-                    save();
-                } catch (IOException e) {
-                    Main.warn(e, tr("Failed to persist preferences to ''{0}''", getPreferenceFile().getAbsoluteFile()));
-                }
+                scheduleSave();
             }
         }
         // Call outside of synchronized section in case some listener wait for other thread that wait for preference lock
@@ -1581,8 +1746,8 @@ public class Preferences {
     }
 
     /**
-     * Enables or not the preferences file auto-save mechanism (save each time a setting is changed).
-     * This behaviour is enabled by default.
+     * Enables or not the preferences file auto-save mechanism (save shortly after a setting is changed).
+     * This behaviour is enabled by default. Pending changes are still saved by {@link #flush()}.
      * @param enable if {@code true}, makes JOSM save preferences file each time a setting is changed
      * @since 7085
      */
@@ -1,12 +1,14 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data;
 
+import java.io.IOException;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.UndoJournal;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.gui.layer.Layer;
@@ -22,6 +24,9 @@ import org.openstreetmap.josm.tools.CheckParameterUtil;
  * This is the global undo/redo handler for all {@link OsmDataLayer}s.
  * <p>
  * If you want to change a data layer, you can use {@link #add(Command)} to execute a command on it and make that command undoable.
+ * <p>
+ * The memory used by the undo history is limited by the {@code undo.max-memory} preference, in MiB. When the limit is
+ * exceeded, the undo data of the oldest commands is moved to an {@link UndoJournal} on disk.
  */
 public class UndoRedoHandler implements LayerChangeListener {
 
@@ -36,6 +41,8 @@ public class UndoRedoHandler implements LayerChangeListener {
 
     private final LinkedList<CommandQueueListener> listenerCommands = new LinkedList<>();
 
+    private final UndoJournal journal = new UndoJournal();
+
     /**
      * Constructs a new {@code UndoRedoHandler}.
      */
@@ -50,15 +57,66 @@ public class UndoRedoHandler implements LayerChangeListener {
     public void addNoRedraw(final Command c) {
         CheckParameterUtil.ensureParameterNotNull(c, "c");
         c.executeCommand();
+        c.compactUndoData();
         c.invalidateAffectedLayers();
         commands.add(c);
         // Limit the number of commands in the undo list.
         // Currently you have to undo the commands one by one. If
         // this changes, a higher default value may be reasonable.
         if (commands.size() > Main.pref.getInteger("undo.max", 1000)) {
-            commands.removeFirst();
+            journal.discard(commands.removeFirst());
         }
         redoCommands.clear();
+        limitMemoryUsage();
+    }
+
+    /**
+     * Returns the maximum memory to be used by the undo history.
+     * @return the memory limit in bytes
+     */
+    private static long getMaxMemoryUsage() {
+        int max = Main.pref.getInteger("undo.max-memory", -1);
+        return max < 0 ? Runtime.getRuntime().maxMemory() / 4 : max * 1024L * 1024L;
+    }
+
+    /**
+     * Returns an estimate of the memory used by the commands which can be undone or redone.
+     * @return the estimated memory usage, in bytes
+     * @since xxx
+     */
+    public long getMemoryUsage() {
+        long size = 0;
+        for (Command c : commands) {
+            size += c.getMemoryUsage();
+        }
+        for (Command c : redoCommands) {
+            size += c.getMemoryUsage();
+        }
+        return size;
+    }
+
+    /**
+     * Moves the undo data of the oldest commands to the journal, as long as the memory limit is exceeded.
+     * The last command is kept in memory. If the journal cannot be written, the oldest commands are dropped.
+     */
+    private void limitMemoryUsage() {
+        long max = getMaxMemoryUsage();
+        long size = getMemoryUsage();
+        Command last = commands.peekLast();
+        for (Iterator<Command> it = commands.iterator(); size > max && it.hasNext();) {
+            Command c = it.next();
+            if (c == last)
+                break;
+            size -= c.getMemoryUsage();
+            try {
+                journal.spill(c);
+                size += c.getMemoryUsage();
+            } catch (IOException e) {
+                Main.warn(e, "Cannot write undo journal, dropping oldest command");
+                it.remove();
+                journal.discard(c);
+            }
+        }
     }
 
     /**
@@ -144,6 +202,7 @@ public class UndoRedoHandler implements LayerChangeListener {
         for (int i = 0; i < num; ++i) {
             final Command c = redoCommands.removeFirst();
             c.executeCommand();
+            c.compactUndoData();
             c.invalidateAffectedLayers();
             commands.add(c);
             if (redoCommands.isEmpty()) {
@@ -176,6 +235,7 @@ public class UndoRedoHandler implements LayerChangeListener {
     public void clean() {
         redoCommands.clear();
         commands.clear();
+        journal.clear();
         fireCommandsChanged();
     }
 
@@ -188,8 +248,10 @@ public class UndoRedoHandler implements LayerChangeListener {
             return;
         boolean changed = false;
         for (Iterator<Command> it = commands.iterator(); it.hasNext();) {
-            if (it.next().invalidBecauselayerRemoved(layer)) {
+            Command c = it.next();
+            if (c.invalidBecauselayerRemoved(layer)) {
                 it.remove();
+                journal.discard(c);
                 changed = true;
             }
         }
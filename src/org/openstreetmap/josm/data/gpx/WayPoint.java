@@ -10,6 +10,7 @@ import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.tools.UncheckedParseException;
 import org.openstreetmap.josm.tools.date.DateUtils;
@@ -49,6 +50,11 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
     private final double lat;
     private final double lon;
 
+    /**
+     * The number of way points projected together by {@link #updateEastNorthCache}.
+     */
+    private static final int EAST_NORTH_BLOCK_SIZE = 1024;
+
     /*
      * internal cache of projected coordinates
      */
@@ -90,6 +96,48 @@ public class WayPoint extends WithAttributes implements Comparable<WayPoint>, Te
         return new EastNorth(east, north);
     }
 
+    /**
+     * Fills the internal cache of east/north coordinates of several way points, like {@link #getEastNorth()}, but
+     * projects the way points in blocks without creating objects for each way point. Way points whose coordinates
+     * are cached already are skipped.
+     * @param wayPoints the way points
+     * @see Projection#latlon2eastNorth(double[], int, int)
+     * @since xxx
+     */
+    public static void updateEastNorthCache(Iterable<WayPoint> wayPoints) {
+        Projection projection = Main.getProjection();
+        WayPoint[] block = null;
+        double[] coords = null;
+        int count = 0;
+        for (WayPoint wp : wayPoints) {
+            if (!Double.isNaN(wp.east) && !Double.isNaN(wp.north)) {
+                continue;
+            }
+            if (block == null) {
+                block = new WayPoint[EAST_NORTH_BLOCK_SIZE];
+                coords = new double[2 * EAST_NORTH_BLOCK_SIZE];
+            }
+            block[count] = wp;
+            coords[2 * count] = wp.lat;
+            coords[2 * count + 1] = wp.lon;
+            if (++count == block.length) {
+                setEastNorthCache(block, coords, count, projection);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            setEastNorthCache(block, coords, count, projection);
+        }
+    }
+
+    private static void setEastNorthCache(WayPoint[] block, double[] coords, int count, Projection projection) {
+        projection.latlon2eastNorth(coords, 0, count);
+        for (int i = 0; i < count; i++) {
+            block[i].east = coords[2 * i];
+            block[i].north = coords[2 * i + 1];
+        }
+    }
+
     @Override
     public String toString() {
         return "WayPoint (" + (attr.containsKey(GPX_NAME) ? get(GPX_NAME) + ", " : "") + getCoor() + ", " + attr + ')';
@@ -0,0 +1,126 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link QuadBuckets} that can be searched by several threads while it is modified.
+ * <p>
+ * Modifications are serialized by the write lock of a {@link StampedLock}, searches take its read lock, so
+ * searches never block each other and never see a half-modified tree. Unlike the dataset lock, this lock is only
+ * held for the duration of a single modification or search. A primitive whose position changes is moved with
+ * {@link #reindex}, so that concurrent searches find it either at its old or at its new position.
+ * <p>
+ * Note: as for {@link QuadBuckets}, the bbox of the contained primitives must not change while they are contained.
+ * Iterating over the buckets is not protected against concurrent modifications, only {@link Iterator#remove()} is.
+ * @param <T> type of primitives
+ * @since xxx
+ */
+public class ConcurrentQuadBuckets<T extends OsmPrimitive> extends QuadBuckets<T> {
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Constructs a new {@code ConcurrentQuadBuckets}.
+     */
+    public ConcurrentQuadBuckets() {
+        super(false);
+    }
+
+    @Override
+    public List<T> search(BBox searchBbox) {
+        long stamp = lock.readLock();
+        try {
+            return super.search(searchBbox);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Moves a primitive whose position changes. The primitive is removed, its position is updated and it is added
+     * again as a single modification, so that it never misses from a concurrent search.
+     * @param primitive the primitive
+     * @param update updates the position of the primitive
+     */
+    public void reindex(T primitive, Runnable update) {
+        long stamp = lock.writeLock();
+        try {
+            if (!super.remove(primitive))
+                throw new RuntimeException("Reindexing primitive failed to remove");
+            update.run();
+            if (!super.add(primitive))
+                throw new RuntimeException("Reindexing primitive failed to add");
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean add(T n) {
+        long stamp = lock.writeLock();
+        try {
+            return super.add(n);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        long stamp = lock.writeLock();
+        try {
+            return super.remove(o);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        // looking up the bucket may create empty child buckets, so this is not a read operation
+        long stamp = lock.writeLock();
+        try {
+            return super.contains(o);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            super.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Iterator<T> it = super.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return it.next();
+            }
+
+            @Override
+            public void remove() {
+                long stamp = lock.writeLock();
+                try {
+                    it.remove();
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+        };
+    }
+}
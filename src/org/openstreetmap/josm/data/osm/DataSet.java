@@ -3,6 +3,7 @@ package org.openstreetmap.josm.data.osm;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -14,13 +15,13 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Data;
@@ -46,7 +47,6 @@ import org.openstreetmap.josm.data.projection.ProjectionChangeListener;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.tagging.ac.AutoCompletionManager;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
-import org.openstreetmap.josm.tools.Utils;
 
 /**
  * DataSet is the data behind the application. It can consists of only a few points up to the whole
@@ -104,9 +104,51 @@ public final class DataSet implements Data, ProjectionChangeListener {
      */
     private static final int MAX_EVENTS = 1000;
 
-    private final Storage<OsmPrimitive> allPrimitives = new Storage<>(new Storage.PrimitiveIdHash(), true);
-    private final Map<PrimitiveId, OsmPrimitive> primitivesMap = allPrimitives.foreignKey(new Storage.PrimitiveIdHash());
+    private final PrimitiveIdTable<Node> nodesById = new PrimitiveIdTable<>();
+    private final PrimitiveIdTable<Way> waysById = new PrimitiveIdTable<>();
+    private final PrimitiveIdTable<Relation> relationsById = new PrimitiveIdTable<>();
+    /** All primitives, a view of the three id tables */
+    private final Collection<OsmPrimitive> allPrimitives = new AbstractCollection<OsmPrimitive>() {
+        @Override
+        public Iterator<OsmPrimitive> iterator() {
+            return new Iterator<OsmPrimitive>() {
+                private final List<Iterator<? extends OsmPrimitive>> iterators = Arrays.asList(
+                        nodesById.iterator(), waysById.iterator(), relationsById.iterator());
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    while (index < iterators.size()) {
+                        if (iterators.get(index).hasNext())
+                            return true;
+                        index++;
+                    }
+                    return false;
+                }
+
+                @Override
+                public OsmPrimitive next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    return iterators.get(index).next();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof OsmPrimitive && getPrimitiveById((OsmPrimitive) o) != null;
+        }
+
+        @Override
+        public int size() {
+            return nodesById.size() + waysById.size() + relationsById.size();
+        }
+    };
     private final CopyOnWriteArrayList<DataSetListener> listeners = new CopyOnWriteArrayList<>();
+    /** the index of the primitives by tag key, {@code null} until it is first requested */
+    private volatile TagIndex tagIndex;
+    private final Object tagIndexLock = new Object();
 
     // provide means to highlight map elements that are not osm primitives
     private Collection<WaySegment> highlightedVirtualNodes = new LinkedList<>();
@@ -307,7 +349,7 @@ public final class DataSet implements Data, ProjectionChangeListener {
      * All nodes goes here, even when included in other data (ways etc). This enables the instant
      * conversion of the whole DataSet by iterating over this data structure.
      */
-    private final QuadBuckets<Node> nodes = new QuadBuckets<>();
+    private final ConcurrentQuadBuckets<Node> nodes = new ConcurrentQuadBuckets<>();
 
     /**
      * Gets a filtered collection of primitives matching the given predicate.
@@ -331,16 +373,14 @@ public final class DataSet implements Data, ProjectionChangeListener {
 
     /**
      * Searches for nodes in the given bounding box.
+     * <p>
+     * The spatial index can be searched while the dataset is modified by another thread, so this method does not
+     * wait for the dataset lock. Lock the dataset manually if the found nodes must not change while they are used.
      * @param bbox the bounding box
      * @return List of nodes in the given bbox. Can be empty but not null
      */
     public List<Node> searchNodes(BBox bbox) {
-        lock.readLock().lock();
-        try {
-            return nodes.search(bbox);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return nodes.search(bbox);
     }
 
     /**
@@ -360,7 +400,7 @@ public final class DataSet implements Data, ProjectionChangeListener {
      *
      * The way nodes are stored only in the way list.
      */
-    private final QuadBuckets<Way> ways = new QuadBuckets<>();
+    private final ConcurrentQuadBuckets<Way> ways = new ConcurrentQuadBuckets<>();
 
     /**
      * Replies an unmodifiable collection of ways in this dataset
@@ -373,16 +413,14 @@ public final class DataSet implements Data, ProjectionChangeListener {
 
     /**
      * Searches for ways in the given bounding box.
+     * <p>
+     * The spatial index can be searched while the dataset is modified by another thread, so this method does not
+     * wait for the dataset lock. Lock the dataset manually if the found ways must not change while they are used.
      * @param bbox the bounding box
      * @return List of ways in the given bbox. Can be empty but not null
      */
     public List<Way> searchWays(BBox bbox) {
-        lock.readLock().lock();
-        try {
-            return ways.search(bbox);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return ways.search(bbox);
     }
 
     /**
@@ -398,9 +436,10 @@ public final class DataSet implements Data, ProjectionChangeListener {
     }
 
     /**
-     * All relations/relationships
+     * All relations/relationships. Relations are indexed by the bounding box of their members,
+     * so they have to be reindexed whenever the position of one of their members changes.
      */
-    private final Collection<Relation> relations = new ArrayList<>();
+    private final ConcurrentQuadBuckets<Relation> relations = new ConcurrentQuadBuckets<>();
 
     /**
      * Replies an unmodifiable collection of relations in this dataset
@@ -413,19 +452,14 @@ public final class DataSet implements Data, ProjectionChangeListener {
 
     /**
      * Searches for relations in the given bounding box.
+     * <p>
+     * The spatial index can be searched while the dataset is modified by another thread, so this method does not
+     * wait for the dataset lock. Lock the dataset manually if the found relations must not change while they are used.
      * @param bbox the bounding box
      * @return List of relations in the given bbox. Can be empty but not null
      */
     public List<Relation> searchRelations(BBox bbox) {
-        lock.readLock().lock();
-        try {
-            // QuadBuckets might be useful here (don't forget to do reindexing after some of rm is changed)
-            return relations.stream()
-                    .filter(r -> r.getBBox().intersects(bbox))
-                    .collect(Collectors.toList());
-        } finally {
-            lock.readLock().unlock();
-        }
+        return relations.search(bbox);
     }
 
     /**
@@ -440,6 +474,63 @@ public final class DataSet implements Data, ProjectionChangeListener {
         return relations.contains(r);
     }
 
+    /**
+     * Returns the primitives of the given type. Unlike {@link #getNodes()}, {@link #getWays()} and {@link #getRelations()},
+     * the primitives of the other types are not gone through to find them.
+     * <p>
+     * Lock the dataset manually while the returned collection is used.
+     * @param type the type of primitives. Closed ways and multipolygons are returned together with all ways and relations
+     * @return an unmodifiable view of the primitives of the given type, including deleted primitives
+     * @since xxx
+     */
+    public Collection<? extends OsmPrimitive> getPrimitivesByType(OsmPrimitiveType type) {
+        switch (type) {
+        case NODE:
+            return view(nodesById);
+        case WAY:
+        case CLOSEDWAY:
+            return view(waysById);
+        default:
+            return view(relationsById);
+        }
+    }
+
+    private static <T extends OsmPrimitive> Collection<T> view(PrimitiveIdTable<T> table) {
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return table.iterator();
+            }
+
+            @Override
+            public int size() {
+                return table.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the index of the primitives of this dataset by tag key. The index is built when it is first requested and
+     * then kept up to date by the dataset.
+     * <p>
+     * Lock the dataset with {@link #getReadLock()} while the index is used.
+     * @return the index of the primitives by tag key
+     * @since xxx
+     */
+    public TagIndex getTagIndex() {
+        TagIndex index = tagIndex;
+        if (index == null) {
+            synchronized (tagIndexLock) {
+                index = tagIndex;
+                if (index == null) {
+                    index = new TagIndex(allPrimitives);
+                    tagIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
     /**
      * All data sources of this DataSet.
      */
@@ -506,15 +597,17 @@ public final class DataSet implements Data, ProjectionChangeListener {
             primitive.updatePosition(); // Set cached bbox for way and relation (required for reindexWay and reinexRelation to work properly)
             boolean success = false;
             if (primitive instanceof Node) {
-                success = nodes.add((Node) primitive);
+                success = nodes.add((Node) primitive) && nodesById.add((Node) primitive);
             } else if (primitive instanceof Way) {
-                success = ways.add((Way) primitive);
+                success = ways.add((Way) primitive) && waysById.add((Way) primitive);
             } else if (primitive instanceof Relation) {
-                success = relations.add((Relation) primitive);
+                success = relations.add((Relation) primitive) && relationsById.add((Relation) primitive);
             }
             if (!success)
                 throw new RuntimeException("failed to add primitive: "+primitive);
-            allPrimitives.add(primitive);
+            if (tagIndex != null) {
+                tagIndex.add(primitive);
+            }
             primitive.setDataset(this);
             firePrimitivesAdded(Collections.singletonList(primitive), false);
         } finally {
@@ -539,11 +632,11 @@ public final class DataSet implements Data, ProjectionChangeListener {
                 return;
             boolean success = false;
             if (primitive instanceof Node) {
-                success = nodes.remove(primitive);
+                success = nodes.remove(primitive) & nodesById.remove(primitive);
             } else if (primitive instanceof Way) {
-                success = ways.remove(primitive);
+                success = ways.remove(primitive) & waysById.remove(primitive);
             } else if (primitive instanceof Relation) {
-                success = relations.remove(primitive);
+                success = relations.remove(primitive) & relationsById.remove(primitive);
             }
             if (!success)
                 throw new RuntimeException("failed to remove primitive: "+primitive);
@@ -551,7 +644,9 @@ public final class DataSet implements Data, ProjectionChangeListener {
                 selectedPrimitives.remove(primitive);
                 selectionSnapshot = null;
             }
-            allPrimitives.remove(primitive);
+            if (tagIndex != null) {
+                tagIndex.remove(primitive);
+            }
             primitive.setDataset(null);
             firePrimitivesRemoved(Collections.singletonList(primitive), false);
         } finally {
@@ -929,7 +1024,16 @@ public final class DataSet implements Data, ProjectionChangeListener {
      * @throws NullPointerException if type is null
      */
     public OsmPrimitive getPrimitiveById(long id, OsmPrimitiveType type) {
-        return getPrimitiveById(new SimplePrimitiveId(id, type));
+        switch (type) {
+        case NODE:
+            return nodesById.get(id);
+        case WAY:
+            return waysById.get(id);
+        case RELATION:
+            return relationsById.get(id);
+        default:
+            return null;
+        }
     }
 
     /**
@@ -939,7 +1043,7 @@ public final class DataSet implements Data, ProjectionChangeListener {
      * @return the primitive
      */
     public OsmPrimitive getPrimitiveById(PrimitiveId primitiveId) {
-        return primitiveId != null ? primitivesMap.get(primitiveId) : null;
+        return primitiveId != null ? getPrimitiveById(primitiveId.getUniqueId(), primitiveId.getType()) : null;
     }
 
     /**
@@ -1061,11 +1165,7 @@ public final class DataSet implements Data, ProjectionChangeListener {
     }
 
     private void reindexNode(Node node, LatLon newCoor, EastNorth eastNorth) {
-        if (!nodes.remove(node))
-            throw new RuntimeException("Reindexing node failed to remove");
-        node.setCoorInternal(newCoor, eastNorth);
-        if (!nodes.add(node))
-            throw new RuntimeException("Reindexing node failed to add");
+        nodes.reindex(node, () -> node.setCoorInternal(newCoor, eastNorth));
         for (OsmPrimitive primitive: node.getReferrers()) {
             if (primitive instanceof Way) {
                 reindexWay((Way) primitive);
@@ -1077,11 +1177,7 @@ public final class DataSet implements Data, ProjectionChangeListener {
 
     private void reindexWay(Way way) {
         BBox before = way.getBBox();
-        if (!ways.remove(way))
-            throw new RuntimeException("Reindexing way failed to remove");
-        way.updatePosition();
-        if (!ways.add(way))
-            throw new RuntimeException("Reindexing way failed to add");
+        ways.reindex(way, way::updatePosition);
         if (!way.getBBox().equals(before)) {
             for (OsmPrimitive primitive: way.getReferrers()) {
                 reindexRelation((Relation) primitive);
@@ -1089,9 +1185,9 @@ public final class DataSet implements Data, ProjectionChangeListener {
         }
     }
 
-    private static void reindexRelation(Relation relation) {
+    private void reindexRelation(Relation relation) {
         BBox before = relation.getBBox();
-        relation.updatePosition();
+        relations.reindex(relation, relation::updatePosition);
         if (!before.equals(relation.getBBox())) {
             for (OsmPrimitive primitive: relation.getReferrers()) {
                 reindexRelation((Relation) primitive);
@@ -1193,22 +1289,28 @@ public final class DataSet implements Data, ProjectionChangeListener {
     }
 
     void fireTagsChanged(OsmPrimitive prim, Map<String, String> originalKeys) {
+        if (tagIndex != null) {
+            tagIndex.tagsChanged(prim, originalKeys);
+        }
         fireEvent(new TagsChangedEvent(this, prim, originalKeys));
     }
 
     void fireRelationMembersChanged(Relation r) {
+        BBox before = r.getBBox();
         reindexRelation(r);
-        fireEvent(new RelationMembersChangedEvent(this, r));
+        fireEvent(new RelationMembersChangedEvent(this, r, before));
     }
 
     void fireNodeMoved(Node node, LatLon newCoor, EastNorth eastNorth) {
+        LatLon before = node.getCoor();
         reindexNode(node, newCoor, eastNorth);
-        fireEvent(new NodeMovedEvent(this, node));
+        fireEvent(new NodeMovedEvent(this, node, before));
     }
 
     void fireWayNodesChanged(Way way) {
+        BBox before = way.getBBox();
         reindexWay(way);
-        fireEvent(new WayNodesChangedEvent(this, way));
+        fireEvent(new WayNodesChangedEvent(this, way, before));
     }
 
     void fireChangesetIdChanged(OsmPrimitive primitive, int oldChangesetId, int newChangesetId) {
@@ -1227,13 +1329,14 @@ public final class DataSet implements Data, ProjectionChangeListener {
      * Invalidates the internal cache of projected east/north coordinates.
      *
      * This method can be invoked after the globally configured projection method
-     * changed.
+     * changed. The nodes are projected again when they are next used, the visible nodes in blocks
+     * when the map is painted, see {@link Node#updateEastNorthCache}.
      */
     public void invalidateEastNorthCache() {
         if (Main.getProjection() == null) return; // sanity check
         try {
             beginUpdate();
-            for (Node n: Utils.filteredCollection(allPrimitives, Node.class)) {
+            for (Node n: view(nodesById)) {
                 n.invalidateEastNorthCache();
             }
         } finally {
@@ -1247,11 +1350,11 @@ public final class DataSet implements Data, ProjectionChangeListener {
     public void cleanupDeletedPrimitives() {
         beginUpdate();
         try {
-            boolean changed = cleanupDeleted(nodes.iterator());
-            if (cleanupDeleted(ways.iterator())) {
+            boolean changed = cleanupDeleted(nodes.iterator(), nodesById);
+            if (cleanupDeleted(ways.iterator(), waysById)) {
                 changed = true;
             }
-            if (cleanupDeleted(relations.iterator())) {
+            if (cleanupDeleted(relations.iterator(), relationsById)) {
                 changed = true;
             }
             if (changed) {
@@ -1262,7 +1365,7 @@ public final class DataSet implements Data, ProjectionChangeListener {
         }
     }
 
-    private boolean cleanupDeleted(Iterator<? extends OsmPrimitive> it) {
+    private boolean cleanupDeleted(Iterator<? extends OsmPrimitive> it, PrimitiveIdTable<?> idTable) {
         boolean changed = false;
         synchronized (selectionLock) {
             while (it.hasNext()) {
@@ -1270,7 +1373,10 @@ public final class DataSet implements Data, ProjectionChangeListener {
                 if (primitive.isDeleted() && (!primitive.isVisible() || primitive.isNew())) {
                     selectedPrimitives.remove(primitive);
                     selectionSnapshot = null;
-                    allPrimitives.remove(primitive);
+                    idTable.remove(primitive);
+                    if (tagIndex != null) {
+                        tagIndex.remove(primitive);
+                    }
                     primitive.setDataset(null);
                     changed = true;
                     it.remove();
@@ -1298,7 +1404,10 @@ public final class DataSet implements Data, ProjectionChangeListener {
             nodes.clear();
             ways.clear();
             relations.clear();
-            allPrimitives.clear();
+            nodesById.clear();
+            waysById.clear();
+            relationsById.clear();
+            tagIndex = null;
         } finally {
             endUpdate();
         }
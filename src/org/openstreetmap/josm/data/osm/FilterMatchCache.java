@@ -0,0 +1,158 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openstreetmap.josm.actions.search.SearchAction.SearchSetting;
+import org.openstreetmap.josm.actions.search.SearchCompiler;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
+import org.openstreetmap.josm.actions.search.SearchCompiler.ParseError;
+
+/**
+ * Remembers which primitives of a data set match the search expressions of filters.
+ * <p>
+ * The first time a filter is applied to a primitive of the data set, its expression is evaluated for all primitives of
+ * the data set. Afterwards, the filter is looked up in the set of matching primitives, which is kept up to date by
+ * {@link #update} for the primitives which changed. When a filter is enabled, disabled or reordered, only the
+ * expressions which are not cached yet have to be evaluated.
+ * <p>
+ * Expressions depending on the selection or the map view, see {@link Match#isStateDependent()}, are not cached but
+ * evaluated each time, since their result changes without any change of the data set.
+ * <p>
+ * The cache does not notice changes by itself. It has to be told about every change of the data set, or be
+ * {@linkplain #clear cleared}.
+ * @since xxx
+ */
+public class FilterMatchCache {
+
+    private DataSet dataSet;
+    private final Map<List<Object>, CachedMatch> matches = new HashMap<>();
+
+    /**
+     * The result of a search expression for the primitives of the data set.
+     */
+    final class CachedMatch extends Match {
+        final Match match;
+        private final boolean stateDependent;
+        /** the matching primitives of the data set, {@code null} until they have been computed */
+        private Set<OsmPrimitive> matching;
+
+        CachedMatch(Match match) {
+            this.match = match;
+            this.stateDependent = match.isStateDependent();
+        }
+
+        @Override
+        public boolean match(OsmPrimitive osm) {
+            if (stateDependent || dataSet == null || osm.getDataSet() != dataSet)
+                return match.match(osm);
+            if (matching == null) {
+                matching = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (OsmPrimitive p : dataSet.allPrimitives()) {
+                    if (match.match(p)) {
+                        matching.add(p);
+                    }
+                }
+            }
+            return matching.contains(osm);
+        }
+
+        @Override
+        public boolean match(Tagged tagged) {
+            return match.match(tagged);
+        }
+
+        @Override
+        public boolean isStateDependent() {
+            return stateDependent;
+        }
+
+        void update(OsmPrimitive p) {
+            if (matching == null)
+                return;
+            if (p.getDataSet() == dataSet && match.match(p)) {
+                matching.add(p);
+            } else {
+                matching.remove(p);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return match.toString();
+        }
+    }
+
+    private static List<Object> getKey(SearchSetting setting) {
+        return Arrays.<Object>asList(setting.text, setting.caseSensitive, setting.regexSearch, setting.mapCSSSearch);
+    }
+
+    /**
+     * Sets the data set whose primitives are cached. The cache is cleared if the data set changes.
+     * @param dataSet the data set, can be {@code null}
+     */
+    public void setDataSet(DataSet dataSet) {
+        if (this.dataSet != dataSet) {
+            clear();
+            this.dataSet = dataSet;
+        }
+    }
+
+    /**
+     * Forgets the matching primitives of all filters. They will be computed again when the filters are next applied.
+     */
+    public void clear() {
+        for (CachedMatch match : matches.values()) {
+            match.matching = null;
+        }
+    }
+
+    /**
+     * Returns the compiled search expression of a filter, which remembers the matching primitives of the data set.
+     * The {@linkplain Filter#inverted inversion} of the filter is not taken into account.
+     * @param filter the filter
+     * @return the compiled search expression
+     * @throws ParseError if the search expression cannot be parsed
+     */
+    public Match getMatch(Filter filter) throws ParseError {
+        List<Object> key = getKey(filter);
+        CachedMatch match = matches.get(key);
+        if (match == null) {
+            match = new CachedMatch(SearchCompiler.compile(filter));
+            matches.put(key, match);
+        }
+        return match;
+    }
+
+    /**
+     * Drops the search expressions which are not used by the given filters anymore.
+     * @param filters the filters in use, enabled or not
+     */
+    public void retain(Collection<Filter> filters) {
+        Set<List<Object>> keys = new HashSet<>();
+        for (Filter filter : filters) {
+            keys.add(getKey(filter));
+        }
+        matches.keySet().retainAll(keys);
+    }
+
+    /**
+     * Evaluates the search expressions again for primitives which have been added, removed or changed.
+     * @param primitives the primitives
+     */
+    public void update(Collection<? extends OsmPrimitive> primitives) {
+        for (CachedMatch match : matches.values()) {
+            for (OsmPrimitive p : primitives) {
+                match.update(p);
+            }
+        }
+    }
+}
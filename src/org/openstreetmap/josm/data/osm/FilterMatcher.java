@@ -7,9 +7,13 @@ import java.util.List;
 
 import org.openstreetmap.josm.actions.search.SearchAction.SearchMode;
 import org.openstreetmap.josm.actions.search.SearchCompiler;
+import org.openstreetmap.josm.actions.search.SearchCompiler.AbstractBinaryMatch;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Child;
 import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
 import org.openstreetmap.josm.actions.search.SearchCompiler.Not;
+import org.openstreetmap.josm.actions.search.SearchCompiler.Parent;
 import org.openstreetmap.josm.actions.search.SearchCompiler.ParseError;
+import org.openstreetmap.josm.actions.search.SearchCompiler.UnaryMatch;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 
 /**
@@ -76,14 +80,14 @@ public class FilterMatcher {
         private final boolean isDelete;
         private final boolean isInverted;
 
-        FilterInfo(Filter filter) throws ParseError {
+        FilterInfo(Filter filter, FilterMatchCache cache) throws ParseError {
             if (filter.mode == SearchMode.remove || filter.mode == SearchMode.in_selection) {
                 isDelete = true;
             } else {
                 isDelete = false;
             }
 
-            Match compiled = SearchCompiler.compile(filter);
+            Match compiled = cache != null ? cache.getMatch(filter) : SearchCompiler.compile(filter);
             this.match = filter.inverted ? new Not(compiled) : compiled;
             this.isInverted = filter.inverted;
         }
@@ -91,6 +95,24 @@ public class FilterMatcher {
 
     private final List<FilterInfo> hiddenFilters = new ArrayList<>();
     private final List<FilterInfo> disabledFilters = new ArrayList<>();
+    private final FilterMatchCache cache;
+    private boolean usesParentOrChild;
+
+    /**
+     * Constructs a new {@code FilterMatcher} which evaluates the filters on each primitive.
+     */
+    public FilterMatcher() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new {@code FilterMatcher} which looks up the primitives matching the filters in a cache.
+     * @param cache the cache of the primitives matching the filters, can be {@code null}
+     * @since xxx
+     */
+    public FilterMatcher(FilterMatchCache cache) {
+        this.cache = cache;
+    }
 
     /**
      * Clears the current filters, and adds the given filters
@@ -110,6 +132,7 @@ public class FilterMatcher {
     public void reset() {
         hiddenFilters.clear();
         disabledFilters.clear();
+        usesParentOrChild = false;
     }
 
     /**
@@ -122,7 +145,8 @@ public class FilterMatcher {
             return;
         }
 
-        FilterInfo fi = new FilterInfo(filter);
+        FilterInfo fi = new FilterInfo(filter, cache);
+        usesParentOrChild |= usesParentOrChild(fi.match);
         if (fi.isDelete) {
             if (filter.hiding) {
                 // Remove only hide flag
@@ -147,6 +171,27 @@ public class FilterMatcher {
         }
     }
 
+    private static boolean usesParentOrChild(Match match) {
+        if (match instanceof Parent || match instanceof Child)
+            return true;
+        else if (match instanceof UnaryMatch)
+            return usesParentOrChild(((UnaryMatch) match).getOperand());
+        else if (match instanceof AbstractBinaryMatch)
+            return usesParentOrChild(((AbstractBinaryMatch) match).getLhs()) || usesParentOrChild(((AbstractBinaryMatch) match).getRhs());
+        else
+            return match instanceof FilterMatchCache.CachedMatch && usesParentOrChild(((FilterMatchCache.CachedMatch) match).match);
+    }
+
+    /**
+     * Determines if one of the filters uses a {@code parent} or {@code child} expression. If so, a change of a primitive
+     * can affect the filters of all primitives connected to it, and not only of its parents and children.
+     * @return {@code true} if one of the filters uses a {@code parent} or {@code child} expression
+     * @since xxx
+     */
+    public boolean usesParentOrChild() {
+        return usesParentOrChild;
+    }
+
     /**
      * Check if primitive is filtered.
      * @param primitive the primitive to check
@@ -1,11 +1,19 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.openstreetmap.josm.data.osm.FilterMatcher.FilterType;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Class for applying {@link Filter}s to {@link OsmPrimitive}s.
@@ -71,6 +79,75 @@ public final class FilterWorker {
         return doExecuteFilters(Collections.singleton(primitive), filterMatcher);
     }
 
+    /**
+     * Returns the primitives whose filter expressions may give another result when the given primitives change.
+     * <p>
+     * Expressions like {@code nth:}, {@code role:} or {@code nodes:} depend on the parents or children of a primitive.
+     * Nested {@code parent} and {@code child} expressions can depend on any connected primitive.
+     * @param primitives the changed primitives
+     * @param connected if {@code true}, all primitives connected to the changed primitives are returned, otherwise
+     * only their parents and children
+     * @return the changed primitives together with their parents and children, or with all connected primitives
+     * @since xxx
+     */
+    public static Set<OsmPrimitive> getRelatedPrimitives(Collection<? extends OsmPrimitive> primitives, boolean connected) {
+        Set<OsmPrimitive> result = new HashSet<>(primitives);
+        Deque<OsmPrimitive> stack = new ArrayDeque<>(primitives);
+        while (!stack.isEmpty()) {
+            OsmPrimitive p = stack.pop();
+            List<OsmPrimitive> related = new ArrayList<>(p.getReferrers());
+            if (p instanceof Way) {
+                related.addAll(((Way) p).getNodes());
+            } else if (p instanceof Relation) {
+                related.addAll(((Relation) p).getMemberPrimitivesList());
+            }
+            for (OsmPrimitive r : related) {
+                if (result.add(r) && connected) {
+                    stack.push(r);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the primitives whose filter state may change when the filter state of the given primitives changes,
+     * in the order in which the filters have to be applied to them.
+     * <p>
+     * Untagged nodes inherit the filter state of their ways, untagged ways the one of their multipolygons.
+     * @param primitives the primitives
+     * @return the given primitives, the member ways of the given multipolygons and the nodes of the given and of these
+     * ways; relations first, then ways and nodes last
+     * @since xxx
+     */
+    public static List<OsmPrimitive> getDependentPrimitives(Collection<? extends OsmPrimitive> primitives) {
+        Set<Relation> relations = new LinkedHashSet<>();
+        Set<Way> ways = new LinkedHashSet<>();
+        Set<Node> nodes = new LinkedHashSet<>();
+        for (OsmPrimitive p : primitives) {
+            if (p instanceof Relation) {
+                relations.add((Relation) p);
+            } else if (p instanceof Way) {
+                ways.add((Way) p);
+            } else {
+                nodes.add((Node) p);
+            }
+        }
+        for (Relation r : relations) {
+            if (r.isMultipolygon()) {
+                ways.addAll(Utils.filteredCollection(r.getMemberPrimitivesList(), Way.class));
+            }
+        }
+        for (Way w : ways) {
+            nodes.addAll(w.getNodes());
+        }
+        List<OsmPrimitive> result = new ArrayList<>(relations.size() + ways.size() + nodes.size());
+        result.addAll(relations);
+        result.addAll(ways);
+        result.addAll(nodes);
+        return result;
+    }
+
     /**
      * Clear all filter flags, i.e.&nbsp;turn off filters.
      * @param prims the primitives
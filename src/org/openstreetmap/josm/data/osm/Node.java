@@ -40,6 +40,11 @@ public final class Node extends OsmPrimitive implements INode {
      */
     private Object eastNorthCacheKey;
 
+    /**
+     * The number of nodes projected together by {@link #updateEastNorthCache}.
+     */
+    private static final int EAST_NORTH_BLOCK_SIZE = 1024;
+
     /**
      * Determines if this node has valid coordinates.
      * @return {@code true} if this node has valid coordinates
@@ -121,6 +126,51 @@ public final class Node extends OsmPrimitive implements INode {
         return new EastNorth(east, north);
     }
 
+    /**
+     * Fills the internal cache of projected coordinates of several nodes, like {@link #getEastNorth(Projection)}, but
+     * projects the nodes in blocks without creating objects for each node. Nodes whose projected coordinates are
+     * cached already and nodes without coordinates are skipped.
+     * @param nodes the nodes
+     * @param projection the projection to use
+     * @see Projection#latlon2eastNorth(double[], int, int)
+     * @since xxx
+     */
+    public static void updateEastNorthCache(Iterable<Node> nodes, Projection projection) {
+        Object cacheKey = projection.getCacheKey();
+        Node[] block = null;
+        double[] coords = null;
+        int count = 0;
+        for (Node n : nodes) {
+            if (!n.isLatLonKnown() || (!Double.isNaN(n.east) && !Double.isNaN(n.north) && Objects.equals(cacheKey, n.eastNorthCacheKey))) {
+                continue;
+            }
+            if (block == null) {
+                block = new Node[EAST_NORTH_BLOCK_SIZE];
+                coords = new double[2 * EAST_NORTH_BLOCK_SIZE];
+            }
+            block[count] = n;
+            coords[2 * count] = n.lat;
+            coords[2 * count + 1] = n.lon;
+            if (++count == block.length) {
+                setEastNorthCache(block, coords, count, projection, cacheKey);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            setEastNorthCache(block, coords, count, projection, cacheKey);
+        }
+    }
+
+    private static void setEastNorthCache(Node[] block, double[] coords, int count, Projection projection, Object cacheKey) {
+        projection.latlon2eastNorth(coords, 0, count);
+        for (int i = 0; i < count; i++) {
+            Node n = block[i];
+            n.east = coords[2 * i];
+            n.north = coords[2 * i + 1];
+            n.eastNorthCacheKey = cacheKey;
+        }
+    }
+
     /**
      * To be used only by Dataset.reindexNode
      * @param coor lat/lon
@@ -938,6 +938,8 @@ public abstract class OsmPrimitive extends AbstractPrimitive implements Comparab
     @Override
     protected void keysChangedImpl(Map<String, String> originalKeys) {
         clearCachedStyle();
+        // StyleCacheInvalidator also clears the styles of children and of further levels when the event is fired,
+        // but only for data sets it listens to (those of data layers)
         if (dataSet != null) {
             for (OsmPrimitive ref : getReferrers()) {
                 ref.clearCachedStyle();
@@ -0,0 +1,186 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An open addressing hash table of primitives of one type, looked up by their {@linkplain OsmPrimitive#getUniqueId() unique id}.
+ * <p>
+ * Unlike a {@link Storage} with a {@link Storage.PrimitiveIdHash}, a lookup needs neither a {@link PrimitiveId} instance
+ * nor synchronization. The table is modified by one thread at a time (the one holding the dataset write lock) but may be
+ * read by other threads at the same time: removed entries are replaced by a marker instead of moving other entries around
+ * and a grown table is only published once it is completely filled.
+ * <p>
+ * Like a {@link Storage} with a safe iterator, the table may be modified while it is iterated over: the first modification
+ * after an iterator has been created copies the table, so that the iterator goes on over the primitives it started with.
+ * <p>
+ * The id of a primitive must not change while it is contained in the table.
+ * @param <T> type of primitives
+ * @since xxx
+ */
+final class PrimitiveIdTable<T extends OsmPrimitive> {
+    private static final Object REMOVED = new Object();
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Object[] table = new Object[MIN_CAPACITY];
+    /** number of primitives in the table */
+    private int size;
+    /** number of slots that are not {@code null}, i.e. primitives and removed markers */
+    private int used;
+    /** set when an iterator is created, the next modification then copies the table */
+    private volatile boolean copyNecessary;
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns the primitive with the given unique id.
+     * @param id the unique id
+     * @return the primitive with the given id or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    T get(long id) {
+        Object[] t = table;
+        int mask = t.length - 1;
+        for (int i = hash(id) & mask;; i = (i + 1) & mask) {
+            Object o = t[i];
+            if (o == null)
+                return null;
+            if (o != REMOVED && ((OsmPrimitive) o).getUniqueId() == id)
+                return (T) o;
+        }
+    }
+
+    /**
+     * Adds a primitive to the table.
+     * @param primitive the primitive
+     * @return {@code true} if the primitive was added, {@code false} if a primitive with the same id is already contained
+     */
+    boolean add(T primitive) {
+        long id = primitive.getUniqueId();
+        if (get(id) != null)
+            return false;
+        if ((used + 1) * 4L > table.length * 3L) {
+            resize(size + 1);
+        } else {
+            copyTable();
+        }
+        Object[] t = table;
+        int mask = t.length - 1;
+        int i = hash(id) & mask;
+        while (t[i] != null && t[i] != REMOVED) {
+            i = (i + 1) & mask;
+        }
+        if (t[i] == null) {
+            used++;
+        }
+        t[i] = primitive;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes a primitive from the table.
+     * @param primitive the primitive
+     * @return {@code true} if the primitive was contained in the table
+     */
+    boolean remove(OsmPrimitive primitive) {
+        Object[] t = table;
+        int mask = t.length - 1;
+        for (int i = hash(primitive.getUniqueId()) & mask;; i = (i + 1) & mask) {
+            Object o = t[i];
+            if (o == null)
+                return false;
+            if (o == primitive) {
+                copyTable();
+                table[i] = REMOVED;
+                size--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all primitives from the table.
+     */
+    void clear() {
+        table = new Object[MIN_CAPACITY];
+        size = 0;
+        used = 0;
+        copyNecessary = false;
+    }
+
+    /**
+     * Returns the number of primitives in the table.
+     * @return the number of primitives
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns an iterator over the primitives of the table. The iterator is not affected by later modifications.
+     * @return an iterator over the primitives
+     */
+    Iterator<T> iterator() {
+        copyNecessary = true;
+        final Object[] t = table;
+        return new Iterator<T>() {
+            private int index = advance(0);
+
+            private int advance(int i) {
+                while (i < t.length && (t[i] == null || t[i] == REMOVED)) {
+                    i++;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < t.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                T primitive = (T) t[index];
+                index = advance(index + 1);
+                return primitive;
+            }
+        };
+    }
+
+    private void resize(int minSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < minSize * 2L) {
+            capacity <<= 1;
+        }
+        Object[] old = table;
+        Object[] t = new Object[capacity];
+        int mask = capacity - 1;
+        for (Object o : old) {
+            if (o != null && o != REMOVED) {
+                int i = hash(((OsmPrimitive) o).getUniqueId()) & mask;
+                while (t[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                t[i] = o;
+            }
+        }
+        used = size;
+        table = t;
+        copyNecessary = false;
+    }
+
+    private void copyTable() {
+        if (copyNecessary) {
+            table = table.clone();
+            copyNecessary = false;
+        }
+    }
+}
@@ -301,7 +301,7 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
         private void search(BBox searchBbox, List<T> result) {
             if (!this.bbox().intersects(searchBbox))
                 return;
-            else if (bbox().bounds(searchBbox)) {
+            else if (buckets.useSearchCache && bbox().bounds(searchBbox)) {
                 buckets.searchCache = this;
             }
 
@@ -392,17 +392,29 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
 
     private QBLevel<T> root;
     private QBLevel<T> searchCache;
+    private final boolean useSearchCache;
     private int size;
 
     /**
      * Constructs a new {@code QuadBuckets}.
      */
     public QuadBuckets() {
-        clear();
+        this(true);
+    }
+
+    /**
+     * Constructs a new {@code QuadBuckets}.
+     * @param useSearchCache if {@code true}, the bucket found by the last search is remembered to speed up the next search
+     * in the same area. This makes searching a write operation, so it must be {@code false} if several threads search at the same time.
+     * @since xxx
+     */
+    protected QuadBuckets(boolean useSearchCache) {
+        this.useSearchCache = useSearchCache;
+        this.root = new QBLevel<>(this);
     }
 
     @Override
-    public final void clear() {
+    public void clear() {
         root = new QBLevel<>(this);
         searchCache = null;
         size = 0;
@@ -582,8 +594,20 @@ public class QuadBuckets<T extends OsmPrimitive> implements Collection<T> {
         return size == 0;
     }
 
+    /**
+     * Search the tree for objects in the bbox (or crossing the bbox if they are ways or relations)
+     * @param searchBbox the bbox
+     * @return List of primitives within the bbox (or crossing the bbox if they are ways or relations). Can be empty, but not null.
+     */
     public List<T> search(BBox searchBbox) {
         List<T> ret = new ArrayList<>();
+        if (searchBbox == null) {
+            return ret;
+        }
+        if (!useSearchCache) {
+            root.search(searchBbox, ret);
+            return ret;
+        }
         // Doing this cuts down search cost on a real-life data set by about 25%
         if (searchCache == null) {
             searchCache = root;
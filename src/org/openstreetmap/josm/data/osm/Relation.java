@@ -446,20 +446,17 @@ public final class Relation extends OsmPrimitive implements IRelation {
 
     @Override
     public BBox getBBox() {
-        RelationMember[] members = this.members;
-
-        if (members.length == 0)
-            return new BBox(0, 0, 0, 0);
-        if (getDataSet() == null)
-            return calculateBBox(new HashSet<PrimitiveId>());
-        else {
+        if (getDataSet() == null) {
+            if (members.length == 0)
+                return new BBox(0, 0, 0, 0);
+            BBox result = calculateBBox(new HashSet<PrimitiveId>());
+            return result != null ? result : new BBox(0, 0, 0, 0); // No real members
+        } else {
+            // the cached bbox is the one the relation is indexed with, even if all members have just been removed
             if (bbox == null) {
-                bbox = calculateBBox(new HashSet<PrimitiveId>());
+                updatePosition();
             }
-            if (bbox == null)
-                return new BBox(0, 0, 0, 0); // No real members
-            else
-                return new BBox(bbox);
+            return new BBox(bbox);
         }
     }
 
@@ -489,14 +486,17 @@ public final class Relation extends OsmPrimitive implements IRelation {
 
     @Override
     public void updatePosition() {
-        bbox = calculateBBox(new HashSet<PrimitiveId>());
+        BBox result = calculateBBox(new HashSet<PrimitiveId>());
+        bbox = result != null ? result : new BBox(0, 0, 0, 0); // No real members
     }
 
     @Override
     void setDataset(DataSet dataSet) {
         super.setDataset(dataSet);
         checkMembers();
-        bbox = null; // bbox might have changed if relation was in ds, was removed, modified, added back to dataset
+        // bbox might have changed if relation was in ds, was removed, modified, added back to dataset.
+        // It is computed right away as the dataset indexes relations by their cached bbox.
+        updatePosition();
     }
 
     /**
@@ -0,0 +1,111 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the primitives of a {@link DataSet} by tag key.
+ * <p>
+ * The index is created by {@link DataSet#getTagIndex()} and then kept up to date by the dataset whenever a primitive is
+ * added or removed or its tags change. Primitives are only indexed by key: the primitives with a given value are found by
+ * testing the primitives with the key, so that the many rare values of keys like {@code name} or {@code ref} do not
+ * need a set of their own.
+ * <p>
+ * The index is modified while the dataset write lock is held. Lock the dataset with {@link DataSet#getReadLock()}
+ * while the index is used.
+ * @since xxx
+ */
+public class TagIndex {
+
+    private final Map<String, Set<OsmPrimitive>> primitivesByKey = new HashMap<>();
+
+    /**
+     * Constructs a new {@code TagIndex}.
+     * @param primitives the primitives to index
+     */
+    TagIndex(Collection<? extends OsmPrimitive> primitives) {
+        for (OsmPrimitive p : primitives) {
+            add(p);
+        }
+    }
+
+    /**
+     * Adds a primitive to the index.
+     * @param p the primitive
+     */
+    void add(OsmPrimitive p) {
+        if (p.hasKeys()) {
+            for (String key : p.keySet()) {
+                addKey(key, p);
+            }
+        }
+    }
+
+    /**
+     * Removes a primitive from the index.
+     * @param p the primitive, with the tags it had when it was indexed
+     */
+    void remove(OsmPrimitive p) {
+        if (p.hasKeys()) {
+            for (String key : p.keySet()) {
+                removeKey(key, p);
+            }
+        }
+    }
+
+    /**
+     * Updates the index after the tags of a primitive changed.
+     * @param p the primitive
+     * @param originalKeys the tags of the primitive before the change
+     */
+    void tagsChanged(OsmPrimitive p, Map<String, String> originalKeys) {
+        if (originalKeys != null) {
+            for (String key : originalKeys.keySet()) {
+                if (p.get(key) == null) {
+                    removeKey(key, p);
+                }
+            }
+        }
+        if (p.hasKeys()) {
+            for (String key : p.keySet()) {
+                if (originalKeys == null || !originalKeys.containsKey(key)) {
+                    addKey(key, p);
+                }
+            }
+        }
+    }
+
+    private void addKey(String key, OsmPrimitive p) {
+        primitivesByKey.computeIfAbsent(key, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(p);
+    }
+
+    private void removeKey(String key, OsmPrimitive p) {
+        Set<OsmPrimitive> primitives = primitivesByKey.get(key);
+        if (primitives != null && primitives.remove(p) && primitives.isEmpty()) {
+            primitivesByKey.remove(key);
+        }
+    }
+
+    /**
+     * Returns the primitives with the given key, whatever its value.
+     * @param key the key
+     * @return an unmodifiable view of the primitives with the key, including deleted primitives
+     */
+    public Collection<OsmPrimitive> getPrimitives(String key) {
+        Set<OsmPrimitive> primitives = primitivesByKey.get(key);
+        return primitives == null ? Collections.<OsmPrimitive>emptySet() : Collections.unmodifiableSet(primitives);
+    }
+
+    /**
+     * Returns the keys used by the primitives of the dataset.
+     * @return an unmodifiable view of the keys
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet(primitivesByKey.keySet());
+    }
+}
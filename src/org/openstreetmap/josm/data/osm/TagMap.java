@@ -207,8 +207,8 @@ public class TagMap extends AbstractMap<String, String> implements Serializable
 
         String[] newTags = Arrays.copyOf(tags, newTagArrayLength);
         String old = newTags[index + 1];
-        newTags[index] = key;
-        newTags[index + 1] = value;
+        newTags[index] = TagStringPool.intern(key);
+        newTags[index + 1] = TagStringPool.intern(value);
         tags = newTags;
         return old;
     }
@@ -0,0 +1,45 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+/**
+ * A bounded pool of the strings used as tag keys and values.
+ * <p>
+ * Values like {@code building=yes} or {@code highway=residential} occur millions of times in large data sets.
+ * Passing every key and value through {@link #intern(String)} lets all primitives share one instance of each of them.
+ * <p>
+ * Unlike {@link String#intern()}, the pool has a fixed size: a string may replace another one with the same slot,
+ * so two equal strings are not guaranteed to be the same instance. Frequently used strings nevertheless end up being shared.
+ * The pool can be used by several threads without locking, as strings are immutable and a slot is written at once.
+ * @since xxx
+ */
+public final class TagStringPool {
+
+    /**
+     * Strings longer than this are not pooled. They are mostly unique (names, notes, descriptions...)
+     * and would only push the frequent strings out of the pool.
+     */
+    private static final int MAX_LENGTH = 64;
+    private static final int SIZE = 1 << 16;
+    private static final String[] POOL = new String[SIZE];
+
+    private TagStringPool() {
+        // Hide default constructor for utils classes
+    }
+
+    /**
+     * Returns the pooled instance of a string equal to the given one.
+     * @param s The string. May be {@code null}
+     * @return A string equal to {@code s}, preferably an instance already used by other tags. {@code null} if {@code s} is {@code null}
+     */
+    public static String intern(String s) {
+        if (s == null || s.length() > MAX_LENGTH)
+            return s;
+        int h = s.hashCode();
+        int index = (h ^ (h >>> 16)) & (SIZE - 1);
+        String pooled = POOL[index];
+        if (s.equals(pooled))
+            return pooled;
+        POOL[index] = s;
+        return s;
+    }
+}
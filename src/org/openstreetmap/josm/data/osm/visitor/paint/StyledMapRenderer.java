@@ -1933,6 +1933,8 @@ public class StyledMapRenderer extends AbstractMapRenderer {
             benchmark.renderStart(circum);
 
             List<Node> nodes = data.searchNodes(bbox);
+            // project the visible nodes which are not projected yet together, e.g. after the projection changed
+            Node.updateEastNorthCache(nodes, Main.getProjection());
             List<Way> ways = data.searchWays(bbox);
             List<Relation> relations = data.searchRelations(bbox);
 
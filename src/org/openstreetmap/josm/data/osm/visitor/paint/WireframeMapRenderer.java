@@ -159,6 +159,10 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
         viewClip = mapState.getViewArea(clip);
         getSettings(virtual);
 
+        List<Node> nodes = data.searchNodes(bbox);
+        // project the visible nodes which are not projected yet together, e.g. after the projection changed
+        Node.updateEastNorthCache(nodes, Main.getProjection());
+
         for (final Relation rel : data.searchRelations(bbox)) {
             if (rel.isDrawable() && !ds.isSelected(rel) && !rel.isDisabledAndHidden()) {
                 rel.accept(this);
@@ -198,7 +202,7 @@ public class WireframeMapRenderer extends AbstractMapRenderer implements Visitor
         }
         displaySegments();
 
-        for (final OsmPrimitive osm: data.searchNodes(bbox)) {
+        for (final OsmPrimitive osm: nodes) {
             if (osm.isDrawable() && !ds.isSelected(osm) && !osm.isDisabledAndHidden()) {
                 osm.accept(this);
             }
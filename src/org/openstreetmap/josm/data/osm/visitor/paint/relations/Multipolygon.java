@@ -5,11 +5,16 @@ import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.openstreetmap.josm.Main;
@@ -18,6 +23,7 @@ import org.openstreetmap.josm.data.Preferences.PreferenceChangedListener;
 import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
@@ -175,7 +181,7 @@ public class Multipolygon {
          */
         public JoinedWay(List<Node> nodes, Collection<Long> wayIds, boolean selected) {
             this.nodes = new ArrayList<>(nodes);
-            this.wayIds = new ArrayList<>(wayIds);
+            this.wayIds = new LinkedHashSet<>(wayIds);
             this.selected = selected;
         }
 
@@ -246,9 +252,34 @@ public class Multipolygon {
             CROSSING
         }
 
-        private final Path2D.Double poly;
-        private Rectangle2D bounds;
+        /**
+         * A polygon and its bounds. Once published, the polygon is never modified: it is replaced by a new instance when
+         * the nodes change, so that readers in other threads always see a complete polygon.
+         */
+        private static final class PolyShape {
+            private final Path2D.Double poly;
+            private volatile Rectangle2D bounds;
+
+            PolyShape(Path2D.Double poly) {
+                this.poly = poly;
+            }
+
+            Rectangle2D getBounds() {
+                Rectangle2D b = bounds;
+                if (b == null) {
+                    b = poly.getBounds2D();
+                    bounds = b;
+                }
+                return b;
+            }
+        }
+
+        private volatile PolyShape shape;
+        /** whether {@link #shape} has to be built again from the nodes, see {@link #get()} */
+        private volatile boolean dirty;
         private final List<PolyData> inners;
+        /** the inner polygons by the ids of their ways, {@code null} until needed */
+        private Map<Long, List<PolyData>> innersByWayId;
 
         /**
          * Constructs a new {@code PolyData} from a closed way.
@@ -269,9 +300,7 @@ public class Multipolygon {
         private PolyData(List<Node> nodes, boolean selected, Collection<Long> wayIds) {
             super(nodes, wayIds, selected);
             this.inners = new ArrayList<>();
-            this.poly = new Path2D.Double();
-            this.poly.setWindingRule(Path2D.WIND_EVEN_ODD);
-            buildPoly();
+            this.shape = new PolyShape(buildPoly());
         }
 
         /**
@@ -280,11 +309,13 @@ public class Multipolygon {
          */
         public PolyData(PolyData copy) {
             super(copy.nodes, copy.wayIds, copy.selected);
-            this.poly = (Path2D.Double) copy.poly.clone();
+            this.shape = copy.getShape();
             this.inners = new ArrayList<>(copy.inners);
         }
 
-        private void buildPoly() {
+        private Path2D.Double buildPoly() {
+            Path2D.Double poly = new Path2D.Double();
+            poly.setWindingRule(Path2D.WIND_EVEN_ODD);
             boolean initial = true;
             for (Node n : nodes) {
                 EastNorth p = n.getEastNorth();
@@ -301,19 +332,21 @@ public class Multipolygon {
                 poly.closePath();
             }
             for (PolyData inner : inners) {
-                appendInner(inner.poly);
+                poly.append(inner.get().getPathIterator(null), false);
             }
+            return poly;
         }
 
         public Intersection contains(Path2D.Double p) {
             int contains = 0;
             int total = 0;
             double[] coords = new double[6];
+            Path2D.Double polygon = get();
             for (PathIterator it = p.getPathIterator(null); !it.isDone(); it.next()) {
                 switch (it.currentSegment(coords)) {
                     case PathIterator.SEG_MOVETO:
                     case PathIterator.SEG_LINETO:
-                        if (poly.contains(coords[0], coords[1])) {
+                        if (polygon.contains(coords[0], coords[1])) {
                             contains++;
                         }
                         total++;
@@ -326,24 +359,38 @@ public class Multipolygon {
             return Intersection.CROSSING;
         }
 
-        public void addInner(PolyData inner) {
+        public synchronized void addInner(PolyData inner) {
+            Path2D.Double poly = new Path2D.Double(getShape().poly);
+            poly.append(inner.get().getPathIterator(null), false);
             inners.add(inner);
-            appendInner(inner.poly);
+            innersByWayId = null;
+            shape = new PolyShape(poly);
         }
 
-        private void appendInner(Path2D.Double inner) {
-            poly.append(inner.getPathIterator(null), false);
+        /**
+         * Returns the polygon, with the inner polygons. The polygon is built again if nodes have moved since it was last
+         * returned. The returned polygon is shared and must not be modified.
+         * @return the polygon
+         */
+        public Path2D.Double get() {
+            return getShape().poly;
         }
 
-        public Path2D.Double get() {
-            return poly;
+        private PolyShape getShape() {
+            return dirty ? rebuildPoly() : shape;
         }
 
-        public Rectangle2D getBounds() {
-            if (bounds == null) {
-                bounds = poly.getBounds2D();
+        private synchronized PolyShape rebuildPoly() {
+            if (dirty) {
+                // cleared before building, so that nodes moved meanwhile mark the new polygon as outdated
+                dirty = false;
+                shape = new PolyShape(buildPoly());
             }
-            return bounds;
+            return shape;
+        }
+
+        public Rectangle2D getBounds() {
+            return getShape().getBounds();
         }
 
         public List<PolyData> getInners() {
@@ -377,41 +424,76 @@ public class Multipolygon {
                         nodes.addAll(joinWays(waysToJoin).iterator().next().getNodes());
                     }
                 }
-                resetPoly();
+                dirty = true;
             }
         }
 
-        private void resetPoly() {
-            poly.reset();
-            buildPoly();
-            bounds = null;
+        private List<PolyData> getInners(Long wayId) {
+            if (inners.isEmpty())
+                return Collections.emptyList();
+            if (innersByWayId == null) {
+                Map<Long, List<PolyData>> map = new HashMap<>();
+                for (PolyData inner : inners) {
+                    for (Long id : inner.wayIds) {
+                        map.computeIfAbsent(id, k -> new ArrayList<>(1)).add(inner);
+                    }
+                }
+                innersByWayId = map;
+            }
+            List<PolyData> result = innersByWayId.get(wayId);
+            return result == null ? Collections.<PolyData>emptyList() : result;
         }
 
+        /**
+         * Marks the rings which contain the moved node, so that their polygons are built again when next used.
+         * The rings are found by the ways of the node, without searching the nodes of the rings.
+         * @param event the event
+         */
         public void nodeMoved(NodeMovedEvent event) {
             final Node n = event.getNode();
-            boolean innerChanged = false;
-            for (PolyData inner : inners) {
-                if (inner.nodes.contains(n)) {
-                    inner.resetPoly();
-                    innerChanged = true;
+            boolean changed = false;
+            boolean wayFound = false;
+            for (OsmPrimitive referrer : n.getReferrers()) {
+                if (referrer instanceof Way) {
+                    wayFound = true;
+                    Long wayId = referrer.getUniqueId();
+                    for (PolyData inner : getInners(wayId)) {
+                        inner.dirty = true;
+                        changed = true;
+                    }
+                    changed |= wayIds.contains(wayId);
                 }
             }
-            if (nodes.contains(n) || innerChanged) {
-                resetPoly();
+            if (!wayFound) {
+                // the node has been removed from its ways, e.g. when undoing its creation
+                for (PolyData inner : inners) {
+                    if (inner.nodes.contains(n)) {
+                        inner.dirty = true;
+                        changed = true;
+                    }
+                }
+                changed |= nodes.contains(n);
+            }
+            if (changed) {
+                dirty = true;
             }
         }
 
+        /**
+         * Joins again the ring which contains the changed way. The polygons are built again when next used.
+         * @param event the event
+         */
         public void wayNodesChanged(WayNodesChangedEvent event) {
             final Long wayId = event.getChangedWay().getUniqueId();
             boolean innerChanged = false;
-            for (PolyData inner : inners) {
-                if (inner.wayIds.contains(wayId)) {
-                    inner.resetNodes(event.getDataset());
-                    innerChanged = true;
-                }
+            for (PolyData inner : getInners(wayId)) {
+                inner.resetNodes(event.getDataset());
+                innerChanged = true;
             }
-            if (wayIds.contains(wayId) || innerChanged) {
+            if (wayIds.contains(wayId)) {
                 resetNodes(event.getDataset());
+            } else if (innerChanged) {
+                dirty = true;
             }
         }
 
@@ -449,6 +531,8 @@ public class Multipolygon {
     private final List<Way> outerWays = new ArrayList<>();
     private final List<PolyData> combinedPolygons = new ArrayList<>();
     private final List<Node> openEnds = new ArrayList<>();
+    /** the combined polygons by the ids of their ways and of the ways of their inner polygons, {@code null} until needed */
+    private Map<Long, List<PolyData>> combinedPolygonsByWayId;
 
     private boolean incomplete;
 
@@ -636,8 +720,8 @@ public class Multipolygon {
 
         PolyData result = null;
         for (PolyData combined : outerPolygons) {
-            if (combined.contains(inner.poly) != Intersection.OUTSIDE) {
-                if (result == null || result.contains(combined.poly) == Intersection.INSIDE) {
+            if (combined.contains(inner.get()) != Intersection.OUTSIDE) {
+                if (result == null || result.contains(combined.get()) == Intersection.INSIDE) {
                     result = combined;
                 }
             }
@@ -659,8 +743,9 @@ public class Multipolygon {
                 combinedPolygons.add(new PolyData(outer));
             }
 
+            OuterIndex index = new OuterIndex(combinedPolygons);
             for (PolyData pdInner: innerPolygons) {
-                PolyData o = findOuterPolygon(pdInner, combinedPolygons);
+                PolyData o = findOuterPolygon(pdInner, index.search(pdInner.getBounds()));
                 if (o == null) {
                     o = outerPolygons.get(0);
                 }
@@ -669,6 +754,122 @@ public class Multipolygon {
         }
     }
 
+    /**
+     * A packed R-tree of the bounds of the outer polygons. It returns the outer polygons whose bounds intersect or touch
+     * the bounds of an inner polygon, so that {@link #findOuterPolygon} only tests the outer polygons which can
+     * contain the inner polygon, instead of all of them for each inner polygon.
+     */
+    private static final class OuterIndex {
+        private static final int NODE_CAPACITY = 16;
+
+        /** A node of the tree: an outer polygon if {@code children} is {@code null} */
+        private static final class Entry {
+            private final double minX, minY, maxX, maxY;
+            private final Entry[] children;
+            private final int index;
+
+            Entry(Rectangle2D bounds, int index) {
+                this.minX = bounds.getMinX();
+                this.minY = bounds.getMinY();
+                this.maxX = bounds.getMaxX();
+                this.maxY = bounds.getMaxY();
+                this.children = null;
+                this.index = index;
+            }
+
+            Entry(Entry[] children) {
+                double x1 = Double.POSITIVE_INFINITY;
+                double y1 = Double.POSITIVE_INFINITY;
+                double x2 = Double.NEGATIVE_INFINITY;
+                double y2 = Double.NEGATIVE_INFINITY;
+                for (Entry child : children) {
+                    x1 = Math.min(x1, child.minX);
+                    y1 = Math.min(y1, child.minY);
+                    x2 = Math.max(x2, child.maxX);
+                    y2 = Math.max(y2, child.maxY);
+                }
+                this.minX = x1;
+                this.minY = y1;
+                this.maxX = x2;
+                this.maxY = y2;
+                this.children = children;
+                this.index = -1;
+            }
+
+            double centerX() {
+                return (minX + maxX) / 2;
+            }
+
+            double centerY() {
+                return (minY + maxY) / 2;
+            }
+        }
+
+        private final List<PolyData> polygons;
+        private final Entry root;
+
+        OuterIndex(List<PolyData> polygons) {
+            this.polygons = polygons;
+            Entry[] level = new Entry[polygons.size()];
+            for (int i = 0; i < level.length; i++) {
+                level[i] = new Entry(polygons.get(i).getBounds(), i);
+            }
+            while (level.length > NODE_CAPACITY) {
+                level = pack(level);
+            }
+            root = new Entry(level);
+        }
+
+        /**
+         * Groups the entries of a level into parent entries, by the Sort-Tile-Recursive algorithm.
+         * @param entries the entries of the level
+         * @return the parent entries
+         */
+        private static Entry[] pack(Entry[] entries) {
+            int parentCount = (entries.length + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int sliceCount = (int) Math.ceil(Math.sqrt(parentCount));
+            int sliceSize = sliceCount * NODE_CAPACITY;
+            Arrays.sort(entries, Comparator.comparingDouble(Entry::centerX));
+            List<Entry> parents = new ArrayList<>(parentCount);
+            for (int slice = 0; slice < entries.length; slice += sliceSize) {
+                int sliceEnd = Math.min(slice + sliceSize, entries.length);
+                Arrays.sort(entries, slice, sliceEnd, Comparator.comparingDouble(Entry::centerY));
+                for (int i = slice; i < sliceEnd; i += NODE_CAPACITY) {
+                    parents.add(new Entry(Arrays.copyOfRange(entries, i, Math.min(i + NODE_CAPACITY, sliceEnd))));
+                }
+            }
+            return parents.toArray(new Entry[parents.size()]);
+        }
+
+        /**
+         * Returns the outer polygons whose bounds intersect or touch the given bounds.
+         * @param bounds the bounds of an inner polygon
+         * @return the outer polygons, in their original order
+         */
+        List<PolyData> search(Rectangle2D bounds) {
+            List<Integer> found = new ArrayList<>();
+            search(root, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY(), found);
+            Collections.sort(found);
+            List<PolyData> result = new ArrayList<>(found.size());
+            for (int i : found) {
+                result.add(polygons.get(i));
+            }
+            return result;
+        }
+
+        private static void search(Entry e, double minX, double minY, double maxX, double maxY, List<Integer> found) {
+            for (Entry child : e.children) {
+                if (child.minX <= maxX && child.maxX >= minX && child.minY <= maxY && child.maxY >= minY) {
+                    if (child.children == null) {
+                        found.add(child.index);
+                    } else {
+                        search(child, minX, minY, maxX, maxY, found);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Replies the list of outer ways.
      * @return the list of outer ways
@@ -693,6 +894,37 @@ public class Multipolygon {
         return Collections.unmodifiableList(combinedPolygons);
     }
 
+    /**
+     * Returns the combined polygons which contain a way, in their outer ring or in one of their inner rings.
+     * The combined polygons are found without searching the ways of all of them.
+     * @param wayId the unique id of the way
+     * @return the combined polygons containing the way
+     * @since xxx
+     */
+    public synchronized List<PolyData> getCombinedPolygons(long wayId) {
+        if (combinedPolygonsByWayId == null) {
+            Map<Long, List<PolyData>> map = new HashMap<>();
+            for (PolyData pd : combinedPolygons) {
+                addWayIds(pd, pd, map);
+                for (PolyData inner : pd.inners) {
+                    addWayIds(inner, pd, map);
+                }
+            }
+            combinedPolygonsByWayId = map;
+        }
+        List<PolyData> result = combinedPolygonsByWayId.get(wayId);
+        return result == null ? Collections.<PolyData>emptyList() : Collections.unmodifiableList(result);
+    }
+
+    private static void addWayIds(JoinedWay ring, PolyData combined, Map<Long, List<PolyData>> map) {
+        for (Long id : ring.wayIds) {
+            List<PolyData> list = map.computeIfAbsent(id, k -> new ArrayList<>(1));
+            if (!list.contains(combined)) {
+                list.add(combined);
+            }
+        }
+    }
+
     /**
      * Replies the list of inner polygons.
      * @return the list of inner polygons
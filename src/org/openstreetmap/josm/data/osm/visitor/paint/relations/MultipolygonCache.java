@@ -4,6 +4,7 @@ package org.openstreetmap.josm.data.osm.visitor.paint.relations;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -207,7 +208,7 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         for (Map<Relation, Multipolygon> map : maps) {
             Multipolygon m = map.get(r);
             if (m != null) {
-                for (PolyData pd : m.getCombinedPolygons()) {
+                for (PolyData pd : getAffectedPolygons(event, m)) {
                     if (event instanceof NodeMovedEvent) {
                         pd.nodeMoved((NodeMovedEvent) event);
                     } else if (event instanceof WayNodesChangedEvent) {
@@ -223,6 +224,29 @@ public final class MultipolygonCache implements DataSetListener, LayerChangeList
         }
     }
 
+    /**
+     * Returns the combined polygons of a multipolygon which contain the ways of a moved node or a changed way.
+     * @param event a {@link NodeMovedEvent} or a {@link WayNodesChangedEvent}
+     * @param m the multipolygon
+     * @return the combined polygons to update
+     */
+    private static Collection<PolyData> getAffectedPolygons(AbstractDatasetChangedEvent event, Multipolygon m) {
+        if (event instanceof WayNodesChangedEvent) {
+            return m.getCombinedPolygons(((WayNodesChangedEvent) event).getChangedWay().getUniqueId());
+        }
+        Collection<PolyData> result = null;
+        for (OsmPrimitive referrer : ((NodeMovedEvent) event).getNode().getReferrers()) {
+            if (referrer instanceof Way) {
+                if (result == null) {
+                    result = new LinkedHashSet<>();
+                }
+                result.addAll(m.getCombinedPolygons(referrer.getUniqueId()));
+            }
+        }
+        // a node without ways, e.g. when undoing its creation, is searched in all polygons
+        return result == null ? m.getCombinedPolygons() : result;
+    }
+
     private static void removeMultipolygonFrom(Relation r, Collection<Map<Relation, Multipolygon>> maps) {
         for (Map<Relation, Multipolygon> map : maps) {
             map.remove(r);
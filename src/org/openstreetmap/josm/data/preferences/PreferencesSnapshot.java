@@ -0,0 +1,289 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.preferences;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.openstreetmap.josm.Main;
+
+/**
+ * A binary copy of the settings read from a preferences XML file, used to skip parsing and validating the XML file
+ * when it has not changed.
+ * <p>
+ * The snapshot records the length and the CRC-32 checksum of the XML file it was made from. It is only used if the XML
+ * file still has the same length and checksum, so editing the XML file by hand invalidates the snapshot.
+ * @since xxx
+ */
+public class PreferencesSnapshot {
+
+    private static final int MAGIC = 0x4a505331; // "JPS1"
+
+    private static final byte STRING = 0;
+    private static final byte LIST = 1;
+    private static final byte LIST_LIST = 2;
+    private static final byte MAP_LIST = 3;
+
+    private final SortedMap<String, Setting<?>> settings;
+    private final int version;
+
+    private PreferencesSnapshot(SortedMap<String, Setting<?>> settings, int version) {
+        this.settings = settings;
+        this.version = version;
+    }
+
+    /**
+     * Returns the settings.
+     * @return the settings
+     */
+    public SortedMap<String, Setting<?>> getSettings() {
+        return settings;
+    }
+
+    /**
+     * Returns the JOSM version which wrote the XML file.
+     * @return the version, or 0 if unknown
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Reads the snapshot of an XML file.
+     * @param snapshotFile the snapshot file
+     * @param xmlFile the XML file
+     * @return the snapshot, or {@code null} if there is no snapshot, or if the XML file has changed since
+     */
+    public static PreferencesSnapshot read(File snapshotFile, File xmlFile) {
+        if (!snapshotFile.isFile() || !xmlFile.isFile())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readLong() != xmlFile.length() || in.readLong() != checksum(xmlFile))
+                return null;
+            int version = in.readInt();
+            int count = in.readInt();
+            SortedMap<String, Setting<?>> settings = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                byte type = in.readByte();
+                Long time = in.readBoolean() ? in.readLong() : null;
+                boolean isNull = in.readBoolean();
+                Setting<?> setting;
+                switch (type) {
+                case STRING:
+                    setting = new StringSetting(isNull ? null : readString(in));
+                    break;
+                case LIST:
+                    setting = new ListSetting(isNull ? null : readList(in));
+                    break;
+                case LIST_LIST:
+                    List<List<String>> lists = null;
+                    if (!isNull) {
+                        lists = new ArrayList<>();
+                        for (int j = in.readInt(); j > 0; j--) {
+                            lists.add(readList(in));
+                        }
+                        lists = Collections.unmodifiableList(lists);
+                    }
+                    setting = new ListListSetting(lists);
+                    break;
+                case MAP_LIST:
+                    List<Map<String, String>> maps = null;
+                    if (!isNull) {
+                        maps = new ArrayList<>();
+                        for (int j = in.readInt(); j > 0; j--) {
+                            Map<String, String> map = new LinkedHashMap<>();
+                            for (int k = in.readInt(); k > 0; k--) {
+                                map.put(readString(in), readString(in));
+                            }
+                            maps.add(Collections.unmodifiableMap(map));
+                        }
+                        maps = Collections.unmodifiableList(maps);
+                    }
+                    setting = new MapListSetting(maps);
+                    break;
+                default:
+                    throw new IOException("Unknown setting type " + type);
+                }
+                setting.setTime(time);
+                settings.put(key, setting);
+            }
+            return new PreferencesSnapshot(settings, version);
+        } catch (IOException e) {
+            Main.warn(e, "Cannot read preferences snapshot " + snapshotFile);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the snapshot of an XML file which has just been written or read. Failures are only logged, since the
+     * snapshot can be rebuilt from the XML file.
+     * @param snapshotFile the snapshot file
+     * @param xmlFile the XML file
+     * @param settings the settings contained in the XML file
+     * @param version the JOSM version which wrote the XML file
+     */
+    public static void write(File snapshotFile, File xmlFile, Collection<Entry<String, Setting<?>>> settings, int version) {
+        File tmpFile = new File(snapshotFile + "_tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+                out.writeInt(MAGIC);
+                out.writeLong(xmlFile.length());
+                out.writeLong(checksum(xmlFile));
+                out.writeInt(version);
+                out.writeInt(settings.size());
+                SettingWriter writer = new SettingWriter(out);
+                for (Entry<String, Setting<?>> e : settings) {
+                    writeString(out, e.getKey());
+                    e.getValue().visit(writer);
+                    if (writer.exception != null)
+                        throw writer.exception;
+                }
+            }
+            Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Main.warn(e, "Cannot write preferences snapshot " + snapshotFile);
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                Main.warn("Cannot delete " + tmpFile);
+            }
+        }
+    }
+
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(in));
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // writeUTF is limited to 64 KiB
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String s : list) {
+            writeString(out, s);
+        }
+    }
+
+    private static final class SettingWriter implements SettingVisitor {
+        private final DataOutputStream out;
+        private IOException exception;
+
+        SettingWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private boolean writeHeader(byte type, Setting<?> setting) throws IOException {
+            out.writeByte(type);
+            out.writeBoolean(setting.getTime() != null);
+            if (setting.getTime() != null) {
+                out.writeLong(setting.getTime());
+            }
+            out.writeBoolean(setting.getValue() == null);
+            return setting.getValue() != null;
+        }
+
+        @Override
+        public void visit(StringSetting setting) {
+            try {
+                if (writeHeader(STRING, setting)) {
+                    writeString(out, setting.getValue());
+                }
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+
+        @Override
+        public void visit(ListSetting setting) {
+            try {
+                if (writeHeader(LIST, setting)) {
+                    writeList(out, setting.getValue());
+                }
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+
+        @Override
+        public void visit(ListListSetting setting) {
+            try {
+                if (writeHeader(LIST_LIST, setting)) {
+                    out.writeInt(setting.getValue().size());
+                    for (List<String> list : setting.getValue()) {
+                        writeList(out, list);
+                    }
+                }
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+
+        @Override
+        public void visit(MapListSetting setting) {
+            try {
+                if (writeHeader(MAP_LIST, setting)) {
+                    out.writeInt(setting.getValue().size());
+                    for (Map<String, String> map : setting.getValue()) {
+                        out.writeInt(map.size());
+                        for (Entry<String, String> e : map.entrySet()) {
+                            writeString(out, e.getKey());
+                            writeString(out, e.getValue());
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                exception = e;
+            }
+        }
+    }
+}
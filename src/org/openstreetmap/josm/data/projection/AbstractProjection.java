@@ -139,6 +139,36 @@ public abstract class AbstractProjection implements Projection {
         return datum.toWGS84(ll);
     }
 
+    @Override
+    public void latlon2eastNorth(double[] coords, int offset, int count) {
+        datum.fromWGS84(coords, offset, count);
+        int end = offset + 2 * count;
+        for (int i = offset; i < end; i += 2) {
+            coords[i] = Math.toRadians(coords[i]);
+            coords[i + 1] = Math.toRadians(LatLon.normalizeLon(coords[i + 1] - lon0 - pm));
+        }
+        proj.project(coords, offset, count);
+        for (int i = offset; i < end; i += 2) {
+            coords[i] = (ellps.a * k0 * coords[i] + x0) / toMeter;
+            coords[i + 1] = (ellps.a * k0 * coords[i + 1] + y0) / toMeter;
+        }
+    }
+
+    @Override
+    public void eastNorth2latlon(double[] coords, int offset, int count) {
+        int end = offset + 2 * count;
+        for (int i = offset; i < end; i += 2) {
+            coords[i] = (coords[i] * toMeter - x0) / ellps.a / k0;
+            coords[i + 1] = (coords[i + 1] * toMeter - y0) / ellps.a / k0;
+        }
+        proj.invproject(coords, offset, count);
+        for (int i = offset; i < end; i += 2) {
+            coords[i] = Math.toDegrees(coords[i]);
+            coords[i + 1] = LatLon.normalizeLon(Math.toDegrees(coords[i + 1]) + lon0 + pm);
+        }
+        datum.toWGS84(coords, offset, count);
+    }
+
     @Override
     public Map<ProjectionBounds, Projecting> getProjectingsForArea(ProjectionBounds area) {
         if (proj.lonIsLinearToEast()) {
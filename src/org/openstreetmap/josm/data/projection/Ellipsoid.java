@@ -326,6 +326,24 @@ public final class Ellipsoid {
     }
 
     public LatLon cart2LatLon(double[] xyz, double epsilon) {
+        double[] latlon = new double[2];
+        cart2LatLon(xyz, epsilon, latlon, 0);
+        return new LatLon(latlon[0], latlon[1]);
+    }
+
+    /**
+     * convert cartesian coordinates to ellipsoidal coordinates, without creating a {@code LatLon}
+     *
+     * @param xyz the coordinates in meters (X, Y, Z)
+     * @param latlon the array where the corresponding latitude and longitude are stored, in degrees
+     * @param index the index in {@code latlon} of the latitude
+     * @since xxx
+     */
+    public void cart2LatLon(double[] xyz, double[] latlon, int index) {
+        cart2LatLon(xyz, 1e-11, latlon, index);
+    }
+
+    private void cart2LatLon(double[] xyz, double epsilon, double[] latlon, int index) {
         double norm = Math.sqrt(xyz[0] * xyz[0] + xyz[1] * xyz[1]);
         double lg = 2.0 * Math.atan(xyz[1] / (xyz[0] + norm));
         double lt = Math.atan(xyz[2] / (norm * (1.0 - (a * e2 / Math.sqrt(xyz[0] * xyz[0] + xyz[1] * xyz[1] + xyz[2] * xyz[2])))));
@@ -338,7 +356,8 @@ public final class Ellipsoid {
             delta = Math.abs(l - lt);
             lt = l;
         }
-        return new LatLon(Math.toDegrees(lt), Math.toDegrees(lg));
+        latlon[index] = Math.toDegrees(lt);
+        latlon[index + 1] = Math.toDegrees(lg);
     }
 
     /**
@@ -348,15 +367,26 @@ public final class Ellipsoid {
      * @return the corresponding (X, Y Z) cartesian coordinates in meters.
      */
     public double[] latLon2Cart(LatLon coord) {
-        double phi = Math.toRadians(coord.lat());
-        double lambda = Math.toRadians(coord.lon());
+        double[] xyz = new double[3];
+        latLon2Cart(coord.lat(), coord.lon(), xyz);
+        return xyz;
+    }
+
+    /**
+     * convert ellipsoidal coordinates to cartesian coordinates, without creating an array
+     *
+     * @param lat The latitude in degrees
+     * @param lon The longitude in degrees
+     * @param xyz the array where the corresponding (X, Y Z) cartesian coordinates are stored, in meters
+     * @since xxx
+     */
+    public void latLon2Cart(double lat, double lon, double[] xyz) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
 
         double rn = a / Math.sqrt(1 - e2 * Math.pow(Math.sin(phi), 2));
-        double[] xyz = new double[3];
         xyz[0] = rn * Math.cos(phi) * Math.cos(lambda);
         xyz[1] = rn * Math.cos(phi) * Math.sin(lambda);
         xyz[2] = rn * (1 - e2) * Math.sin(phi);
-
-        return xyz;
     }
 }
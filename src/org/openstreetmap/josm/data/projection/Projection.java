@@ -30,6 +30,42 @@ public interface Projection extends Projecting {
      */
     LatLon eastNorth2latlon(EastNorth en);
 
+    /**
+     * Convert several points from lat/lon to easting/northing, without creating objects for each point.
+     *
+     * @param coords the latitude and longitude of each point (in WGS84), one point after the other.
+     * They are replaced by the east and north values of the point
+     * @param offset the index in {@code coords} of the latitude of the first point
+     * @param count the number of points
+     * @see #latlon2eastNorth(LatLon)
+     * @since xxx
+     */
+    default void latlon2eastNorth(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            EastNorth en = latlon2eastNorth(new LatLon(coords[i], coords[i + 1]));
+            coords[i] = en.east();
+            coords[i + 1] = en.north();
+        }
+    }
+
+    /**
+     * Convert several points from easting/norting to lat/lon, without creating objects for each point.
+     *
+     * @param coords the east and north value of each point, one point after the other.
+     * They are replaced by the latitude and longitude of the point (in WGS84)
+     * @param offset the index in {@code coords} of the east value of the first point
+     * @param count the number of points
+     * @see #eastNorth2latlon(EastNorth)
+     * @since xxx
+     */
+    default void eastNorth2latlon(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            LatLon ll = eastNorth2latlon(new EastNorth(coords[i], coords[i + 1]));
+            coords[i] = ll.lat();
+            coords[i + 1] = ll.lon();
+        }
+    }
+
     /**
      * Describe the projection in one or two words.
      * @return the name / description
@@ -24,6 +24,24 @@ public class CentricDatum extends AbstractDatum {
         return this.ellps.cart2LatLon(Ellipsoid.WGS84.latLon2Cart(ll));
     }
 
+    @Override
+    public void toWGS84(double[] coords, int offset, int count) {
+        double[] xyz = new double[3];
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            ellps.latLon2Cart(coords[i], coords[i + 1], xyz);
+            Ellipsoid.WGS84.cart2LatLon(xyz, coords, i);
+        }
+    }
+
+    @Override
+    public void fromWGS84(double[] coords, int offset, int count) {
+        double[] xyz = new double[3];
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            Ellipsoid.WGS84.latLon2Cart(coords[i], coords[i + 1], xyz);
+            this.ellps.cart2LatLon(xyz, coords, i);
+        }
+    }
+
     @Override
     public String toString() {
         return "CentricDatum{ellipsoid="+ellps+'}';
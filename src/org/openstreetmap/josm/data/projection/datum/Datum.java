@@ -41,4 +41,38 @@ public interface Datum {
      * @return converted lat/lon in this datum
      */
     LatLon fromWGS84(LatLon ll);
+
+    /**
+     * Convert lat/lon of several points from this datum to {@link Ellipsoid#WGS84} datum, without creating a
+     * {@code LatLon} for each point.
+     * @param coords the latitude and longitude of each point in degrees, one point after the other.
+     * They are replaced by the converted values
+     * @param offset the index in {@code coords} of the latitude of the first point
+     * @param count the number of points
+     * @since xxx
+     */
+    default void toWGS84(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            LatLon ll = toWGS84(new LatLon(coords[i], coords[i + 1]));
+            coords[i] = ll.lat();
+            coords[i + 1] = ll.lon();
+        }
+    }
+
+    /**
+     * Convert lat/lon of several points from {@link Ellipsoid#WGS84} to this datum, without creating a
+     * {@code LatLon} for each point.
+     * @param coords the latitude and longitude of each point in degrees, one point after the other.
+     * They are replaced by the converted values
+     * @param offset the index in {@code coords} of the latitude of the first point
+     * @param count the number of points
+     * @since xxx
+     */
+    default void fromWGS84(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            LatLon ll = fromWGS84(new LatLon(coords[i], coords[i + 1]));
+            coords[i] = ll.lat();
+            coords[i + 1] = ll.lon();
+        }
+    }
 }
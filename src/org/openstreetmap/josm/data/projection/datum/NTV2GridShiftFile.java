@@ -22,13 +22,17 @@ package org.openstreetmap.josm.data.projection.datum;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.tools.Utils;
 
 /**
  * Models the NTv2 format Grid Shift File and exposes methods to shift
@@ -42,7 +46,7 @@ import org.openstreetmap.josm.Main;
  * The older 'Australian' binary format is not supported, only the
  * official Canadian format, which is now also used for the national
  * Australian Grid.
- * <p>Grid Shift files can be read as InputStreams or RandomAccessFiles.
+ * <p>Grid Shift files can be read as InputStreams or byte buffers.
  * Loading an InputStream places all the required node information
  * (accuracy data is optional) into heap based Java arrays. This is the
  * highest perfomance option, and is useful for large volume transformations.
@@ -62,11 +66,16 @@ import org.openstreetmap.josm.Main;
  * @author Peter Yuill
  * Modified for JOSM :
  * - removed the RandomAccessFile mode (Pieren)
+ * - load from a byte buffer, e.g. a memory mapped file. Only the headers are read when loading, the node data
+ *   of a Sub Grid is decoded when it is first used. The node data of the most recently used Sub Grids is kept.
  */
 public class NTV2GridShiftFile implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** The size of the overview header of the grid shift file: 11 records of 16 bytes */
+    private static final int OVERVIEW_HEADER_SIZE = 176;
+
     private int overviewHeaderCount;
     private int subGridHeaderCount;
     private int subGridCount;
@@ -82,18 +91,14 @@ public class NTV2GridShiftFile implements Serializable {
     private NTV2SubGrid[] topLevelSubGrid;
     private NTV2SubGrid lastSubGrid;
 
-    private static void readBytes(InputStream in, byte[] b) throws IOException {
-        if (in.read(b) < b.length) {
-            Main.error("Failed to read expected amount of bytes ("+ b.length +") from stream");
-        }
-    }
+    /** The number of Sub Grids whose node data is kept decoded */
+    private static final int DECODED_SUB_GRIDS = 8;
+    /** The Sub Grids whose node data is decoded, the most recently used last */
+    private final transient Set<NTV2SubGrid> decodedSubGrids = new LinkedHashSet<>();
 
     /**
-     * Load a Grid Shift File from an InputStream. The Grid Shift node
-     * data is stored in Java arrays, which will occupy about the same memory
-     * as the original file with accuracy data included, and about half that
-     * with accuracy data excluded. The size of the Australian national file
-     * is 4.5MB, and the Canadian national file is 13.5MB
+     * Load a Grid Shift File from an InputStream. The complete file is read,
+     * the node data of a Sub Grid is decoded into Java arrays when the Sub Grid is first used.
      * <p>The InputStream is closed by this method.
      *
      * @param in Grid Shift File InputStream
@@ -101,63 +106,90 @@ public class NTV2GridShiftFile implements Serializable {
      * @throws IOException if any I/O error occurs
      */
     public void loadGridShiftFile(InputStream in, boolean loadAccuracy) throws IOException {
-        byte[] b8 = new byte[8];
+        byte[] content = Utils.readBytesFromStream(in);
+        loadGridShiftFile(ByteBuffer.wrap(content == null ? new byte[0] : content), loadAccuracy);
+    }
+
+    /**
+     * Load a Grid Shift File from a byte buffer, for instance a memory mapped file.
+     * Only the headers are read. The node data of a Sub Grid is decoded into Java arrays when the Sub Grid is
+     * first used, and released again when other Sub Grids have been used since.
+     * The buffer must not be modified afterwards.
+     *
+     * @param buffer Grid Shift File data
+     * @param loadAccuracy is Accuracy data to be loaded as well as shift data?
+     * @throws IllegalArgumentException if the data is not an NTv2 grid shift file
+     * @since xxx
+     */
+    public void loadGridShiftFile(ByteBuffer buffer, boolean loadAccuracy) {
         fromEllipsoid = "";
         toEllipsoid = "";
         topLevelSubGrid = null;
-        readBytes(in, b8);
-        String overviewHeaderCountId = new String(b8, StandardCharsets.UTF_8);
-        if (!"NUM_OREC".equals(overviewHeaderCountId))
+        synchronized (decodedSubGrids) {
+            decodedSubGrids.clear();
+        }
+        if (buffer.limit() < OVERVIEW_HEADER_SIZE
+                || !"NUM_OREC".equals(NTV2Util.getString(buffer, 0)))
             throw new IllegalArgumentException("Input file is not an NTv2 grid shift file");
-        boolean bigEndian;
-        readBytes(in, b8);
-        overviewHeaderCount = NTV2Util.getIntBE(b8, 0);
-        if (overviewHeaderCount == 11) {
-            bigEndian = true;
-        } else {
-            overviewHeaderCount = NTV2Util.getIntLE(b8, 0);
-            if (overviewHeaderCount == 11) {
-                bigEndian = false;
-            } else
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        overviewHeaderCount = data.getInt(8);
+        if (overviewHeaderCount != 11) {
+            data.order(ByteOrder.LITTLE_ENDIAN);
+            overviewHeaderCount = data.getInt(8);
+            if (overviewHeaderCount != 11)
                 throw new IllegalArgumentException("Input file is not an NTv2 grid shift file");
         }
-        readBytes(in, b8);
-        readBytes(in, b8);
-        subGridHeaderCount = NTV2Util.getInt(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        subGridCount = NTV2Util.getInt(b8, bigEndian);
+        subGridHeaderCount = data.getInt(24);
+        subGridCount = data.getInt(40);
         NTV2SubGrid[] subGrid = new NTV2SubGrid[subGridCount];
-        readBytes(in, b8);
-        readBytes(in, b8);
-        shiftType = new String(b8, StandardCharsets.UTF_8);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        version = new String(b8, StandardCharsets.UTF_8);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        fromEllipsoid = new String(b8, StandardCharsets.UTF_8);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        toEllipsoid = new String(b8, StandardCharsets.UTF_8);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        fromSemiMajorAxis = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        fromSemiMinorAxis = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        toSemiMajorAxis = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        toSemiMinorAxis = NTV2Util.getDouble(b8, bigEndian);
+        shiftType = NTV2Util.getString(data, 56);
+        version = NTV2Util.getString(data, 72);
+        fromEllipsoid = NTV2Util.getString(data, 88);
+        toEllipsoid = NTV2Util.getString(data, 104);
+        fromSemiMajorAxis = data.getDouble(120);
+        fromSemiMinorAxis = data.getDouble(136);
+        toSemiMajorAxis = data.getDouble(152);
+        toSemiMinorAxis = data.getDouble(168);
 
+        int offset = OVERVIEW_HEADER_SIZE;
         for (int i = 0; i < subGridCount; i++) {
-            subGrid[i] = new NTV2SubGrid(in, bigEndian, loadAccuracy);
+            if (offset + NTV2SubGrid.HEADER_SIZE > data.limit())
+                throw new IllegalArgumentException("Truncated NTv2 grid shift file");
+            subGrid[i] = new NTV2SubGrid(data, offset, loadAccuracy);
+            offset += subGrid[i].getSize();
+            if (offset > data.limit())
+                throw new IllegalArgumentException("Truncated NTv2 grid shift file");
         }
         topLevelSubGrid = createSubGridTree(subGrid);
-        lastSubGrid = topLevelSubGrid[0];
+        lastSubGrid = null;
+    }
+
+    /**
+     * Remembers that a Sub Grid has been used, and releases the node data of the Sub Grid used least recently if
+     * too many Sub Grids are decoded.
+     * @param subGrid the Sub Grid
+     */
+    private void subGridUsed(NTV2SubGrid subGrid) {
+        synchronized (decodedSubGrids) {
+            decodedSubGrids.remove(subGrid);
+            decodedSubGrids.add(subGrid);
+            if (decodedSubGrids.size() > DECODED_SUB_GRIDS) {
+                Iterator<NTV2SubGrid> it = decodedSubGrids.iterator();
+                NTV2SubGrid leastRecentlyUsed = it.next();
+                it.remove();
+                leastRecentlyUsed.releaseNodeValues();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of Sub Grids whose node data is currently decoded.
+     * @return the number of decoded Sub Grids
+     */
+    int getDecodedSubGridCount() {
+        synchronized (decodedSubGrids) {
+            return decodedSubGrids.size();
+        }
     }
 
     /**
@@ -214,6 +246,9 @@ public class NTV2GridShiftFile implements Serializable {
         if (subGrid == null) {
             return false;
         } else {
+            if (subGrid != lastSubGrid) {
+                subGridUsed(subGrid);
+            }
             subGrid.interpolateGridShift(gs);
             gs.setSubGridName(subGrid.getSubGridName());
             lastSubGrid = subGrid;
@@ -1,8 +1,11 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.projection.datum;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.openstreetmap.josm.io.CachedFile;
 
@@ -10,6 +13,7 @@ import org.openstreetmap.josm.io.CachedFile;
  * Wrapper for {@link NTV2GridShiftFile}.
  *
  * Loads the shift file from disk, when it is first accessed.
+ * Grid files on disk are memory mapped, grid files bundled as resources are read at once.
  * @since 5226
  */
 public class NTV2GridShiftFileWrapper {
@@ -50,15 +54,27 @@ public class NTV2GridShiftFileWrapper {
      * The grid file is only loaded once, when first accessed.
      * @return The NTv2 grid file
      */
-    public NTV2GridShiftFile getShiftFile() {
+    public synchronized NTV2GridShiftFile getShiftFile() {
         if (instance == null) {
-            try (CachedFile cf = new CachedFile(gridFileName); InputStream is = cf.getInputStream()) {
-                instance = new NTV2GridShiftFile();
-                instance.loadGridShiftFile(is, false);
+            try (CachedFile cf = new CachedFile(gridFileName)) {
+                NTV2GridShiftFile shiftFile = new NTV2GridShiftFile();
+                shiftFile.loadGridShiftFile(getContent(cf), false);
+                instance = shiftFile;
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
         }
         return instance;
     }
+
+    private static ByteBuffer getContent(CachedFile cf) throws IOException {
+        File file = cf.getFile();
+        if (file == null) {
+            return ByteBuffer.wrap(cf.getByteContent());
+        }
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
 }
@@ -19,12 +19,14 @@
  */
 package org.openstreetmap.josm.data.projection.datum;
 
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
-import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -34,13 +36,20 @@ import org.openstreetmap.josm.tools.Utils;
  * Modified for JOSM :
  * - removed the RandomAccessFile mode (Pieren)
  * - read grid file by single bytes. Workaround for a bug in some VM not supporting
- *   file reading by group of 4 bytes from a jar file.
+ *   file reading by group of 4 bytes from a jar file. Now replaced by reading the complete Sub Grid.
+ * - read the header from the grid file data, possibly memory mapped, and decode the node data
+ *   when it is first needed
  * - removed the Cloneable interface
  */
 public class NTV2SubGrid implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /** The size of the header of a Sub Grid in the grid shift file: 11 records of 16 bytes */
+    static final int HEADER_SIZE = 176;
+    /** The size of the data of a node in the grid shift file: 4 floats */
+    static final int NODE_SIZE = 16;
+
     private final String subGridName;
     private final String parentSubGridName;
     private final String created;
@@ -55,16 +64,21 @@ public class NTV2SubGrid implements Serializable {
 
     private final int lonColumnCount;
     private final int latRowCount;
-    private final float[] latShift;
-    private final float[] lonShift;
-    private float[] latAccuracy;
-    private float[] lonAccuracy;
+
+    /** The grid shift file data, with the byte order of the file */
+    private final transient ByteBuffer data;
+    /** The index in {@link #data} of the node data of this sub grid */
+    private final int nodeDataOffset;
+    /** The number of values decoded for each node: the shifts, and the accuracies if they are loaded */
+    private final int valuesPerNode;
+    /** The decoded node values, {@code null} until the node data is needed */
+    private transient volatile float[] nodeValues;
 
     private NTV2SubGrid[] subGrid;
 
     /**
      * Construct a Sub Grid from an InputStream, loading the node data into
-     * arrays in this object.
+     * this object.
      *
      * @param in GridShiftFile InputStream
      * @param bigEndian is the file bigEndian?
@@ -72,87 +86,90 @@ public class NTV2SubGrid implements Serializable {
      * @throws IOException if any I/O error occurs
      */
     public NTV2SubGrid(InputStream in, boolean bigEndian, boolean loadAccuracy) throws IOException {
-        byte[] b8 = new byte[8];
-        byte[] b4 = new byte[4];
-        byte[] b1 = new byte[1];
-        readBytes(in, b8);
-        readBytes(in, b8);
-        subGridName = new String(b8, StandardCharsets.UTF_8).trim();
-        readBytes(in, b8);
-        readBytes(in, b8);
-        parentSubGridName = new String(b8, StandardCharsets.UTF_8).trim();
-        readBytes(in, b8);
-        readBytes(in, b8);
-        created = new String(b8, StandardCharsets.UTF_8);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        updated = new String(b8, StandardCharsets.UTF_8);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        minLat = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        maxLat = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        minLon = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        maxLon = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        latInterval = NTV2Util.getDouble(b8, bigEndian);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        lonInterval = NTV2Util.getDouble(b8, bigEndian);
+        this(readSubGrid(in, bigEndian), 0, loadAccuracy);
+    }
+
+    /**
+     * Construct a Sub Grid from the data of a grid shift file. Only the header is read, the node data is decoded
+     * when it is first needed.
+     *
+     * @param data the grid shift file data, with the byte order of the file
+     * @param offset the index in {@code data} of the header of the Sub Grid
+     * @param loadAccuracy is the node Accuracy data to be loaded?
+     * @throws IllegalStateException if the grid dimensions of the header are inconsistent
+     */
+    NTV2SubGrid(ByteBuffer data, int offset, boolean loadAccuracy) {
+        subGridName = NTV2Util.getString(data, offset + 8).trim();
+        parentSubGridName = NTV2Util.getString(data, offset + 24).trim();
+        created = NTV2Util.getString(data, offset + 40);
+        updated = NTV2Util.getString(data, offset + 56);
+        minLat = data.getDouble(offset + 72);
+        maxLat = data.getDouble(offset + 88);
+        minLon = data.getDouble(offset + 104);
+        maxLon = data.getDouble(offset + 120);
+        latInterval = data.getDouble(offset + 136);
+        lonInterval = data.getDouble(offset + 152);
         lonColumnCount = 1 + (int) ((maxLon - minLon) / lonInterval);
         latRowCount = 1 + (int) ((maxLat - minLat) / latInterval);
-        readBytes(in, b8);
-        readBytes(in, b8);
-        nodeCount = NTV2Util.getInt(b8, bigEndian);
+        nodeCount = data.getInt(offset + 168);
         if (nodeCount != lonColumnCount * latRowCount)
             throw new IllegalStateException("SubGrid " + subGridName + " has inconsistent grid dimesions");
-        latShift = new float[nodeCount];
-        lonShift = new float[nodeCount];
-        if (loadAccuracy) {
-            latAccuracy = new float[nodeCount];
-            lonAccuracy = new float[nodeCount];
-        }
+        this.data = data;
+        this.nodeDataOffset = offset + HEADER_SIZE;
+        this.valuesPerNode = loadAccuracy ? 4 : 2;
+    }
 
-        for (int i = 0; i < nodeCount; i++) {
-            // Read the grid file byte after byte. This is a workaround about a bug in
-            // certain VM which are not able to read byte blocks when the resource file is in a .jar file (Pieren)
-            readBytes(in, b1); b4[0] = b1[0];
-            readBytes(in, b1); b4[1] = b1[0];
-            readBytes(in, b1); b4[2] = b1[0];
-            readBytes(in, b1); b4[3] = b1[0];
-            latShift[i] = NTV2Util.getFloat(b4, bigEndian);
-            readBytes(in, b1); b4[0] = b1[0];
-            readBytes(in, b1); b4[1] = b1[0];
-            readBytes(in, b1); b4[2] = b1[0];
-            readBytes(in, b1); b4[3] = b1[0];
-            lonShift[i] = NTV2Util.getFloat(b4, bigEndian);
-            readBytes(in, b1); b4[0] = b1[0];
-            readBytes(in, b1); b4[1] = b1[0];
-            readBytes(in, b1); b4[2] = b1[0];
-            readBytes(in, b1); b4[3] = b1[0];
-            if (loadAccuracy) {
-                latAccuracy[i] = NTV2Util.getFloat(b4, bigEndian);
-            }
-            readBytes(in, b1); b4[0] = b1[0];
-            readBytes(in, b1); b4[1] = b1[0];
-            readBytes(in, b1); b4[2] = b1[0];
-            readBytes(in, b1); b4[3] = b1[0];
-            if (loadAccuracy) {
-                lonAccuracy[i] = NTV2Util.getFloat(b4, bigEndian);
+    private static ByteBuffer readSubGrid(InputStream in, boolean bigEndian) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        byte[] header = new byte[HEADER_SIZE];
+        dis.readFully(header);
+        ByteOrder order = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        int nodeCount = ByteBuffer.wrap(header).order(order).getInt(168);
+        byte[] subGrid = Arrays.copyOf(header, HEADER_SIZE + NODE_SIZE * nodeCount);
+        dis.readFully(subGrid, HEADER_SIZE, NODE_SIZE * nodeCount);
+        return ByteBuffer.wrap(subGrid).order(order);
+    }
+
+    /**
+     * Returns the size of this Sub Grid in the grid shift file.
+     * @return the size of the header and node data, in bytes
+     */
+    int getSize() {
+        return HEADER_SIZE + NODE_SIZE * nodeCount;
+    }
+
+    /**
+     * Returns the node values, decoding them from the grid shift file data if needed.
+     * @return the shifts of each node, followed by the accuracies if they are loaded
+     */
+    private float[] getNodeValues() {
+        float[] values = nodeValues;
+        if (values == null) {
+            values = new float[valuesPerNode * nodeCount];
+            for (int i = 0; i < nodeCount; i++) {
+                int index = nodeDataOffset + NODE_SIZE * i;
+                for (int j = 0; j < valuesPerNode; j++) {
+                    values[valuesPerNode * i + j] = data.getFloat(index + 4 * j);
+                }
             }
+            nodeValues = values;
         }
+        return values;
     }
 
-    private static void readBytes(InputStream in, byte[] b) throws IOException {
-        if (in.read(b) < b.length) {
-            Main.error("Failed to read expected amount of bytes ("+ b.length +") from stream");
-        }
+    /**
+     * Determines if the node data of this Sub Grid is decoded.
+     * @return {@code true} if the node data is decoded
+     */
+    boolean isDecoded() {
+        return nodeValues != null;
+    }
+
+    /**
+     * Releases the decoded node data. It will be decoded again when it is next needed.
+     */
+    void releaseNodeValues() {
+        nodeValues = null;
     }
 
     /**
@@ -232,31 +249,29 @@ public class NTV2SubGrid implements Serializable {
 
         // Find the nodes at the four corners of the cell
 
-        int indexA = lonIndex + (latIndex * lonColumnCount);
-        int indexB = indexA + 1;
-        int indexC = indexA + lonColumnCount;
-        int indexD = indexC + 1;
+        float[] values = getNodeValues();
+        int indexA = valuesPerNode * (lonIndex + (latIndex * lonColumnCount));
+        int indexB = indexA + valuesPerNode;
+        int indexC = indexA + valuesPerNode * lonColumnCount;
+        int indexD = indexC + valuesPerNode;
 
+        // the values of a node are the latitude shift, longitude shift, latitude accuracy and longitude accuracy
         gs.setLonShiftPositiveWestSeconds(interpolate(
-                lonShift[indexA], lonShift[indexB], lonShift[indexC], lonShift[indexD], x, y));
+                values[indexA + 1], values[indexB + 1], values[indexC + 1], values[indexD + 1], x, y));
 
         gs.setLatShiftSeconds(interpolate(
-                latShift[indexA], latShift[indexB], latShift[indexC], latShift[indexD], x, y));
+                values[indexA], values[indexB], values[indexC], values[indexD], x, y));
 
-        if (lonAccuracy == null) {
+        if (valuesPerNode < 4) {
             gs.setLonAccuracyAvailable(false);
+            gs.setLatAccuracyAvailable(false);
         } else {
             gs.setLonAccuracyAvailable(true);
             gs.setLonAccuracySeconds(interpolate(
-                    lonAccuracy[indexA], lonAccuracy[indexB], lonAccuracy[indexC], lonAccuracy[indexD], x, y));
-        }
-
-        if (latAccuracy == null) {
-            gs.setLatAccuracyAvailable(false);
-        } else {
+                    values[indexA + 3], values[indexB + 3], values[indexC + 3], values[indexD + 3], x, y));
             gs.setLatAccuracyAvailable(true);
             gs.setLatAccuracySeconds(interpolate(
-                    latAccuracy[indexA], latAccuracy[indexB], latAccuracy[indexC], latAccuracy[indexD], x, y));
+                    values[indexA + 2], values[indexB + 2], values[indexC + 2], values[indexD + 2], x, y));
         }
     }
 
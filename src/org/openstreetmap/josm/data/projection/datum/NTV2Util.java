@@ -19,6 +19,9 @@
  */
 package org.openstreetmap.josm.data.projection.datum;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
  * A set of static utility methods for reading the NTv2 file format
  *
@@ -100,4 +103,19 @@ public final class NTV2Util {
         long l = ((long) i << 32) | (j & 0x0000_0000_FFFF_FFFFL);
         return Double.longBitsToDouble(l);
     }
+
+    /**
+     * Get a string from 8 bytes of a byte buffer.
+     * @param b the byte buffer
+     * @param i the index of the first character in the buffer
+     * @return the string
+     * @since xxx
+     */
+    public static String getString(ByteBuffer b, int i) {
+        byte[] chars = new byte[8];
+        for (int j = 0; j < chars.length; j++) {
+            chars[j] = b.get(i + j);
+        }
+        return new String(chars, StandardCharsets.UTF_8);
+    }
 }
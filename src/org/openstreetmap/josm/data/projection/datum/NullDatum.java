@@ -24,4 +24,14 @@ public class NullDatum extends AbstractDatum {
         return ll;
     }
 
+    @Override
+    public void toWGS84(double[] coords, int offset, int count) {
+        // nothing to do
+    }
+
+    @Override
+    public void fromWGS84(double[] coords, int offset, int count) {
+        // nothing to do
+    }
+
 }
@@ -61,4 +61,34 @@ public class SevenParameterDatum extends AbstractDatum {
         double z = (1-s)*(-dz + xyz[2] + ((-dy+xyz[1])*(-rx) - (-dx+xyz[0])*(-ry)));
         return this.ellps.cart2LatLon(new double[] {x, y, z});
     }
+
+    @Override
+    public void toWGS84(double[] coords, int offset, int count) {
+        double[] xyz = new double[3];
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            ellps.latLon2Cart(coords[i], coords[i + 1], xyz);
+            double x = dx + xyz[0]*(1+s) + xyz[2]*ry - xyz[1]*rz;
+            double y = dy + xyz[1]*(1+s) + xyz[0]*rz - xyz[2]*rx;
+            double z = dz + xyz[2]*(1+s) + xyz[1]*rx - xyz[0]*ry;
+            xyz[0] = x;
+            xyz[1] = y;
+            xyz[2] = z;
+            Ellipsoid.WGS84.cart2LatLon(xyz, coords, i);
+        }
+    }
+
+    @Override
+    public void fromWGS84(double[] coords, int offset, int count) {
+        double[] xyz = new double[3];
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            Ellipsoid.WGS84.latLon2Cart(coords[i], coords[i + 1], xyz);
+            double x = (1-s)*(-dx + xyz[0] + ((-dz+xyz[2])*(-ry) - (-dy+xyz[1])*(-rz)));
+            double y = (1-s)*(-dy + xyz[1] + ((-dx+xyz[0])*(-rz) - (-dz+xyz[2])*(-rx)));
+            double z = (1-s)*(-dz + xyz[2] + ((-dy+xyz[1])*(-rx) - (-dx+xyz[0])*(-ry)));
+            xyz[0] = x;
+            xyz[1] = y;
+            xyz[2] = z;
+            this.ellps.cart2LatLon(xyz, coords, i);
+        }
+    }
 }
@@ -36,4 +36,28 @@ public class ThreeParameterDatum extends AbstractDatum {
         return this.ellps.cart2LatLon(xyz);
     }
 
+    @Override
+    public void toWGS84(double[] coords, int offset, int count) {
+        double[] xyz = new double[3];
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            ellps.latLon2Cart(coords[i], coords[i + 1], xyz);
+            xyz[0] += dx;
+            xyz[1] += dy;
+            xyz[2] += dz;
+            Ellipsoid.WGS84.cart2LatLon(xyz, coords, i);
+        }
+    }
+
+    @Override
+    public void fromWGS84(double[] coords, int offset, int count) {
+        double[] xyz = new double[3];
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            Ellipsoid.WGS84.latLon2Cart(coords[i], coords[i + 1], xyz);
+            xyz[0] -= dx;
+            xyz[1] -= dy;
+            xyz[2] -= dz;
+            this.ellps.cart2LatLon(xyz, coords, i);
+        }
+    }
+
 }
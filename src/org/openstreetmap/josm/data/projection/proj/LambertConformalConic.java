@@ -157,23 +157,41 @@ public class LambertConformalConic extends AbstractProj {
 
     @Override
     public double[] project(double phi, double lambda) {
-        double sinphi = sin(phi);
-        double l = (0.5*log((1+sinphi)/(1-sinphi))) - e/2*log((1+e*sinphi)/(1-e*sinphi));
-        double r = f*exp(-n*l);
-        double gamma = n*lambda;
-        double x = r*sin(gamma);
-        double y = r0 - r*cos(gamma);
-        return new double[] {x, y};
+        double[] coords = {phi, lambda};
+        project(coords, 0, 1);
+        return coords;
+    }
+
+    @Override
+    public void project(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double sinphi = sin(coords[i]);
+            double l = (0.5*log((1+sinphi)/(1-sinphi))) - e/2*log((1+e*sinphi)/(1-e*sinphi));
+            double r = f*exp(-n*l);
+            double gamma = n*coords[i + 1];
+            coords[i] = r*sin(gamma);
+            coords[i + 1] = r0 - r*cos(gamma);
+        }
     }
 
     @Override
     public double[] invproject(double east, double north) {
-        double r = sqrt(pow(east, 2) + pow(north-r0, 2));
-        double gamma = atan(east / (r0-north));
-        double lambda = gamma/n;
-        double latIso = (-1/n) * log(abs(r/f));
-        double phi = ellps.latitude(latIso, e, epsilon);
-        return new double[] {phi, lambda};
+        double[] coords = {east, north};
+        invproject(coords, 0, 1);
+        return coords;
+    }
+
+    @Override
+    public void invproject(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double east = coords[i];
+            double north = coords[i + 1];
+            double r = sqrt(pow(east, 2) + pow(north-r0, 2));
+            double gamma = atan(east / (r0-north));
+            double latIso = (-1/n) * log(abs(r/f));
+            coords[i] = ellps.latitude(latIso, e, epsilon);
+            coords[i + 1] = gamma/n;
+        }
     }
 
     public final Parameters getParameters() {
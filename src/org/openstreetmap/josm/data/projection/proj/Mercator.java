@@ -88,26 +88,52 @@ public class Mercator extends AbstractProj implements IScaleFactorProvider {
 
     @Override
     public double[] project(double y, double x) {
-        if (Math.abs(y) > (Math.PI/2 - EPSILON)) {
-            return new double[] {0, 0}; // this is an error and should be handled somehow
-        }
-        if (spherical) {
-            y = Math.log(Math.tan(Math.PI/4 + 0.5*y));
-        } else {
-            y = -Math.log(tsfn(y, Math.sin(y)));
+        double[] coords = {y, x};
+        project(coords, 0, 1);
+        return coords;
+    }
+
+    @Override
+    public void project(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double y = coords[i];
+            if (Math.abs(y) > (Math.PI/2 - EPSILON)) {
+                // this is an error and should be handled somehow
+                coords[i] = 0;
+                coords[i + 1] = 0;
+                continue;
+            }
+            if (spherical) {
+                y = Math.log(Math.tan(Math.PI/4 + 0.5*y));
+            } else {
+                y = -Math.log(tsfn(y, Math.sin(y)));
+            }
+            coords[i] = coords[i + 1];
+            coords[i + 1] = y;
         }
-        return new double[] {x, y};
     }
 
     @Override
     public double[] invproject(double x, double y) {
-        if (spherical) {
-            y = Math.PI/2 - 2.0*Math.atan(Math.exp(-y));
-        } else {
-            y = Math.exp(-y);
-            y = cphi2(y);
+        double[] coords = {x, y};
+        invproject(coords, 0, 1);
+        return coords;
+    }
+
+    @Override
+    public void invproject(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double x = coords[i];
+            double y = coords[i + 1];
+            if (spherical) {
+                y = Math.PI/2 - 2.0*Math.atan(Math.exp(-y));
+            } else {
+                y = Math.exp(-y);
+                y = cphi2(y);
+            }
+            coords[i] = y;
+            coords[i + 1] = x;
         }
-        return new double[] {y, x};
     }
 
     @Override
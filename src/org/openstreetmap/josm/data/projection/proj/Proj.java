@@ -65,6 +65,40 @@ public interface Proj {
      */
     double[] invproject(double east, double north);
 
+    /**
+     * Convert lat/lon to east/north for several points, without creating an array for each point.
+     *
+     * @param coords the latitude and longitude of each point in radians, one point after the other. They are
+     * replaced by the east and north values, as returned by {@link #project(double, double)}
+     * @param offset the index in {@code coords} of the latitude of the first point
+     * @param count the number of points
+     * @since xxx
+     */
+    default void project(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double[] en = project(coords[i], coords[i + 1]);
+            coords[i] = en[0];
+            coords[i + 1] = en[1];
+        }
+    }
+
+    /**
+     * Convert east/north to lat/lon for several points, without creating an array for each point.
+     *
+     * @param coords the east and north value of each point, one point after the other. They are replaced by the
+     * latitude and longitude in radians, as returned by {@link #invproject(double, double)}
+     * @param offset the index in {@code coords} of the east value of the first point
+     * @param count the number of points
+     * @since xxx
+     */
+    default void invproject(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double[] latlon = invproject(coords[i], coords[i + 1]);
+            coords[i] = latlon[0];
+            coords[i + 1] = latlon[1];
+        }
+    }
+
     /**
      * Return the bounds where this projection is applicable.
      *
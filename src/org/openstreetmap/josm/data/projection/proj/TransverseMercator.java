@@ -128,60 +128,84 @@ public class TransverseMercator extends AbstractProj {
 
     @Override
     public double[] project(double y, double x) {
-        double sinphi = Math.sin(y);
-        double cosphi = Math.cos(y);
-
-        double t = (Math.abs(cosphi) > EPSILON) ? sinphi/cosphi : 0;
-        t *= t;
-        double al = cosphi*x;
-        double als = al*al;
-        al /= Math.sqrt(1.0 - e2 * sinphi*sinphi);
-        double n = eb2 * cosphi*cosphi;
-
-        /* NOTE: meridinal distance at latitudeOfOrigin is always 0 */
-        y = mlfn(y, sinphi, cosphi) - ml0 +
-            sinphi * al * x *
-            FC2 * (1.0 +
-            FC4 * als * (5.0 - t + n*(9.0 + 4.0*n) +
-            FC6 * als * (61.0 + t * (t - 58.0) + n*(270.0 - 330.0*t) +
-            FC8 * als * (1385.0 + t * (t*(543.0 - t) - 3111.0)))));
-
-        x = al*(FC1 + FC3 * als*(1.0 - t + n +
-            FC5 * als * (5.0 + t*(t - 18.0) + n*(14.0 - 58.0*t) +
-            FC7 * als * (61.0+ t*(t*(179.0 - t) - 479.0)))));
-
-        return new double[] {x, y};
+        double[] coords = {y, x};
+        project(coords, 0, 1);
+        return coords;
     }
 
     @Override
-    public double[] invproject(double x, double y) {
-        double phi = invMlfn(ml0 + y);
-
-        if (Math.abs(phi) >= Math.PI/2) {
-            y = y < 0.0 ? -(Math.PI/2) : (Math.PI/2);
-            x = 0.0;
-        } else {
-            double sinphi = Math.sin(phi);
-            double cosphi = Math.cos(phi);
-            double t = (Math.abs(cosphi) > EPSILON) ? sinphi/cosphi : 0.0;
-            double n = eb2 * cosphi*cosphi;
-            double con = 1.0 - e2 * sinphi*sinphi;
-            double d = x * Math.sqrt(con);
-            con *= t;
+    public void project(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double y = coords[i];
+            double x = coords[i + 1];
+            double sinphi = Math.sin(y);
+            double cosphi = Math.cos(y);
+
+            double t = (Math.abs(cosphi) > EPSILON) ? sinphi/cosphi : 0;
             t *= t;
-            double ds = d*d;
+            double al = cosphi*x;
+            double als = al*al;
+            al /= Math.sqrt(1.0 - e2 * sinphi*sinphi);
+            double n = eb2 * cosphi*cosphi;
+
+            /* NOTE: meridinal distance at latitudeOfOrigin is always 0 */
+            y = mlfn(y, sinphi, cosphi) - ml0 +
+                sinphi * al * x *
+                FC2 * (1.0 +
+                FC4 * als * (5.0 - t + n*(9.0 + 4.0*n) +
+                FC6 * als * (61.0 + t * (t - 58.0) + n*(270.0 - 330.0*t) +
+                FC8 * als * (1385.0 + t * (t*(543.0 - t) - 3111.0)))));
+
+            x = al*(FC1 + FC3 * als*(1.0 - t + n +
+                FC5 * als * (5.0 + t*(t - 18.0) + n*(14.0 - 58.0*t) +
+                FC7 * als * (61.0+ t*(t*(179.0 - t) - 479.0)))));
+
+            coords[i] = x;
+            coords[i + 1] = y;
+        }
+    }
 
-            y = phi - (con*ds / (1.0 - e2)) *
-                FC2 * (1.0 - ds *
-                FC4 * (5.0 + t*(3.0 - 9.0*n) + n*(1.0 - 4*n) - ds *
-                FC6 * (61.0 + t*(90.0 - 252.0*n + 45.0*t) + 46.0*n - ds *
-                FC8 * (1385.0 + t*(3633.0 + t*(4095.0 + 1574.0*t))))));
+    @Override
+    public double[] invproject(double x, double y) {
+        double[] coords = {x, y};
+        invproject(coords, 0, 1);
+        return coords;
+    }
 
-            x = d*(FC1 - ds * FC3 * (1.0 + 2.0*t + n -
-                ds*FC5*(5.0 + t*(28.0 + 24* t + 8.0*n) + 6.0*n -
-                ds*FC7*(61.0 + t*(662.0 + t*(1320.0 + 720.0*t))))))/cosphi;
+    @Override
+    public void invproject(double[] coords, int offset, int count) {
+        for (int i = offset; i < offset + 2 * count; i += 2) {
+            double x = coords[i];
+            double y = coords[i + 1];
+            double phi = invMlfn(ml0 + y);
+
+            if (Math.abs(phi) >= Math.PI/2) {
+                y = y < 0.0 ? -(Math.PI/2) : (Math.PI/2);
+                x = 0.0;
+            } else {
+                double sinphi = Math.sin(phi);
+                double cosphi = Math.cos(phi);
+                double t = (Math.abs(cosphi) > EPSILON) ? sinphi/cosphi : 0.0;
+                double n = eb2 * cosphi*cosphi;
+                double con = 1.0 - e2 * sinphi*sinphi;
+                double d = x * Math.sqrt(con);
+                con *= t;
+                t *= t;
+                double ds = d*d;
+
+                y = phi - (con*ds / (1.0 - e2)) *
+                    FC2 * (1.0 - ds *
+                    FC4 * (5.0 + t*(3.0 - 9.0*n) + n*(1.0 - 4*n) - ds *
+                    FC6 * (61.0 + t*(90.0 - 252.0*n + 45.0*t) + 46.0*n - ds *
+                    FC8 * (1385.0 + t*(3633.0 + t*(4095.0 + 1574.0*t))))));
+
+                x = d*(FC1 - ds * FC3 * (1.0 + 2.0*t + n -
+                    ds*FC5*(5.0 + t*(28.0 + 24* t + 8.0*n) + 6.0*n -
+                    ds*FC7*(61.0 + t*(662.0 + t*(1320.0 + 720.0*t))))))/cosphi;
+            }
+            coords[i] = y;
+            coords[i + 1] = x;
         }
-        return new double[] {y, x};
     }
 
     @Override
@@ -0,0 +1,367 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.DoubleProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.preferences.validator.ValidatorPreference;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Validates the primitives of a data set while they are edited.
+ * <p>
+ * The primitives changed by data set events are collected and validated in the background once no event has been
+ * received for {@link #PROP_DELAY} milliseconds, by a thread shared by all data sets. The primitives to validate are
+ * collected under the read lock of the data set, the tests run without it so that edits are not blocked: a primitive
+ * edited during the validation is validated again. The changed primitives are validated together with their referrers
+ * and with the nodes and ways nearby, so that tests comparing neighbouring objects like {@code CrossingWays},
+ * {@code UnconnectedWays} or {@code DuplicateNode} find the same errors as a full validation. Only the errors involving
+ * a changed primitive or one of its referrers are reported, see {@link #mergeErrors}.
+ * <p>
+ * Data changes which do not tell the changed primitives, like merging a layer, are not validated.
+ * @since xxx
+ */
+public class LiveValidator implements DataSetListener, PreferenceChangedListener {
+
+    /** Whether the data is validated while it is edited */
+    public static final BooleanProperty PROP_ENABLED = new BooleanProperty("validator.live", false);
+    /** The time in milliseconds without changes after which the changed primitives are validated */
+    public static final IntegerProperty PROP_DELAY = new IntegerProperty("validator.live.delay", 500);
+    /** The distance in meters around the changed primitives in which nodes and ways are validated as well */
+    public static final DoubleProperty PROP_MARGIN = new DoubleProperty("validator.live.margin", 20.0);
+    /** The maximum number of changed primitives validated at once, larger changes need a full validation */
+    public static final IntegerProperty PROP_MAX_PRIMITIVES = new IntegerProperty("validator.live.max-primitives", 10000);
+
+    /** Approximate length of a degree of latitude in meters */
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    /** The thread validating the changes of all data sets */
+    private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+    /**
+     * Listener notified of the result of a live validation.
+     */
+    @FunctionalInterface
+    public interface ValidationListener {
+        /**
+         * Called in the validation thread once changed primitives have been validated.
+         * @param validated the changed primitives and their referrers, including deleted primitives
+         * @param errors the errors involving at least one of the {@code validated} primitives
+         * @see LiveValidator#mergeErrors
+         */
+        void validated(Set<OsmPrimitive> validated, List<TestError> errors);
+    }
+
+    private final DataSet data;
+    private final Supplier<? extends Collection<Test>> testsSupplier;
+    private final ValidationListener listener;
+
+    /** the tests, created in the validation thread by the first validation and after the validator preferences changed */
+    private Collection<Test> tests;
+    private volatile boolean testsOutdated;
+    /** the changed primitives to validate, guarded by {@code this} */
+    private Set<OsmPrimitive> changed = new HashSet<>();
+    /** the number of changes received, guarded by {@code this} */
+    private long changeCount;
+    private ScheduledFuture<?> scheduled;
+    private boolean destroyed;
+
+    /**
+     * Constructs a new {@code LiveValidator} and starts listening to the changes of the data set.
+     * @param data the data set to validate
+     * @param testsSupplier supplies the initialized tests to run. It is called in the validation thread, by the first
+     * validation and again after a validator preference changed. The tests must not be used by anybody else
+     * @param listener the listener notified of the errors found
+     */
+    public LiveValidator(DataSet data, Supplier<? extends Collection<Test>> testsSupplier, ValidationListener listener) {
+        this.data = data;
+        this.testsSupplier = testsSupplier;
+        this.listener = listener;
+        data.addDataSetListener(this);
+        Main.pref.addPreferenceChangeListener(this);
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                Utils.newThreadFactory("live-validator-%d", Thread.MIN_PRIORITY));
+        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Returns the errors resulting from a live validation.
+     * @param current the errors known so far
+     * @param validated the primitives which have been validated again
+     * @param errors the errors found for the {@code validated} primitives
+     * @return the errors of {@code current} which do not involve a validated or deleted primitive, followed by {@code errors}
+     */
+    public static List<TestError> mergeErrors(Collection<TestError> current, Set<OsmPrimitive> validated,
+            Collection<TestError> errors) {
+        List<TestError> merged = new ArrayList<>(current.size() + errors.size());
+        for (TestError error : current) {
+            if (!isObsolete(error, validated)) {
+                merged.add(error);
+            }
+        }
+        merged.addAll(errors);
+        return merged;
+    }
+
+    private static boolean isObsolete(TestError error, Set<OsmPrimitive> validated) {
+        Collection<? extends OsmPrimitive> primitives = error.getPrimitives();
+        if (primitives.isEmpty())
+            return true; // all primitives have been purged
+        for (OsmPrimitive p : primitives) {
+            if (p.isDeleted() || validated.contains(p))
+                return true;
+        }
+        return false;
+    }
+
+    private void addChanged(Collection<? extends OsmPrimitive> primitives) {
+        if (!PROP_ENABLED.get())
+            return;
+        synchronized (this) {
+            if (destroyed)
+                return;
+            changed.addAll(primitives);
+            changeCount++;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            scheduled = EXECUTOR.schedule(this::validateChanged, PROP_DELAY.get(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Validates the primitives changed so far and notifies the listener.
+     */
+    void validateChanged() {
+        Set<OsmPrimitive> primitives;
+        long startChangeCount;
+        synchronized (this) {
+            primitives = changed;
+            changed = new HashSet<>();
+            startChangeCount = changeCount;
+        }
+        if (primitives.isEmpty())
+            return;
+        if (primitives.size() > PROP_MAX_PRIMITIVES.get()) {
+            Main.info("Live validation skipped for " + primitives.size() + " changed primitives");
+            return;
+        }
+        if (tests == null || testsOutdated) {
+            testsOutdated = false;
+            tests = new ArrayList<>(testsSupplier.get());
+        }
+        final long start = System.currentTimeMillis();
+        Set<OsmPrimitive> validated;
+        List<OsmPrimitive> neighbourhood;
+        data.getReadLock().lock();
+        try {
+            validated = addReferrers(primitives);
+            neighbourhood = getNeighbourhood(validated);
+        } finally {
+            data.getReadLock().unlock();
+        }
+        List<TestError> found;
+        try {
+            found = new ParallelValidator(tests).validate(neighbourhood, true, null);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (changeCount != startChangeCount) {
+                    // the data has been edited meanwhile and will be validated again
+                    Main.debug("Live validation interrupted by a change: " + e);
+                    changed.addAll(primitives);
+                    return;
+                }
+            }
+            Main.error(e);
+            return;
+        }
+        List<TestError> errors = new ArrayList<>();
+        for (TestError error : found) {
+            if (error.getPrimitives().stream().anyMatch(validated::contains)) {
+                if (ValidatorPreference.PREF_USE_IGNORE.get()) {
+                    updateIgnored(error);
+                }
+                errors.add(error);
+            }
+        }
+        if (Main.isDebugEnabled()) {
+            Main.debug("Live validation of " + validated.size() + " primitives (" + neighbourhood.size() + " with neighbours) completed in "
+                    + Utils.getDurationString(System.currentTimeMillis() - start));
+        }
+        synchronized (this) {
+            if (destroyed)
+                return;
+        }
+        listener.validated(validated, errors);
+    }
+
+    private static void updateIgnored(TestError error) {
+        for (String state : new String[] {error.getIgnoreState(), error.getIgnoreGroup(), error.getIgnoreSubGroup()}) {
+            if (state != null && OsmValidator.hasIgnoredError(state)) {
+                error.setIgnored(true);
+            }
+        }
+    }
+
+    /**
+     * Adds the ways and relations whose geometry or members depend on the given primitives.
+     * @param primitives the changed primitives
+     * @return the changed primitives and their referrers
+     */
+    private static Set<OsmPrimitive> addReferrers(Set<OsmPrimitive> primitives) {
+        Set<OsmPrimitive> result = new LinkedHashSet<>(primitives);
+        for (OsmPrimitive p : primitives) {
+            if (p.getDataSet() == null)
+                continue; // purged
+            for (OsmPrimitive referrer : p.getReferrers()) {
+                result.add(referrer);
+                if (referrer instanceof Way) {
+                    result.addAll(referrer.getReferrers());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the usable primitives among the given ones together with the nodes and ways within
+     * {@link #PROP_MARGIN} of them, nodes first, then ways, then relations.
+     * @param primitives the primitives to validate
+     * @return the primitives to visit
+     */
+    private List<OsmPrimitive> getNeighbourhood(Set<OsmPrimitive> primitives) {
+        Set<Node> nodes = new LinkedHashSet<>();
+        Set<Way> ways = new LinkedHashSet<>();
+        Set<Relation> relations = new LinkedHashSet<>();
+        double margin = PROP_MARGIN.get() / METERS_PER_DEGREE;
+        for (OsmPrimitive p : primitives) {
+            if (!p.isUsable() || p.getDataSet() != data)
+                continue;
+            if (p instanceof Relation) {
+                // relations are validated against their members, not against their surroundings
+                relations.add((Relation) p);
+                continue;
+            }
+            BBox box = new BBox(p.getBBox());
+            double cos = Math.cos(Math.toRadians(box.getCenter().lat()));
+            // widen the box in longitude, a degree of longitude is shorter than a degree of latitude
+            box.addPrimitive(p, cos > 0.01 ? margin / cos : margin);
+            nodes.addAll(data.searchNodes(box));
+            ways.addAll(data.searchWays(box));
+            if (p instanceof Node) {
+                nodes.add((Node) p);
+            } else {
+                ways.add((Way) p);
+            }
+        }
+        List<OsmPrimitive> result = new ArrayList<>(nodes.size() + ways.size() + relations.size());
+        result.addAll(nodes);
+        result.addAll(ways);
+        result.addAll(relations);
+        return result;
+    }
+
+    /**
+     * Stops listening to the data set. Pending changes are not validated anymore.
+     */
+    public void destroy() {
+        synchronized (this) {
+            if (destroyed)
+                return;
+            destroyed = true;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            changed.clear();
+        }
+        data.removeDataSetListener(this);
+        Main.pref.removePreferenceChangeListener(this);
+    }
+
+    @Override
+    public void preferenceChanged(PreferenceChangeEvent e) {
+        if (e.getKey().startsWith(ValidatorPreference.PREFIX + '.')) {
+            testsOutdated = true;
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        addChanged(event.getPrimitives());
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // Changeset ids and similar changes do not affect the validation
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        List<AbstractDatasetChangedEvent> events = event.getEvents();
+        if (events != null) {
+            for (AbstractDatasetChangedEvent e : events) {
+                e.fire(this);
+            }
+        }
+    }
+}
@@ -276,6 +276,29 @@ public final class OsmValidator {
         return enabledTests;
     }
 
+    /**
+     * Creates and initializes new instances of the enabled tests. Unlike the tests returned by
+     * {@link #getEnabledTests(boolean)}, they are not shared and can run while the other tests are running.
+     * @param beforeUpload {@code true} to get tests enabled before upload
+     * @return new instances of the enabled tests
+     * @since xxx
+     */
+    public static Collection<Test> createEnabledTests(boolean beforeUpload) {
+        Collection<Test> tests = new ArrayList<>();
+        for (Test test : getEnabledTests(beforeUpload)) {
+            try {
+                Test copy = test.getClass().getConstructor().newInstance();
+                copy.enabled = test.enabled;
+                copy.testBeforeUpload = test.testBeforeUpload;
+                copy.initialize();
+                tests.add(copy);
+            } catch (Exception e) {
+                Main.error(e, tr("Error initializing test {0}", test.getClass().getSimpleName()));
+            }
+        }
+        return tests;
+    }
+
     /**
      * Gets the list of all available test classes
      *
@@ -0,0 +1,208 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.validation.util.GeometryIndex;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Runs validation tests on several threads.
+ * <p>
+ * The tests are run concurrently. The primitives of tests which {@linkplain Test#canVisitConcurrently() can be visited
+ * concurrently} are split into chunks which are visited by several threads as well. The errors are returned in the
+ * same order as if the tests had been run one after another.
+ * <p>
+ * The number of threads can be set with the preference {@code validator.numberOfThreads}.
+ * <p>
+ * The tests share a {@link GeometryIndex} of the way end nodes of the validated primitives, built by the first test
+ * using it.
+ * @since xxx
+ */
+public class ParallelValidator {
+
+    private static final ForkJoinPool THREAD_POOL =
+            Utils.newForkJoinPool("validator.numberOfThreads", "validator-%d", Thread.NORM_PRIORITY);
+
+    /** the minimal number of primitives visited by one thread at a time */
+    private static final int MIN_CHUNK_SIZE = 1000;
+
+    private final List<Test> tests;
+    private final Map<Test, Long> timings = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * Constructs a new {@code ParallelValidator}.
+     * @param tests the tests to run
+     */
+    public ParallelValidator(Collection<Test> tests) {
+        this.tests = new ArrayList<>(tests);
+    }
+
+    /**
+     * Runs the tests on the given primitives.
+     * @param primitives the primitives to validate
+     * @param partialSelection whether the primitives are only a part of the data, see {@link Test#setPartialSelection}
+     * @param progressMonitor the progress monitor, {@code beginTask} must have been called. Its custom text shows the
+     * last test started. Can be {@code null}
+     * @return the errors found by the tests, in the order of the tests.
+     * Nothing is returned if the validation has been canceled
+     */
+    public List<TestError> validate(Collection<OsmPrimitive> primitives, boolean partialSelection, ProgressMonitor progressMonitor) {
+        final ProgressMonitor monitor = progressMonitor == null ? NullProgressMonitor.INSTANCE : progressMonitor;
+        final List<OsmPrimitive> selection = primitives instanceof List ? (List<OsmPrimitive>) primitives : new ArrayList<>(primitives);
+        timings.clear();
+        // built by the first test using it
+        final GeometryIndex geometryIndex = new GeometryIndex(selection);
+        final AtomicInteger started = new AtomicInteger();
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>(tests.size());
+        for (Test test : tests) {
+            test.setPartialSelection(partialSelection);
+            test.setGeometryIndex(geometryIndex);
+            // the sub task monitors are created in the order of the tests
+            final ProgressMonitor testMonitor = monitor.createSubTaskMonitor(selection.size(), false);
+            tasks.add(ForkJoinTask.adapt(() -> {
+                if (!monitor.isCanceled()) {
+                    monitor.setCustomText(tr("Test {0}/{1}: Starting {2}", started.incrementAndGet(), tests.size(), test.getName()));
+                    run(test, selection, testMonitor);
+                }
+            }));
+        }
+        try {
+            THREAD_POOL.invoke(ForkJoinTask.adapt(() -> {
+                ForkJoinTask.invokeAll(tasks);
+            }));
+        } finally {
+            for (Test test : tests) {
+                test.setGeometryIndex(null);
+            }
+        }
+        if (monitor.isCanceled())
+            return Collections.emptyList();
+        List<TestError> errors = new ArrayList<>(200);
+        for (Test test : tests) {
+            errors.addAll(test.getErrors());
+        }
+        return errors;
+    }
+
+    private void run(Test test, List<OsmPrimitive> selection, ProgressMonitor monitor) {
+        if (monitor.isCanceled())
+            return;
+        final long start = System.nanoTime();
+        test.startTest(monitor);
+        if (test.canVisitConcurrently() && selection.size() > MIN_CHUNK_SIZE && THREAD_POOL.getParallelism() > 1) {
+            visitConcurrently(test, selection, monitor);
+        } else {
+            test.visit(selection);
+        }
+        test.endTest();
+        timings.put(test, (System.nanoTime() - start) / 1000000);
+    }
+
+    private static void visitConcurrently(Test test, List<OsmPrimitive> selection, ProgressMonitor monitor) {
+        final int chunkSize = Math.max(MIN_CHUNK_SIZE, selection.size() / (4 * THREAD_POOL.getParallelism()));
+        final List<List<TestError>> chunkErrors = new ArrayList<>();
+        final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        final ChunkErrors errors = new ChunkErrors();
+        monitor.setTicksCount(selection.size());
+        // the test must not update the monitor from several threads, the chunks do
+        test.progressMonitor = null;
+        test.errors = errors;
+        try {
+            for (int from = 0; from < selection.size(); from += chunkSize) {
+                final List<OsmPrimitive> chunk = selection.subList(from, Math.min(selection.size(), from + chunkSize));
+                final List<TestError> list = new ArrayList<>();
+                chunkErrors.add(list);
+                tasks.add(ForkJoinTask.adapt(() -> {
+                    if (!monitor.isCanceled()) {
+                        errors.visit(test, chunk, list);
+                        synchronized (monitor) {
+                            monitor.worked(chunk.size());
+                        }
+                    }
+                }));
+            }
+            ForkJoinTask.invokeAll(tasks);
+        } finally {
+            test.progressMonitor = monitor;
+            test.errors = new ArrayList<>();
+            for (List<TestError> list : chunkErrors) {
+                test.errors.addAll(list);
+            }
+        }
+    }
+
+    /**
+     * Returns the time each test took during the last validation.
+     * @return the duration of each test in milliseconds, in the order of the tests
+     */
+    public Map<Test, Long> getTimings() {
+        synchronized (timings) {
+            Map<Test, Long> result = new LinkedHashMap<>();
+            for (Test test : tests) {
+                Long time = timings.get(test);
+                if (time != null) {
+                    result.put(test, time);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The errors of a test while its primitives are visited concurrently.
+     * Each thread sees the list of errors of the chunk it visits.
+     */
+    private static final class ChunkErrors extends AbstractList<TestError> {
+        private final ThreadLocal<List<TestError>> current = new ThreadLocal<>();
+
+        void visit(Test test, List<OsmPrimitive> chunk, List<TestError> list) {
+            current.set(list);
+            try {
+                test.visit(chunk);
+            } finally {
+                current.remove();
+            }
+        }
+
+        @Override
+        public TestError get(int index) {
+            return current.get().get(index);
+        }
+
+        @Override
+        public int size() {
+            return current.get().size();
+        }
+
+        @Override
+        public TestError set(int index, TestError element) {
+            return current.get().set(index, element);
+        }
+
+        @Override
+        public void add(int index, TestError element) {
+            current.get().add(index, element);
+        }
+
+        @Override
+        public TestError remove(int index) {
+            return current.get().remove(index);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.osm.visitor.AbstractVisitor;
+import org.openstreetmap.josm.data.validation.util.GeometryIndex;
 import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.tools.GBC;
@@ -73,6 +74,9 @@ public class Test extends AbstractVisitor {
     /** the start time to compute elapsed time when test finishes */
     protected long startTime;
 
+    /** the geometry index shared with the other tests run on the same primitives, can be {@code null} */
+    protected GeometryIndex geometryIndex;
+
     /**
      * Constructor
      * @param name Name of the test
@@ -168,6 +172,16 @@ public class Test extends AbstractVisitor {
         this.partialSelection = partialSelection;
     }
 
+    /**
+     * Sets the geometry index shared by the tests run on the same primitives. Geometric tests use it instead of building
+     * their own index. It must contain the primitives visited by the test.
+     * @param geometryIndex the shared geometry index, or {@code null} if the test builds its own
+     * @since xxx
+     */
+    public void setGeometryIndex(GeometryIndex geometryIndex) {
+        this.geometryIndex = geometryIndex;
+    }
+
     /**
      * Gets the validation errors accumulated until this moment.
      * @return The list of errors
@@ -225,6 +239,17 @@ public class Test extends AbstractVisitor {
         return p.isUsable() && (!(p instanceof Way) || (((Way) p).getNodesCount() > 1)); // test only Ways with at least 2 nodes
     }
 
+    /**
+     * Determines if the primitives can be checked independently of each other, by several threads at the same time.
+     * This requires the test to keep no state between primitives apart from {@link #errors}, and to report the errors
+     * of a primitive while visiting it. See {@link ParallelValidator}.
+     * @return {@code true} if the primitives can be visited concurrently, {@code false} otherwise
+     * @since xxx
+     */
+    public boolean canVisitConcurrently() {
+        return false;
+    }
+
     @Override
     public void visit(Node n) {
         // To be overridden in subclasses
@@ -20,6 +20,7 @@ import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.util.GeometryIndex;
 import org.openstreetmap.josm.data.validation.util.ValUtil;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 
@@ -35,8 +36,8 @@ public abstract class CrossingWays extends Test {
     private static final String RAILWAY = "railway";
     private static final String WATERWAY = "waterway";
 
-    /** All way segments, grouped by cells */
-    private final Map<Point2D, List<WaySegment>> cellSegments = new HashMap<>(1000);
+    /** All way segments visited so far, grouped by cells */
+    private final GeometryIndex index = new GeometryIndex();
     /** The already detected ways in error */
     private final Map<List<Way>, List<WaySegment>> seenWays = new HashMap<>(50);
 
@@ -216,14 +217,14 @@ public abstract class CrossingWays extends Test {
     @Override
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
-        cellSegments.clear();
+        index.clear();
         seenWays.clear();
     }
 
     @Override
     public void endTest() {
         super.endTest();
-        cellSegments.clear();
+        index.clear();
         seenWays.clear();
     }
 
@@ -255,7 +256,7 @@ public abstract class CrossingWays extends Test {
     public void visit(Way w) {
         if (this instanceof SelfCrossing) {
             // free memory, we are not interested in previous ways
-            cellSegments.clear();
+            index.clear();
             seenWays.clear();
         }
 
@@ -268,7 +269,7 @@ public abstract class CrossingWays extends Test {
                 Main.warn("Crossing ways test skipped "+es1);
                 continue;
             }
-            for (List<WaySegment> segments : getSegments(cellSegments, en1, en2)) {
+            for (List<WaySegment> segments : index.getSegments(en1, en2)) {
                 for (WaySegment es2 : segments) {
                     List<Way> prims;
                     List<WaySegment> highlight;
@@ -298,8 +299,8 @@ public abstract class CrossingWays extends Test {
                         highlight.add(es2);
                     }
                 }
-                segments.add(es1);
             }
+            index.addSegment(es1);
         }
     }
 
@@ -15,6 +15,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -36,6 +37,7 @@ import org.openstreetmap.josm.command.DeleteCommand;
 import org.openstreetmap.josm.command.SequenceCommand;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.OsmUtils;
 import org.openstreetmap.josm.data.osm.Tag;
 import org.openstreetmap.josm.data.validation.Severity;
@@ -51,9 +53,12 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule.Declaration;
 import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource.MapCSSRuleIndex;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.AbstractSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.OptimizedGeneralSelector;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.MapCSSParser;
 import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.ParseException;
 import org.openstreetmap.josm.gui.preferences.SourceEntry;
@@ -230,6 +235,88 @@ public class MapCSSTagChecker extends Test.TagTest {
 
     final MultiMap<String, TagCheck> checks = new MultiMap<>();
 
+    /** The index of {@link #checks}, built when it is needed. */
+    private TagCheckIndex index;
+
+    /**
+     * An index of the tag checks by primitive type and by the keys and values their selectors depend on, like the
+     * {@link MapCSSRuleIndex} of the map paint styles. Only the checks which may match a primitive are evaluated.
+     * @since xxx
+     */
+    static final class TagCheckIndex {
+        private final MapCSSRuleIndex nodeRules = new MapCSSRuleIndex();
+        private final MapCSSRuleIndex wayRules = new MapCSSRuleIndex();
+        private final MapCSSRuleIndex relationRules = new MapCSSRuleIndex();
+        /** The check of each indexed rule. There is one rule for each selector of a check. */
+        private final Map<MapCSSRule, TagCheck> ruleChecks = new IdentityHashMap<>();
+
+        /**
+         * Constructs a new {@code TagCheckIndex}.
+         * @param checks the sets of tag checks, in the order in which they are to be evaluated
+         */
+        TagCheckIndex(Collection<Set<TagCheck>> checks) {
+            int position = 0;
+            for (Set<TagCheck> schecks : checks) {
+                for (TagCheck check : schecks) {
+                    // the index sorts the rules by declaration index, so the position of the check is used as such.
+                    // Checks setting a class have to be evaluated before the checks testing it.
+                    Declaration declaration = new Declaration(check.rule.declaration.instructions, position++);
+                    for (Selector selector : check.rule.selectors) {
+                        add(new MapCSSRule(selector, declaration), check);
+                    }
+                }
+            }
+            nodeRules.initIndex();
+            wayRules.initIndex();
+            relationRules.initIndex();
+        }
+
+        private void add(MapCSSRule rule, TagCheck check) {
+            // find the rightmost selector, this must be a GeneralSelector
+            Selector selRightmost = rule.selector;
+            while (selRightmost instanceof ChildOrParentSelector) {
+                selRightmost = ((ChildOrParentSelector) selRightmost).right;
+            }
+            OptimizedGeneralSelector s = (OptimizedGeneralSelector) selRightmost;
+            ruleChecks.put(rule, check);
+            if (s.matchesBase(OsmPrimitiveType.NODE)) {
+                nodeRules.add(rule);
+            }
+            if (s.matchesBase(OsmPrimitiveType.WAY)) {
+                wayRules.add(rule);
+            }
+            if (s.matchesBase(OsmPrimitiveType.RELATION)) {
+                relationRules.add(rule);
+            }
+        }
+
+        /**
+         * Returns the rules which may match the given primitive, in the order of their checks.
+         * Rules not included in the result are guaranteed to not match this primitive.
+         * @param p the primitive to match
+         * @return an iterator over the possible rules
+         */
+        Iterator<MapCSSRule> getRuleCandidates(OsmPrimitive p) {
+            switch (p.getType()) {
+            case NODE:
+                return nodeRules.getRuleCandidates(p);
+            case WAY:
+                return wayRules.getRuleCandidates(p);
+            default:
+                return relationRules.getRuleCandidates(p);
+            }
+        }
+
+        /**
+         * Returns the check a rule has been created for.
+         * @param rule a rule returned by {@link #getRuleCandidates}
+         * @return the check of the rule
+         */
+        TagCheck getCheck(MapCSSRule rule) {
+            return ruleChecks.get(rule);
+        }
+    }
+
     /**
      * Result of {@link TagCheck#readMapCSS}
      * @since 8936
@@ -669,8 +756,36 @@ public class MapCSSTagChecker extends Test.TagTest {
      * @param includeOtherSeverity if {@code true}, errors of severity {@link Severity#OTHER} (info) will also be returned
      * @return all errors for the given primitive, with or without those of "info" severity
      */
-    public synchronized Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
-        return getErrorsForPrimitive(p, includeOtherSeverity, checks.values());
+    public Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity) {
+        return getErrorsForPrimitive(p, includeOtherSeverity, getIndex());
+    }
+
+    private synchronized TagCheckIndex getIndex() {
+        if (index == null) {
+            index = new TagCheckIndex(checks.values());
+        }
+        return index;
+    }
+
+    private static Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity, TagCheckIndex index) {
+        // the index is not modified once built, so several threads may use it
+        final List<TestError> r = new ArrayList<>();
+        final Environment env = new Environment(p, new MultiCascade(), Environment.DEFAULT_LAYER, null);
+        // the rules of a check follow each other, only the first matching selector of a check is used
+        TagCheck lastMatched = null;
+        for (Iterator<MapCSSRule> candidates = index.getRuleCandidates(p); candidates.hasNext();) {
+            final MapCSSRule rule = candidates.next();
+            final TagCheck check = index.getCheck(rule);
+            if (check == lastMatched || (Severity.OTHER.equals(check.getSeverity()) && !includeOtherSeverity)) {
+                continue;
+            }
+            env.clearSelectorMatchingInformation();
+            if (rule.selector.matches(env)) {
+                lastMatched = check;
+                addError(p, check, rule.selector, env, r);
+            }
+        }
+        return r;
     }
 
     private static Collection<TestError> getErrorsForPrimitive(OsmPrimitive p, boolean includeOtherSeverity,
@@ -684,17 +799,21 @@ public class MapCSSTagChecker extends Test.TagTest {
                 }
                 final Selector selector = check.whichSelectorMatchesEnvironment(env);
                 if (selector != null) {
-                    check.rule.declaration.execute(env);
-                    final TestError error = check.getErrorForPrimitive(p, selector, env, new MapCSSTagCheckerAndRule(check.rule));
-                    if (error != null) {
-                        r.add(error);
-                    }
+                    addError(p, check, selector, env, r);
                 }
             }
         }
         return r;
     }
 
+    private static void addError(OsmPrimitive p, TagCheck check, Selector selector, Environment env, List<TestError> r) {
+        check.rule.declaration.execute(env);
+        final TestError error = check.getErrorForPrimitive(p, selector, env, new MapCSSTagCheckerAndRule(check.rule));
+        if (error != null) {
+            r.add(error);
+        }
+    }
+
     /**
      * Visiting call for primitives.
      *
@@ -705,6 +824,11 @@ public class MapCSSTagChecker extends Test.TagTest {
         errors.addAll(getErrorsForPrimitive(p, ValidatorPreference.PREF_OTHER.get()));
     }
 
+    @Override
+    public boolean canVisitConcurrently() {
+        return true;
+    }
+
     /**
      * Adds a new MapCSS config file from the given URL.
      * @param url The unique URL of the MapCSS config file
@@ -722,6 +846,7 @@ public class MapCSSTagChecker extends Test.TagTest {
             result = TagCheck.readMapCSS(new BufferedReader(UTFInputStreamReader.create(s)));
             checks.remove(url);
             checks.putAll(url, result.parseChecks);
+            index = null;
             // Check assertions, useful for development of local files
             if (Main.pref.getBoolean("validator.check_assert_local_rules", false) && Utils.isLocalUrl(url)) {
                 for (String msg : checkAsserts(result.parseChecks)) {
@@ -735,6 +860,7 @@ public class MapCSSTagChecker extends Test.TagTest {
     @Override
     public synchronized void initialize() throws Exception {
         checks.clear();
+        index = null;
         for (SourceEntry source : new ValidatorTagCheckerRulesPreference.RulePrefHelper().get()) {
             if (!source.active) {
                 continue;
@@ -577,6 +577,11 @@ public class TagChecker extends TagTest {
         }
     }
 
+    @Override
+    public boolean canVisitConcurrently() {
+        return true;
+    }
+
     @Override
     public void visit(Collection<OsmPrimitive> selection) {
         if (checkKeys || checkValues || checkComplex || checkFixmes) {
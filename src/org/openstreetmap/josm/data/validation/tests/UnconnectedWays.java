@@ -22,12 +22,12 @@ import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
-import org.openstreetmap.josm.data.osm.QuadBuckets;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.projection.Ellipsoid;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.data.validation.util.GeometryIndex;
 import org.openstreetmap.josm.gui.preferences.validator.ValidatorPreference;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 
@@ -136,10 +136,12 @@ public abstract class UnconnectedWays extends Test {
     protected static final String PREFIX = ValidatorPreference.PREFIX + "." + UnconnectedWays.class.getSimpleName();
 
     private Set<MyWaySegment> ways;
-    private QuadBuckets<Node> endnodes; // nodes at end of way
-    private QuadBuckets<Node> endnodesHighway; // nodes at end of way
-    private QuadBuckets<Node> middlenodes; // nodes in middle of way
+    private Set<Node> endnodes; // nodes at end of way
+    private Set<Node> endnodesHighway; // nodes at end of way
+    private Set<Node> middlenodes; // nodes in middle of way
     private Set<Node> othernodes; // nodes appearing at least twice
+    private GeometryIndex index; // way end nodes, shared with the other tests or filled while visiting the ways
+    private boolean sharedIndex;
     private Area dsArea;
 
     private double mindist;
@@ -158,10 +160,12 @@ public abstract class UnconnectedWays extends Test {
     public void startTest(ProgressMonitor monitor) {
         super.startTest(monitor);
         ways = new HashSet<>();
-        endnodes = new QuadBuckets<>();
-        endnodesHighway = new QuadBuckets<>();
-        middlenodes = new QuadBuckets<>();
+        endnodes = new HashSet<>();
+        endnodesHighway = new HashSet<>();
+        middlenodes = new HashSet<>();
         othernodes = new HashSet<>();
+        sharedIndex = geometryIndex != null;
+        index = sharedIndex ? geometryIndex : new GeometryIndex();
         mindist = Main.pref.getDouble(PREFIX + ".node_way_distance", 10.0);
         minmiddledist = Main.pref.getDouble(PREFIX + ".way_way_distance", 0.0);
         DataSet dataSet = Main.getLayerManager().getEditDataSet();
@@ -284,6 +288,7 @@ public abstract class UnconnectedWays extends Test {
         endnodesHighway = null;
         middlenodes = null;
         othernodes = null;
+        index = null;
         dsArea = null;
         super.endTest();
     }
@@ -391,11 +396,10 @@ public abstract class UnconnectedWays extends Test {
             // overlap a bit and can return duplicate nodes.
             nearbyNodeCache = null;
             List<LatLon> bounds = this.getBounds(dist * (360.0d / (Ellipsoid.WGS84.a * 2 * Math.PI)));
-            List<Node> foundNodes = endnodesHighway.search(new BBox(bounds.get(0), bounds.get(1)));
-            foundNodes.addAll(endnodes.search(new BBox(bounds.get(0), bounds.get(1))));
+            List<Node> foundNodes = index.searchWayEndNodes(new BBox(bounds.get(0), bounds.get(1)));
 
             for (Node n : foundNodes) {
-                if (!nearby(n, dist) || !n.getCoor().isIn(dsArea)) {
+                if ((!endnodesHighway.contains(n) && !endnodes.contains(n)) || !nearby(n, dist) || !n.getCoor().isIn(dsArea)) {
                     continue;
                 }
                 // It is actually very rare for us to find a node
@@ -449,16 +453,19 @@ public abstract class UnconnectedWays extends Test {
                 && !w.hasTag("highway", "platform") && !w.hasTag("railway", "platform") // similarly for public transport platforms
                 ) {
             ways.addAll(getWaySegments(w));
-            QuadBuckets<Node> set = endnodes;
+            Set<Node> set = endnodes;
             if (w.hasKey("highway") || w.hasKey("railway")) {
                 set = endnodesHighway;
             }
             addNode(w.firstNode(), set);
             addNode(w.lastNode(), set);
+            if (!sharedIndex) {
+                index.addWayEndNodes(w);
+            }
         }
     }
 
-    private void addNode(Node n, QuadBuckets<Node> s) {
+    private void addNode(Node n, Set<Node> s) {
         boolean m = middlenodes.contains(n);
         boolean e = endnodes.contains(n);
         boolean eh = endnodesHighway.contains(n);
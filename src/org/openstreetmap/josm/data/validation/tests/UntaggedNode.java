@@ -38,6 +38,11 @@ public class UntaggedNode extends Test implements AbstractPrimitive.KeyValueVisi
                 tr("This test checks for untagged nodes that are not part of any way."));
     }
 
+    @Override
+    public boolean canVisitConcurrently() {
+        return true;
+    }
+
     @Override
     public void visit(Node n) {
         if (n.isUsable() && !n.isTagged() && n.getReferrers().isEmpty()) {
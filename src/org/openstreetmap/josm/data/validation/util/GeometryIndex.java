@@ -0,0 +1,286 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.validation.OsmValidator;
+
+/**
+ * Spatial index of way segments and way end nodes.
+ * <p>
+ * {@code UnconnectedWays} searches the way end nodes near a segment. Instead of building their own grid in each run,
+ * the tests run by a {@code ParallelValidator} share one index of the end nodes of the validated ways and of the
+ * member ways of the validated relations, built when it is first queried.
+ * <p>
+ * {@code CrossingWays} searches the segments near a segment among the segments of the ways it visited before, so it
+ * fills a private index with {@link #addSegment} while visiting the ways. Segments are never indexed from the
+ * validated primitives.
+ * <p>
+ * Segments are kept in the cells of the grid defined by {@link OsmValidator#griddetail} in east/north coordinates, see
+ * {@link ValUtil#visitSegmentCells}. End nodes are kept in cells of {@value #NODE_CELL_SIZE} degrees. The cells are
+ * looked up by their row and column packed into a {@code long}, without creating a {@code Point2D} for each lookup.
+ * <p>
+ * Once built, the index can be queried by several threads at the same time. Adding to the index is not thread-safe:
+ * it is meant for a test which is run alone and fills a private index while visiting the primitives.
+ * @since xxx
+ */
+public class GeometryIndex {
+
+    /** The width and height of the cells of way end nodes, in degrees */
+    static final double NODE_CELL_SIZE = 0.001;
+
+    /** the primitives to index */
+    private Collection<? extends OsmPrimitive> primitives;
+    private volatile boolean nodesBuilt;
+    private double gridDetail = OsmValidator.griddetail;
+    private final CellMap<WaySegment> segmentCells = new CellMap<>();
+    private final CellMap<Node> nodeCells = new CellMap<>();
+
+    /**
+     * Constructs a new empty {@code GeometryIndex}, to be filled by {@link #addSegment} and {@link #addWayEndNodes}.
+     */
+    public GeometryIndex() {
+        this(Collections.<OsmPrimitive>emptyList());
+    }
+
+    /**
+     * Constructs a new {@code GeometryIndex} of the way end nodes of the given primitives. The index is built when it
+     * is first used.
+     * @param primitives the validated primitives. The end nodes of their ways and of the member ways of their relations
+     * are indexed
+     */
+    public GeometryIndex(Collection<? extends OsmPrimitive> primitives) {
+        this.primitives = primitives;
+    }
+
+    private void ensureNodesBuilt() {
+        if (!nodesBuilt) {
+            buildNodes();
+        }
+    }
+
+    private synchronized void buildNodes() {
+        if (nodesBuilt)
+            return;
+        for (Way w : getWays()) {
+            doAddWayEndNodes(w);
+        }
+        nodesBuilt = true;
+    }
+
+    private Set<Way> getWays() {
+        Set<Way> ways = new LinkedHashSet<>();
+        for (OsmPrimitive p : primitives) {
+            if (p instanceof Way) {
+                addWay((Way) p, ways);
+            } else if (p instanceof Relation) {
+                for (Way w : ((Relation) p).getMemberPrimitives(Way.class)) {
+                    addWay(w, ways);
+                }
+            }
+        }
+        return ways;
+    }
+
+    private static void addWay(Way w, Set<Way> ways) {
+        if (w.isUsable() && w.getNodesCount() > 1) {
+            ways.add(w);
+        }
+    }
+
+    /**
+     * Adds a way segment to the cells it crosses. Segments with a node without coordinates are ignored.
+     * @param segment the way segment
+     */
+    public void addSegment(WaySegment segment) {
+        EastNorth en1 = segment.getFirstNode().getEastNorth();
+        EastNorth en2 = segment.getSecondNode().getEastNorth();
+        if (en1 != null && en2 != null) {
+            ValUtil.visitSegmentCells(en1, en2, gridDetail, (x, y) -> segmentCells.getOrCreate(key(x, y)).add(segment));
+        }
+    }
+
+    /**
+     * Adds the first and last node of a way. Nodes without coordinates are ignored.
+     * @param w the way
+     */
+    public void addWayEndNodes(Way w) {
+        ensureNodesBuilt();
+        doAddWayEndNodes(w);
+    }
+
+    private void doAddWayEndNodes(Way w) {
+        if (w.getNodesCount() > 0) {
+            addNode(w.firstNode());
+            addNode(w.lastNode());
+        }
+    }
+
+    private void addNode(Node n) {
+        LatLon coor = n.getCoor();
+        if (coor != null) {
+            List<Node> cell = nodeCells.getOrCreate(key(nodeCell(coor.lon()), nodeCell(coor.lat())));
+            if (!cell.contains(n)) {
+                cell.add(n);
+            }
+        }
+    }
+
+    /**
+     * Returns the segments in the cells crossed by a segment, in the order of the cells.
+     * A segment crossing several of these cells is returned once per cell.
+     * @param en1 the first east/north of the segment
+     * @param en2 the second east/north of the segment
+     * @return the lists of segments of the crossed cells which contain segments. They must not be modified
+     */
+    public List<List<WaySegment>> getSegments(EastNorth en1, EastNorth en2) {
+        List<List<WaySegment>> cells = new ArrayList<>();
+        ValUtil.visitSegmentCells(en1, en2, gridDetail, (x, y) -> {
+            List<WaySegment> segments = segmentCells.get(key(x, y));
+            if (segments != null) {
+                cells.add(segments);
+            }
+        });
+        return cells;
+    }
+
+    /**
+     * Returns the way end nodes within a bounding box.
+     * @param bbox the bounding box
+     * @return the way end nodes within {@code bbox}
+     */
+    public List<Node> searchWayEndNodes(BBox bbox) {
+        ensureNodesBuilt();
+        List<Node> result = new ArrayList<>();
+        long minX = nodeCell(bbox.getTopLeftLon());
+        long maxX = nodeCell(bbox.getBottomRightLon());
+        long minY = nodeCell(bbox.getBottomRightLat());
+        long maxY = nodeCell(bbox.getTopLeftLat());
+        for (long x = minX; x <= maxX; x++) {
+            for (long y = minY; y <= maxY; y++) {
+                List<Node> nodes = nodeCells.get(key(x, y));
+                if (nodes != null) {
+                    for (Node n : nodes) {
+                        if (bbox.bounds(n.getCoor())) {
+                            result.add(n);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all segments and nodes from the index. The grid detail is read again from {@link OsmValidator#griddetail}.
+     */
+    public synchronized void clear() {
+        primitives = Collections.emptyList();
+        nodesBuilt = true;
+        gridDetail = OsmValidator.griddetail;
+        segmentCells.clear();
+        nodeCells.clear();
+    }
+
+    private static long nodeCell(double degrees) {
+        return (long) Math.floor(degrees / NODE_CELL_SIZE);
+    }
+
+    /**
+     * Packs the column and row of a cell into a key. Both fit into an {@code int} for the grids of all projections.
+     * @param x the column
+     * @param y the row
+     * @return the key of the cell
+     */
+    private static long key(long x, long y) {
+        return (x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * An open addressing hash table of the lists of elements in the cells of a grid, looked up by {@link #key}.
+     * @param <T> type of elements
+     */
+    private static final class CellMap<T> {
+        private static final int MIN_CAPACITY = 64;
+
+        private long[] keys = new long[MIN_CAPACITY];
+        private Object[] cells = new Object[MIN_CAPACITY];
+        private int size;
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        @SuppressWarnings("unchecked")
+        List<T> get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+                Object cell = cells[i];
+                if (cell == null)
+                    return null;
+                if (keys[i] == key)
+                    return (List<T>) cell;
+            }
+        }
+
+        List<T> getOrCreate(long key) {
+            List<T> cell = get(key);
+            if (cell == null) {
+                if ((size + 1) * 4L > keys.length * 3L) {
+                    resize();
+                }
+                cell = new ArrayList<>(4);
+                put(keys, cells, key, cell);
+                size++;
+            }
+            return cell;
+        }
+
+        private static void put(long[] keys, Object[] cells, long key, Object cell) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (cells[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            cells[i] = cell;
+        }
+
+        private void resize() {
+            long[] newKeys = new long[keys.length * 2];
+            Object[] newCells = new Object[cells.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (cells[i] != null) {
+                    put(newKeys, newCells, keys[i], cells[i]);
+                }
+            }
+            keys = newKeys;
+            cells = newCells;
+        }
+
+        void clear() {
+            if (keys.length == MIN_CAPACITY) {
+                Arrays.fill(cells, null);
+            } else {
+                keys = new long[MIN_CAPACITY];
+                cells = new Object[MIN_CAPACITY];
+            }
+            size = 0;
+        }
+    }
+}
@@ -135,9 +135,27 @@ public final class ValUtil {
      * @since 6869
      */
     public static List<Point2D> getSegmentCells(EastNorth en1, EastNorth en2, double gridDetail) {
+        List<Point2D> cells = new ArrayList<>();
+        visitSegmentCells(en1, en2, gridDetail, (x, y) -> cells.add(new Point2D.Double(x, y)));
+        return cells;
+    }
+
+    /**
+     * Visits the coordinates of all cells in a grid that a line between 2 nodes intersects with.
+     * The cells are the same as the ones returned by {@link #getSegmentCells(EastNorth, EastNorth, double)},
+     * without creating a {@link Point2D} for each cell.
+     *
+     * @param en1 The first EastNorth.
+     * @param en2 The second EastNorth.
+     * @param gridDetail The detail of the grid. Bigger values give smaller
+     * cells, but a bigger number of them.
+     * @param visitor The visitor called for each cell
+     * @throws IllegalArgumentException if en1 or en2 is {@code null}
+     * @since xxx
+     */
+    public static void visitSegmentCells(EastNorth en1, EastNorth en2, double gridDetail, CellVisitor visitor) {
         CheckParameterUtil.ensureParameterNotNull(en1, "en1");
         CheckParameterUtil.ensureParameterNotNull(en2, "en2");
-        List<Point2D> cells = new ArrayList<>();
         double x0 = en1.east() * gridDetail;
         double x1 = en2.east() * gridDetail;
         double y0 = en1.north() * gridDetail + 1;
@@ -160,7 +178,7 @@ public final class ValUtil {
 
         long maxSteps = (gridX1 - gridX0) + Math.abs(gridY1 - gridY0) + 1;
         while ((gridX0 <= gridX1 && (gridY0 - gridY1)*stepY <= 0) && maxSteps-- > 0) {
-            cells.add(new Point2D.Double(gridX0, gridY0));
+            visitor.visit(gridX0, gridY0);
 
             // Is the cross between the segment and next vertical line nearer than the cross with next horizontal line?
             // Note: segment line formula: y=dy/dx(x-x1)+y1
@@ -177,6 +195,19 @@ public final class ValUtil {
                 gridY0 += stepY;
             }
         }
-        return cells;
+    }
+
+    /**
+     * Visitor of the cells of a grid.
+     * @since xxx
+     */
+    @FunctionalInterface
+    public interface CellVisitor {
+        /**
+         * Visits a cell.
+         * @param x the column of the cell
+         * @param y the row of the cell
+         */
+        void visit(long x, long y);
     }
 }
@@ -396,6 +396,9 @@ public class MainApplication extends Main {
         monitor.indeterminateSubTask(tr("Loading plugins"));
         PluginHandler.loadLatePlugins(splash, pluginsToLoad, monitor.createSubTaskMonitor(1, false));
         toolbar.refreshToolbarControl();
+        if (Main.isDebugEnabled()) {
+            Main.debug("Startup tasks:\n" + Main.getStartupReport());
+        }
     }
 
     private static void processOffline(ProgramArguments args) {
@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
@@ -25,10 +26,11 @@ import org.openstreetmap.josm.actions.search.SearchCompiler.ParseError;
 import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Filter;
 import org.openstreetmap.josm.data.osm.Filter.FilterPreferenceEntry;
+import org.openstreetmap.josm.data.osm.FilterMatchCache;
 import org.openstreetmap.josm.data.osm.FilterMatcher;
 import org.openstreetmap.josm.data.osm.FilterWorker;
-import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -55,9 +57,11 @@ public class FilterTableModel extends AbstractTableModel {
     }
 
     private final transient List<Filter> filters = new LinkedList<>();
-    private final transient FilterMatcher filterMatcher = new FilterMatcher();
+    private final transient FilterMatchCache matchCache = new FilterMatchCache();
+    private final transient FilterMatcher filterMatcher = new FilterMatcher(matchCache);
 
     private void updateFilters() {
+        matchCache.retain(filters);
         filterMatcher.reset();
         for (Filter filter : filters) {
             try {
@@ -78,6 +82,7 @@ public class FilterTableModel extends AbstractTableModel {
 
     public void executeFilters() {
         DataSet ds = Main.getLayerManager().getEditDataSet();
+        matchCache.setDataSet(ds);
         boolean changed = false;
         if (ds == null) {
             disabledAndHiddenCount = 0;
@@ -118,11 +123,27 @@ public class FilterTableModel extends AbstractTableModel {
         }
 
         if (Main.isDisplayingMapView() && changed) {
+            invalidateRenderCache();
             Main.map.mapView.repaint();
             Main.map.filterDialog.updateDialogHeader();
         }
     }
 
+    private static void invalidateRenderCache() {
+        OsmDataLayer layer = Main.getLayerManager().getEditLayer();
+        if (layer != null) {
+            layer.invalidateRenderCache();
+        }
+    }
+
+    /**
+     * Applies the filters again after some primitives changed.
+     * <p>
+     * The filter expressions are only evaluated again for the changed primitives and the primitives they depend on,
+     * see {@link FilterWorker#getRelatedPrimitives}. The filter state is updated for these primitives and for the
+     * primitives which inherit it from them, see {@link FilterWorker#getDependentPrimitives}.
+     * @param primitives the added, removed or changed primitives
+     */
     public void executeFilters(Collection<? extends OsmPrimitive> primitives) {
         DataSet ds = Main.getLayerManager().getEditDataSet();
         if (ds == null)
@@ -133,35 +154,31 @@ public class FilterTableModel extends AbstractTableModel {
 
         ds.beginUpdate();
         try {
-            for (int i = 0; i < 2; i++) {
-                for (OsmPrimitive primitive: primitives) {
-
-                    if (i == 0 && primitive instanceof Node) {
-                        continue;
-                    }
-
-                    if (i == 1 && !(primitive instanceof Node)) {
-                        continue;
-                    }
-
-                    if (primitive.isDisabled()) {
-                        disabledCount--;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount--;
-                    }
-                    changed = changed | FilterWorker.executeFilters(primitive, filterMatcher);
-                    if (primitive.isDisabled()) {
-                        disabledCount++;
-                    }
-                    if (primitive.isDisabledAndHidden()) {
-                        disabledAndHiddenCount++;
-                    }
-
-                    if (primitive.isSelected() && primitive.isDisabled()) {
-                        deselect.add(primitive);
-                    }
+            matchCache.setDataSet(ds);
+            Set<OsmPrimitive> related = FilterWorker.getRelatedPrimitives(primitives, filterMatcher.usesParentOrChild());
+            matchCache.update(related);
+            for (OsmPrimitive primitive : FilterWorker.getDependentPrimitives(related)) {
+                if (primitive.isDisabled()) {
+                    disabledCount--;
+                }
+                if (primitive.isDisabledAndHidden()) {
+                    disabledAndHiddenCount--;
+                }
+                if (primitive.getDataSet() != ds || primitive.isDeleted() || primitive.isIncomplete()) {
+                    // not filtered by executeFilters() either
+                    changed |= primitive.unsetDisabledState();
+                    continue;
+                }
+                changed |= FilterWorker.executeFilters(primitive, filterMatcher);
+                if (primitive.isDisabled()) {
+                    disabledCount++;
+                }
+                if (primitive.isDisabledAndHidden()) {
+                    disabledAndHiddenCount++;
+                }
 
+                if (primitive.isSelected() && primitive.isDisabled()) {
+                    deselect.add(primitive);
                 }
             }
         } finally {
@@ -169,18 +186,32 @@ public class FilterTableModel extends AbstractTableModel {
         }
 
         if (changed) {
+            invalidateRenderCache();
             Main.map.mapView.repaint();
             Main.map.filterDialog.updateDialogHeader();
             ds.clearSelection(deselect);
         }
+    }
 
+    /**
+     * Forgets which primitives match the filters. To be called when the data set changed in a way which is not
+     * described by events, before applying the filters again.
+     * @since xxx
+     */
+    public void invalidateMatchCache() {
+        matchCache.clear();
     }
 
+    /**
+     * Clears the filter flags of all primitives. The primitives matching the filters are forgotten as well, since
+     * the data set may change while filters are not applied.
+     */
     public void clearFilterFlags() {
         DataSet ds = Main.getLayerManager().getEditDataSet();
         if (ds != null) {
             FilterWorker.clearFilterFlags(ds.allPrimitives());
         }
+        matchCache.clear();
         disabledCount = 0;
         disabledAndHiddenCount = 0;
     }
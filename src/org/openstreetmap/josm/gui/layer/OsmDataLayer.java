@@ -81,6 +81,8 @@ import org.openstreetmap.josm.data.preferences.ColorProperty;
 import org.openstreetmap.josm.data.preferences.IntegerProperty;
 import org.openstreetmap.josm.data.preferences.StringProperty;
 import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.validation.LiveValidator;
+import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.MapView;
@@ -92,6 +94,7 @@ import org.openstreetmap.josm.gui.io.AbstractUploadDialog;
 import org.openstreetmap.josm.gui.io.UploadDialog;
 import org.openstreetmap.josm.gui.io.UploadLayerTask;
 import org.openstreetmap.josm.gui.layer.markerlayer.MarkerLayer;
+import org.openstreetmap.josm.gui.mappaint.StyleCacheInvalidator;
 import org.openstreetmap.josm.gui.progress.PleaseWaitProgressMonitor;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.gui.util.GuiHelper;
@@ -124,6 +127,8 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
     private boolean requiresSaveToFile;
     private boolean requiresUploadToServer;
     private int highlightUpdateCount;
+    private final TileRenderCache renderCache;
+    private final LiveValidator liveValidator;
 
     /**
      * List of validation errors in this layer.
@@ -355,6 +360,9 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
         conflicts = new ConflictCollection();
         data.addDataSetListener(new DataSetListenerAdapter(this));
         data.addDataSetListener(MultipolygonCache.getInstance());
+        data.addDataSetListener(StyleCacheInvalidator.getInstance());
+        renderCache = new TileRenderCache(this);
+        liveValidator = new LiveValidator(data, () -> OsmValidator.createEnabledTests(false), this::liveValidated);
         DataSet.addSelectionListener(this);
         if (name != null && name.startsWith(createLayerName(""))) {
             while (AlphanumComparator.getInstance().compare(createLayerName(dataLayerCounter), name) < 0) {
@@ -419,8 +427,10 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
             g.fill(a);
         }
 
-        Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
-        painter.render(data, virtual, box);
+        if (!renderCache.paint(g, mv, inactive, virtual)) {
+            Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, mv, inactive);
+            painter.render(data, virtual, box);
+        }
         Main.map.conflictDialog.paintConflicts(g, mv);
     }
 
@@ -893,6 +903,16 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
         return highlightUpdateCount != data.getHighlightUpdateCount();
     }
 
+    /**
+     * Marks the cached rendering of the data as outdated, for changes that are not reported by data set events,
+     * e.g. the application of filters or the loading of style icons.
+     * @since xxx
+     */
+    public void invalidateRenderCache() {
+        renderCache.invalidateAll();
+        invalidate();
+    }
+
     @Override
     public void onPostSaveToFile() {
         setRequiresSaveToFile(false);
@@ -933,6 +953,27 @@ public class OsmDataLayer extends AbstractModifiableLayer implements Listener, S
     public void destroy() {
         super.destroy();
         DataSet.removeSelectionListener(this);
+        renderCache.destroy();
+        liveValidator.destroy();
+    }
+
+    private void liveValidated(Set<OsmPrimitive> validated, List<TestError> errors) {
+        GuiHelper.runInEDT(() -> {
+            List<TestError> merged = LiveValidator.mergeErrors(validationErrors, validated, errors);
+            if (Main.map != null && Main.map.validatorDialog.tree.getErrors() == validationErrors) {
+                if (!merged.isEmpty()) {
+                    OsmValidator.initializeErrorLayer();
+                }
+                Main.map.validatorDialog.tree.setErrors(merged);
+            } else {
+                validationErrors.clear();
+                for (TestError error : merged) {
+                    if (!error.isIgnored()) {
+                        validationErrors.add(error);
+                    }
+                }
+            }
+        });
     }
 
     @Override
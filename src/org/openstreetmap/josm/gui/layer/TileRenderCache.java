@@ -0,0 +1,755 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangeEvent;
+import org.openstreetmap.josm.data.Preferences.PreferenceChangedListener;
+import org.openstreetmap.josm.data.ProjectionBounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.WaySegment;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
+import org.openstreetmap.josm.data.osm.visitor.paint.Rendering;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.MultipolygonCache;
+import org.openstreetmap.josm.data.preferences.BooleanProperty;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintSylesUpdateListener;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Offscreen render cache of an {@link OsmDataLayer}.
+ * <p>
+ * The data is rendered in tiles of {@value #TILE_SIZE} pixels aligned to a grid in east/north coordinates, one grid per
+ * map scale. While panning, the map view only has to composite the cached tiles and to render the few tiles that
+ * appear at the border of the view. Data set events, selection and highlighting changes mark the tiles covering the
+ * bounding boxes of the affected primitives as stale. Stale and missing tiles are rendered again by a background
+ * thread shared by all layers, meanwhile their area is rendered directly from the data, so that edits are shown
+ * immediately. The tiles around the view are rendered in advance. The cache is only used for data sets with at least
+ * {@link #PROP_MIN_PRIMITIVES} primitives, smaller data sets are rendered directly.
+ * @since xxx
+ */
+public class TileRenderCache implements DataSetListener, PreferenceChangedListener, MapPaintSylesUpdateListener {
+
+    /** Whether the tile cache is used for large data sets */
+    public static final BooleanProperty PROP_ENABLED = new BooleanProperty("draw.data.tile-cache", true);
+    /** The minimum number of primitives of a data set to use the tile cache */
+    public static final IntegerProperty PROP_MIN_PRIMITIVES = new IntegerProperty("draw.data.tile-cache.min-primitives", 100000);
+    /** The maximum number of cached tiles per layer */
+    public static final IntegerProperty PROP_MAX_TILES = new IntegerProperty("draw.data.tile-cache.max-tiles", 128);
+
+    /** The width and height of a tile in pixels */
+    public static final int TILE_SIZE = 256;
+
+    /** Pixels added around changed primitives and rendered tiles, for symbols, labels and line widths */
+    private static final int MARGIN = TILE_SIZE / 2;
+
+    /** Beyond this number of changed primitives, all tiles are marked as stale at once */
+    private static final int MAX_CHANGED_PRIMITIVES = 10000;
+
+    /** The thread rendering the tiles of all layers in the background */
+    private static final ThreadPoolExecutor RENDERER = createRenderer();
+
+    /**
+     * A tile position in the grid of a map scale.
+     */
+    static final class TileKey {
+        final double scale;
+        final long x;
+        final long y;
+
+        TileKey(double scale, long x, long y) {
+            this.scale = scale;
+            this.x = x;
+            this.y = y;
+        }
+
+        EastNorth getCenter() {
+            return new EastNorth((x + 0.5) * TILE_SIZE * scale, -(y + 0.5) * TILE_SIZE * scale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scale, x, y);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            TileKey other = (TileKey) obj;
+            return Double.compare(scale, other.scale) == 0 && x == other.x && y == other.y;
+        }
+    }
+
+    /**
+     * The parameters all cached tiles have been rendered with.
+     */
+    private static final class RenderParameters {
+        final Projection projection;
+        final boolean inactive;
+        final boolean virtual;
+
+        RenderParameters(Projection projection, boolean inactive, boolean virtual) {
+            this.projection = projection;
+            this.inactive = inactive;
+            this.virtual = virtual;
+        }
+    }
+
+    private static final class Tile {
+        final BufferedImage image;
+        boolean stale;
+
+        Tile(BufferedImage image, boolean stale) {
+            this.image = image;
+            this.stale = stale;
+        }
+    }
+
+    /**
+     * A component of the size of a tile, positioned on the tile to render. As any Swing component, it is created and
+     * moved in the EDT, the renderer thread only reads its state.
+     */
+    private static final class TileView extends NavigatableComponent {
+        TileView() {
+            setBounds(0, 0, TILE_SIZE, TILE_SIZE);
+            updateLocationState();
+        }
+
+        @Override
+        public Point getLocationOnScreen() {
+            return new Point(0, 0);
+        }
+
+        @Override
+        protected boolean isVisibleOnScreen() {
+            return true;
+        }
+    }
+
+    private final OsmDataLayer layer;
+    private final DataSet data;
+
+    /** the cached tiles in least recently used order, guarded by {@code this} */
+    private final Map<TileKey, Tile> tiles = new LinkedHashMap<TileKey, Tile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TileKey, Tile> eldest) {
+            return size() > PROP_MAX_TILES.get();
+        }
+    };
+    /** the tiles to render in the background, guarded by {@code this} */
+    private final Set<TileKey> queue = new LinkedHashSet<>();
+    private boolean renderScheduled;
+    /** incremented on every invalidation, to detect changes while a tile is rendered */
+    private long modCount;
+    private RenderParameters parameters;
+
+    private Collection<OsmPrimitive> lastSelection;
+    private final Set<OsmPrimitive> lastHighlighted = new HashSet<>();
+    private final List<WaySegment> lastHighlightedSegments = new ArrayList<>();
+    private int lastHighlightUpdateCount = -1;
+    private int lastStyleCacheIdx = -1;
+    private int primitiveCount = -1;
+
+    /** the view used to render tiles, see {@link TileView} */
+    private volatile TileView tileView;
+    private volatile boolean destroyed;
+    private boolean listening;
+
+    /**
+     * Constructs a new {@code TileRenderCache}.
+     * @param layer the layer whose data is rendered
+     */
+    public TileRenderCache(OsmDataLayer layer) {
+        this.layer = layer;
+        this.data = layer.data;
+        data.addDataSetListener(this);
+    }
+
+    private static ThreadPoolExecutor createRenderer() {
+        ThreadPoolExecutor renderer = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                Utils.newThreadFactory("osm-data-tile-renderer-%d", Thread.MIN_PRIORITY));
+        renderer.allowCoreThreadTimeOut(true);
+        return renderer;
+    }
+
+    /**
+     * Paints the data of the layer from the cached tiles. The area of missing and stale tiles is rendered directly,
+     * these tiles are scheduled to be rendered in the background.
+     * @param g the graphics to paint to
+     * @param mv the map view, or another component showing the data
+     * @param inactive whether the data is rendered as inactive
+     * @param virtual whether virtual nodes are rendered
+     * @return {@code true} if the data has been painted, {@code false} if it has to be rendered directly because the
+     * cache is disabled or most visible tiles are missing
+     */
+    public boolean paint(Graphics2D g, NavigatableComponent mv, boolean inactive, boolean virtual) {
+        if (!PROP_ENABLED.get() || getPrimitiveCount() < PROP_MIN_PRIMITIVES.get()) {
+            clear();
+            return false;
+        }
+        if (!listening) {
+            // registered only once the cache is used, most layers never need it
+            Main.pref.addPreferenceChangeListener(this);
+            MapPaintStyles.addMapPaintSylesUpdateListener(this);
+            listening = true;
+        }
+        double scale = mv.getScale();
+        Rectangle view = new Rectangle(mv.getWidth(), mv.getHeight());
+        Rectangle clip = g.getClipBounds();
+        Rectangle area = clip == null ? view : clip.intersection(view);
+        if (area.isEmpty())
+            return true;
+        EastNorth topLeft = mv.getEastNorth(0, 0);
+        double x0 = topLeft.east() / scale;
+        double y0 = -topLeft.north() / scale;
+        long minX = (long) Math.floor((x0 + area.x) / TILE_SIZE);
+        long maxX = (long) Math.floor((x0 + area.x + area.width - 1) / TILE_SIZE);
+        long minY = (long) Math.floor((y0 + area.y) / TILE_SIZE);
+        long maxY = (long) Math.floor((y0 + area.y + area.height - 1) / TILE_SIZE);
+        if ((maxX - minX + 1) * (maxY - minY + 1) > PROP_MAX_TILES.get())
+            return false;
+        List<TileKey> visible = getTileKeys(scale, minX, maxX, minY, maxY);
+        // the tiles around the view are rendered in advance, unless they would push the visible tiles out of the cache
+        List<TileKey> around = (maxX - minX + 3) * (maxY - minY + 3) > PROP_MAX_TILES.get()
+                ? Collections.<TileKey>emptyList() : getTileKeys(scale, minX - 1, maxX + 1, minY - 1, maxY + 1);
+
+        List<TileKey> outdated = new ArrayList<>();
+        List<TileKey> fresh = new ArrayList<>();
+        List<BufferedImage> images = new ArrayList<>();
+        synchronized (this) {
+            updateParameters(new RenderParameters(Main.getProjection(), inactive, virtual));
+            updateStyles();
+            updateSelection();
+            updateHighlighting(mv.getLatLonBounds(view), visible);
+            for (TileKey key : visible) {
+                Tile tile = tiles.get(key);
+                if (tile == null || tile.stale) {
+                    outdated.add(key);
+                } else {
+                    fresh.add(key);
+                    images.add(tile.image);
+                }
+            }
+            queue.clear();
+            queue.addAll(outdated);
+            for (TileKey key : around) {
+                Tile tile = tiles.get(key);
+                if (tile == null || tile.stale) {
+                    queue.add(key);
+                }
+            }
+            schedule();
+        }
+        if (outdated.size() * 2 > visible.size())
+            return false; // rendering the whole view at once is faster, the tiles follow in the background
+        for (int i = 0; i < fresh.size(); i++) {
+            TileKey key = fresh.get(i);
+            g.drawImage(images.get(i), (int) Math.round(key.x * TILE_SIZE - x0), (int) Math.round(key.y * TILE_SIZE - y0), null);
+        }
+        if (!outdated.isEmpty()) {
+            paintDirectly(g, mv, outdated, x0, y0, inactive, virtual);
+        }
+        return true;
+    }
+
+    private static List<TileKey> getTileKeys(double scale, long minX, long maxX, long minY, long maxY) {
+        List<TileKey> keys = new ArrayList<>();
+        for (long y = minY; y <= maxY; y++) {
+            for (long x = minX; x <= maxX; x++) {
+                keys.add(new TileKey(scale, x, y));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Renders the area of the given tiles from the data, until the tiles are rendered in the background.
+     * @param g the graphics to paint to
+     * @param mv the map view
+     * @param keys the tiles
+     * @param x0 the horizontal position of the view in pixels of the tile grid
+     * @param y0 the vertical position of the view in pixels of the tile grid
+     * @param inactive whether the data is rendered as inactive
+     * @param virtual whether virtual nodes are rendered
+     */
+    private void paintDirectly(Graphics2D g, NavigatableComponent mv, Collection<TileKey> keys, double x0, double y0,
+            boolean inactive, boolean virtual) {
+        Area area = new Area();
+        for (TileKey key : keys) {
+            area.add(new Area(new Rectangle(
+                    (int) Math.round(key.x * TILE_SIZE - x0), (int) Math.round(key.y * TILE_SIZE - y0), TILE_SIZE, TILE_SIZE)));
+        }
+        Rectangle bounds = area.getBounds();
+        bounds.grow(MARGIN, MARGIN);
+        Graphics2D clipped = (Graphics2D) g.create();
+        try {
+            clipped.clip(area);
+            Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(clipped, mv, inactive);
+            painter.render(data, virtual, mv.getLatLonBounds(bounds));
+        } finally {
+            clipped.dispose();
+        }
+    }
+
+    private synchronized int getPrimitiveCount() {
+        if (primitiveCount < 0) {
+            primitiveCount = data.allPrimitives().size();
+        }
+        return primitiveCount;
+    }
+
+    private synchronized void updatePrimitiveCount(int delta) {
+        if (primitiveCount >= 0) {
+            primitiveCount += delta;
+        }
+    }
+
+    private synchronized void schedule() {
+        if (!renderScheduled && !queue.isEmpty()) {
+            renderScheduled = true;
+            RENDERER.execute(this::renderNext);
+        }
+    }
+
+    private synchronized boolean isRenderScheduled() {
+        return renderScheduled;
+    }
+
+    /**
+     * Renders the next queued tile. One tile is rendered per task, so that the renderer thread alternates between
+     * the layers.
+     */
+    private void renderNext() {
+        TileKey key;
+        RenderParameters params;
+        synchronized (this) {
+            if (destroyed || queue.isEmpty()) {
+                renderScheduled = false;
+                return;
+            }
+            key = queue.iterator().next();
+            queue.remove(key);
+            params = parameters;
+        }
+        try {
+            render(key, params);
+        } catch (RuntimeException e) {
+            Main.error(e);
+        }
+        GuiHelper.runInEDT(layer::invalidate);
+        RENDERER.execute(this::renderNext);
+    }
+
+    /**
+     * Renders a tile and stores it in the cache.
+     * @param key the tile
+     * @param params the render parameters
+     * @return {@code false} if the tile cannot be rendered at this scale and position
+     */
+    private boolean render(TileKey key, RenderParameters params) {
+        long startModCount;
+        synchronized (this) {
+            startModCount = modCount;
+        }
+        TileView view = GuiHelper.runInEDTAndWaitAndReturn(() -> moveTileView(key));
+        if (view == null)
+            return false;
+        EastNorth center = key.getCenter();
+        double margin = (TILE_SIZE / 2 + MARGIN) * key.scale;
+        Bounds bounds = params.projection.getLatLonBoundsBox(new ProjectionBounds(
+                center.east() - margin, center.north() - margin, center.east() + margin, center.north() + margin));
+        BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setClip(0, 0, TILE_SIZE, TILE_SIZE);
+            Rendering painter = MapRendererFactory.getInstance().createActiveRenderer(g, view, params.inactive);
+            painter.render(data, params.virtual, bounds);
+        } finally {
+            g.dispose();
+        }
+        synchronized (this) {
+            if (params == parameters) {
+                tiles.put(key, new Tile(image, modCount != startModCount));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the tile view to the given tile. Must be called in the EDT.
+     * @param key the tile
+     * @return the tile view, or {@code null} if the tile cannot be rendered at this scale and position
+     */
+    private TileView moveTileView(TileKey key) {
+        if (destroyed)
+            return null;
+        TileView view = tileView;
+        if (view == null) {
+            view = new TileView();
+            tileView = view;
+        }
+        EastNorth center = key.getCenter();
+        view.zoomTo(center, key.scale, true);
+        // the view refuses to zoom in too much or to leave the projection bounds
+        if (!Utils.equalsEpsilon(view.getScale(), key.scale) || !view.getCenter().equalsEpsilon(center, key.scale / 2))
+            return null;
+        return view;
+    }
+
+    private void updateParameters(RenderParameters params) {
+        if (parameters == null || parameters.projection != params.projection) {
+            tiles.clear();
+            queue.clear();
+            lastSelection = null;
+            lastHighlightUpdateCount = -1;
+            parameters = params;
+        } else if (parameters.inactive != params.inactive || parameters.virtual != params.virtual) {
+            parameters = params;
+            invalidateAll();
+        }
+    }
+
+    private void updateStyles() {
+        // the styles are also cleared when preferences they depend on change, see ElemStyles#getPreferenceCached
+        int idx = MapPaintStyles.getStyles().getCacheIdx();
+        if (idx != lastStyleCacheIdx) {
+            lastStyleCacheIdx = idx;
+            invalidateAll();
+        }
+    }
+
+    private void updateSelection() {
+        Collection<OsmPrimitive> selection = data.getAllSelected();
+        if (lastSelection != null && selection != lastSelection) {
+            Set<OsmPrimitive> changed = new HashSet<>(selection);
+            for (OsmPrimitive p : lastSelection) {
+                if (!changed.remove(p)) {
+                    changed.add(p);
+                }
+            }
+            invalidate(changed, (Collection<BBox>) null);
+        }
+        lastSelection = selection;
+    }
+
+    private void updateHighlighting(Bounds bounds, Collection<TileKey> visible) {
+        int count = data.getHighlightUpdateCount();
+        if (count == lastHighlightUpdateCount)
+            return;
+        // the highlighted primitives are only searched in the view, so the hidden tiles may be outdated
+        if (lastHighlightUpdateCount != -1) {
+            Set<TileKey> visibleKeys = new HashSet<>(visible);
+            for (Map.Entry<TileKey, Tile> e : tiles.entrySet()) {
+                if (!visibleKeys.contains(e.getKey())) {
+                    e.getValue().stale = true;
+                }
+            }
+        }
+        lastHighlightUpdateCount = count;
+
+        BBox bbox = bounds.toBBox();
+        Set<OsmPrimitive> highlighted = new HashSet<>();
+        for (Collection<? extends OsmPrimitive> primitives : Arrays.asList(
+                data.searchNodes(bbox), data.searchWays(bbox), data.searchRelations(bbox))) {
+            for (OsmPrimitive p : primitives) {
+                if (p.isHighlighted()) {
+                    highlighted.add(p);
+                }
+            }
+        }
+        Set<OsmPrimitive> changed = new HashSet<>(highlighted);
+        for (OsmPrimitive p : lastHighlighted) {
+            if (!changed.remove(p)) {
+                changed.add(p);
+            }
+        }
+        lastHighlighted.clear();
+        lastHighlighted.addAll(highlighted);
+
+        List<WaySegment> segments = new ArrayList<>(data.getHighlightedWaySegments());
+        segments.addAll(data.getHighlightedVirtualNodes());
+        List<BBox> boxes = new ArrayList<>();
+        if (!segments.equals(lastHighlightedSegments)) {
+            lastHighlightedSegments.addAll(segments);
+            for (WaySegment s : lastHighlightedSegments) {
+                boxes.add(new BBox(s.getFirstNode().getCoor(), s.getSecondNode().getCoor()));
+            }
+            lastHighlightedSegments.clear();
+            lastHighlightedSegments.addAll(segments);
+        }
+        invalidate(changed, boxes);
+    }
+
+    /**
+     * Marks all tiles as stale.
+     */
+    public synchronized void invalidateAll() {
+        modCount++;
+        for (Tile tile : tiles.values()) {
+            tile.stale = true;
+        }
+    }
+
+    /**
+     * Marks the tiles showing the given primitives or areas as stale.
+     * @param primitives the changed primitives, the primitives referring to them are also taken into account
+     * @param boxes additional changed areas, can be null
+     */
+    private synchronized void invalidate(Collection<? extends OsmPrimitive> primitives, Collection<BBox> boxes) {
+        modCount++;
+        if (tiles.isEmpty())
+            return;
+        if (primitives.size() > MAX_CHANGED_PRIMITIVES) {
+            invalidateAll();
+            return;
+        }
+        Set<OsmPrimitive> affected = new HashSet<>();
+        Collection<OsmPrimitive> current = new ArrayList<>(primitives);
+        affected.addAll(current);
+        // the rendering of ways and relations depends on the nodes and members
+        while (!current.isEmpty()) {
+            Collection<OsmPrimitive> next = new ArrayList<>();
+            for (OsmPrimitive p : current) {
+                if (p.getDataSet() != null) {
+                    for (OsmPrimitive ref : p.getReferrers()) {
+                        if (affected.add(ref)) {
+                            next.add(ref);
+                        }
+                    }
+                }
+            }
+            current = next;
+        }
+        Set<Double> scales = new HashSet<>();
+        for (TileKey key : tiles.keySet()) {
+            scales.add(key.scale);
+        }
+        Projection projection = parameters.projection;
+        for (OsmPrimitive p : affected) {
+            invalidate(p.getBBox(), scales, projection);
+        }
+        if (boxes != null) {
+            for (BBox box : boxes) {
+                invalidate(box, scales, projection);
+            }
+        }
+    }
+
+    private void invalidate(BBox bbox, Collection<Double> scales, Projection projection) {
+        LatLon topLeft = bbox.getTopLeft();
+        LatLon bottomRight = bbox.getBottomRight();
+        if (!(topLeft.lon() <= bottomRight.lon()) || !(bottomRight.lat() <= topLeft.lat()))
+            return; // empty
+        ProjectionBounds pb = new ProjectionBounds(projection.latlon2eastNorth(topLeft));
+        pb.extend(projection.latlon2eastNorth(bottomRight));
+        pb.extend(projection.latlon2eastNorth(new LatLon(topLeft.lat(), bottomRight.lon())));
+        pb.extend(projection.latlon2eastNorth(new LatLon(bottomRight.lat(), topLeft.lon())));
+        for (double scale : scales) {
+            long minX = (long) Math.floor((pb.minEast / scale - MARGIN) / TILE_SIZE);
+            long maxX = (long) Math.floor((pb.maxEast / scale + MARGIN) / TILE_SIZE);
+            long minY = (long) Math.floor((-pb.maxNorth / scale - MARGIN) / TILE_SIZE);
+            long maxY = (long) Math.floor((-pb.minNorth / scale + MARGIN) / TILE_SIZE);
+            if ((maxX - minX + 1) * (maxY - minY + 1) > tiles.size()) {
+                for (Map.Entry<TileKey, Tile> e : tiles.entrySet()) {
+                    TileKey key = e.getKey();
+                    if (key.scale == scale && key.x >= minX && key.x <= maxX && key.y >= minY && key.y <= maxY) {
+                        e.getValue().stale = true;
+                    }
+                }
+            } else {
+                for (long y = minY; y <= maxY; y++) {
+                    for (long x = minX; x <= maxX; x++) {
+                        Tile tile = tiles.get(new TileKey(scale, x, y));
+                        if (tile != null) {
+                            tile.stale = true;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    synchronized int getStaleTileCount() {
+        int count = 0;
+        for (Tile tile : tiles.values()) {
+            if (tile.stale) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Waits until the tiles scheduled so far have been rendered in the background.
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     * @throws ExecutionException if the rendering failed
+     */
+    void awaitRendering() throws InterruptedException, ExecutionException {
+        do {
+            RENDERER.submit(() -> { }).get();
+        } while (isRenderScheduled());
+    }
+
+    /**
+     * Removes all cached tiles.
+     */
+    public synchronized void clear() {
+        modCount++;
+        tiles.clear();
+        queue.clear();
+        lastSelection = null;
+        lastHighlighted.clear();
+        lastHighlightedSegments.clear();
+        lastHighlightUpdateCount = -1;
+    }
+
+    /**
+     * Releases the resources of this cache. It must not be used anymore afterwards.
+     */
+    public void destroy() {
+        data.removeDataSetListener(this);
+        if (listening) {
+            Main.pref.removePreferenceChangeListener(this);
+            MapPaintStyles.removeMapPaintSylesUpdateListener(this);
+            listening = false;
+        }
+        destroyed = true;
+        clear();
+        // the view may still be used by a tile being rendered
+        RENDERER.execute(() -> {
+            TileView view = tileView;
+            if (view != null) {
+                MultipolygonCache.getInstance().clear(view);
+                tileView = null;
+            }
+        });
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        updatePrimitiveCount(event.getPrimitives().size());
+        invalidate(event.getPrimitives(), (Collection<BBox>) null);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        updatePrimitiveCount(-event.getPrimitives().size());
+        invalidate(event.getPrimitives(), (Collection<BBox>) null);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        invalidate(event.getPrimitives(), (Collection<BBox>) null);
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        LatLon oldCoor = event.getOldCoor();
+        if (oldCoor == null) {
+            invalidateAll();
+        } else {
+            invalidate(event.getPrimitives(), Collections.singleton(new BBox(oldCoor, oldCoor)));
+        }
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        invalidateGeometry(event.getPrimitives(), event.getOldBBox());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        invalidateGeometry(event.getPrimitives(), event.getOldBBox());
+    }
+
+    private void invalidateGeometry(Collection<? extends OsmPrimitive> primitives, BBox oldBBox) {
+        if (oldBBox == null) {
+            invalidateAll();
+        } else {
+            invalidate(primitives, Collections.singleton(oldBBox));
+        }
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        invalidate(event.getPrimitives(), (Collection<BBox>) null);
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        List<AbstractDatasetChangedEvent> events = event.getEvents();
+        if (events == null) {
+            synchronized (this) {
+                primitiveCount = -1;
+            }
+            invalidateAll();
+        } else {
+            for (AbstractDatasetChangedEvent e : events) {
+                e.fire(this);
+            }
+        }
+    }
+
+    @Override
+    public void preferenceChanged(PreferenceChangeEvent e) {
+        String key = e.getKey();
+        if (key.startsWith("mappaint.") || key.startsWith("draw.") || key.startsWith("color.")) {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    public void mapPaintStylesUpdated() {
+        invalidateAll();
+    }
+
+    @Override
+    public void mapPaintStyleEntryUpdated(int index) {
+        invalidateAll();
+    }
+}
@@ -245,6 +245,8 @@ public class GpxDrawHelper implements SoMChangeListener {
             g.setStroke(new BasicStroke(lineWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
         }
         fixColors(visibleSegments);
+        // project the visible points which are not projected yet together, rather than one at a time while drawing
+        WayPoint.updateEastNorthCache(visibleSegments);
         drawLines(g, mv, visibleSegments);
         drawArrows(g, mv, visibleSegments);
         drawPoints(g, mv, visibleSegments);
@@ -84,6 +84,15 @@ public class ElemStyles implements PreferenceChangedListener {
         });
     }
 
+    /**
+     * Returns the index of the style cache, which is incremented each time the cached styles are cleared.
+     * @return the index of the style cache
+     * @since xxx
+     */
+    public int getCacheIdx() {
+        return cacheIdx;
+    }
+
     public List<StyleSource> getStyleSources() {
         return Collections.<StyleSource>unmodifiableList(styleSources);
     }
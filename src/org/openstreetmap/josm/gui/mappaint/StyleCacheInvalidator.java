@@ -0,0 +1,263 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.MapPaintSylesUpdateListener;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
+
+/**
+ * Clears the {@linkplain OsmPrimitive#mappaintStyle style cache} of the primitives affected by a data set change.
+ * <p>
+ * The style of a primitive depends on its own tags and geometry, and on the primitives it is linked to: multipolygon
+ * members get their area style from the relation, MapCSS child and parent selectors ({@code relation > way},
+ * {@code way < node}) look at the parents and children of a primitive, and sibling selectors ({@code node + node})
+ * at the other nodes of the parent ways. The selectors of the active styles are analyzed to find out how many levels
+ * of parents and children have to be invalidated when a primitive changes.
+ * Only if a style uses geometric selectors ({@code ∈}, {@code ⊆}, {@code ⧉}), which can relate any two primitives,
+ * the styles of the whole data set are invalidated.
+ * @since xxx
+ */
+public final class StyleCacheInvalidator implements DataSetListener, MapPaintSylesUpdateListener {
+
+    private static final StyleCacheInvalidator INSTANCE = new StyleCacheInvalidator();
+
+    /**
+     * The dependencies of the styles of primitives on their parents and children.
+     */
+    static final class Dependencies {
+        /** number of levels of parents whose change affects the style of a primitive */
+        final int parentLevels;
+        /** number of levels of children whose change affects the style of a primitive */
+        final int childLevels;
+        /** whether the style of a primitive depends on arbitrary other primitives */
+        final boolean global;
+
+        Dependencies(int parentLevels, int childLevels, boolean global) {
+            this.parentLevels = parentLevels;
+            this.childLevels = childLevels;
+            this.global = global;
+        }
+    }
+
+    private volatile Dependencies dependencies;
+
+    private StyleCacheInvalidator() {
+        MapPaintStyles.addMapPaintSylesUpdateListener(this);
+    }
+
+    /**
+     * Replies the unique instance.
+     * @return the unique instance
+     */
+    public static StyleCacheInvalidator getInstance() {
+        return INSTANCE;
+    }
+
+    private Dependencies getDependencies() {
+        Dependencies d = dependencies;
+        if (d == null) {
+            d = computeDependencies(MapPaintStyles.getStyles().getStyleSources());
+            dependencies = d;
+        }
+        return d;
+    }
+
+    /**
+     * Determines the dependencies of the styles defined by the given sources.
+     * @param sources the style sources
+     * @return the dependencies
+     */
+    static Dependencies computeDependencies(Collection<StyleSource> sources) {
+        // multipolygon members depend on the relation and vice versa, and pseudo classes such as :closed, :connection
+        // or :righthandtraffic look at the nodes and referrers of a primitive
+        int parentLevels = 1;
+        int childLevels = 1;
+        boolean global = false;
+        MapCSSStyleSource.STYLE_SOURCE_LOCK.readLock().lock();
+        try {
+            for (StyleSource source : sources) {
+                if (!source.active || !(source instanceof MapCSSStyleSource))
+                    continue;
+                for (MapCSSRule rule : ((MapCSSStyleSource) source).rules) {
+                    int[] levels = new int[2];
+                    global |= addLevels(rule.selector, levels);
+                    parentLevels = Math.max(parentLevels, levels[0]);
+                    childLevels = Math.max(childLevels, levels[1]);
+                }
+            }
+        } finally {
+            MapCSSStyleSource.STYLE_SOURCE_LOCK.readLock().unlock();
+        }
+        return new Dependencies(parentLevels, childLevels, global);
+    }
+
+    /**
+     * Counts the parent and child links of a selector.
+     * @param selector the selector
+     * @param levels the number of parent levels (index 0) and child levels (index 1), incremented by this method
+     * @return {@code true} if the selector relates primitives by their geometry
+     */
+    private static boolean addLevels(Selector selector, int... levels) {
+        if (!(selector instanceof ChildOrParentSelector))
+            return false;
+        ChildOrParentSelector s = (ChildOrParentSelector) selector;
+        switch (s.type) {
+        case CHILD:
+            levels[0]++;
+            break;
+        case PARENT:
+            levels[1]++;
+            break;
+        case SIBLING:
+            // siblings are the children of the parent ways
+            levels[0] += 2;
+            levels[1] += 2;
+            break;
+        default:
+            return true;
+        }
+        return addLevels(s.left, levels) | addLevels(s.right, levels);
+    }
+
+    /**
+     * Clears the style cache of the given primitives and of the primitives whose style depends on them.
+     * @param primitives the changed primitives
+     */
+    public void invalidate(Collection<? extends OsmPrimitive> primitives) {
+        Dependencies d = getDependencies();
+        // a change of a primitive affects the styles of its children if they look at their parents, and vice versa
+        int levels = Math.max(d.parentLevels, d.childLevels);
+        Set<OsmPrimitive> visited = new HashSet<>(primitives);
+        Collection<OsmPrimitive> current = new ArrayList<>(visited);
+        for (int level = 1; level <= levels && !current.isEmpty(); level++) {
+            Set<OsmPrimitive> next = new HashSet<>();
+            for (OsmPrimitive p : current) {
+                if (level <= d.parentLevels) {
+                    addChildren(p, visited, next);
+                }
+                if (level <= d.childLevels && p.getDataSet() != null) {
+                    for (OsmPrimitive ref : p.getReferrers()) {
+                        if (visited.add(ref)) {
+                            next.add(ref);
+                        }
+                    }
+                }
+            }
+            current = next;
+        }
+        for (OsmPrimitive p : visited) {
+            p.clearCachedStyle();
+        }
+    }
+
+    private static void addChildren(OsmPrimitive p, Set<OsmPrimitive> visited, Set<OsmPrimitive> next) {
+        Collection<? extends OsmPrimitive> children;
+        if (p instanceof Way) {
+            children = ((Way) p).getNodes();
+        } else if (p instanceof Relation) {
+            children = ((Relation) p).getMemberPrimitivesList();
+        } else {
+            return;
+        }
+        for (OsmPrimitive child : children) {
+            if (visited.add(child)) {
+                next.add(child);
+            }
+        }
+    }
+
+    private void invalidate(AbstractDatasetChangedEvent event) {
+        if (getDependencies().global) {
+            invalidateAll(event);
+        } else {
+            invalidate(event.getPrimitives());
+        }
+    }
+
+    private static void invalidateAll(AbstractDatasetChangedEvent event) {
+        if (event.getDataset() != null) {
+            for (OsmPrimitive p : event.getDataset().allPrimitives()) {
+                p.clearCachedStyle();
+            }
+        }
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    public void primitivesRemoved(PrimitivesRemovedEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        invalidate(event);
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // flags such as modified or disabled are matched by pseudo classes
+        invalidate(event);
+    }
+
+    @Override
+    public void dataChanged(DataChangedEvent event) {
+        List<AbstractDatasetChangedEvent> events = event.getEvents();
+        if (events == null || getDependencies().global) {
+            // too many changes to be recorded
+            invalidateAll(event);
+        } else {
+            for (AbstractDatasetChangedEvent e : events) {
+                invalidate(e);
+            }
+        }
+    }
+
+    @Override
+    public void mapPaintStylesUpdated() {
+        dependencies = null;
+    }
+
+    @Override
+    public void mapPaintStyleEntryUpdated(int idx) {
+        dependencies = null;
+    }
+}
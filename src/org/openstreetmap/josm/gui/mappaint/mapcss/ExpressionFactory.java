@@ -983,6 +983,35 @@ public final class ExpressionFactory {
         return NullExpression.INSTANCE;
     }
 
+    /**
+     * Finds one of the methods which can be called by function expressions.
+     * @param name the method name
+     * @param parameterTypes the names of the parameter types
+     * @return the method, or {@code null} if there is no such function
+     */
+    static Method findFunction(String name, List<String> parameterTypes) {
+        for (List<Method> functions : Arrays.asList(arrayFunctions, parameterFunctions, parameterFunctionsEnv)) {
+            for (Method m : functions) {
+                if (m.getName().equals(name) && parameterTypes.equals(getParameterTypeNames(m)))
+                    return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the names of the parameter types of a method.
+     * @param m the method
+     * @return the names of the parameter types
+     */
+    static List<String> getParameterTypeNames(Method m) {
+        List<String> names = new ArrayList<>();
+        for (Class<?> type : m.getParameterTypes()) {
+            names.add(type.getName());
+        }
+        return names;
+    }
+
     /**
      * Expression that always evaluates to null.
      */
@@ -1004,7 +1033,7 @@ public final class ExpressionFactory {
      */
     public static class CondOperator implements Expression {
 
-        private final Expression condition, firstOption, secondOption;
+        final Expression condition, firstOption, secondOption;
 
         /**
          * Constructs a new {@code CondOperator}.
@@ -1033,7 +1062,7 @@ public final class ExpressionFactory {
      */
     public static class AndOperator implements Expression {
 
-        private final List<Expression> args;
+        final List<Expression> args;
 
         /**
          * Constructs a new {@code AndOperator}.
@@ -1060,7 +1089,7 @@ public final class ExpressionFactory {
      */
     public static class OrOperator implements Expression {
 
-        private final List<Expression> args;
+        final List<Expression> args;
 
         /**
          * Constructs a new {@code OrOperator}.
@@ -1092,7 +1121,7 @@ public final class ExpressionFactory {
      */
     public static class LengthFunction implements Expression {
 
-        private final Expression arg;
+        final Expression arg;
 
         /**
          * Constructs a new {@code LengthFunction}.
@@ -1119,8 +1148,8 @@ public final class ExpressionFactory {
      */
     public static class MinMaxFunction implements Expression {
 
-        private final List<Expression> args;
-        private final boolean computeMax;
+        final List<Expression> args;
+        final boolean computeMax;
 
         /**
          * Constructs a new {@code MinMaxFunction}.
@@ -1155,11 +1184,11 @@ public final class ExpressionFactory {
      */
     public static class ParameterFunction implements Expression {
 
-        private final Method m;
+        final Method m;
         private final boolean nullable;
-        private final List<Expression> args;
+        final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
-        private final boolean needsEnvironment;
+        final boolean needsEnvironment;
 
         /**
          * Constructs a new {@code ParameterFunction}.
@@ -1231,9 +1260,9 @@ public final class ExpressionFactory {
      */
     public static class ArrayFunction implements Expression {
 
-        private final Method m;
+        final Method m;
         private final boolean nullable;
-        private final List<Expression> args;
+        final List<Expression> args;
         private final Class<?>[] expectedParameterTypes;
         private final Class<?> arrayComponentType;
 
@@ -0,0 +1,314 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_CLASS;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_EXPRESSION;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_INDEX;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_KEY;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_KEY_VALUE;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_KEY_VALUE_REGEXP;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_OPEN_END_PSEUDO_CLASS;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_PSEUDO_CLASS;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_REGEXP_KEY_VALUE_REGEXP;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_ROLE;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.CONDITION_SIMPLE_KEY_VALUE;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_AND;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_ARRAY_FUNCTION;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_COND;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_LENGTH;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_LITERAL;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_MIN_MAX;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_NULL;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_OR;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.EXPRESSION_PARAMETER_FUNCTION;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.NULL;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.SELECTOR_CHILD_OR_PARENT;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.SELECTOR_GENERAL;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.SUBPART_EXPRESSION;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.SUBPART_STRING;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_BOOLEAN;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_COLOR;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_EXPRESSION;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_FLOAT;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_FLOAT_LIST;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_KEYWORD;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_RELATIVE_FLOAT;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_STRING;
+import static org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRuleWriter.VALUE_TAG_KEY_REFERENCE;
+
+import java.awt.Color;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openstreetmap.josm.gui.mappaint.Keyword;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.TagKeyReference;
+import org.openstreetmap.josm.gui.mappaint.Range;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.ClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.ExpressionCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.IndexCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyMatchType;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyValueRegexpCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.Op;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.OpenEndPseudoClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.PseudoClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.RegexpKeyValueRegexpCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.RoleCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.SimpleKeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.AndOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ArrayFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.CondOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.LengthFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.MinMaxFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.NullExpression;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.OrOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ParameterFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.AssignmentInstruction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.RelativeFloat;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule.Declaration;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelectorType;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.LinkSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Subpart.ExpressionSubpart;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Subpart.StringSubpart;
+
+/**
+ * Reads MapCSS rules written by {@link MapCSSRuleWriter}.
+ * <p>
+ * The rules are created again with the constructors of the rule classes. Functions and pseudo classes are only looked
+ * up among the ones available to MapCSS, no other class or method is ever loaded.
+ * @since xxx
+ */
+final class MapCSSRuleReader {
+
+    /** the maximum length of a string in bytes, to fail early on corrupted input */
+    private static final int MAX_STRING_LENGTH = 1 << 24;
+
+    private final DataInputStream in;
+    /** the declarations already read, by their index in the input */
+    private final List<Declaration> declarations = new ArrayList<>();
+
+    private MapCSSRuleReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads MapCSS rules.
+     * @param in the input
+     * @return the rules
+     * @throws IOException if an I/O error occurs, or if the input is not valid
+     */
+    static List<MapCSSRule> read(DataInputStream in) throws IOException {
+        MapCSSRuleReader reader = new MapCSSRuleReader(in);
+        try {
+            int count = in.readInt();
+            List<MapCSSRule> rules = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                Selector selector = reader.readSelector();
+                rules.add(new MapCSSRule(selector, reader.readDeclaration()));
+            }
+            return rules;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | MapCSSException e) {
+            // unknown enum values, invalid patterns or references
+            throw new IOException("Invalid MapCSS rules", e);
+        }
+    }
+
+    private Declaration readDeclaration() throws IOException {
+        int index = in.readInt();
+        if (index >= 0)
+            return declarations.get(index);
+        int idx = in.readInt();
+        int count = in.readInt();
+        List<Instruction> instructions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String key = readString();
+            Object val = readValue();
+            instructions.add(new AssignmentInstruction(key, val, in.readBoolean()));
+        }
+        Declaration declaration = new Declaration(instructions, idx);
+        declarations.add(declaration);
+        return declaration;
+    }
+
+    private Selector readSelector() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case SELECTOR_CHILD_OR_PARENT:
+            Selector left = readSelector();
+            LinkSelector link = new LinkSelector(readConditions());
+            Selector right = readSelector();
+            return new ChildOrParentSelector(left, link, right, ChildOrParentSelectorType.valueOf(readString()));
+        case SELECTOR_GENERAL:
+            String base = readString();
+            Range range = new Range(in.readDouble(), in.readDouble());
+            List<Condition> conds = readConditions();
+            return new GeneralSelector(base, range, conds, readSubpart());
+        default:
+            throw invalid("selector", type);
+        }
+    }
+
+    private List<Condition> readConditions() throws IOException {
+        int count = in.readInt();
+        List<Condition> conditions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            conditions.add(readCondition());
+        }
+        return conditions;
+    }
+
+    private Condition readCondition() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case CONDITION_SIMPLE_KEY_VALUE:
+            return new SimpleKeyValueCondition(readString(), readString());
+        case CONDITION_KEY_VALUE:
+            return new KeyValueCondition(readString(), readString(), Op.valueOf(readString()), in.readBoolean());
+        case CONDITION_KEY_VALUE_REGEXP:
+            return new KeyValueRegexpCondition(readString(), readString(), Op.valueOf(readString()), in.readBoolean());
+        case CONDITION_REGEXP_KEY_VALUE_REGEXP:
+            return new RegexpKeyValueRegexpCondition(readString(), readString(), Op.valueOf(readString()));
+        case CONDITION_ROLE:
+            return new RoleCondition(readString(), Op.valueOf(readString()));
+        case CONDITION_INDEX:
+            return new IndexCondition(readString(), Op.valueOf(readString()));
+        case CONDITION_KEY:
+            String label = readString();
+            boolean negateResult = in.readBoolean();
+            String matchType = readString();
+            return new KeyCondition(label, negateResult, matchType == null ? null : KeyMatchType.valueOf(matchType));
+        case CONDITION_CLASS:
+            return new ClassCondition(readString(), in.readBoolean());
+        case CONDITION_PSEUDO_CLASS:
+            String name = readString();
+            Method method = PseudoClassCondition.getMethod(name);
+            if (method == null)
+                throw new IOException("Unknown pseudo class " + name);
+            return new PseudoClassCondition(method, in.readBoolean());
+        case CONDITION_OPEN_END_PSEUDO_CLASS:
+            return new OpenEndPseudoClassCondition(in.readBoolean());
+        case CONDITION_EXPRESSION:
+            return new ExpressionCondition(readExpression());
+        default:
+            throw invalid("condition", type);
+        }
+    }
+
+    private List<Expression> readExpressions() throws IOException {
+        int count = in.readInt();
+        List<Expression> expressions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expressions.add(readExpression());
+        }
+        return expressions;
+    }
+
+    private Expression readExpression() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case EXPRESSION_LITERAL:
+            return new LiteralExpression(readValue());
+        case EXPRESSION_NULL:
+            return NullExpression.INSTANCE;
+        case EXPRESSION_COND:
+            return new CondOperator(readExpression(), readExpression(), readExpression());
+        case EXPRESSION_AND:
+            return new AndOperator(readExpressions());
+        case EXPRESSION_OR:
+            return new OrOperator(readExpressions());
+        case EXPRESSION_LENGTH:
+            return new LengthFunction(readExpression());
+        case EXPRESSION_MIN_MAX:
+            return new MinMaxFunction(readExpressions(), in.readBoolean());
+        case EXPRESSION_PARAMETER_FUNCTION:
+            Method m = readFunction();
+            return new ParameterFunction(m, readExpressions(), in.readBoolean());
+        case EXPRESSION_ARRAY_FUNCTION:
+            return new ArrayFunction(readFunction(), readExpressions());
+        default:
+            throw invalid("expression", type);
+        }
+    }
+
+    private Method readFunction() throws IOException {
+        String name = readString();
+        int count = in.readInt();
+        List<String> parameterTypes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            parameterTypes.add(readString());
+        }
+        Method m = ExpressionFactory.findFunction(name, parameterTypes);
+        if (m == null)
+            throw new IOException("Unknown function " + name + parameterTypes);
+        return m;
+    }
+
+    private Subpart readSubpart() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case SUBPART_STRING:
+            String id = readString();
+            // keep the default subpart unique
+            return Subpart.DEFAULT_SUBPART.getId(null).equals(id) ? Subpart.DEFAULT_SUBPART : new StringSubpart(id);
+        case SUBPART_EXPRESSION:
+            return new ExpressionSubpart(readExpression());
+        default:
+            throw invalid("subpart", type);
+        }
+    }
+
+    private Object readValue() throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case NULL:
+            return null;
+        case VALUE_BOOLEAN:
+            return in.readBoolean();
+        case VALUE_STRING:
+            return readString();
+        case VALUE_FLOAT:
+            return in.readFloat();
+        case VALUE_COLOR:
+            return new Color(in.readInt(), true);
+        case VALUE_KEYWORD:
+            return new Keyword(readString());
+        case VALUE_RELATIVE_FLOAT:
+            return new RelativeFloat(in.readFloat());
+        case VALUE_TAG_KEY_REFERENCE:
+            return new TagKeyReference(readString());
+        case VALUE_FLOAT_LIST:
+            int count = in.readInt();
+            List<Float> list = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                list.add(in.readFloat());
+            }
+            return list;
+        case VALUE_EXPRESSION:
+            return readExpression();
+        default:
+            throw invalid("value", type);
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        if (length > MAX_STRING_LENGTH)
+            throw new IOException("Invalid string length " + length + " in MapCSS rules");
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static IOException invalid(String what, byte type) {
+        return new IOException("Invalid " + what + " type " + type + " in MapCSS rules");
+    }
+}
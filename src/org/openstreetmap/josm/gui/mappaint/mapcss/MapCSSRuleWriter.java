@@ -0,0 +1,355 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import java.awt.Color;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.gui.mappaint.Keyword;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles.TagKeyReference;
+import org.openstreetmap.josm.gui.mappaint.Range;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.ClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.ExpressionCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.IndexCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.KeyValueRegexpCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.OpenEndPseudoClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.PseudoClassCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.RegexpKeyValueRegexpCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.RoleCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ConditionFactory.SimpleKeyValueCondition;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.AndOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ArrayFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.CondOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.LengthFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.MinMaxFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.NullExpression;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.OrOperator;
+import org.openstreetmap.josm.gui.mappaint.mapcss.ExpressionFactory.ParameterFunction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.AssignmentInstruction;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Instruction.RelativeFloat;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSRule.Declaration;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.ChildOrParentSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Selector.GeneralSelector;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Subpart.ExpressionSubpart;
+import org.openstreetmap.josm.gui.mappaint.mapcss.Subpart.StringSubpart;
+
+/**
+ * Writes parsed MapCSS rules in a compact binary form, to be read again by {@link MapCSSRuleReader}.
+ * <p>
+ * Only the rule classes created by the MapCSS parser are supported. Functions and pseudo classes are written by name.
+ * Rules sharing a declaration still share it once read.
+ * @since xxx
+ */
+final class MapCSSRuleWriter {
+
+    static final byte NULL = 0;
+
+    static final byte SELECTOR_CHILD_OR_PARENT = 1;
+    static final byte SELECTOR_GENERAL = 2;
+
+    static final byte CONDITION_SIMPLE_KEY_VALUE = 1;
+    static final byte CONDITION_KEY_VALUE = 2;
+    static final byte CONDITION_KEY_VALUE_REGEXP = 3;
+    static final byte CONDITION_REGEXP_KEY_VALUE_REGEXP = 4;
+    static final byte CONDITION_ROLE = 5;
+    static final byte CONDITION_INDEX = 6;
+    static final byte CONDITION_KEY = 7;
+    static final byte CONDITION_CLASS = 8;
+    static final byte CONDITION_PSEUDO_CLASS = 9;
+    static final byte CONDITION_OPEN_END_PSEUDO_CLASS = 10;
+    static final byte CONDITION_EXPRESSION = 11;
+
+    static final byte EXPRESSION_LITERAL = 1;
+    static final byte EXPRESSION_NULL = 2;
+    static final byte EXPRESSION_COND = 3;
+    static final byte EXPRESSION_AND = 4;
+    static final byte EXPRESSION_OR = 5;
+    static final byte EXPRESSION_LENGTH = 6;
+    static final byte EXPRESSION_MIN_MAX = 7;
+    static final byte EXPRESSION_PARAMETER_FUNCTION = 8;
+    static final byte EXPRESSION_ARRAY_FUNCTION = 9;
+
+    static final byte SUBPART_STRING = 1;
+    static final byte SUBPART_EXPRESSION = 2;
+
+    static final byte VALUE_BOOLEAN = 1;
+    static final byte VALUE_STRING = 2;
+    static final byte VALUE_FLOAT = 3;
+    static final byte VALUE_COLOR = 4;
+    static final byte VALUE_KEYWORD = 5;
+    static final byte VALUE_RELATIVE_FLOAT = 6;
+    static final byte VALUE_TAG_KEY_REFERENCE = 7;
+    static final byte VALUE_FLOAT_LIST = 8;
+    static final byte VALUE_EXPRESSION = 9;
+
+    private final DataOutputStream out;
+    /** the declarations already written, by their index in the output */
+    private final Map<Declaration, Integer> declarations = new IdentityHashMap<>();
+
+    private MapCSSRuleWriter(DataOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes MapCSS rules.
+     * @param out the output
+     * @param rules the rules
+     * @throws IOException if an I/O error occurs, or if a rule contains an unsupported class
+     */
+    static void write(DataOutputStream out, Collection<MapCSSRule> rules) throws IOException {
+        MapCSSRuleWriter writer = new MapCSSRuleWriter(out);
+        out.writeInt(rules.size());
+        for (MapCSSRule rule : rules) {
+            writer.writeSelector(rule.selector);
+            writer.writeDeclaration(rule.declaration);
+        }
+    }
+
+    private void writeDeclaration(Declaration declaration) throws IOException {
+        Integer index = declarations.get(declaration);
+        if (index != null) {
+            out.writeInt(index);
+            return;
+        }
+        out.writeInt(-1);
+        declarations.put(declaration, declarations.size());
+        out.writeInt(declaration.idx);
+        out.writeInt(declaration.instructions.size());
+        for (Instruction instruction : declaration.instructions) {
+            if (instruction.getClass() != AssignmentInstruction.class)
+                throw unsupported(instruction);
+            AssignmentInstruction assignment = (AssignmentInstruction) instruction;
+            writeString(assignment.key);
+            writeValue(assignment.val);
+            out.writeBoolean(assignment.isSetInstruction);
+        }
+    }
+
+    private void writeSelector(Selector selector) throws IOException {
+        if (selector.getClass() == ChildOrParentSelector.class) {
+            ChildOrParentSelector s = (ChildOrParentSelector) selector;
+            out.writeByte(SELECTOR_CHILD_OR_PARENT);
+            writeSelector(s.left);
+            writeConditions(s.link.conds);
+            writeSelector(s.right);
+            writeString(s.type.name());
+        } else if (selector.getClass() == GeneralSelector.class) {
+            GeneralSelector s = (GeneralSelector) selector;
+            out.writeByte(SELECTOR_GENERAL);
+            writeString(s.base);
+            writeRange(s.range);
+            writeConditions(s.conds);
+            writeSubpart(s.subpart);
+        } else {
+            throw unsupported(selector);
+        }
+    }
+
+    private void writeRange(Range range) throws IOException {
+        out.writeDouble(range.getLower());
+        out.writeDouble(range.getUpper());
+    }
+
+    private void writeConditions(List<Condition> conditions) throws IOException {
+        if (conditions == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(conditions.size());
+        for (Condition c : conditions) {
+            writeCondition(c);
+        }
+    }
+
+    private void writeCondition(Condition condition) throws IOException {
+        Class<?> type = condition.getClass();
+        if (type == SimpleKeyValueCondition.class) {
+            SimpleKeyValueCondition c = (SimpleKeyValueCondition) condition;
+            out.writeByte(CONDITION_SIMPLE_KEY_VALUE);
+            writeString(c.k);
+            writeString(c.v);
+        } else if (type == KeyValueCondition.class || type == KeyValueRegexpCondition.class) {
+            KeyValueCondition c = (KeyValueCondition) condition;
+            out.writeByte(type == KeyValueCondition.class ? CONDITION_KEY_VALUE : CONDITION_KEY_VALUE_REGEXP);
+            writeString(c.k);
+            writeString(c.v);
+            writeString(c.op.name());
+            out.writeBoolean(c.considerValAsKey);
+        } else if (type == RegexpKeyValueRegexpCondition.class) {
+            RegexpKeyValueRegexpCondition c = (RegexpKeyValueRegexpCondition) condition;
+            out.writeByte(CONDITION_REGEXP_KEY_VALUE_REGEXP);
+            writeString(c.k);
+            writeString(c.v);
+            writeString(c.op.name());
+        } else if (type == RoleCondition.class) {
+            RoleCondition c = (RoleCondition) condition;
+            out.writeByte(CONDITION_ROLE);
+            writeString(c.role);
+            writeString(c.op.name());
+        } else if (type == IndexCondition.class) {
+            IndexCondition c = (IndexCondition) condition;
+            out.writeByte(CONDITION_INDEX);
+            writeString(c.index);
+            writeString(c.op.name());
+        } else if (type == KeyCondition.class) {
+            KeyCondition c = (KeyCondition) condition;
+            out.writeByte(CONDITION_KEY);
+            writeString(c.label);
+            out.writeBoolean(c.negateResult);
+            writeString(c.matchType == null ? null : c.matchType.name());
+        } else if (type == ClassCondition.class) {
+            ClassCondition c = (ClassCondition) condition;
+            out.writeByte(CONDITION_CLASS);
+            writeString(c.id);
+            out.writeBoolean(c.not);
+        } else if (type == PseudoClassCondition.class) {
+            PseudoClassCondition c = (PseudoClassCondition) condition;
+            out.writeByte(CONDITION_PSEUDO_CLASS);
+            writeString(c.method.getName());
+            out.writeBoolean(c.not);
+        } else if (type == OpenEndPseudoClassCondition.class) {
+            out.writeByte(CONDITION_OPEN_END_PSEUDO_CLASS);
+            out.writeBoolean(((OpenEndPseudoClassCondition) condition).not);
+        } else if (type == ExpressionCondition.class) {
+            out.writeByte(CONDITION_EXPRESSION);
+            writeExpression(((ExpressionCondition) condition).e);
+        } else {
+            throw unsupported(condition);
+        }
+    }
+
+    private void writeExpressions(List<Expression> expressions) throws IOException {
+        out.writeInt(expressions.size());
+        for (Expression e : expressions) {
+            writeExpression(e);
+        }
+    }
+
+    private void writeExpression(Expression expression) throws IOException {
+        Class<?> type = expression.getClass();
+        if (type == LiteralExpression.class) {
+            out.writeByte(EXPRESSION_LITERAL);
+            writeValue(expression.evaluate(null));
+        } else if (type == NullExpression.class) {
+            out.writeByte(EXPRESSION_NULL);
+        } else if (type == CondOperator.class) {
+            CondOperator e = (CondOperator) expression;
+            out.writeByte(EXPRESSION_COND);
+            writeExpression(e.condition);
+            writeExpression(e.firstOption);
+            writeExpression(e.secondOption);
+        } else if (type == AndOperator.class) {
+            out.writeByte(EXPRESSION_AND);
+            writeExpressions(((AndOperator) expression).args);
+        } else if (type == OrOperator.class) {
+            out.writeByte(EXPRESSION_OR);
+            writeExpressions(((OrOperator) expression).args);
+        } else if (type == LengthFunction.class) {
+            out.writeByte(EXPRESSION_LENGTH);
+            writeExpression(((LengthFunction) expression).arg);
+        } else if (type == MinMaxFunction.class) {
+            MinMaxFunction e = (MinMaxFunction) expression;
+            out.writeByte(EXPRESSION_MIN_MAX);
+            writeExpressions(e.args);
+            out.writeBoolean(e.computeMax);
+        } else if (type == ParameterFunction.class) {
+            ParameterFunction e = (ParameterFunction) expression;
+            out.writeByte(EXPRESSION_PARAMETER_FUNCTION);
+            writeFunction(e.m);
+            writeExpressions(e.args);
+            out.writeBoolean(e.needsEnvironment);
+        } else if (type == ArrayFunction.class) {
+            ArrayFunction e = (ArrayFunction) expression;
+            out.writeByte(EXPRESSION_ARRAY_FUNCTION);
+            writeFunction(e.m);
+            writeExpressions(e.args);
+        } else {
+            throw unsupported(expression);
+        }
+    }
+
+    private void writeFunction(Method m) throws IOException {
+        writeString(m.getName());
+        List<String> parameterTypes = ExpressionFactory.getParameterTypeNames(m);
+        out.writeInt(parameterTypes.size());
+        for (String parameterType : parameterTypes) {
+            writeString(parameterType);
+        }
+    }
+
+    private void writeSubpart(Subpart subpart) throws IOException {
+        if (subpart.getClass() == StringSubpart.class) {
+            out.writeByte(SUBPART_STRING);
+            writeString(((StringSubpart) subpart).id);
+        } else if (subpart.getClass() == ExpressionSubpart.class) {
+            out.writeByte(SUBPART_EXPRESSION);
+            writeExpression(((ExpressionSubpart) subpart).id);
+        } else {
+            throw unsupported(subpart);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte(VALUE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            out.writeByte(VALUE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Float) {
+            out.writeByte(VALUE_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value.getClass() == Color.class) {
+            out.writeByte(VALUE_COLOR);
+            out.writeInt(((Color) value).getRGB());
+        } else if (value.getClass() == Keyword.class) {
+            out.writeByte(VALUE_KEYWORD);
+            writeString(((Keyword) value).val);
+        } else if (value.getClass() == RelativeFloat.class) {
+            out.writeByte(VALUE_RELATIVE_FLOAT);
+            out.writeFloat(((RelativeFloat) value).val);
+        } else if (value.getClass() == TagKeyReference.class) {
+            out.writeByte(VALUE_TAG_KEY_REFERENCE);
+            writeString(((TagKeyReference) value).key);
+        } else if (value instanceof List) {
+            // the dashes, see MapCSSParser#float_array
+            List<?> list = (List<?>) value;
+            out.writeByte(VALUE_FLOAT_LIST);
+            out.writeInt(list.size());
+            for (Object f : list) {
+                if (!(f instanceof Float))
+                    throw unsupported(f);
+                out.writeFloat((Float) f);
+            }
+        } else if (value instanceof Expression) {
+            out.writeByte(VALUE_EXPRESSION);
+            writeExpression((Expression) value);
+        } else {
+            throw unsupported(value);
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static IOException unsupported(Object o) {
+        return new IOException("Cannot write " + (o == null ? null : o.getClass().getName()) + " in MapCSS rules");
+    }
+}
@@ -5,6 +5,8 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.awt.Color;
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -22,6 +24,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -58,6 +61,7 @@ import org.openstreetmap.josm.gui.mappaint.mapcss.parsergen.TokenMgrError;
 import org.openstreetmap.josm.gui.mappaint.styleelement.LineElement;
 import org.openstreetmap.josm.gui.preferences.SourceEntry;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.io.ParsedSourceCache;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
 import org.openstreetmap.josm.tools.LanguageInfo;
 import org.openstreetmap.josm.tools.Utils;
@@ -84,9 +88,27 @@ public class MapCSSStyleSource extends StyleSource {
     public final MapCSSRuleIndex multipolygonRules = new MapCSSRuleIndex(); // multipolygon relations
     public final MapCSSRuleIndex canvasRules = new MapCSSRuleIndex();       // rules to apply canvas properties
 
+    private static final ParsedSourceCache CACHE = new ParsedSourceCache("styles", MapCSSParser.class);
+
     private Color backgroundColorOverride;
     private String css;
     private ZipFile zipFile;
+    private final List<PreferenceColor> preferenceColors = new ArrayList<>();
+
+    /**
+     * A named color of the style, see {@link #getPreferenceColor}.
+     */
+    private static final class PreferenceColor {
+        private final String name;
+        private final Color def;
+        private final Color color;
+
+        PreferenceColor(String name, Color def, Color color) {
+            this.name = name;
+            this.def = def;
+            this.color = color;
+        }
+    }
 
     /**
      * This lock prevents concurrent execution of {@link MapCSSRuleIndex#clear() } /
@@ -398,23 +420,22 @@ public class MapCSSStyleSource extends StyleSource {
             relationRules.clear();
             multipolygonRules.clear();
             canvasRules.clear();
-            try (InputStream in = getSourceInputStream()) {
-                try {
-                    // evaluate @media { ... } blocks
-                    MapCSSParser preprocessor = new MapCSSParser(in, "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR);
-                    String mapcss = preprocessor.pp_root(this);
-
-                    // do the actual mapcss parsing
-                    InputStream in2 = new ByteArrayInputStream(mapcss.getBytes(StandardCharsets.UTF_8));
-                    MapCSSParser parser = new MapCSSParser(in2, "UTF-8", MapCSSParser.LexicalState.DEFAULT);
-                    parser.sheet(this);
-
-                    loadMeta();
-                    loadCanvas();
-                    loadSettings();
-                } finally {
-                    closeSourceInputStream(in);
+            try {
+                if (!readFromCache()) {
+                    long lastModified = 0;
+                    if (css == null) {
+                        try (CachedFile cf = getCachedFile()) {
+                            lastModified = cf.getLastModified();
+                        }
+                    }
+                    parse();
+                    if (css == null && isValid()) {
+                        writeToCache(lastModified);
+                    }
                 }
+                loadMeta();
+                loadCanvas();
+                loadSettings();
             } catch (IOException e) {
                 Main.warn(tr("Failed to load Mappaint styles from ''{0}''. Exception was: {1}", url, e.toString()));
                 Main.error(e);
@@ -484,6 +505,97 @@ public class MapCSSStyleSource extends StyleSource {
         }
     }
 
+    private void parse() throws IOException, ParseException {
+        preferenceColors.clear();
+        try (InputStream in = getSourceInputStream()) {
+            try {
+                // evaluate @media { ... } blocks
+                MapCSSParser preprocessor = new MapCSSParser(in, "UTF-8", MapCSSParser.LexicalState.PREPROCESSOR);
+                String mapcss = preprocessor.pp_root(this);
+
+                // do the actual mapcss parsing
+                InputStream in2 = new ByteArrayInputStream(mapcss.getBytes(StandardCharsets.UTF_8));
+                MapCSSParser parser = new MapCSSParser(in2, "UTF-8", MapCSSParser.LexicalState.DEFAULT);
+                parser.sheet(this);
+            } finally {
+                closeSourceInputStream(in);
+            }
+        }
+    }
+
+    private String getCacheKey() {
+        return url + (isZip ? '#' + zipEntryPath : "") + ' ' + title;
+    }
+
+    /**
+     * Reads the parsed rules from the cache, if they are up to date and the preference colors used by the style
+     * have not changed since.
+     * @return {@code true} if the rules have been read from the cache
+     */
+    @SuppressWarnings("deprecation")
+    private boolean readFromCache() {
+        if (css != null)
+            return false;
+        String key = getCacheKey();
+        try (CachedFile cf = getCachedFile(); DataInputStream in = CACHE.read(key, cf)) {
+            if (in == null)
+                return false;
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = in.readUTF();
+                Color def = readColor(in);
+                if (!Objects.equals(Main.pref.getColor(name, def), readColor(in)))
+                    return false;
+            }
+            rules.addAll(MapCSSRuleReader.read(in));
+            zipIcons = isZip ? cf.getFile() : null;
+            return true;
+        } catch (IOException e) {
+            Main.warn(e, "Cannot read cached style " + key);
+            rules.clear();
+            CACHE.remove(key);
+            return false;
+        }
+    }
+
+    private void writeToCache(long lastModified) {
+        CACHE.write(getCacheKey(), lastModified, out -> {
+            out.writeInt(preferenceColors.size());
+            for (PreferenceColor c : preferenceColors) {
+                out.writeUTF(c.name);
+                writeColor(out, c.def);
+                writeColor(out, c.color);
+            }
+            MapCSSRuleWriter.write(out, rules);
+        });
+    }
+
+    private static Color readColor(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new Color(in.readInt(), true) : null;
+    }
+
+    private static void writeColor(DataOutputStream out, Color color) throws IOException {
+        out.writeBoolean(color != null);
+        if (color != null) {
+            out.writeInt(color.getRGB());
+        }
+    }
+
+    /**
+     * Returns the color of a named color of this style, which can be changed in the preferences.
+     * @param name the color name
+     * @param def the default color
+     * @return the color from the preferences, or the default color
+     * @since xxx
+     */
+    @SuppressWarnings("deprecation")
+    public Color getPreferenceColor(String name, Color def) {
+        String key = "mappaint." + title + '.' + name;
+        Color color = Main.pref.getColor(key, def);
+        // remembered to check if the cached rules are still valid
+        preferenceColors.add(new PreferenceColor(key, def, color));
+        return color;
+    }
+
     @Override
     public InputStream getSourceInputStream() throws IOException {
         if (css != null) {
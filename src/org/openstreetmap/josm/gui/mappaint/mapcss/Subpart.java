@@ -21,7 +21,7 @@ public interface Subpart {
      * E.g. ::layer_1
      */
     class StringSubpart implements Subpart {
-        private final String id;
+        final String id;
 
         public StringSubpart(String id) {
             this.id = id;
@@ -44,7 +44,7 @@ public interface Subpart {
      * E.g. ::(concat("layer_", prop("i", "default")))
      */
     class ExpressionSubpart implements Subpart {
-        private final Expression id;
+        final Expression id;
 
         public ExpressionSubpart(Expression id) {
             this.id = id;
@@ -12,6 +12,7 @@ import java.util.Objects;
 import javax.swing.ImageIcon;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
 import org.openstreetmap.josm.gui.mappaint.StyleSource;
 import org.openstreetmap.josm.gui.mappaint.styleelement.BoxTextElement.BoxProvider;
@@ -109,6 +110,9 @@ public class MapImage {
                         if (temporary) {
                             disabledImgCache = null;
                             Main.map.mapView.preferenceChanged(null); // otherwise repaint is ignored, because layer hasn't changed
+                            for (OsmDataLayer layer : Main.getLayerManager().getLayersOfType(OsmDataLayer.class)) {
+                                layer.invalidateRenderCache();
+                            }
                             Main.map.mapView.repaint();
                         }
                         temporary = false;
@@ -39,6 +39,7 @@ import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
@@ -64,6 +65,7 @@ import org.openstreetmap.josm.actions.JosmAction;
 import org.openstreetmap.josm.actions.ParameterizedAction;
 import org.openstreetmap.josm.actions.ParameterizedActionDecorator;
 import org.openstreetmap.josm.gui.tagging.presets.TaggingPreset;
+import org.openstreetmap.josm.gui.tagging.presets.TaggingPresetMenu;
 import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.Shortcut;
@@ -913,6 +915,10 @@ public class ToolbarPreferences implements PreferenceSettingFactory {
     private void loadAction(DefaultMutableTreeNode node, MenuElement menu) {
         Object userObject = null;
         MenuElement menuElement = menu;
+        if (menu instanceof JMenu && ((JMenu) menu).getAction() instanceof TaggingPresetMenu) {
+            // the items of the preset groups are only created when the menu is first shown
+            ((TaggingPresetMenu) ((JMenu) menu).getAction()).populateMenu();
+        }
         if (menu.getSubElements().length > 0 &&
                 menu.getSubElements()[0] instanceof JPopupMenu) {
             menuElement = menu.getSubElements()[0];
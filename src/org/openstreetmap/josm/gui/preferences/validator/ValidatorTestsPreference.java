@@ -16,6 +16,7 @@ import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.validation.LiveValidator;
 import org.openstreetmap.josm.data.validation.OsmValidator;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.tests.MapCSSTagChecker;
@@ -48,6 +49,7 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
     private JCheckBox prefUseLayer;
     private JCheckBox prefOtherUpload;
     private JCheckBox prefOther;
+    private JCheckBox prefLive;
 
     /** The list of all tests */
     private Collection<Test> allTests;
@@ -74,6 +76,10 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         prefOtherUpload.setToolTipText(tr("Show the informational tests in the upload check windows."));
         testPanel.add(prefOtherUpload, GBC.eol());
 
+        prefLive = new JCheckBox(tr("Validate while editing."), LiveValidator.PROP_ENABLED.get());
+        prefLive.setToolTipText(tr("Validate the changed objects and their surroundings after each change."));
+        testPanel.add(prefLive, GBC.eol());
+
         ActionListener otherUploadEnabled = e -> prefOtherUpload.setEnabled(prefOther.isSelected());
         prefOther.addActionListener(otherUploadEnabled);
         otherUploadEnabled.actionPerformed(null);
@@ -120,6 +126,7 @@ public class ValidatorTestsPreference implements SubPreferenceSetting {
         ValidatorPreference.PREF_OTHER.put(prefOther.isSelected());
         ValidatorPreference.PREF_OTHER_UPLOAD.put(prefOtherUpload.isSelected());
         ValidatorPreference.PREF_LAYER.put(prefUseLayer.isSelected());
+        LiveValidator.PROP_ENABLED.put(prefLive.isSelected());
         return false;
     }
 
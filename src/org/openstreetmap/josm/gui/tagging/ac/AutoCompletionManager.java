@@ -5,7 +5,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -101,18 +103,26 @@ public class AutoCompletionManager implements DataSetListener {
 
     /** If the dirty flag is set true, a rebuild is necessary. */
     protected boolean dirty;
+    /** If the roles dirty flag is set true, the member roles have to be collected again. */
+    protected boolean rolesDirty;
     /** The data set that is managed */
     protected DataSet ds;
 
     /**
-     * the cached tags given by a tag key and a list of values for this tag
-     * only accessed by getTagCache(), rebuild() and cachePrimitiveTags()
-     * use getTagCache() accessor
+     * the number of non-deleted complete primitives using each tag, by key and value.
+     * Only accessed by getTagCounts(), rebuild() and countTags(), use getTagCounts() accessor
      */
-    protected MultiMap<String, String> tagCache;
+    protected final Map<String, Map<String, Integer>> tagCounts = new HashMap<>();
 
     /**
-     * the same as tagCache but for the preset keys and values can be accessed directly
+     * the primitives changed since the tag counts have been updated, with the tags counted for them before the change.
+     * The tags of a primitive are counted again when the tag counts are next accessed, after all events of a
+     * data set update have been received. Primitives which were not counted are mapped to an empty map.
+     */
+    private final Map<OsmPrimitive, Map<String, String>> changedPrimitives = new IdentityHashMap<>();
+
+    /**
+     * the same as tagCounts but for the preset keys and values can be accessed directly
      */
     protected static final MultiMap<String, String> PRESET_TAG_CACHE = new MultiMap<>();
 
@@ -133,6 +143,12 @@ public class AutoCompletionManager implements DataSetListener {
      */
     protected static final Set<String> PRESET_ROLE_CACHE = new HashSet<>();
 
+    /**
+     * the presets not added to {@link #PRESET_TAG_CACHE} and {@link #PRESET_ROLE_CACHE} yet.
+     * They are added when the caches are first accessed, so that the values of all presets are not computed at startup.
+     */
+    private static final List<TaggingPreset> PENDING_PRESETS = new ArrayList<>();
+
     /**
      * Constructs a new {@code AutoCompletionManager}.
      * @param ds data set
@@ -142,18 +158,40 @@ public class AutoCompletionManager implements DataSetListener {
         this.dirty = true;
     }
 
-    protected MultiMap<String, String> getTagCache() {
+    /**
+     * Returns the number of non-deleted complete primitives using each tag, by key and value.
+     * @return the tag counts. Keys and values which are not used anymore are removed
+     * @since xxx
+     */
+    protected synchronized Map<String, Map<String, Integer>> getTagCounts() {
         if (dirty) {
             rebuild();
             dirty = false;
+            rolesDirty = false;
+        } else if (!changedPrimitives.isEmpty()) {
+            for (Entry<OsmPrimitive, Map<String, String>> e : changedPrimitives.entrySet()) {
+                countTags(e.getValue(), -1);
+                OsmPrimitive p = e.getKey();
+                if (isCounted(p)) {
+                    countTags(p.getKeys(), 1);
+                }
+            }
+            changedPrimitives.clear();
         }
-        return tagCache;
+        return tagCounts;
     }
 
-    protected Set<String> getRoleCache() {
+    protected synchronized Set<String> getRoleCache() {
         if (dirty) {
-            rebuild();
-            dirty = false;
+            getTagCounts();
+        } else if (rolesDirty) {
+            roleCache = new HashSet<>();
+            for (Relation r : ds.getRelations()) {
+                if (isCounted(r)) {
+                    cacheRelationMemberRoles(r);
+                }
+            }
+            rolesDirty = false;
         }
         return roleCache;
     }
@@ -162,30 +200,51 @@ public class AutoCompletionManager implements DataSetListener {
      * initializes the cache from the primitives in the dataset
      */
     protected void rebuild() {
-        tagCache = new MultiMap<>();
+        tagCounts.clear();
+        changedPrimitives.clear();
         roleCache = new HashSet<>();
-        cachePrimitives(ds.allNonDeletedCompletePrimitives());
-    }
-
-    protected void cachePrimitives(Collection<? extends OsmPrimitive> primitives) {
-        for (OsmPrimitive primitive : primitives) {
-            cachePrimitiveTags(primitive);
+        for (OsmPrimitive primitive : ds.allNonDeletedCompletePrimitives()) {
+            countTags(primitive.getKeys(), 1);
             if (primitive instanceof Relation) {
                 cacheRelationMemberRoles((Relation) primitive);
             }
         }
     }
 
+    private boolean isCounted(OsmPrimitive p) {
+        return p.getDataSet() == ds && !p.isDeleted() && !p.isIncomplete();
+    }
+
     /**
-     * make sure, the keys and values of all tags held by primitive are
-     * in the auto completion cache
-     *
-     * @param primitive an OSM primitive
+     * Adds to or subtracts from the number of primitives using some tags.
+     * @param tags the tags
+     * @param delta {@code 1} to count the tags of a primitive, {@code -1} to uncount them
+     * @since xxx
+     */
+    protected void countTags(Map<String, String> tags, int delta) {
+        for (Entry<String, String> tag : tags.entrySet()) {
+            Map<String, Integer> values = tagCounts.computeIfAbsent(tag.getKey(), k -> new HashMap<>());
+            Integer count = values.get(tag.getValue());
+            int newCount = (count == null ? 0 : count) + delta;
+            if (newCount > 0) {
+                values.put(tag.getValue(), newCount);
+            } else {
+                values.remove(tag.getValue());
+                if (values.isEmpty()) {
+                    tagCounts.remove(tag.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers that the tags of a primitive have to be counted again.
+     * @param p the changed primitive
+     * @param countedTags the tags counted for the primitive before the change, empty if it was not counted
      */
-    protected void cachePrimitiveTags(OsmPrimitive primitive) {
-        for (String key: primitive.keySet()) {
-            String value = primitive.get(key);
-            tagCache.put(key, value);
+    private void primitiveChanged(OsmPrimitive p, Map<String, String> countedTags) {
+        if (!dirty && !changedPrimitives.containsKey(p)) {
+            changedPrimitives.put(p, countedTags);
         }
     }
 
@@ -204,13 +263,27 @@ public class AutoCompletionManager implements DataSetListener {
 
     /**
      * Initialize the cache for presets. This is done only once.
+     * The presets are actually cached when the preset keys, values or roles are first needed.
      * @param presets Tagging presets to cache
      */
     public static void cachePresets(Collection<TaggingPreset> presets) {
-        for (final TaggingPreset p : presets) {
-            for (TaggingPresetItem item : p.data) {
-                cachePresetItem(p, item);
+        synchronized (PENDING_PRESETS) {
+            PENDING_PRESETS.addAll(presets);
+        }
+    }
+
+    /**
+     * Adds the pending presets to the preset caches.
+     * @since xxx
+     */
+    protected static void cachePendingPresets() {
+        synchronized (PENDING_PRESETS) {
+            for (final TaggingPreset p : PENDING_PRESETS) {
+                for (TaggingPresetItem item : p.data) {
+                    cachePresetItem(p, item);
+                }
             }
+            PENDING_PRESETS.clear();
         }
     }
 
@@ -255,11 +328,12 @@ public class AutoCompletionManager implements DataSetListener {
      *
      * @return the list of keys held by the cache
      */
-    protected List<String> getDataKeys() {
-        return new ArrayList<>(getTagCache().keySet());
+    protected synchronized List<String> getDataKeys() {
+        return new ArrayList<>(getTagCounts().keySet());
     }
 
     protected List<String> getPresetKeys() {
+        cachePendingPresets();
         return new ArrayList<>(PRESET_TAG_CACHE.keySet());
     }
 
@@ -277,15 +351,42 @@ public class AutoCompletionManager implements DataSetListener {
     /**
      * replies the auto completion values allowed for a specific key. Replies
      * an empty list if key is null or if key is not in {@link #getKeys()}.
+     * The most frequently used values come first.
      *
      * @param key OSM key
      * @return the list of auto completion values
      */
-    protected List<String> getDataValues(String key) {
-        return new ArrayList<>(getTagCache().getValues(key));
+    protected synchronized List<String> getDataValues(String key) {
+        Map<String, Integer> counts = getTagCounts().get(key);
+        if (counts == null)
+            return new ArrayList<>();
+        List<String> values = new ArrayList<>(counts.keySet());
+        values.sort((v1, v2) -> Integer.compare(counts.get(v2), counts.get(v1)));
+        return values;
+    }
+
+    /**
+     * Returns the number of non-deleted complete primitives of the data set using a tag.
+     * @param key the tag key
+     * @param value the tag value, or {@code null} to count the primitives with the key, whatever its value
+     * @return the number of primitives using the tag
+     * @since xxx
+     */
+    public synchronized int getDataCount(String key, String value) {
+        Map<String, Integer> counts = getTagCounts().get(key);
+        if (counts == null)
+            return 0;
+        if (value != null)
+            return counts.getOrDefault(value, 0);
+        int count = 0;
+        for (int c : counts.values()) {
+            count += c;
+        }
+        return count;
     }
 
     protected static List<String> getPresetValues(String key) {
+        cachePendingPresets();
         return new ArrayList<>(PRESET_TAG_CACHE.getValues(key));
     }
 
@@ -316,6 +417,7 @@ public class AutoCompletionManager implements DataSetListener {
      * @param list the list to populate
      */
     public void populateWithMemberRoles(AutoCompletionList list) {
+        cachePendingPresets();
         list.add(PRESET_ROLE_CACHE, AutoCompletionItemPriority.IS_IN_STANDARD);
         list.add(getRoleCache(), AutoCompletionItemPriority.IS_IN_DATASET);
     }
@@ -419,37 +521,41 @@ public class AutoCompletionManager implements DataSetListener {
      **/
 
     @Override
-    public void primitivesAdded(PrimitivesAddedEvent event) {
-        if (dirty)
-            return;
-        cachePrimitives(event.getPrimitives());
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        for (OsmPrimitive p : event.getPrimitives()) {
+            // added, undeleted or completed
+            primitiveChanged(p, Collections.<String, String>emptyMap());
+            if (p instanceof Relation && isCounted(p) && !dirty && !rolesDirty) {
+                cacheRelationMemberRoles((Relation) p);
+            }
+        }
     }
 
     @Override
-    public void primitivesRemoved(PrimitivesRemovedEvent event) {
-        dirty = true;
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        for (OsmPrimitive p : event.getPrimitives()) {
+            boolean wasCounted;
+            if (event.wasComplete()) {
+                // made incomplete
+                wasCounted = !p.isDeleted();
+            } else if (p.getDataSet() == null) {
+                // removed from the data set, deleted primitives have been uncounted already
+                wasCounted = !p.isDeleted() && !p.isIncomplete();
+            } else {
+                // deleted
+                wasCounted = !p.isIncomplete();
+            }
+            primitiveChanged(p, wasCounted ? p.getKeys() : Collections.<String, String>emptyMap());
+            if (p instanceof Relation) {
+                rolesDirty = true;
+            }
+        }
     }
 
     @Override
-    public void tagsChanged(TagsChangedEvent event) {
-        if (dirty)
-            return;
-        Map<String, String> newKeys = event.getPrimitive().getKeys();
-        Map<String, String> oldKeys = event.getOriginalKeys();
-
-        if (!newKeys.keySet().containsAll(oldKeys.keySet())) {
-            // Some keys removed, might be the last instance of key, rebuild necessary
-            dirty = true;
-        } else {
-            for (Entry<String, String> oldEntry: oldKeys.entrySet()) {
-                if (!oldEntry.getValue().equals(newKeys.get(oldEntry.getKey()))) {
-                    // Value changed, might be last instance of value, rebuild necessary
-                    dirty = true;
-                    return;
-                }
-            }
-            cachePrimitives(Collections.singleton(event.getPrimitive()));
-        }
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        OsmPrimitive p = event.getPrimitive();
+        primitiveChanged(p, isCounted(p) ? event.getOriginalKeys() : Collections.<String, String>emptyMap());
     }
 
     @Override
@@ -459,15 +565,16 @@ public class AutoCompletionManager implements DataSetListener {
     public void wayNodesChanged(WayNodesChangedEvent event) {/* ignored */}
 
     @Override
-    public void relationMembersChanged(RelationMembersChangedEvent event) {
-        dirty = true; // TODO: not necessary to rebuid if a member is added
+    public synchronized void relationMembersChanged(RelationMembersChangedEvent event) {
+        rolesDirty = true;
     }
 
     @Override
     public void otherDatasetChange(AbstractDatasetChangedEvent event) {/* ignored */}
 
     @Override
-    public void dataChanged(DataChangedEvent event) {
+    public synchronized void dataChanged(DataChangedEvent event) {
         dirty = true;
+        changedPrimitives.clear();
     }
 }
@@ -114,6 +114,15 @@ public class TaggingPreset extends AbstractAction implements ActiveLayerChangeLi
     public transient TemplateEntry nameTemplate;
     public transient Match nameTemplateFilter;
 
+    /**
+     * The icon archive of the preset source, used to load the icon.
+     */
+    private File iconArchive;
+    /**
+     * True if the icon has to be loaded when it is first requested.
+     */
+    private volatile boolean iconPending;
+
     /**
      * True whenever the original selection given into createSelection was empty
      */
@@ -196,7 +205,7 @@ public class TaggingPreset extends AbstractAction implements ActiveLayerChangeLi
 
     /**
      * Called from the XML parser to set the icon.
-     * The loading task is performed in the background in order to speedup startup.
+     * The icon is only loaded when it is first requested, see {@link #getValue(String)}, in order to speedup startup.
      * @param iconName icon name
      */
     public void setIcon(final String iconName) {
@@ -204,12 +213,26 @@ public class TaggingPreset extends AbstractAction implements ActiveLayerChangeLi
         if (!TaggingPresetReader.isLoadIcons()) {
             return;
         }
-        File arch = TaggingPresetReader.getZipIcons();
+        iconArchive = TaggingPresetReader.getZipIcons();
+        iconPending = true;
+    }
+
+    /**
+     * Loads the icon, if it has not been loaded yet.
+     * The icon is attached in the EDT, so that it is available right after this call when called in the EDT.
+     */
+    private void loadIcon() {
+        synchronized (this) {
+            if (!iconPending) {
+                return;
+            }
+            iconPending = false;
+        }
         final Collection<String> s = Main.pref.getCollection("taggingpreset.icon.sources", null);
         ImageProvider imgProv = new ImageProvider(iconName);
         imgProv.setDirs(s);
         imgProv.setId("presets");
-        imgProv.setArchive(arch);
+        imgProv.setArchive(iconArchive);
         imgProv.setOptional(true);
         imgProv.getResourceAsync().thenAccept(result -> {
             if (result != null) {
@@ -220,6 +243,20 @@ public class TaggingPreset extends AbstractAction implements ActiveLayerChangeLi
         });
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The preset icon is loaded when {@link Action#SMALL_ICON} or {@link Action#LARGE_ICON_KEY} is first requested,
+     * e.g. when the preset is shown in a menu, a toolbar or the preset search dialog.
+     */
+    @Override
+    public Object getValue(String key) {
+        if (iconPending && (Action.SMALL_ICON.equals(key) || Action.LARGE_ICON_KEY.equals(key))) {
+            loadIcon();
+        }
+        return super.getValue(key);
+    }
+
     /**
      * Called from the XML parser to set the types this preset affects.
      * @param types comma-separated primitive types ("node", "way", "relation" or "closedway")
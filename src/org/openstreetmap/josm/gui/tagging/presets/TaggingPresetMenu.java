@@ -19,13 +19,22 @@ import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
 import javax.swing.JSeparator;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.gui.MenuScroller;
 import org.openstreetmap.josm.tools.AlphanumComparator;
 
 public class TaggingPresetMenu extends TaggingPreset {
     public JMenu menu; // set by TaggingPresets
 
+    /**
+     * The presets of this group not added to {@link #menu} yet. The menu items are created when the menu is first
+     * shown, so that the icons of all presets are not loaded at startup.
+     */
+    private final List<TaggingPreset> pendingMenuItems = new ArrayList<>();
+
     private static class PresetTextComparator implements Comparator<JMenuItem>, Serializable {
         @Override
         public int compare(JMenuItem o1, JMenuItem o2) {
@@ -64,9 +73,87 @@ public class TaggingPresetMenu extends TaggingPreset {
         putValue("toolbar", "tagginggroup_" + getRawName());
     }
 
+    /**
+     * Adds a preset of this group to the menu. The menu item is only created when the menu is first shown.
+     * @param preset the preset, a {@link TaggingPresetSeparator} or a subgroup
+     * @since xxx
+     */
+    public void addMenuItem(TaggingPreset preset) {
+        pendingMenuItems.add(preset);
+    }
+
+    /**
+     * Creates the menu of this group, see {@link #menu}. The menu is filled when it is first shown.
+     * @return the menu
+     * @since xxx
+     */
+    public JMenu createMenu() {
+        JMenu submenu = new JMenu(this);
+        submenu.setText(getLocaleName());
+        submenu.addMenuListener(new MenuListener() {
+            @Override
+            public void menuSelected(MenuEvent e) {
+                populateMenu();
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+                // Do nothing
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+                // Do nothing
+            }
+        });
+        menu = submenu;
+        return submenu;
+    }
+
+    /**
+     * Adds the menu items of the presets added with {@link #addMenuItem} which are not in the menu yet.
+     * @since xxx
+     */
+    public void populateMenu() {
+        if (menu == null || pendingMenuItems.isEmpty()) {
+            return;
+        }
+        for (TaggingPreset p : pendingMenuItems) {
+            menu.add(createMenuComponent(p));
+        }
+        pendingMenuItems.clear();
+        if (menu.getItemCount() >= Main.pref.getInteger("taggingpreset.min-elements-for-scroller", 15)) {
+            MenuScroller.setScrollerFor(menu);
+        }
+        if (Main.pref.getBoolean("taggingpreset.sortmenu")) {
+            sortMenu();
+        }
+    }
+
+    /**
+     * Creates the menu component of a preset.
+     * @param p the preset, a {@link TaggingPresetSeparator} or a group
+     * @return the menu component
+     * @since xxx
+     */
+    public static Component createMenuComponent(TaggingPreset p) {
+        if (p instanceof TaggingPresetSeparator) {
+            return new JSeparator();
+        } else if (p instanceof TaggingPresetMenu) {
+            return ((TaggingPresetMenu) p).createMenu();
+        } else {
+            JMenuItem mi = new JMenuItem(p);
+            mi.setText(p.getLocaleName());
+            return mi;
+        }
+    }
+
     private static Component copyMenuComponent(Component menuComponent) {
         if (menuComponent instanceof JMenu) {
             JMenu menu = (JMenu) menuComponent;
+            if (menu.getAction() instanceof TaggingPresetMenu) {
+                ((TaggingPresetMenu) menu.getAction()).populateMenu();
+            }
             JMenu result = new JMenu(menu.getAction());
             for (Component item:menu.getMenuComponents()) {
                 result.add(copyMenuComponent(item));
@@ -89,6 +176,7 @@ public class TaggingPresetMenu extends TaggingPreset {
     public void actionPerformed(ActionEvent e) {
         Object s = e.getSource();
         if (menu != null && s instanceof Component) {
+            populateMenu();
             JPopupMenu pm = new JPopupMenu(getName());
             for (Component c : menu.getMenuComponents()) {
                 pm.add(copyMenuComponent(c));
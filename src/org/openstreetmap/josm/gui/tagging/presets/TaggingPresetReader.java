@@ -4,6 +4,7 @@ package org.openstreetmap.josm.gui.tagging.presets;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,6 +42,7 @@ import org.openstreetmap.josm.gui.tagging.presets.items.Roles.Role;
 import org.openstreetmap.josm.gui.tagging.presets.items.Space;
 import org.openstreetmap.josm.gui.tagging.presets.items.Text;
 import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.io.ParsedSourceCache;
 import org.openstreetmap.josm.io.UTFInputStreamReader;
 import org.openstreetmap.josm.tools.XmlObjectParser;
 import org.xml.sax.SAXException;
@@ -58,6 +60,8 @@ public final class TaggingPresetReader {
     public static final String PRESET_MIME_TYPES =
             "application/xml, text/xml, text/plain; q=0.8, application/zip, application/octet-stream; q=0.5";
 
+    private static final ParsedSourceCache CACHE = new ParsedSourceCache("presets", XmlObjectParser.class);
+
     private static volatile File zipIcons;
     private static volatile boolean loadIcons = true;
 
@@ -148,8 +152,27 @@ public final class TaggingPresetReader {
      * @throws SAXException if any XML error occurs
      */
     static Collection<TaggingPreset> readAll(Reader in, boolean validate, HashSetWithLast<TaggingPreset> all) throws SAXException {
-        XmlObjectParser parser = buildParser();
+        return readAll(in, validate, all, buildParser());
+    }
 
+    private static Collection<TaggingPreset> readAll(Reader in, boolean validate, HashSetWithLast<TaggingPreset> all,
+            XmlObjectParser parser) throws SAXException {
+        if (validate) {
+            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
+        } else {
+            parser.start(in);
+        }
+        return readAll(parser, all);
+    }
+
+    /**
+     * Builds the tagging presets from the objects parsed by the given parser.
+     * @param parser the parser, which has already parsed the document
+     * @param all the accumulator for parsed tagging presets
+     * @return the accumulator
+     * @throws SAXException if the document structure is invalid
+     */
+    private static Collection<TaggingPreset> readAll(XmlObjectParser parser, HashSetWithLast<TaggingPreset> all) throws SAXException {
         /** to detect end of {@code <group>} */
         TaggingPresetMenu lastmenu = null;
         /** to detect end of reused {@code <group>} */
@@ -162,11 +185,6 @@ public final class TaggingPresetReader {
         /** lastIdIterators contains non empty iterators of items to be handled before obtaining the next item from the XML parser */
         final Deque<Iterator<Object>> lastIdIterators = new ArrayDeque<>();
 
-        if (validate) {
-            parser.startWithValidation(in, Main.getXMLBase()+"/tagging-preset-1.0", "resource://data/tagging-preset.xsd");
-        } else {
-            parser.start(in);
-        }
         while (parser.hasNext() || !lastIdIterators.isEmpty()) {
             final Object o;
             if (!lastIdIterators.isEmpty()) {
@@ -322,21 +340,60 @@ public final class TaggingPresetReader {
     static Collection<TaggingPreset> readAll(String source, boolean validate, HashSetWithLast<TaggingPreset> all)
             throws SAXException, IOException {
         Collection<TaggingPreset> tp;
-        try (
-            CachedFile cf = new CachedFile(source).setHttpAccept(PRESET_MIME_TYPES);
-            // zip may be null, but Java 7 allows it: https://blogs.oracle.com/darcy/entry/project_coin_null_try_with
-            InputStream zip = cf.findZipEntryInputStream("xml", "preset")
-        ) {
-            if (zip != null) {
-                zipIcons = cf.getFile();
+        try (CachedFile cf = new CachedFile(source).setHttpAccept(PRESET_MIME_TYPES)) {
+            XmlObjectParser cached = readFromCache(source, cf, validate);
+            if (cached != null) {
+                return readAll(cached, all);
             }
-            try (InputStreamReader r = UTFInputStreamReader.create(zip == null ? cf.getInputStream() : zip)) {
-                tp = readAll(new BufferedReader(r), validate, all);
+            long lastModified = cf.getLastModified();
+            // zip may be null, but Java 7 allows it: https://blogs.oracle.com/darcy/entry/project_coin_null_try_with
+            try (InputStream zip = cf.findZipEntryInputStream("xml", "preset")) {
+                if (zip != null) {
+                    zipIcons = cf.getFile();
+                }
+                XmlObjectParser parser = buildParser();
+                parser.setRecording(ParsedSourceCache.isEnabled());
+                try (InputStreamReader r = UTFInputStreamReader.create(zip == null ? cf.getInputStream() : zip)) {
+                    tp = readAll(new BufferedReader(r), validate, all, parser);
+                }
+                final boolean isZip = zip != null;
+                CACHE.write(source, lastModified, out -> {
+                    out.writeBoolean(validate);
+                    out.writeBoolean(isZip);
+                    parser.writeRecording(out);
+                });
             }
         }
         return tp;
     }
 
+    /**
+     * Parses the recorded document of the given source from the cache, if it is up to date.
+     * A document recorded with validation can be used for any request, one recorded without validation only for
+     * requests without validation.
+     * @param source the source
+     * @param cf the source file
+     * @param validate if {@code true}, XML validation is requested
+     * @return the parser which parsed the recorded document, or {@code null}
+     */
+    private static XmlObjectParser readFromCache(String source, CachedFile cf, boolean validate) {
+        try (DataInputStream in = CACHE.read(source, cf)) {
+            if (in == null || (!in.readBoolean() && validate))
+                return null;
+            boolean isZip = in.readBoolean();
+            XmlObjectParser parser = buildParser();
+            parser.replay(in);
+            if (isZip) {
+                zipIcons = cf.getFile();
+            }
+            return parser;
+        } catch (IOException | SAXException e) {
+            Main.warn(e, "Cannot read cached presets of " + source);
+            CACHE.remove(source);
+            return null;
+        }
+    }
+
     /**
      * Reads all tagging presets from the given sources.
      * @param sources Collection of tagging presets sources.
@@ -3,16 +3,14 @@ package org.openstreetmap.josm.gui.tagging.presets;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import javax.swing.JMenu;
-import javax.swing.JMenuItem;
-import javax.swing.JSeparator;
 
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
-import org.openstreetmap.josm.gui.MenuScroller;
 import org.openstreetmap.josm.gui.tagging.ac.AutoCompletionManager;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
 
@@ -54,30 +52,24 @@ public final class TaggingPresets {
             Main.main.menu.presetsMenu.setVisible(false);
         } else {
             AutoCompletionManager.cachePresets(taggingPresets);
-            Map<TaggingPresetMenu, JMenu> submenus = new HashMap<>();
+            Set<TaggingPresetMenu> groups = new HashSet<>();
             for (final TaggingPreset p : taggingPresets) {
-                JMenu m = p.group != null ? submenus.get(p.group) : Main.main.menu.presetsMenu;
-                if (m == null && p.group != null) {
+                TaggingPresetMenu group = p.group != null && groups.contains(p.group) ? p.group : null;
+                JMenu m = Main.main.menu.presetsMenu;
+                if (group == null && p.group != null) {
                     Main.error("No tagging preset submenu for " + p.group);
                 } else if (m == null) {
                     Main.error("No tagging preset menu. Tagging preset " + p + " won't be available there");
-                } else if (p instanceof TaggingPresetSeparator) {
-                    m.add(new JSeparator());
-                } else if (p instanceof TaggingPresetMenu) {
-                    JMenu submenu = new JMenu(p);
-                    submenu.setText(p.getLocaleName());
-                    ((TaggingPresetMenu) p).menu = submenu;
-                    submenus.put((TaggingPresetMenu) p, submenu);
-                    m.add(submenu);
                 } else {
-                    JMenuItem mi = new JMenuItem(p);
-                    mi.setText(p.getLocaleName());
-                    m.add(mi);
-                }
-            }
-            for (JMenu submenu : submenus.values()) {
-                if (submenu.getItemCount() >= Main.pref.getInteger("taggingpreset.min-elements-for-scroller", 15)) {
-                    MenuScroller.setScrollerFor(submenu);
+                    if (p instanceof TaggingPresetMenu) {
+                        groups.add((TaggingPresetMenu) p);
+                    }
+                    // the menu items of the groups are only created when the group menu is first shown
+                    if (group != null) {
+                        group.addMenuItem(p);
+                    } else {
+                        m.add(TaggingPresetMenu.createMenuComponent(p));
+                    }
                 }
             }
         }
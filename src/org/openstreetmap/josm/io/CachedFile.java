@@ -14,6 +14,7 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
@@ -218,6 +219,28 @@ public class CachedFile implements Closeable {
         return new FileInputStream(file);
     }
 
+    /**
+     * Returns the time the requested resource was last modified.
+     * @return the modification time of the local file, of the cached copy for URLs, or of the classpath entry for
+     * resources. 0 if unknown
+     * @throws IOException when the resource with the given name could not be retrieved
+     * @since xxx
+     */
+    public long getLastModified() throws IOException {
+        File file = getFile();
+        if (file != null)
+            return file.lastModified();
+        URL url = getClass().getResource(name.substring("resource:/".length()));
+        if (url == null)
+            return 0;
+        URLConnection connection = url.openConnection();
+        // do not keep the jar file open
+        connection.setUseCaches(false);
+        long lastModified = connection.getLastModified();
+        Utils.close(connection.getInputStream());
+        return lastModified;
+    }
+
     /**
      * Get the full content of the requested resource as a byte array.
      * @return the full content of the requested resource as byte array
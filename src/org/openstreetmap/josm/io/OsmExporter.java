@@ -124,6 +124,16 @@ public class OsmExporter extends FileExporter {
     }
 
     protected void doSave(File file, OsmDataLayer layer) throws IOException {
+        int threads = ParallelOsmWriter.THREADS.get();
+        if (threads > 1 && ParallelOsmWriter.isSupported()) {
+            layer.data.getReadLock().lock();
+            try {
+                new ParallelOsmWriter(threads).writeLayer(layer, file);
+            } finally {
+                layer.data.getReadLock().unlock();
+            }
+            return;
+        }
         // create outputstream and wrap it with gzip or bzip, if necessary
         try (
             OutputStream out = getOutputStream(file);
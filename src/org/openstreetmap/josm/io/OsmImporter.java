@@ -120,7 +120,7 @@ public class OsmImporter extends FileImporter {
     }
 
     protected DataSet parseDataSet(InputStream in, ProgressMonitor progressMonitor) throws IllegalDataException {
-        return OsmReader.parseDataSet(in, progressMonitor);
+        return ParallelOsmReader.parseDataSet(in, progressMonitor);
     }
 
     protected OsmDataLayer createLayer(final DataSet dataSet, final File associatedFile, final String layerName) {
@@ -33,6 +33,7 @@ import org.openstreetmap.josm.data.osm.PrimitiveData;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationData;
 import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.TagStringPool;
 import org.openstreetmap.josm.data.osm.Tagged;
 import org.openstreetmap.josm.data.osm.User;
 import org.openstreetmap.josm.data.osm.Way;
@@ -55,6 +56,37 @@ public class OsmReader extends AbstractReader {
 
     protected boolean cancel;
 
+    /**
+     * Gives access to the attributes of an XML element, either through the parser or from a copy of them.
+     * @since xxx
+     */
+    interface AttributeSource {
+        /**
+         * Returns the value of an attribute.
+         * @param name the attribute name
+         * @return the attribute value or {@code null} if the element has no such attribute
+         */
+        String getAttributeValue(String name);
+
+        /**
+         * Returns the location of the element, used in error messages.
+         * @return the location of the element
+         */
+        Location getLocation();
+    }
+
+    private final AttributeSource parserAttributes = new AttributeSource() {
+        @Override
+        public String getAttributeValue(String name) {
+            return parser.getAttributeValue(null, name);
+        }
+
+        @Override
+        public Location getLocation() {
+            return parser.getLocation();
+        }
+    };
+
     /** Used by plugins to register themselves as data postprocessors. */
     private static volatile List<OsmServerReadPostprocessor> postprocessors;
 
@@ -101,6 +133,14 @@ public class OsmReader extends AbstractReader {
         throw new XmlStreamParsingException(msg, parser.getLocation());
     }
 
+    static void throwException(AttributeSource attributes, String msg, Throwable th) throws XMLStreamException {
+        throw new XmlStreamParsingException(msg, attributes.getLocation(), th);
+    }
+
+    static void throwException(AttributeSource attributes, String msg) throws XMLStreamException {
+        throw new XmlStreamParsingException(msg, attributes.getLocation());
+    }
+
     protected void parse() throws XMLStreamException {
         int event = parser.getEventType();
         while (true) {
@@ -141,7 +181,7 @@ public class OsmReader extends AbstractReader {
         String generator = parser.getAttributeValue(null, "generator");
         Long uploadChangesetId = null;
         if (parser.getAttributeValue(null, "upload-changeset") != null) {
-            uploadChangesetId = getLong("upload-changeset");
+            uploadChangesetId = getLong(parserAttributes, "upload-changeset");
         }
         while (true) {
             int event = parser.next();
@@ -206,13 +246,7 @@ public class OsmReader extends AbstractReader {
     }
 
     protected Node parseNode() throws XMLStreamException {
-        NodeData nd = new NodeData();
-        String lat = parser.getAttributeValue(null, "lat");
-        String lon = parser.getAttributeValue(null, "lon");
-        if (lat != null && lon != null) {
-            nd.setCoor(new LatLon(Double.parseDouble(lat), Double.parseDouble(lon)));
-        }
-        readCommon(nd);
+        NodeData nd = readNodeData(parserAttributes, ds.getVersion());
         Node n = new Node(nd.getId(), nd.getVersion());
         n.setVisible(nd.isVisible());
         n.load(nd);
@@ -232,7 +266,7 @@ public class OsmReader extends AbstractReader {
 
     protected Way parseWay() throws XMLStreamException {
         WayData wd = new WayData();
-        readCommon(wd);
+        readCommon(parserAttributes, wd, ds.getVersion());
         Way w = new Way(wd.getId(), wd.getVersion());
         w.setVisible(wd.isVisible());
         w.load(wd);
@@ -265,24 +299,36 @@ public class OsmReader extends AbstractReader {
     }
 
     private long parseWayNode(Way w) throws XMLStreamException {
-        if (parser.getAttributeValue(null, "ref") == null) {
-            throwException(
-                    tr("Missing mandatory attribute ''{0}'' on <nd> of way {1}.", "ref", w.getUniqueId())
+        long id = readWayNodeId(parserAttributes, w.getUniqueId());
+        jumpToEnd();
+        return id;
+    }
+
+    /**
+     * Reads the node id of a {@code <nd>} element.
+     * @param attributes the attributes of the {@code <nd>} element
+     * @param wayId the unique id of the way
+     * @return the node id
+     * @throws XMLStreamException if the node id is missing or invalid
+     */
+    static long readWayNodeId(AttributeSource attributes, long wayId) throws XMLStreamException {
+        if (attributes.getAttributeValue("ref") == null) {
+            throwException(attributes,
+                    tr("Missing mandatory attribute ''{0}'' on <nd> of way {1}.", "ref", wayId)
             );
         }
-        long id = getLong("ref");
+        long id = getLong(attributes, "ref");
         if (id == 0) {
-            throwException(
+            throwException(attributes,
                     tr("Illegal value of attribute ''ref'' of element <nd>. Got {0}.", id)
             );
         }
-        jumpToEnd();
         return id;
     }
 
     protected Relation parseRelation() throws XMLStreamException {
         RelationData rd = new RelationData();
-        readCommon(rd);
+        readCommon(parserAttributes, rd, ds.getVersion());
         Relation r = new Relation(rd.getId(), rd.getVersion());
         r.setVisible(rd.isVisible());
         r.load(rd);
@@ -315,34 +361,47 @@ public class OsmReader extends AbstractReader {
     }
 
     private RelationMemberData parseRelationMember(Relation r) throws XMLStreamException {
+        RelationMemberData member = readRelationMember(parserAttributes, r.getUniqueId());
+        jumpToEnd();
+        return member;
+    }
+
+    /**
+     * Reads a {@code <member>} element.
+     * @param attributes the attributes of the {@code <member>} element
+     * @param relationId the unique id of the relation
+     * @return the relation member
+     * @throws XMLStreamException if an attribute is missing or invalid
+     */
+    static RelationMemberData readRelationMember(AttributeSource attributes, long relationId) throws XMLStreamException {
         OsmPrimitiveType type = null;
         long id = 0;
-        String value = parser.getAttributeValue(null, "ref");
+        String value = attributes.getAttributeValue("ref");
         if (value == null) {
-            throwException(tr("Missing attribute ''ref'' on member in relation {0}.", r.getUniqueId()));
+            throwException(attributes, tr("Missing attribute ''ref'' on member in relation {0}.", relationId));
         }
         try {
             id = Long.parseLong(value);
         } catch (NumberFormatException e) {
-            throwException(tr("Illegal value for attribute ''ref'' on member in relation {0}. Got {1}", Long.toString(r.getUniqueId()),
+            throwException(attributes, tr("Illegal value for attribute ''ref'' on member in relation {0}. Got {1}", Long.toString(relationId),
                     value), e);
         }
-        value = parser.getAttributeValue(null, "type");
+        value = attributes.getAttributeValue("type");
         if (value == null) {
-            throwException(tr("Missing attribute ''type'' on member {0} in relation {1}.", Long.toString(id), Long.toString(r.getUniqueId())));
+            throwException(attributes, tr("Missing attribute ''type'' on member {0} in relation {1}.", Long.toString(id),
+                    Long.toString(relationId)));
         }
         try {
             type = OsmPrimitiveType.fromApiTypeName(value);
         } catch (IllegalArgumentException e) {
-            throwException(tr("Illegal value for attribute ''type'' on member {0} in relation {1}. Got {2}.",
-                    Long.toString(id), Long.toString(r.getUniqueId()), value), e);
+            throwException(attributes, tr("Illegal value for attribute ''type'' on member {0} in relation {1}. Got {2}.",
+                    Long.toString(id), Long.toString(relationId), value), e);
         }
-        String role = parser.getAttributeValue(null, "role");
+        String role = attributes.getAttributeValue("role");
 
         if (id == 0) {
-            throwException(tr("Incomplete <member> specification with ref=0"));
+            throwException(attributes, tr("Incomplete <member> specification with ref=0"));
         }
-        jumpToEnd();
         return new RelationMemberData(role, type, id);
     }
 
@@ -350,7 +409,7 @@ public class OsmReader extends AbstractReader {
 
         Long id = null;
         if (parser.getAttributeValue(null, "id") != null) {
-            id = getLong("id");
+            id = getLong(parserAttributes, "id");
         }
         // Read changeset info if neither upload-changeset nor id are set, or if they are both set to the same value
         if (Objects.equals(id, uploadChangesetId)) {
@@ -377,7 +436,7 @@ public class OsmReader extends AbstractReader {
         if (key == null || value == null) {
             throwException(tr("Missing key or value attribute in tag."));
         } else {
-            t.put(key.intern(), value.intern());
+            t.put(TagStringPool.intern(key), TagStringPool.intern(value));
         }
         jumpToEnd();
     }
@@ -422,11 +481,17 @@ public class OsmReader extends AbstractReader {
         }
     }
 
-    private void jumpToEnd() throws XMLStreamException {
+    /**
+     * When cursor is at the start of an element, moves it to the end tag of that element.
+     * Nested content is skipped, with a warning.
+     * @throws XMLStreamException if there is an error processing the underlying XML source
+     * @since xxx
+     */
+    protected void jumpToEnd() throws XMLStreamException {
         jumpToEnd(true);
     }
 
-    private User createUser(String uid, String name) throws XMLStreamException {
+    private static User createUser(AttributeSource attributes, String uid, String name) throws XMLStreamException {
         if (uid == null) {
             if (name == null)
                 return null;
@@ -436,49 +501,69 @@ public class OsmReader extends AbstractReader {
             long id = Long.parseLong(uid);
             return User.createOsmUser(id, name);
         } catch (NumberFormatException e) {
-            throwException(MessageFormat.format("Illegal value for attribute ''uid''. Got ''{0}''.", uid), e);
+            throwException(attributes, MessageFormat.format("Illegal value for attribute ''uid''. Got ''{0}''.", uid), e);
         }
         return null;
     }
 
+    /**
+     * Reads the attributes of a {@code <node>} element.
+     * @param attributes the attributes of the element
+     * @param apiVersion the API version of the data, see {@link DataSet#getVersion()}
+     * @return the node data
+     * @throws XMLStreamException if an attribute is missing or invalid
+     */
+    static NodeData readNodeData(AttributeSource attributes, String apiVersion) throws XMLStreamException {
+        NodeData nd = new NodeData();
+        String lat = attributes.getAttributeValue("lat");
+        String lon = attributes.getAttributeValue("lon");
+        if (lat != null && lon != null) {
+            nd.setCoor(new LatLon(Double.parseDouble(lat), Double.parseDouble(lon)));
+        }
+        readCommon(attributes, nd, apiVersion);
+        return nd;
+    }
+
     /**
      * Read out the common attributes and put them into current OsmPrimitive.
+     * @param attributes the attributes of the element
      * @param current primitive to update
+     * @param apiVersion the API version of the data, see {@link DataSet#getVersion()}
      * @throws XMLStreamException if there is an error processing the underlying XML source
      */
-    private void readCommon(PrimitiveData current) throws XMLStreamException {
-        current.setId(getLong("id"));
+    static void readCommon(AttributeSource attributes, PrimitiveData current, String apiVersion) throws XMLStreamException {
+        current.setId(getLong(attributes, "id"));
         if (current.getUniqueId() == 0) {
-            throwException(tr("Illegal object with ID=0."));
+            throwException(attributes, tr("Illegal object with ID=0."));
         }
 
-        String time = parser.getAttributeValue(null, "timestamp");
+        String time = attributes.getAttributeValue("timestamp");
         if (time != null && !time.isEmpty()) {
             current.setRawTimestamp((int) (DateUtils.tsFromString(time)/1000));
         }
 
-        String user = parser.getAttributeValue(null, "user");
-        String uid = parser.getAttributeValue(null, "uid");
-        current.setUser(createUser(uid, user));
+        String user = attributes.getAttributeValue("user");
+        String uid = attributes.getAttributeValue("uid");
+        current.setUser(createUser(attributes, uid, user));
 
-        String visible = parser.getAttributeValue(null, "visible");
+        String visible = attributes.getAttributeValue("visible");
         if (visible != null) {
             current.setVisible(Boolean.parseBoolean(visible));
         }
 
-        String versionString = parser.getAttributeValue(null, "version");
+        String versionString = attributes.getAttributeValue("version");
         int version = 0;
         if (versionString != null) {
             try {
                 version = Integer.parseInt(versionString);
             } catch (NumberFormatException e) {
-                throwException(tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
+                throwException(attributes, tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
                         Long.toString(current.getUniqueId()), versionString), e);
             }
-            switch (ds.getVersion()) {
+            switch (apiVersion) {
             case "0.6":
                 if (version <= 0 && !current.isNew()) {
-                    throwException(tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
+                    throwException(attributes, tr("Illegal value for attribute ''version'' on OSM primitive with ID {0}. Got {1}.",
                             Long.toString(current.getUniqueId()), versionString));
                 } else if (version < 0 && current.isNew()) {
                     Main.warn(tr("Normalizing value of attribute ''version'' of element {0} to {2}, API version is ''{3}''. Got {1}.",
@@ -488,17 +573,17 @@ public class OsmReader extends AbstractReader {
                 break;
             default:
                 // should not happen. API version has been checked before
-                throwException(tr("Unknown or unsupported API version. Got {0}.", ds.getVersion()));
+                throwException(attributes, tr("Unknown or unsupported API version. Got {0}.", apiVersion));
             }
         } else {
             // version expected for OSM primitives with an id assigned by the server (id > 0), since API 0.6
-            if (!current.isNew() && ds.getVersion() != null && "0.6".equals(ds.getVersion())) {
-                throwException(tr("Missing attribute ''version'' on OSM primitive with ID {0}.", Long.toString(current.getUniqueId())));
+            if (!current.isNew() && apiVersion != null && "0.6".equals(apiVersion)) {
+                throwException(attributes, tr("Missing attribute ''version'' on OSM primitive with ID {0}.", Long.toString(current.getUniqueId())));
             }
         }
         current.setVersion(version);
 
-        String action = parser.getAttributeValue(null, "action");
+        String action = attributes.getAttributeValue("action");
         if (action == null) {
             // do nothing
         } else if ("delete".equals(action)) {
@@ -508,7 +593,7 @@ public class OsmReader extends AbstractReader {
             current.setModified(true);
         }
 
-        String v = parser.getAttributeValue(null, "changeset");
+        String v = attributes.getAttributeValue("changeset");
         if (v == null) {
             current.setChangesetId(0);
         } else {
@@ -523,7 +608,7 @@ public class OsmReader extends AbstractReader {
                     current.setChangesetId(0);
                 } else {
                     // for an existing primitive this is a problem
-                    throwException(tr("Illegal value for attribute ''changeset''. Got {0}.", v), e);
+                    throwException(attributes, tr("Illegal value for attribute ''changeset''. Got {0}.", v), e);
                 }
             } catch (IllegalStateException e) {
                 // thrown for positive changeset id on new primitives
@@ -539,21 +624,21 @@ public class OsmReader extends AbstractReader {
                     current.setChangesetId(0);
                 } else {
                     // for an existing primitive this is a problem
-                    throwException(tr("Illegal value for attribute ''changeset''. Got {0}.", v));
+                    throwException(attributes, tr("Illegal value for attribute ''changeset''. Got {0}.", v));
                 }
             }
         }
     }
 
-    private long getLong(String name) throws XMLStreamException {
-        String value = parser.getAttributeValue(null, name);
+    private static long getLong(AttributeSource attributes, String name) throws XMLStreamException {
+        String value = attributes.getAttributeValue(name);
         if (value == null) {
-            throwException(tr("Missing required attribute ''{0}''.", name));
+            throwException(attributes, tr("Missing required attribute ''{0}''.", name));
         }
         try {
             return Long.parseLong(value);
         } catch (NumberFormatException e) {
-            throwException(tr("Illegal long value for attribute ''{0}''. Got ''{1}''.", name, value), e);
+            throwException(attributes, tr("Illegal long value for attribute ''{0}''. Got ''{1}''.", name, value), e);
         }
         return 0; // should not happen
     }
@@ -4,6 +4,7 @@ package org.openstreetmap.josm.io;
 import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.io.PrintWriter;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -43,6 +44,8 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
     private boolean isOsmChange;
     private String version;
     private Changeset changeset;
+    /** Own copy of the coordinate format, as {@link DecimalFormat} is not thread-safe */
+    private final DecimalFormat coordinateFormat = (DecimalFormat) LatLon.cDdHighPecisionFormatter.clone();
 
     /**
      * Constructs a new {@code OsmWriter}.
@@ -194,8 +197,8 @@ public class OsmWriter extends XmlWriter implements PrimitiveVisitor {
             out.println("/>");
         } else {
             if (n.getCoor() != null) {
-                out.print(" lat='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lat())+
-                          "' lon='"+LatLon.cDdHighPecisionFormatter.format(n.getCoor().lon())+'\'');
+                out.print(" lat='"+coordinateFormat.format(n.getCoor().lat())+
+                          "' lon='"+coordinateFormat.format(n.getCoor().lon())+'\'');
             }
             addTags(n, "node", true);
         }
@@ -0,0 +1,430 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.TagStringPool;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * An {@link OsmReader} which spreads the work of reading large files over several threads.
+ * <p>
+ * Reading is done in three stages:
+ * <ol>
+ * <li>the calling thread tokenizes the XML and copies the attributes and child elements of each primitive,</li>
+ * <li>worker threads convert batches of these copies to primitives (parsing numbers and dates, pooling tags),</li>
+ * <li>the calling thread registers the converted batches in document order and finally links ways and relations
+ * to their members in the data set, as {@link OsmReader} does.</li>
+ * </ol>
+ * The resulting data set is the same as the one read by {@link OsmReader}. This includes the ids given to new primitives,
+ * which are created in document order. The only difference is that the location given in error messages is the one of
+ * the primitive containing the error, not of the erroneous child element.
+ * @since xxx
+ */
+public class ParallelOsmReader extends OsmReader {
+
+    /**
+     * The number of threads used to read OSM files. If it is less than 2, files are read by a single thread.
+     */
+    public static final IntegerProperty THREADS = new IntegerProperty("osm.reader.threads", Runtime.getRuntime().availableProcessors());
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final int threads;
+    private ExecutorService executor;
+    private final Deque<Future<Batch>> pending = new ArrayDeque<>();
+    private List<PrimitiveRecord> batch = new ArrayList<>(BATCH_SIZE);
+
+    /**
+     * Constructs a new {@code ParallelOsmReader}.
+     * @param threads the number of worker threads
+     * @see #parseDataSet(InputStream, ProgressMonitor, int)
+     */
+    protected ParallelOsmReader(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * A copy of the attributes and child elements of a primitive, made by the tokenizing thread.
+     */
+    private static final class PrimitiveRecord extends ElementAttributes {
+        final OsmPrimitiveType type;
+        final String apiVersion;
+        /** the {@code <tag>}, {@code <nd>} and {@code <member>} elements */
+        final List<ElementAttributes> children = new ArrayList<>();
+        PrimitiveData data;
+
+        PrimitiveRecord(OsmPrimitiveType type, String apiVersion, XMLStreamReader parser) {
+            super(parser, null);
+            this.type = type;
+            this.apiVersion = apiVersion;
+        }
+    }
+
+    /**
+     * A copy of the attributes of an XML element.
+     */
+    private static class ElementAttributes implements OsmReader.AttributeSource, Location {
+        private final String name;
+        private final String[] attributes;
+        private final ElementAttributes parent;
+        private final int lineNumber;
+        private final int columnNumber;
+        private final int characterOffset;
+
+        ElementAttributes(XMLStreamReader parser, ElementAttributes parent) {
+            name = parent != null ? parser.getLocalName() : null;
+            int count = parser.getAttributeCount();
+            attributes = new String[2 * count];
+            for (int i = 0; i < count; i++) {
+                attributes[2 * i] = parser.getAttributeLocalName(i);
+                attributes[2 * i + 1] = parser.getAttributeValue(i);
+            }
+            this.parent = parent;
+            if (parent == null) {
+                Location location = parser.getLocation();
+                lineNumber = location.getLineNumber();
+                columnNumber = location.getColumnNumber();
+                characterOffset = location.getCharacterOffset();
+            } else {
+                lineNumber = -1;
+                columnNumber = -1;
+                characterOffset = -1;
+            }
+        }
+
+        @Override
+        public String getAttributeValue(String name) {
+            for (int i = 0; i < attributes.length; i += 2) {
+                if (name.equals(attributes[i]))
+                    return attributes[i + 1];
+            }
+            return null;
+        }
+
+        @Override
+        public Location getLocation() {
+            // child elements report the location of the primitive to save memory
+            return parent != null ? parent : this;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return columnNumber;
+        }
+
+        @Override
+        public int getCharacterOffset() {
+            return characterOffset;
+        }
+
+        @Override
+        public String getPublicId() {
+            return null;
+        }
+
+        @Override
+        public String getSystemId() {
+            return null;
+        }
+    }
+
+    /**
+     * The result of converting a batch of records. Conversion stops at the first error.
+     */
+    private static final class Batch {
+        final List<PrimitiveRecord> records;
+        /** the converted primitives, {@code null} for new primitives which must be converted in document order */
+        final List<Converted> converted;
+        XMLStreamException error;
+
+        Batch(List<PrimitiveRecord> records) {
+            this.records = records;
+            this.converted = new ArrayList<>(records.size());
+        }
+    }
+
+    private static final class Converted {
+        final OsmPrimitive primitive;
+        final Collection<Long> nodeIds;
+        final Collection<RelationMemberData> members;
+
+        Converted(OsmPrimitive primitive, Collection<Long> nodeIds, Collection<RelationMemberData> members) {
+            this.primitive = primitive;
+            this.nodeIds = nodeIds;
+            this.members = members;
+        }
+    }
+
+    @Override
+    protected void parse() throws XMLStreamException {
+        executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("osm-reader-%d", Thread.NORM_PRIORITY));
+        try {
+            try {
+                super.parse();
+            } catch (XMLStreamException | RuntimeException e) {
+                // an error in a primitive read before has to be reported first
+                registerAll();
+                throw e;
+            }
+            registerAll();
+        } finally {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Copies the current {@code <node>} element. The node is created later.
+     * @return {@code null}
+     */
+    @Override
+    protected Node parseNode() throws XMLStreamException {
+        readRecord(OsmPrimitiveType.NODE, null);
+        return null;
+    }
+
+    /**
+     * Copies the current {@code <way>} element. The way is created later.
+     * @return {@code null}
+     */
+    @Override
+    protected Way parseWay() throws XMLStreamException {
+        readRecord(OsmPrimitiveType.WAY, "nd");
+        return null;
+    }
+
+    /**
+     * Copies the current {@code <relation>} element. The relation is created later.
+     * @return {@code null}
+     */
+    @Override
+    protected Relation parseRelation() throws XMLStreamException {
+        readRecord(OsmPrimitiveType.RELATION, "member");
+        return null;
+    }
+
+    private void readRecord(OsmPrimitiveType type, String childName) throws XMLStreamException {
+        PrimitiveRecord record = new PrimitiveRecord(type, ds.getVersion(), parser);
+        while (true) {
+            int event = parser.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = parser.getLocalName();
+                if ("tag".equals(name) || name.equals(childName)) {
+                    record.children.add(new ElementAttributes(parser, record));
+                    jumpToEnd();
+                } else {
+                    parseUnknown();
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                break;
+            }
+        }
+        batch.add(record);
+        if (batch.size() == BATCH_SIZE) {
+            submitBatch();
+        }
+    }
+
+    private void submitBatch() throws XMLStreamException {
+        if (batch.isEmpty())
+            return;
+        final Batch b = new Batch(batch);
+        pending.addLast(executor.submit(() -> convert(b)));
+        batch = new ArrayList<>(BATCH_SIZE);
+        // register the batches which are done, and limit the number of batches kept in memory
+        while (!pending.isEmpty() && (pending.peekFirst().isDone() || pending.size() > 4 * threads)) {
+            registerBatch(pending.removeFirst());
+        }
+    }
+
+    private void registerAll() throws XMLStreamException {
+        submitBatch();
+        while (!pending.isEmpty()) {
+            registerBatch(pending.removeFirst());
+        }
+    }
+
+    private static Batch convert(Batch b) {
+        try {
+            for (PrimitiveRecord record : b.records) {
+                record.data = readData(record);
+                // new primitives get their unique ids on creation, create them in document order
+                b.converted.add(record.data.isNew() ? null : convert(record));
+            }
+        } catch (XMLStreamException e) {
+            b.error = e;
+        }
+        return b;
+    }
+
+    private void registerBatch(Future<Batch> future) throws XMLStreamException {
+        try {
+            Batch b = future.get();
+            for (int i = 0; i < b.converted.size(); i++) {
+                PrimitiveRecord record = b.records.get(i);
+                Converted c = b.converted.get(i);
+                register(record.data, c != null ? c : convert(record));
+            }
+            if (b.error != null)
+                throw b.error;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw discardPending(new XMLStreamException(e));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw discardPending((RuntimeException) e.getCause());
+            throw discardPending(new XMLStreamException(e.getCause()));
+        } catch (XMLStreamException e) {
+            throw discardPending(e);
+        } catch (RuntimeException e) {
+            throw discardPending(e);
+        }
+    }
+
+    /**
+     * Forgets the primitives which are not registered yet, as an error makes reading fail.
+     * @param e the error
+     * @return {@code e}
+     */
+    private <T extends Exception> T discardPending(T e) {
+        pending.clear();
+        batch.clear();
+        return e;
+    }
+
+    private void register(PrimitiveData data, Converted c) {
+        externalIdMap.put(data.getPrimitiveId(), c.primitive);
+        if (c.nodeIds != null) {
+            ways.put(data.getUniqueId(), c.nodeIds);
+        } else if (c.members != null) {
+            relations.put(data.getUniqueId(), c.members);
+        }
+    }
+
+    private static PrimitiveData readData(PrimitiveRecord record) throws XMLStreamException {
+        PrimitiveData data;
+        switch (record.type) {
+        case NODE:
+            return readNodeData(record, record.apiVersion);
+        case WAY:
+            data = new WayData();
+            break;
+        default:
+            data = new RelationData();
+        }
+        readCommon(record, data, record.apiVersion);
+        return data;
+    }
+
+    private static Converted convert(PrimitiveRecord record) throws XMLStreamException {
+        PrimitiveData data = record.data;
+        OsmPrimitive p;
+        switch (record.type) {
+        case NODE:
+            p = new Node(data.getId(), data.getVersion());
+            break;
+        case WAY:
+            p = new Way(data.getId(), data.getVersion());
+            break;
+        default:
+            p = new Relation(data.getId(), data.getVersion());
+        }
+        p.setVisible(data.isVisible());
+        p.load(data);
+        List<Long> nodeIds = record.type == OsmPrimitiveType.WAY ? new ArrayList<>(record.children.size()) : null;
+        List<RelationMemberData> members = record.type == OsmPrimitiveType.RELATION ? new ArrayList<>(record.children.size()) : null;
+        for (ElementAttributes child : record.children) {
+            if ("tag".equals(child.name)) {
+                String key = child.getAttributeValue("k");
+                String value = child.getAttributeValue("v");
+                if (key == null || value == null) {
+                    throwException(child, tr("Missing key or value attribute in tag."));
+                } else {
+                    p.put(TagStringPool.intern(key), TagStringPool.intern(value));
+                }
+            } else if (nodeIds != null) {
+                nodeIds.add(readWayNodeId(child, p.getUniqueId()));
+            } else if (members != null) {
+                members.add(readRelationMember(child, p.getUniqueId()));
+            }
+        }
+        if (p.isDeleted() && nodeIds != null && !nodeIds.isEmpty()) {
+            Main.info(tr("Deleted way {0} contains nodes", p.getUniqueId()));
+            nodeIds = new ArrayList<>();
+        }
+        if (p.isDeleted() && members != null && !members.isEmpty()) {
+            Main.info(tr("Deleted relation {0} contains members", p.getUniqueId()));
+            members = new ArrayList<>();
+        }
+        return new Converted(p, nodeIds, members);
+    }
+
+    /**
+     * Parse the given input source and return the dataset, using the number of threads given by {@link #THREADS}.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link org.openstreetmap.josm.gui.progress.NullProgressMonitor#INSTANCE}
+     * is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return parseDataSet(source, progressMonitor, THREADS.get());
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link org.openstreetmap.josm.gui.progress.NullProgressMonitor#INSTANCE}
+     * is assumed
+     * @param threads the number of worker threads. If it is less than 2, the data is read by {@link OsmReader}
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor, int threads) throws IllegalDataException {
+        if (threads < 2) {
+            return OsmReader.parseDataSet(source, progressMonitor);
+        }
+        return new ParallelOsmReader(threads).doParseDataSet(source, progressMonitor);
+    }
+}
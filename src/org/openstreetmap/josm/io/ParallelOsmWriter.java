@@ -0,0 +1,257 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.preferences.IntegerProperty;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Saves a data layer to a .osm file (optionally compressed) using several threads.
+ * <p>
+ * The primitives are split into chunks which are serialized to byte arrays by worker threads, each chunk with its own
+ * {@link OsmWriter} created by {@link OsmWriterFactory}. The calling thread writes the chunks in order to a
+ * {@link FileChannel}. If the file is compressed, compression runs on a separate thread fed by a bounded queue.
+ * At most a few chunks per thread are kept in memory, so that memory usage does not grow with the size of the layer
+ * (apart from the sorted arrays of primitive references).
+ * <p>
+ * The written file is identical to the one written by {@link OsmWriter#writeLayer(OsmDataLayer)}, as long as
+ * {@link OsmWriterFactory} creates plain {@link OsmWriter} instances, see {@link #isSupported()}.
+ * @since xxx
+ */
+public class ParallelOsmWriter {
+
+    /**
+     * The number of threads used to write OSM files. If it is less than 2 (the default), files are written by a single
+     * thread with the writer created by {@link OsmWriterFactory}.
+     */
+    public static final IntegerProperty THREADS = new IntegerProperty("osm.writer.threads", 1);
+
+    private static final int CHUNK_SIZE = 2000;
+    private static final byte[] END = new byte[0];
+
+    private final int threads;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private ExecutorService executor;
+    private Consumer<byte[]> sink;
+    /** An error of the file output, which is rethrown by the calling thread */
+    private volatile IOException sinkError;
+
+    /**
+     * Constructs a new {@code ParallelOsmWriter}.
+     * @param threads the number of serializing threads. If it is less than 2, chunks are serialized by the calling thread
+     */
+    public ParallelOsmWriter(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Determines if files can be written by this class. Each chunk is serialized with the individual methods of
+     * {@link OsmWriter} instead of {@link OsmWriter#writeLayer(OsmDataLayer)}, so this class must not be used when a
+     * plugin installed its own {@link OsmWriterFactory}, whose writers may override these methods.
+     * @return {@code true} if the default {@link OsmWriterFactory} is used
+     */
+    public static boolean isSupported() {
+        OsmWriterFactory factory = OsmWriterFactory.theFactory;
+        return factory == null || factory.getClass() == OsmWriterFactory.class;
+    }
+
+    /**
+     * Writes the given layer to the given file. The file is compressed according to its extension,
+     * see {@link Compression#byExtension(String)}.
+     * @param layer the layer to write. Its data set should be locked by the caller
+     * @param file the file
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeLayer(OsmDataLayer layer, File file) throws IOException {
+        Compression compression = Compression.byExtension(file.getName());
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (compression == Compression.NONE) {
+                write(layer, bytes -> writeFully(channel, bytes));
+                checkSinkError();
+            } else {
+                writeCompressed(layer, compression.getCompressedOutputStream(Channels.newOutputStream(channel)));
+            }
+        }
+    }
+
+    private void writeFully(FileChannel channel, byte[] bytes) {
+        if (sinkError != null)
+            return;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            sinkError = e;
+        }
+    }
+
+    private void checkSinkError() throws IOException {
+        if (sinkError != null)
+            throw sinkError;
+    }
+
+    private void writeCompressed(OsmDataLayer layer, OutputStream compressed) throws IOException {
+        BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(2 * threads);
+        Thread compressor = new Thread(() -> {
+            try (OutputStream out = compressed) {
+                for (byte[] bytes = queue.take(); bytes != END; bytes = queue.take()) {
+                    // keep draining the queue after an error, so that the calling thread never blocks
+                    if (sinkError == null) {
+                        out.write(bytes);
+                    }
+                }
+            } catch (IOException e) {
+                sinkError = e;
+            } catch (InterruptedException e) {
+                sinkError = new InterruptedIOException();
+                Thread.currentThread().interrupt();
+            }
+        }, "osm-writer-compression");
+        compressor.start();
+        try {
+            write(layer, bytes -> {
+                try {
+                    queue.put(bytes);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            try {
+                queue.put(END);
+                compressor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        checkSinkError();
+    }
+
+    private void write(OsmDataLayer layer, Consumer<byte[]> chunkSink) throws IOException {
+        sink = chunkSink;
+        DataSet ds = layer.data;
+        String v = ds.getVersion();
+        if (threads > 1) {
+            executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("osm-writer-%d", Thread.NORM_PRIORITY));
+        }
+        try {
+            submit(() -> serialize(v, w -> {
+                w.header(!layer.isUploadDiscouraged());
+                w.writeDataSources(ds);
+            }));
+            for (List<Node> chunk : chunks(ds.getNodes())) {
+                submit(() -> serialize(v, w -> w.writeNodes(chunk)));
+            }
+            for (List<Way> chunk : chunks(ds.getWays())) {
+                submit(() -> serialize(v, w -> w.writeWays(chunk)));
+            }
+            for (List<Relation> chunk : chunks(ds.getRelations())) {
+                submit(() -> serialize(v, w -> w.writeRelations(chunk)));
+            }
+            submit(() -> serialize(v, OsmWriter::footer));
+            while (!pending.isEmpty()) {
+                writeFirstPending();
+            }
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+            if (executor != null) {
+                executor.shutdownNow();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Sorts the primitives as {@link OsmWriter} does, and splits them into chunks.
+     */
+    private static <T extends OsmPrimitive> List<List<T>> chunks(Collection<T> primitives) {
+        List<T> sorted = new ArrayList<>(primitives);
+        sorted.sort(OsmWriter.byIdComparator);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i += CHUNK_SIZE) {
+            chunks.add(sorted.subList(i, Math.min(sorted.size(), i + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    private static byte[] serialize(String version, Consumer<OsmWriter> content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * CHUNK_SIZE);
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8)), false, version)) {
+            content.accept(w);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void submit(Callable<byte[]> chunk) throws IOException {
+        if (executor == null) {
+            try {
+                sink.accept(chunk.call());
+                checkSinkError();
+            } catch (IOException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            return;
+        }
+        pending.addLast(executor.submit(chunk));
+        // write the chunks which are done, and limit the number of chunks kept in memory
+        while (!pending.isEmpty() && (pending.peekFirst().isDone() || pending.size() > 2 * threads)) {
+            writeFirstPending();
+        }
+    }
+
+    private void writeFirstPending() throws IOException {
+        try {
+            sink.accept(pending.removeFirst().get());
+            checkSinkError();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+    }
+}
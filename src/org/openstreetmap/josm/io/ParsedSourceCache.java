@@ -0,0 +1,177 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Version;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * A disk cache for the parsed form of sources such as tagging presets and map paint styles, so that they do not have
+ * to be parsed again at the next start.
+ * <p>
+ * A cache entry is only used if the source URL, the modification time of the source (see
+ * {@link CachedFile#getLastModified()}), the JOSM version and the modification time of the parser class are the same
+ * as when the entry was written. The format of the cached data is up to the caller, it is written with
+ * {@link #write} and read back with {@link #read}.
+ * <p>
+ * The cache can be disabled with the {@code cache.parsed-sources} preference.
+ * @since xxx
+ */
+public class ParsedSourceCache {
+
+    private static final int MAGIC = 0x4a505343; // "JPSC"
+
+    /**
+     * Writes the parsed form of a source.
+     */
+    @FunctionalInterface
+    public interface DataWriter {
+        /**
+         * Writes the parsed form of a source.
+         * @param out the output stream
+         * @throws IOException if an I/O error occurs
+         */
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private final String name;
+    private final Class<?> parserClass;
+    private volatile long parserTimestamp = -1;
+
+    /**
+     * Constructs a new {@code ParsedSourceCache}.
+     * @param name the name of the cache, used as directory name
+     * @param parserClass the class producing the cached data. The cache entries are discarded if it changes.
+     */
+    public ParsedSourceCache(String name, Class<?> parserClass) {
+        this.name = name;
+        this.parserClass = parserClass;
+    }
+
+    /**
+     * Determines if the cache is enabled.
+     * @return {@code true} if the cache is enabled
+     */
+    public static boolean isEnabled() {
+        return Main.pref.getBoolean("cache.parsed-sources", true);
+    }
+
+    /**
+     * Opens the cached data of a source.
+     * @param source the source URL, with the path of the zip entry if any
+     * @param file the source file
+     * @return the cached data, positioned after the header, or {@code null} if the cache is disabled, or if there is
+     * no valid cache entry for this source. The caller must close the stream.
+     */
+    public DataInputStream read(String source, CachedFile file) {
+        if (!isEnabled())
+            return null;
+        File cacheFile = getCacheFile(source);
+        if (!cacheFile.isFile())
+            return null;
+        DataInputStream in = null;
+        try {
+            long lastModified = file.getLastModified();
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath()), 65536));
+            if (in.readInt() == MAGIC
+                    && source.equals(in.readUTF())
+                    && in.readLong() == lastModified
+                    && getVersion().equals(in.readUTF())
+                    && in.readLong() == getParserTimestamp()) {
+                return in;
+            }
+        } catch (IOException e) {
+            Main.warn(e, "Cannot read cache " + cacheFile);
+        }
+        Utils.close(in);
+        return null;
+    }
+
+    /**
+     * Writes the cached data of a source. Failures are only logged, since the data can be parsed again.
+     * @param source the source URL, with the path of the zip entry if any
+     * @param lastModified the modification time of the source before it was parsed, see
+     * {@link CachedFile#getLastModified()}
+     * @param writer writes the data
+     */
+    public void write(String source, long lastModified, DataWriter writer) {
+        if (!isEnabled())
+            return;
+        File cacheFile = getCacheFile(source);
+        File tmpFile = new File(cacheFile + "_tmp");
+        try {
+            if (!cacheFile.getParentFile().isDirectory()) {
+                Utils.mkDirs(cacheFile.getParentFile());
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath()), 65536))) {
+                out.writeInt(MAGIC);
+                out.writeUTF(source);
+                out.writeLong(lastModified);
+                out.writeUTF(getVersion());
+                out.writeLong(getParserTimestamp());
+                writer.write(out);
+            }
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Main.warn(e, "Cannot write cache " + cacheFile);
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                Main.warn("Cannot delete " + tmpFile);
+            }
+        }
+    }
+
+    /**
+     * Deletes the cached data of a source, e.g. because it cannot be read.
+     * @param source the source URL, with the path of the zip entry if any
+     */
+    public void remove(String source) {
+        File cacheFile = getCacheFile(source);
+        if (cacheFile.exists()) {
+            Utils.deleteFile(cacheFile);
+        }
+    }
+
+    private File getCacheFile(String source) {
+        return new File(new File(new File(Main.pref.getCacheDirectory(), "parsed"), name), Utils.md5Hex(source) + ".bin");
+    }
+
+    private static String getVersion() {
+        Version version = Version.getInstance();
+        return version.getVersionString() + ' ' + version.getTime();
+    }
+
+    /**
+     * Returns the modification time of the parser class, so that the cache entries written by development builds
+     * with the same version are discarded when the parser changes.
+     * @return the modification time of the parser class, or 0 if unknown
+     */
+    private long getParserTimestamp() {
+        if (parserTimestamp < 0) {
+            long timestamp = 0;
+            URL url = parserClass.getResource(parserClass.getSimpleName() + ".class");
+            if (url != null) {
+                try {
+                    URLConnection connection = url.openConnection();
+                    connection.setUseCaches(false);
+                    timestamp = connection.getLastModified();
+                    Utils.close(connection.getInputStream());
+                } catch (IOException e) {
+                    Main.trace(e);
+                }
+            }
+            parserTimestamp = timestamp;
+        }
+        return parserTimestamp;
+    }
+}
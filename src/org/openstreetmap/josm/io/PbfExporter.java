@@ -0,0 +1,50 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.openstreetmap.josm.gui.layer.Layer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+
+/**
+ * Exports OSM data to a .osm.pbf file.
+ * <p>
+ * Unlike .osm files, .osm.pbf files do not keep track of modified and deleted primitives, see {@link PbfWriter}.
+ * The data is only exported: the layer is not considered as saved, and the file does not become its associated file.
+ * @since xxx
+ */
+public class PbfExporter extends FileExporter {
+
+    /**
+     * Constructs a new {@code PbfExporter}.
+     */
+    public PbfExporter() {
+        super(PbfImporter.FILE_FILTER);
+    }
+
+    @Override
+    public boolean acceptFile(File pathname, Layer layer) {
+        return layer instanceof OsmDataLayer && super.acceptFile(pathname, layer);
+    }
+
+    @Override
+    public void exportData(File file, Layer layer) throws IOException {
+        if (!(layer instanceof OsmDataLayer)) {
+            throw new IllegalArgumentException(tr("Layer ''{0}'' not supported", layer.getClass().toString()));
+        }
+        OsmDataLayer dataLayer = (OsmDataLayer) layer;
+        try (PbfWriter w = new PbfWriter(new BufferedOutputStream(Files.newOutputStream(file.toPath())))) {
+            dataLayer.data.getReadLock().lock();
+            try {
+                w.write(dataLayer.data);
+            } finally {
+                dataLayer.data.getReadLock().unlock();
+            }
+        }
+    }
+}
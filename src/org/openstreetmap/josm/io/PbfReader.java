@@ -0,0 +1,783 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.NodeData;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveData;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationData;
+import org.openstreetmap.josm.data.osm.RelationMemberData;
+import org.openstreetmap.josm.data.osm.TagMap;
+import org.openstreetmap.josm.data.osm.TagStringPool;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.WayData;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.tools.CheckParameterUtil;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Reader for the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">OSM PBF format</a>.
+ * <p>
+ * The file is read block by block. The data blocks are decompressed and decoded by several threads
+ * (see {@link ParallelOsmReader#THREADS}), and the decoded primitives are added in file order, so that the result
+ * does not depend on the number of threads.
+ * @since xxx
+ */
+public class PbfReader extends AbstractReader {
+
+    /** Maximum size of a {@code BlobHeader}, as defined by the format */
+    static final int MAX_HEADER_SIZE = 64 * 1024;
+    /** Maximum size of a {@code Blob}, as defined by the format */
+    static final int MAX_BLOB_SIZE = 32 * 1024 * 1024;
+
+    /** Features which must be supported to read a file, see {@code HeaderBlock.required_features} */
+    private static final Set<String> SUPPORTED_FEATURES = new HashSet<>(Arrays.asList("OsmSchema-V0.6", "DenseNodes"));
+
+    private final int threads;
+    private final Deque<Future<List<Entity>>> pending = new ArrayDeque<>();
+    private ExecutorService executor;
+    private boolean headerRead;
+
+    protected boolean cancel;
+
+    /**
+     * A primitive read from a data block.
+     */
+    private static final class Entity {
+        final PrimitiveData data;
+        /** the primitive, {@code null} for new primitives which are created in file order */
+        OsmPrimitive primitive;
+        Collection<Long> nodeIds;
+        Collection<RelationMemberData> members;
+
+        Entity(PrimitiveData data) {
+            this.data = data;
+        }
+    }
+
+    /**
+     * Constructs a new {@code PbfReader}.
+     * @param threads the number of threads decoding data blocks
+     * @see #parseDataSet(InputStream, ProgressMonitor)
+     */
+    protected PbfReader(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Reads all blocks of the file.
+     * @param source the source input stream
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalDataException if the file is not a valid PBF file or uses unsupported features
+     */
+    protected void parse(InputStream source) throws IOException, IllegalDataException {
+        DataInputStream in = new DataInputStream(source);
+        if (threads > 1) {
+            executor = Executors.newFixedThreadPool(threads, Utils.newThreadFactory("pbf-reader-%d", Thread.NORM_PRIORITY));
+        }
+        try {
+            while (true) {
+                int headerSize;
+                try {
+                    headerSize = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (cancel) {
+                    throw new IllegalDataException(tr("Reading was canceled"), new PbfParsingCanceledException());
+                }
+                if (headerSize <= 0 || headerSize > MAX_HEADER_SIZE)
+                    throw new IllegalDataException(tr("Invalid PBF blob header size: {0}", headerSize));
+                byte[] header = new byte[headerSize];
+                in.readFully(header);
+                String type = null;
+                long dataSize = -1;
+                ProtobufInput blobHeader = new ProtobufInput(header, 0, header.length);
+                while (blobHeader.hasNext()) {
+                    switch (blobHeader.readField()) {
+                    case 1:
+                        type = blobHeader.readString();
+                        break;
+                    case 3:
+                        dataSize = blobHeader.readVarint();
+                        break;
+                    default:
+                        blobHeader.skip();
+                    }
+                }
+                if (type == null || dataSize < 0 || dataSize > MAX_BLOB_SIZE)
+                    throw new IllegalDataException(tr("Invalid PBF blob header"));
+                final byte[] blob = new byte[(int) dataSize];
+                in.readFully(blob);
+                if ("OSMHeader".equals(type)) {
+                    parseHeaderBlock(decompress(blob));
+                } else if ("OSMData".equals(type)) {
+                    if (!headerRead)
+                        throw new IllegalDataException(tr("PBF data block found before header block"));
+                    submit(() -> parsePrimitiveBlock(decompress(blob)));
+                }
+                // other blob types may be skipped, according to the specification
+            }
+            while (!pending.isEmpty()) {
+                register(pending.removeFirst());
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private void submit(Callable<List<Entity>> task) throws IllegalDataException {
+        if (executor == null) {
+            try {
+                register(task.call());
+            } catch (IllegalDataException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalDataException(e);
+            }
+            return;
+        }
+        pending.addLast(executor.submit(task));
+        // register the blocks which are done, and limit the number of blocks kept in memory
+        while (!pending.isEmpty() && (pending.peekFirst().isDone() || pending.size() > 2 * threads)) {
+            register(pending.removeFirst());
+        }
+    }
+
+    private void register(Future<List<Entity>> future) throws IllegalDataException {
+        try {
+            register(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalDataException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalDataException)
+                throw (IllegalDataException) e.getCause();
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalDataException(e.getCause());
+        }
+    }
+
+    private void register(List<Entity> entities) {
+        for (Entity e : entities) {
+            if (e.primitive == null) {
+                e.primitive = createPrimitive(e.data);
+            }
+            externalIdMap.put(e.data.getPrimitiveId(), e.primitive);
+            if (e.nodeIds != null) {
+                ways.put(e.data.getUniqueId(), e.nodeIds);
+            } else if (e.members != null) {
+                relations.put(e.data.getUniqueId(), e.members);
+            }
+        }
+    }
+
+    private static OsmPrimitive createPrimitive(PrimitiveData data) {
+        OsmPrimitive p;
+        switch (data.getType()) {
+        case NODE:
+            p = new Node(data.getId(), data.getVersion());
+            break;
+        case WAY:
+            p = new Way(data.getId(), data.getVersion());
+            break;
+        default:
+            p = new Relation(data.getId(), data.getVersion());
+        }
+        p.setVisible(data.isVisible());
+        p.load(data);
+        return p;
+    }
+
+    /**
+     * Decompresses a {@code Blob}.
+     * @param blob the blob
+     * @return the decompressed data
+     * @throws IllegalDataException if the blob is invalid or uses an unsupported compression
+     */
+    static byte[] decompress(byte[] blob) throws IllegalDataException {
+        ProtobufInput in = new ProtobufInput(blob, 0, blob.length);
+        byte[] raw = null;
+        byte[] zlib = null;
+        long rawSize = -1;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                raw = in.readBytes();
+                break;
+            case 2:
+                rawSize = in.readVarint();
+                break;
+            case 3:
+                zlib = in.readBytes();
+                break;
+            case 4:
+            case 5:
+            case 6:
+            case 7:
+                throw new IllegalDataException(tr("Unsupported compression of PBF blob. Only zlib is supported."));
+            default:
+                in.skip();
+            }
+        }
+        if (raw != null)
+            return raw;
+        if (zlib == null || rawSize < 0 || rawSize > MAX_BLOB_SIZE)
+            throw new IllegalDataException(tr("Invalid PBF blob"));
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib);
+            byte[] data = new byte[(int) rawSize];
+            int length = inflater.inflate(data);
+            if (length != rawSize || !inflater.finished())
+                throw new IllegalDataException(tr("Invalid PBF blob"));
+            return data;
+        } catch (DataFormatException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void parseHeaderBlock(byte[] block) throws IllegalDataException {
+        ProtobufInput in = new ProtobufInput(block, 0, block.length);
+        Bounds bounds = null;
+        String writingProgram = null;
+        String source = null;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                bounds = parseBBox(in.readMessage());
+                break;
+            case 4:
+                String feature = in.readString();
+                if (!SUPPORTED_FEATURES.contains(feature))
+                    throw new IllegalDataException(tr("PBF file requires unsupported feature ''{0}''", feature));
+                break;
+            case 16:
+                writingProgram = in.readString();
+                break;
+            case 17:
+                source = in.readString();
+                break;
+            default:
+                in.skip();
+            }
+        }
+        ds.setVersion("0.6");
+        if (bounds != null) {
+            ds.dataSources.add(new DataSource(bounds, source != null ? source : writingProgram));
+        }
+        headerRead = true;
+    }
+
+    private static Bounds parseBBox(ProtobufInput in) throws IllegalDataException {
+        double left = 0;
+        double right = 0;
+        double top = 0;
+        double bottom = 0;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                left = in.readSignedVarint() / 1e9;
+                break;
+            case 2:
+                right = in.readSignedVarint() / 1e9;
+                break;
+            case 3:
+                top = in.readSignedVarint() / 1e9;
+                break;
+            case 4:
+                bottom = in.readSignedVarint() / 1e9;
+                break;
+            default:
+                in.skip();
+            }
+        }
+        return new Bounds(bottom, left, top, right);
+    }
+
+    /**
+     * The context needed to decode the primitives of a {@code PrimitiveBlock}.
+     */
+    private static final class PrimitiveBlock {
+        String[] strings = {""};
+        long granularity = 100;
+        long latOffset;
+        long lonOffset;
+        long dateGranularity = 1000;
+        final List<Entity> entities = new ArrayList<>();
+
+        String getString(long index) throws IllegalDataException {
+            if (index < 0 || index >= strings.length)
+                throw new IllegalDataException(tr("Invalid string index in PBF block: {0}", index));
+            return strings[(int) index];
+        }
+
+        LatLon getCoor(long lat, long lon) {
+            return new LatLon((latOffset + granularity * lat) / 1e9, (lonOffset + granularity * lon) / 1e9);
+        }
+
+        TagMap getTags(long[] keys, long[] values) throws IllegalDataException {
+            if (keys.length != values.length)
+                throw new IllegalDataException(tr("Invalid tags in PBF block"));
+            String[] tags = new String[2 * keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                tags[2 * i] = getString(keys[i]);
+                tags[2 * i + 1] = getString(values[i]);
+            }
+            return new TagMap(tags);
+        }
+
+        void setInfo(PrimitiveData data, long version, long timestamp, long changeset, long uid, long userIndex, boolean visible)
+                throws IllegalDataException {
+            data.setVersion(data.isNew() || version < 0 ? 0 : (int) version);
+            data.setRawTimestamp((int) (timestamp * dateGranularity / 1000));
+            if (changeset > 0 && changeset <= Integer.MAX_VALUE && !data.isNew()) {
+                data.setChangesetId((int) changeset);
+            }
+            String name = getString(userIndex);
+            if (uid > 0) {
+                data.setUser(User.createOsmUser(uid, name));
+            } else if (!name.isEmpty()) {
+                data.setUser(User.createLocalUser(name));
+            }
+            data.setVisible(visible);
+        }
+
+        void add(PrimitiveData data) throws IllegalDataException {
+            if (data.getUniqueId() == 0)
+                throw new IllegalDataException(tr("Illegal object with ID=0."));
+            Entity e = new Entity(data);
+            // new primitives get their unique ids on creation, create them in file order
+            if (!data.isNew()) {
+                e.primitive = createPrimitive(data);
+            }
+            entities.add(e);
+        }
+    }
+
+    private static List<Entity> parsePrimitiveBlock(byte[] bytes) throws IllegalDataException {
+        ProtobufInput in = new ProtobufInput(bytes, 0, bytes.length);
+        PrimitiveBlock block = new PrimitiveBlock();
+        List<ProtobufInput> groups = new ArrayList<>();
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                ProtobufInput table = in.readMessage();
+                List<String> strings = new ArrayList<>();
+                while (table.hasNext()) {
+                    if (table.readField() == 1) {
+                        strings.add(TagStringPool.intern(table.readString()));
+                    } else {
+                        table.skip();
+                    }
+                }
+                block.strings = strings.toArray(new String[strings.size()]);
+                break;
+            case 2:
+                groups.add(in.readMessage());
+                break;
+            case 17:
+                block.granularity = in.readVarint();
+                break;
+            case 18:
+                block.dateGranularity = in.readVarint();
+                break;
+            case 19:
+                block.latOffset = in.readVarint();
+                break;
+            case 20:
+                block.lonOffset = in.readVarint();
+                break;
+            default:
+                in.skip();
+            }
+        }
+        for (ProtobufInput group : groups) {
+            while (group.hasNext()) {
+                switch (group.readField()) {
+                case 1:
+                    parseNode(block, group.readMessage());
+                    break;
+                case 2:
+                    parseDenseNodes(block, group.readMessage());
+                    break;
+                case 3:
+                    parseWay(block, group.readMessage());
+                    break;
+                case 4:
+                    parseRelation(block, group.readMessage());
+                    break;
+                default:
+                    group.skip();
+                }
+            }
+        }
+        return block.entities;
+    }
+
+    private static void parseNode(PrimitiveBlock block, ProtobufInput in) throws IllegalDataException {
+        NodeData nd = new NodeData();
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        ProtobufInput info = null;
+        long lat = 0;
+        long lon = 0;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                nd.setId(in.readSignedVarint());
+                break;
+            case 2:
+                keys = concat(keys, in.readVarints());
+                break;
+            case 3:
+                values = concat(values, in.readVarints());
+                break;
+            case 4:
+                info = in.readMessage();
+                break;
+            case 8:
+                lat = in.readSignedVarint();
+                break;
+            case 9:
+                lon = in.readSignedVarint();
+                break;
+            default:
+                in.skip();
+            }
+        }
+        nd.setCoor(block.getCoor(lat, lon));
+        nd.setKeys(block.getTags(keys, values));
+        parseInfo(block, nd, info);
+        block.add(nd);
+    }
+
+    private static void parseDenseNodes(PrimitiveBlock block, ProtobufInput in) throws IllegalDataException {
+        long[] ids = new long[0];
+        long[] lats = new long[0];
+        long[] lons = new long[0];
+        long[] keysVals = null;
+        long[][] info = null;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                ids = concat(ids, in.readVarints());
+                break;
+            case 5:
+                info = parseDenseInfo(in.readMessage());
+                break;
+            case 8:
+                lats = concat(lats, in.readVarints());
+                break;
+            case 9:
+                lons = concat(lons, in.readVarints());
+                break;
+            case 10:
+                keysVals = concat(keysVals, in.readVarints());
+                break;
+            default:
+                in.skip();
+            }
+        }
+        int count = ids.length;
+        if (lats.length != count || lons.length != count || (info != null && !hasLength(info, count)))
+            throw new IllegalDataException(tr("Invalid dense nodes in PBF block"));
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        long timestamp = 0;
+        long changeset = 0;
+        long uid = 0;
+        long userIndex = 0;
+        int keyIndex = 0;
+        for (int i = 0; i < count; i++) {
+            id += ProtobufInput.decodeZigzag(ids[i]);
+            lat += ProtobufInput.decodeZigzag(lats[i]);
+            lon += ProtobufInput.decodeZigzag(lons[i]);
+            NodeData nd = new NodeData();
+            nd.setId(id);
+            nd.setCoor(block.getCoor(lat, lon));
+            if (keysVals != null) {
+                List<String> tags = new ArrayList<>();
+                while (keyIndex < keysVals.length && keysVals[keyIndex] != 0) {
+                    if (keyIndex + 1 >= keysVals.length)
+                        throw new IllegalDataException(tr("Invalid tags in PBF block"));
+                    tags.add(block.getString(keysVals[keyIndex++]));
+                    tags.add(block.getString(keysVals[keyIndex++]));
+                }
+                keyIndex++;
+                if (!tags.isEmpty()) {
+                    nd.setKeys(new TagMap(tags.toArray(new String[tags.size()])));
+                }
+            }
+            if (info != null) {
+                timestamp += ProtobufInput.decodeZigzag(info[1][i]);
+                changeset += ProtobufInput.decodeZigzag(info[2][i]);
+                uid += ProtobufInput.decodeZigzag(info[3][i]);
+                userIndex += ProtobufInput.decodeZigzag(info[4][i]);
+                block.setInfo(nd, (int) info[0][i], timestamp, changeset, uid, userIndex, info[5].length == 0 || info[5][i] != 0);
+            }
+            block.add(nd);
+        }
+    }
+
+    private static boolean hasLength(long[][] info, int count) {
+        for (int i = 0; i < 5; i++) {
+            if (info[i].length != count)
+                return false;
+        }
+        return info[5].length == 0 || info[5].length == count;
+    }
+
+    /**
+     * Reads a {@code DenseInfo} message.
+     * @param in the message
+     * @return the (delta and zigzag encoded) versions, timestamps, changesets, uids, user names and visible flags
+     * @throws IllegalDataException if the message is malformed
+     */
+    private static long[][] parseDenseInfo(ProtobufInput in) throws IllegalDataException {
+        long[][] info = new long[6][0];
+        while (in.hasNext()) {
+            int field = in.readField();
+            if (field >= 1 && field <= 6) {
+                info[field - 1] = concat(info[field - 1], in.readVarints());
+            } else {
+                in.skip();
+            }
+        }
+        return info;
+    }
+
+    private static void parseWay(PrimitiveBlock block, ProtobufInput in) throws IllegalDataException {
+        WayData wd = new WayData();
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        long[] refs = new long[0];
+        ProtobufInput info = null;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                wd.setId(in.readVarint());
+                break;
+            case 2:
+                keys = concat(keys, in.readVarints());
+                break;
+            case 3:
+                values = concat(values, in.readVarints());
+                break;
+            case 4:
+                info = in.readMessage();
+                break;
+            case 8:
+                refs = concat(refs, in.readVarints());
+                break;
+            default:
+                in.skip();
+            }
+        }
+        wd.setKeys(block.getTags(keys, values));
+        parseInfo(block, wd, info);
+        Collection<Long> nodeIds = new ArrayList<>(refs.length);
+        long ref = 0;
+        for (long delta : refs) {
+            ref += ProtobufInput.decodeZigzag(delta);
+            if (ref == 0)
+                throw new IllegalDataException(tr("Illegal value of attribute ''ref'' of element <nd>. Got {0}.", ref));
+            nodeIds.add(ref);
+        }
+        block.add(wd);
+        block.entities.get(block.entities.size() - 1).nodeIds = nodeIds;
+    }
+
+    private static void parseRelation(PrimitiveBlock block, ProtobufInput in) throws IllegalDataException {
+        RelationData rd = new RelationData();
+        long[] keys = new long[0];
+        long[] values = new long[0];
+        long[] roles = new long[0];
+        long[] memberIds = new long[0];
+        long[] types = new long[0];
+        ProtobufInput info = null;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                rd.setId(in.readVarint());
+                break;
+            case 2:
+                keys = concat(keys, in.readVarints());
+                break;
+            case 3:
+                values = concat(values, in.readVarints());
+                break;
+            case 4:
+                info = in.readMessage();
+                break;
+            case 8:
+                roles = concat(roles, in.readVarints());
+                break;
+            case 9:
+                memberIds = concat(memberIds, in.readVarints());
+                break;
+            case 10:
+                types = concat(types, in.readVarints());
+                break;
+            default:
+                in.skip();
+            }
+        }
+        if (roles.length != memberIds.length || types.length != memberIds.length)
+            throw new IllegalDataException(tr("Invalid relation members in PBF block"));
+        rd.setKeys(block.getTags(keys, values));
+        parseInfo(block, rd, info);
+        Collection<RelationMemberData> members = new ArrayList<>(memberIds.length);
+        long memberId = 0;
+        for (int i = 0; i < memberIds.length; i++) {
+            memberId += ProtobufInput.decodeZigzag(memberIds[i]);
+            if (memberId == 0)
+                throw new IllegalDataException(tr("Incomplete <member> specification with ref=0"));
+            OsmPrimitiveType type;
+            switch ((int) types[i]) {
+            case 0:
+                type = OsmPrimitiveType.NODE;
+                break;
+            case 1:
+                type = OsmPrimitiveType.WAY;
+                break;
+            case 2:
+                type = OsmPrimitiveType.RELATION;
+                break;
+            default:
+                throw new IllegalDataException(tr("Invalid relation member type in PBF block: {0}", types[i]));
+            }
+            members.add(new RelationMemberData(block.getString(roles[i]), type, memberId));
+        }
+        block.add(rd);
+        block.entities.get(block.entities.size() - 1).members = members;
+    }
+
+    private static void parseInfo(PrimitiveBlock block, PrimitiveData data, ProtobufInput in) throws IllegalDataException {
+        if (in == null)
+            return;
+        long version = -1;
+        long timestamp = 0;
+        long changeset = 0;
+        long uid = 0;
+        long userIndex = 0;
+        boolean visible = true;
+        while (in.hasNext()) {
+            switch (in.readField()) {
+            case 1:
+                version = (int) in.readVarint();
+                break;
+            case 2:
+                timestamp = in.readVarint();
+                break;
+            case 3:
+                changeset = in.readVarint();
+                break;
+            case 4:
+                uid = (int) in.readVarint();
+                break;
+            case 5:
+                userIndex = in.readVarint();
+                break;
+            case 6:
+                visible = in.readVarint() != 0;
+                break;
+            default:
+                in.skip();
+            }
+        }
+        block.setInfo(data, version, timestamp, changeset, uid, userIndex, visible);
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        if (a == null || a.length == 0)
+            return b;
+        long[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Exception thrown after user cancelation.
+     */
+    private static final class PbfParsingCanceledException extends Exception implements ImportCancelException {
+        PbfParsingCanceledException() {
+            super(tr("Reading was canceled"));
+        }
+    }
+
+    protected DataSet doParseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        if (progressMonitor == null) {
+            progressMonitor = NullProgressMonitor.INSTANCE;
+        }
+        ProgressMonitor.CancelListener cancelListener = () -> cancel = true;
+        progressMonitor.addCancelListener(cancelListener);
+        CheckParameterUtil.ensureParameterNotNull(source, "source");
+        try {
+            progressMonitor.beginTask(tr("Prepare OSM data..."), 2);
+            progressMonitor.indeterminateSubTask(tr("Parsing OSM data..."));
+            parse(source);
+            progressMonitor.worked(1);
+
+            progressMonitor.indeterminateSubTask(tr("Preparing data set..."));
+            prepareDataSet();
+            progressMonitor.worked(1);
+            return getDataSet();
+        } catch (IOException e) {
+            throw new IllegalDataException(e);
+        } finally {
+            progressMonitor.finishTask();
+            progressMonitor.removeCancelListener(cancelListener);
+        }
+    }
+
+    /**
+     * Parse the given input source and return the dataset.
+     *
+     * @param source the source input stream. Must not be null.
+     * @param progressMonitor the progress monitor. If null, {@link NullProgressMonitor#INSTANCE} is assumed
+     *
+     * @return the dataset with the parsed data
+     * @throws IllegalDataException if an error was found while parsing the data from the source
+     * @throws IllegalArgumentException if source is null
+     */
+    public static DataSet parseDataSet(InputStream source, ProgressMonitor progressMonitor) throws IllegalDataException {
+        return new PbfReader(ParallelOsmReader.THREADS.get()).doParseDataSet(source, progressMonitor);
+    }
+}
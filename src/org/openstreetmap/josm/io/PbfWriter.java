@@ -0,0 +1,368 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.User;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Writes OSM data in the <a href="https://wiki.openstreetmap.org/wiki/PBF_Format">OSM PBF format</a>.
+ * <p>
+ * Nodes are written as dense nodes, every block has its own string table and is compressed with zlib.
+ * Coordinates are stored with the default granularity of 100 nanodegrees, the precision of the OSM database.
+ * <p>
+ * The format has no equivalent of the {@code action} attribute of .osm files: deleted and incomplete primitives are not
+ * written, and modified primitives are written like unmodified ones. New primitives keep their negative ids.
+ * @since xxx
+ */
+public class PbfWriter implements Closeable {
+
+    /** Maximum number of primitives in one block, as recommended by the format */
+    private static final int BLOCK_SIZE = 8000;
+    /** Uncompressed size at which a block is written, as recommended by the format. See {@link PbfReader#MAX_BLOB_SIZE} */
+    static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    private final DataOutputStream out;
+    private final int maxBlockSize;
+    private final Deflater deflater = new Deflater();
+    private byte[] compressed = new byte[64 * 1024];
+
+    /**
+     * Constructs a new {@code PbfWriter}.
+     * @param out the output stream. Should be buffered.
+     */
+    public PbfWriter(OutputStream out) {
+        this(out, MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a new {@code PbfWriter} with a custom block size, for unit tests.
+     * @param out the output stream. Should be buffered.
+     * @param maxBlockSize the uncompressed size at which a block is written
+     */
+    PbfWriter(OutputStream out, int maxBlockSize) {
+        this.out = new DataOutputStream(out);
+        this.maxBlockSize = maxBlockSize;
+    }
+
+    /**
+     * Writes a data set.
+     * @param ds the data set. Should be locked by the caller
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(DataSet ds) throws IOException {
+        List<Node> nodes = sorted(ds.getNodes());
+        List<Way> ways = sorted(ds.getWays());
+        List<Relation> relations = sorted(ds.getRelations());
+        boolean sortedById = (nodes.isEmpty() || !nodes.get(0).isNew())
+                && (ways.isEmpty() || !ways.get(0).isNew())
+                && (relations.isEmpty() || !relations.get(0).isNew());
+        writeHeader(ds, sortedById);
+        for (int i = 0; i < nodes.size();) {
+            i = writeNodes(nodes, i);
+        }
+        writeWays(ways);
+        writeRelations(relations);
+        out.flush();
+    }
+
+    /**
+     * Sorts primitives by id. New primitives come first, in the order of their creation, so that a reader
+     * generates their new ids in the same order.
+     */
+
+    private static <T extends OsmPrimitive> List<T> sorted(Collection<T> primitives) {
+        List<T> result = new ArrayList<>(primitives.size());
+        for (T p : primitives) {
+            if (!p.isIncomplete() && !p.isDeleted()) {
+                result.add(p);
+            }
+        }
+        result.sort((a, b) -> {
+            if (a.isNew() != b.isNew())
+                return a.isNew() ? -1 : 1;
+            return a.isNew() ? Long.compare(b.getUniqueId(), a.getUniqueId()) : Long.compare(a.getUniqueId(), b.getUniqueId());
+        });
+        return result;
+    }
+
+    /**
+     * Determines if a block has to be written before more primitives are added, because it has the maximum number of
+     * primitives or because it is so large that one more primitive could make it exceed the size limit of readers.
+     */
+    private boolean isFull(int count, int size) {
+        return count >= BLOCK_SIZE || size >= maxBlockSize;
+    }
+
+    private void writeHeader(DataSet ds, boolean sortedById) throws IOException {
+        ProtobufOutput header = new ProtobufOutput();
+        Bounds bounds = null;
+        for (Bounds b : ds.getDataSourceBounds()) {
+            if (bounds == null) {
+                bounds = new Bounds(b);
+            } else {
+                bounds.extend(b);
+            }
+        }
+        if (bounds != null) {
+            ProtobufOutput bbox = new ProtobufOutput();
+            bbox.writeSignedVarint(1, Math.round(bounds.getMinLon() * 1e9));
+            bbox.writeSignedVarint(2, Math.round(bounds.getMaxLon() * 1e9));
+            bbox.writeSignedVarint(3, Math.round(bounds.getMaxLat() * 1e9));
+            bbox.writeSignedVarint(4, Math.round(bounds.getMinLat() * 1e9));
+            header.writeMessage(1, bbox);
+        }
+        header.writeString(4, "OsmSchema-V0.6");
+        header.writeString(4, "DenseNodes");
+        if (sortedById) {
+            header.writeString(5, "Sort.Type_then_ID");
+        }
+        header.writeString(16, "JOSM");
+        writeBlob("OSMHeader", header);
+    }
+
+    /**
+     * The string table of a block.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final ProtobufOutput table = new ProtobufOutput();
+
+        StringTable() {
+            // index 0 is reserved as delimiter
+            get("");
+        }
+
+        int get(String s) {
+            Integer index = indexes.get(s);
+            if (index == null) {
+                index = indexes.size();
+                indexes.put(s, index);
+                table.writeString(1, s);
+            }
+            return index;
+        }
+
+        int getUser(OsmPrimitive p) {
+            User user = p.getUser();
+            return get(user != null ? user.getName() : "");
+        }
+    }
+
+    private static long getUid(OsmPrimitive p) {
+        User user = p.getUser();
+        return user != null ? user.getId() : 0;
+    }
+
+    /**
+     * Writes a dense nodes block.
+     * @param nodes the nodes
+     * @param start the index of the first node of the block
+     * @return the index of the first node not written
+     */
+    private int writeNodes(List<Node> nodes, int start) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufOutput ids = new ProtobufOutput();
+        ProtobufOutput lats = new ProtobufOutput();
+        ProtobufOutput lons = new ProtobufOutput();
+        ProtobufOutput keysVals = new ProtobufOutput();
+        ProtobufOutput versions = new ProtobufOutput();
+        ProtobufOutput timestamps = new ProtobufOutput();
+        ProtobufOutput changesets = new ProtobufOutput();
+        ProtobufOutput uids = new ProtobufOutput();
+        ProtobufOutput users = new ProtobufOutput();
+        long id = 0;
+        long lat = 0;
+        long lon = 0;
+        long timestamp = 0;
+        long changeset = 0;
+        long uid = 0;
+        long user = 0;
+        boolean tagged = false;
+        int end = start;
+        while (end < nodes.size() && !isFull(end - start, strings.table.size() + ids.size() + lats.size() + lons.size()
+                + keysVals.size() + versions.size() + timestamps.size() + changesets.size() + uids.size() + users.size())) {
+            Node n = nodes.get(end++);
+            LatLon coor = n.getCoor();
+            if (coor == null) {
+                continue;
+            }
+            long nodeLat = Math.round(coor.lat() * 1e7);
+            long nodeLon = Math.round(coor.lon() * 1e7);
+            ids.writeRawSignedVarint(n.getUniqueId() - id);
+            lats.writeRawSignedVarint(nodeLat - lat);
+            lons.writeRawSignedVarint(nodeLon - lon);
+            id = n.getUniqueId();
+            lat = nodeLat;
+            lon = nodeLon;
+            for (Map.Entry<String, String> tag : n.getKeys().entrySet()) {
+                keysVals.writeRawVarint(strings.get(tag.getKey()));
+                keysVals.writeRawVarint(strings.get(tag.getValue()));
+                tagged = true;
+            }
+            keysVals.writeRawVarint(0);
+            versions.writeRawVarint(n.getVersion());
+            timestamps.writeRawSignedVarint(n.getRawTimestamp() - timestamp);
+            changesets.writeRawSignedVarint(n.getChangesetId() - changeset);
+            uids.writeRawSignedVarint(getUid(n) - uid);
+            users.writeRawSignedVarint(strings.getUser(n) - user);
+            timestamp = n.getRawTimestamp();
+            changeset = n.getChangesetId();
+            uid = getUid(n);
+            user = strings.getUser(n);
+        }
+        ProtobufOutput info = new ProtobufOutput();
+        info.writeMessage(1, versions);
+        info.writeMessage(2, timestamps);
+        info.writeMessage(3, changesets);
+        info.writeMessage(4, uids);
+        info.writeMessage(5, users);
+        ProtobufOutput dense = new ProtobufOutput();
+        dense.writeMessage(1, ids);
+        dense.writeMessage(5, info);
+        dense.writeMessage(8, lats);
+        dense.writeMessage(9, lons);
+        if (tagged) {
+            dense.writeMessage(10, keysVals);
+        }
+        ProtobufOutput group = new ProtobufOutput();
+        group.writeMessage(2, dense);
+        writeBlock(strings, group);
+        return end;
+    }
+
+    private void writeWays(List<Way> ways) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufOutput group = new ProtobufOutput();
+        int count = 0;
+        for (Way w : ways) {
+            if (isFull(count, strings.table.size() + group.size())) {
+                writeBlock(strings, group);
+                strings = new StringTable();
+                group = new ProtobufOutput();
+                count = 0;
+            }
+            ProtobufOutput way = new ProtobufOutput();
+            writeCommon(way, w, strings);
+            ProtobufOutput refs = new ProtobufOutput();
+            long ref = 0;
+            for (Node n : w.getNodes()) {
+                refs.writeRawSignedVarint(n.getUniqueId() - ref);
+                ref = n.getUniqueId();
+            }
+            way.writeMessage(8, refs);
+            group.writeMessage(3, way);
+            count++;
+        }
+        if (count > 0) {
+            writeBlock(strings, group);
+        }
+    }
+
+    private void writeRelations(List<Relation> relations) throws IOException {
+        StringTable strings = new StringTable();
+        ProtobufOutput group = new ProtobufOutput();
+        int count = 0;
+        for (Relation r : relations) {
+            if (isFull(count, strings.table.size() + group.size())) {
+                writeBlock(strings, group);
+                strings = new StringTable();
+                group = new ProtobufOutput();
+                count = 0;
+            }
+            ProtobufOutput relation = new ProtobufOutput();
+            writeCommon(relation, r, strings);
+            ProtobufOutput roles = new ProtobufOutput();
+            ProtobufOutput memberIds = new ProtobufOutput();
+            ProtobufOutput types = new ProtobufOutput();
+            long memberId = 0;
+            for (RelationMember m : r.getMembers()) {
+                roles.writeRawVarint(strings.get(m.getRole()));
+                memberIds.writeRawSignedVarint(m.getUniqueId() - memberId);
+                memberId = m.getUniqueId();
+                types.writeRawVarint(m.isNode() ? 0 : m.isWay() ? 1 : 2);
+            }
+            relation.writeMessage(8, roles);
+            relation.writeMessage(9, memberIds);
+            relation.writeMessage(10, types);
+            group.writeMessage(4, relation);
+            count++;
+        }
+        if (count > 0) {
+            writeBlock(strings, group);
+        }
+    }
+
+    private static void writeCommon(ProtobufOutput message, OsmPrimitive p, StringTable strings) {
+        message.writeVarint(1, p.getUniqueId());
+        ProtobufOutput keys = new ProtobufOutput();
+        ProtobufOutput values = new ProtobufOutput();
+        for (Map.Entry<String, String> tag : p.getKeys().entrySet()) {
+            keys.writeRawVarint(strings.get(tag.getKey()));
+            values.writeRawVarint(strings.get(tag.getValue()));
+        }
+        message.writeMessage(2, keys);
+        message.writeMessage(3, values);
+        ProtobufOutput info = new ProtobufOutput();
+        info.writeVarint(1, p.getVersion());
+        info.writeVarint(2, p.getRawTimestamp());
+        info.writeVarint(3, p.getChangesetId());
+        info.writeVarint(4, getUid(p));
+        info.writeVarint(5, strings.getUser(p));
+        message.writeMessage(4, info);
+    }
+
+    private void writeBlock(StringTable strings, ProtobufOutput group) throws IOException {
+        ProtobufOutput block = new ProtobufOutput();
+        block.writeMessage(1, strings.table);
+        block.writeMessage(2, group);
+        writeBlob("OSMData", block);
+    }
+
+    private void writeBlob(String type, ProtobufOutput data) throws IOException {
+        deflater.reset();
+        deflater.setInput(data.getBuffer(), 0, data.size());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        ProtobufOutput blob = new ProtobufOutput();
+        blob.writeVarint(2, data.size());
+        blob.writeBytes(3, compressed, 0, length);
+
+        ProtobufOutput header = new ProtobufOutput();
+        header.writeString(1, type);
+        header.writeVarint(3, blob.size());
+        out.writeInt(header.size());
+        header.writeTo(out);
+        blob.writeTo(out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        out.close();
+    }
+}
@@ -0,0 +1,188 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the fields of a <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers</a> message.
+ * <p>
+ * Only the parts of the encoding used by the OSM PBF format are supported. Messages are read from a byte array,
+ * nested messages and packed fields are read by a new {@code ProtobufInput} sharing the same array.
+ * @since xxx
+ */
+final class ProtobufInput {
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_FIXED64 = 1;
+    static final int WIRE_LENGTH_DELIMITED = 2;
+    static final int WIRE_FIXED32 = 5;
+
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+    private int wireType;
+
+    /**
+     * Constructs a new {@code ProtobufInput}.
+     * @param buffer the buffer containing the message
+     * @param offset the offset of the message in the buffer
+     * @param length the length of the message
+     */
+    ProtobufInput(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Determines if there are more fields or values to read.
+     * @return {@code true} if the end of the message is not reached yet
+     */
+    boolean hasNext() {
+        return position < limit;
+    }
+
+    /**
+     * Reads the key of the next field. The value must be read or {@linkplain #skip() skipped} afterwards.
+     * @return the field number
+     * @throws IllegalDataException if the message is malformed
+     */
+    int readField() throws IllegalDataException {
+        long key = readVarint();
+        wireType = (int) (key & 7);
+        return (int) (key >>> 3);
+    }
+
+    /**
+     * Reads a varint value, as used by the {@code int32}, {@code int64}, {@code uint32}, {@code uint64}, {@code bool}
+     * and {@code enum} types.
+     * @return the value
+     * @throws IllegalDataException if the message is malformed
+     */
+    long readVarint() throws IllegalDataException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit)
+                throw truncated();
+            byte b = buffer[position++];
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0)
+                return result;
+        }
+        throw new IllegalDataException(tr("Malformed varint in protocol buffer"));
+    }
+
+    /**
+     * Reads a zigzag encoded value, as used by the {@code sint32} and {@code sint64} types.
+     * @return the value
+     * @throws IllegalDataException if the message is malformed
+     */
+    long readSignedVarint() throws IllegalDataException {
+        return decodeZigzag(readVarint());
+    }
+
+    /**
+     * Reads the values of a repeated varint field. Packed values are accepted as well as a single unpacked value.
+     * @return the values
+     * @throws IllegalDataException if the message is malformed
+     */
+    long[] readVarints() throws IllegalDataException {
+        if (wireType != WIRE_LENGTH_DELIMITED)
+            return new long[] {readVarint()};
+        ProtobufInput packed = readMessage();
+        long[] values = new long[packed.limit - packed.position];
+        int count = 0;
+        while (packed.hasNext()) {
+            values[count++] = packed.readVarint();
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Decodes a zigzag encoded value, as used by the {@code sint32} and {@code sint64} types.
+     * @param value the encoded value
+     * @return the decoded value
+     */
+    static long decodeZigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads a length-delimited value, i.e. a nested message, a packed field, a string or bytes.
+     * @return an input reading the value
+     * @throws IllegalDataException if the message is malformed
+     */
+    ProtobufInput readMessage() throws IllegalDataException {
+        int length = readLength();
+        ProtobufInput message = new ProtobufInput(buffer, position, length);
+        position += length;
+        return message;
+    }
+
+    /**
+     * Reads a length-delimited value as UTF-8 string.
+     * @return the string
+     * @throws IllegalDataException if the message is malformed
+     */
+    String readString() throws IllegalDataException {
+        int length = readLength();
+        String s = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return s;
+    }
+
+    /**
+     * Reads a length-delimited value as byte array.
+     * @return the bytes
+     * @throws IllegalDataException if the message is malformed
+     */
+    byte[] readBytes() throws IllegalDataException {
+        int length = readLength();
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    /**
+     * Skips the value of the field whose key has just been read.
+     * @throws IllegalDataException if the message is malformed
+     */
+    void skip() throws IllegalDataException {
+        switch (wireType) {
+        case WIRE_VARINT:
+            readVarint();
+            break;
+        case WIRE_FIXED64:
+            skip(8);
+            break;
+        case WIRE_LENGTH_DELIMITED:
+            skip(readLength());
+            break;
+        case WIRE_FIXED32:
+            skip(4);
+            break;
+        default:
+            throw new IllegalDataException(tr("Unsupported wire type {0} in protocol buffer", wireType));
+        }
+    }
+
+    private void skip(int length) throws IllegalDataException {
+        if (length > limit - position)
+            throw truncated();
+        position += length;
+    }
+
+    private int readLength() throws IllegalDataException {
+        long length = readVarint();
+        if (length < 0 || length > limit - position)
+            throw truncated();
+        return (int) length;
+    }
+
+    private static IllegalDataException truncated() {
+        return new IllegalDataException(tr("Truncated protocol buffer"));
+    }
+}
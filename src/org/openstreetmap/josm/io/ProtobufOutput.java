@@ -0,0 +1,156 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the fields of a <a href="https://developers.google.com/protocol-buffers/docs/encoding">Protocol Buffers</a> message
+ * to a growing byte array.
+ * <p>
+ * Only the parts of the encoding used by the OSM PBF format are supported.
+ * @since xxx
+ */
+final class ProtobufOutput {
+    private byte[] buffer;
+    private int size;
+
+    /**
+     * Constructs a new {@code ProtobufOutput}.
+     */
+    ProtobufOutput() {
+        buffer = new byte[256];
+    }
+
+    /**
+     * Writes a varint field, used by the {@code int32}, {@code int64}, {@code uint32}, {@code uint64}, {@code bool}
+     * and {@code enum} types.
+     * @param field the field number
+     * @param value the value
+     */
+    void writeVarint(int field, long value) {
+        writeKey(field, ProtobufInput.WIRE_VARINT);
+        writeRawVarint(value);
+    }
+
+    /**
+     * Writes a zigzag encoded field, used by the {@code sint32} and {@code sint64} types.
+     * @param field the field number
+     * @param value the value
+     */
+    void writeSignedVarint(int field, long value) {
+        writeVarint(field, zigzag(value));
+    }
+
+    /**
+     * Writes a string field.
+     * @param field the field number
+     * @param value the value
+     */
+    void writeString(int field, String value) {
+        writeBytes(field, value.getBytes(StandardCharsets.UTF_8), 0, -1);
+    }
+
+    /**
+     * Writes a bytes field.
+     * @param field the field number
+     * @param value the buffer containing the value
+     * @param offset the offset of the value in the buffer
+     * @param length the length of the value, {@code -1} for all bytes from {@code offset}
+     */
+    void writeBytes(int field, byte[] value, int offset, int length) {
+        int len = length < 0 ? value.length - offset : length;
+        writeKey(field, ProtobufInput.WIRE_LENGTH_DELIMITED);
+        writeRawVarint(len);
+        ensureCapacity(len);
+        System.arraycopy(value, offset, buffer, size, len);
+        size += len;
+    }
+
+    /**
+     * Writes a nested message or a packed field.
+     * @param field the field number
+     * @param message the message
+     */
+    void writeMessage(int field, ProtobufOutput message) {
+        writeBytes(field, message.buffer, 0, message.size);
+    }
+
+    /**
+     * Writes a varint without field key, as element of a packed field.
+     * @param value the value
+     */
+    void writeRawVarint(long value) {
+        ensureCapacity(10);
+        long v = value;
+        while ((v & ~0x7fL) != 0) {
+            buffer[size++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        buffer[size++] = (byte) v;
+    }
+
+    /**
+     * Writes a zigzag encoded value without field key, as element of a packed field.
+     * @param value the value
+     */
+    void writeRawSignedVarint(long value) {
+        writeRawVarint(zigzag(value));
+    }
+
+    /**
+     * Returns the number of bytes written.
+     * @return the number of bytes written
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Determines if nothing has been written.
+     * @return {@code true} if nothing has been written
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the internal buffer. Only the first {@link #size()} bytes are valid.
+     * @return the internal buffer
+     */
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Writes the bytes written so far to the given stream.
+     * @param out the stream
+     * @throws IOException if an I/O error occurs
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Discards the bytes written so far, so that the buffer can be reused.
+     */
+    void reset() {
+        size = 0;
+    }
+
+    private void writeKey(int field, int wireType) {
+        writeRawVarint(((long) field << 3) | wireType);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void ensureCapacity(int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
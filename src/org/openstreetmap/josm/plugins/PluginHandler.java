@@ -35,6 +35,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -68,6 +69,7 @@ import org.openstreetmap.josm.tools.GBC;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.ImageProvider;
 import org.openstreetmap.josm.tools.SubclassFilteredCollection;
+import org.openstreetmap.josm.tools.TaskGraph;
 import org.openstreetmap.josm.tools.Utils;
 
 /**
@@ -204,6 +206,11 @@ public final class PluginHandler {
      */
     public static class DynamicURLClassLoader extends URLClassLoader {
 
+        static {
+            // the plugin classes are loaded in parallel
+            ClassLoader.registerAsParallelCapable();
+        }
+
         /**
          * Constructs a new {@code DynamicURLClassLoader}.
          * @param urls the URLs from which to load classes and resources
@@ -707,12 +714,27 @@ public final class PluginHandler {
      * @param pluginClassLoader the plugin class loader
      */
     public static void loadPlugin(Component parent, PluginInformation plugin, ClassLoader pluginClassLoader) {
+        FutureTask<Class<?>> klass = new FutureTask<>(() -> plugin.loadClass(pluginClassLoader));
+        klass.run();
+        loadPlugin(parent, plugin, klass);
+    }
+
+    /**
+     * Instantiates the plugin described by <code>plugin</code>, once its main class has been loaded.
+     *
+     * @param parent The parent component to be used for the displayed dialog
+     * @param plugin the plugin
+     * @param klass the loading of the plugin main class, which must be done. The class does not need to be initialized
+     */
+    private static void loadPlugin(Component parent, PluginInformation plugin, Future<Class<?>> klass) {
         String msg = tr("Could not load plugin {0}. Delete from preferences?", plugin.name);
         try {
-            Class<?> klass = plugin.loadClass(pluginClassLoader);
-            if (klass != null) {
+            Class<?> pluginClass = getLoadedClass(klass);
+            if (pluginClass != null) {
+                // run the static initializers on this thread, after the required plugins have been instantiated
+                pluginClass = plugin.loadClass(pluginClass.getClassLoader());
                 Main.info(tr("loading plugin ''{0}'' (version {1})", plugin.name, plugin.localversion));
-                PluginProxy pluginProxy = plugin.load(klass);
+                PluginProxy pluginProxy = plugin.load(pluginClass);
                 pluginList.add(pluginProxy);
                 Main.addMapFrameListener(pluginProxy, true);
             }
@@ -733,8 +755,31 @@ public final class PluginHandler {
         }
     }
 
+    private static Class<?> getLoadedClass(Future<Class<?>> klass) throws PluginException {
+        try {
+            return klass.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof PluginException)
+                throw (PluginException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
     /**
      * Loads the plugin in <code>plugins</code> from locally available jar files into memory.
+     * <p>
+     * The translations of the plugin jars are read and the plugin main classes are loaded in parallel, the main class
+     * of a plugin after the main classes of the plugins it requires. The plugins are instantiated one after another
+     * on the calling thread, in the order of their stage; their main classes are only initialized then. Parallel
+     * loading can be disabled with the {@code plugin.load.parallel} preference.
      *
      * @param parent The parent component to be used for the displayed dialog
      * @param plugins the list of plugins
@@ -760,15 +805,77 @@ public final class PluginHandler {
             if (toLoad.isEmpty())
                 return;
 
-            extendPluginClassLoader(toLoad);
             monitor.setTicksCount(toLoad.size());
-            for (PluginInformation info : toLoad) {
+            TaskGraph tasks = buildPluginLoadingTasks(parent, toLoad, monitor);
+            Main.addStartupTasks(tasks);
+            tasks.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Main.warn(e);
+        } catch (ExecutionException e) {
+            // the tasks only throw unchecked exceptions
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw (RuntimeException) e.getCause();
+        } finally {
+            monitor.finishTask();
+        }
+    }
+
+    private static TaskGraph buildPluginLoadingTasks(Component parent, List<PluginInformation> toLoad, ProgressMonitor monitor) {
+        boolean parallel = Main.pref.getBoolean("plugin.load.parallel", true);
+        File pluginDir = Main.pref.getPluginsDirectory();
+        DynamicURLClassLoader cl = getPluginClassLoader();
+        TaskGraph tasks = new TaskGraph("plugin-init");
+        Map<String, String> classTasks = new HashMap<>();
+        String previous = null;
+        for (PluginInformation info : toLoad) {
+            List<String> dependencies = new ArrayList<>();
+            // same as extendPluginClassLoader, the class path is extended in the order of the plugins
+            if (info.libraries != null) {
+                for (URL libUrl : info.libraries) {
+                    cl.addURL(libUrl);
+                }
+                File pluginJar = new File(pluginDir, info.name + ".jar");
+                cl.addURL(Utils.fileToURL(pluginJar));
+                String scan = "Scanning " + info.name;
+                add(tasks, parallel, scan, () -> I18n.addTexts(pluginJar));
+                dependencies.add(scan);
+            }
+            Set<String> requiredPlugins = new HashSet<>(info.getRequiredPlugins());
+            requiredPlugins.addAll(info.getLocalRequiredPlugins());
+            for (String required : requiredPlugins) {
+                if (classTasks.containsKey(required)) {
+                    dependencies.add(classTasks.get(required));
+                }
+            }
+            // the classes are only initialized when the plugin is instantiated
+            FutureTask<Class<?>> klass = new FutureTask<>(() -> info.loadClass(cl, false));
+            String load = "Loading classes of " + info.name;
+            add(tasks, parallel, load, klass, dependencies.toArray(new String[dependencies.size()]));
+            classTasks.put(info.name, load);
+
+            String init = "Instantiating " + info.name;
+            Runnable instantiation = () -> {
                 monitor.setExtraText(tr("Loading plugin ''{0}''...", info.name));
-                loadPlugin(parent, info, getPluginClassLoader());
+                loadPlugin(parent, info, klass);
                 monitor.worked(1);
+            };
+            if (previous == null) {
+                tasks.addOnCallerThread(init, instantiation, load);
+            } else {
+                tasks.addOnCallerThread(init, instantiation, load, previous);
             }
-        } finally {
-            monitor.finishTask();
+            previous = init;
+        }
+        return tasks;
+    }
+
+    private static void add(TaskGraph tasks, boolean parallel, String name, Runnable task, String... dependencies) {
+        if (parallel) {
+            tasks.add(name, task, dependencies);
+        } else {
+            tasks.addOnCallerThread(name, task, dependencies);
         }
     }
 
@@ -339,10 +339,23 @@ public class PluginInformation {
      * @throws PluginException if the class cannot be loaded
      */
     public Class<?> loadClass(ClassLoader classLoader) throws PluginException {
+        return loadClass(classLoader, true);
+    }
+
+    /**
+     * Loads the class of the plugin.
+     *
+     * @param classLoader the class loader to use
+     * @param initialize whether the class must be initialized, i.e. its static initializers run
+     * @return the loaded class
+     * @throws PluginException if the class cannot be loaded
+     * @since xxx
+     */
+    public Class<?> loadClass(ClassLoader classLoader, boolean initialize) throws PluginException {
         if (className == null)
             return null;
         try {
-            return Class.forName(className, true, classLoader);
+            return Class.forName(className, initialize, classLoader);
         } catch (NoClassDefFoundError | ClassNotFoundException | ClassCastException e) {
             throw new PluginException(name, e);
         }
@@ -522,15 +522,9 @@ public final class I18n {
     }
 
     private static boolean load(InputStream en, InputStream tr, boolean add) {
-        Map<String, String> s;
-        Map<String, String[]> p;
-        if (add) {
-            s = strings;
-            p = pstrings;
-        } else {
-            s = new HashMap<>();
-            p = new HashMap<>();
-        }
+        // translations are added from several plugin jars in parallel, they are merged when complete
+        Map<String, String> s = new HashMap<>();
+        Map<String, String[]> p = new HashMap<>();
         /* file format:
            Files are always a group. English file and translated file must provide identical datasets.
 
@@ -645,12 +639,18 @@ public final class I18n {
             Main.trace(e);
             return false;
         }
-        if (!s.isEmpty()) {
+        if (s.isEmpty())
+            return false;
+        if (add) {
+            synchronized (I18n.class) {
+                s.forEach(strings::putIfAbsent);
+                p.forEach(pstrings::putIfAbsent);
+            }
+        } else {
             strings = s;
             pstrings = p;
-            return true;
         }
-        return false;
+        return true;
     }
 
     /**
@@ -0,0 +1,319 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openstreetmap.josm.Main;
+
+/**
+ * A set of tasks with dependencies between them, run as much in parallel as the dependencies allow.
+ * <p>
+ * A task is started as soon as all its dependencies have finished. Tasks run on a thread pool with one thread per
+ * processor, except for the tasks added with {@link #addOnCallerThread}, which run on the thread calling {@link #run()}
+ * (e.g., because they must not run concurrently with the caller), and the tasks added with {@link #addInBackground},
+ * which {@link #run()} does not wait for.
+ * <p>
+ * The start time, the duration and the thread of each task are recorded, see {@link #getReport()}.
+ * <p>
+ * If a task fails, the tasks depending on it are skipped, and {@link #run()} throws an {@link ExecutionException}
+ * once the other tasks have finished. Failures of background tasks are only logged.
+ * @since xxx
+ */
+public class TaskGraph {
+
+    private enum Mode {
+        POOL, CALLER, BACKGROUND
+    }
+
+    private static final class Task {
+        private final String name;
+        private final Runnable runnable;
+        private final Mode mode;
+        private final List<Task> dependencies;
+        private final List<Task> dependants = new ArrayList<>();
+        private final AtomicInteger pending;
+        private volatile boolean skipped;
+        private volatile boolean failed;
+        private volatile long start = -1;
+        private volatile long end = -1;
+        private volatile String thread;
+
+        Task(String name, Runnable runnable, Mode mode, List<Task> dependencies) {
+            this.name = name;
+            this.runnable = runnable;
+            this.mode = mode;
+            this.dependencies = dependencies;
+            this.pending = new AtomicInteger(dependencies.size());
+        }
+    }
+
+    /** Marks the end of the tasks to run on the caller thread */
+    private static final Task END = new Task(null, null, Mode.CALLER, Collections.<Task>emptyList());
+
+    private final String name;
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final BlockingQueue<Task> callerQueue = new LinkedBlockingQueue<>();
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final AtomicInteger unfinishedAwaited = new AtomicInteger();
+    private final AtomicInteger unfinished = new AtomicInteger();
+    private ExecutorService executor;
+    private volatile long start = -1;
+    private volatile long end = -1;
+
+    /**
+     * Constructs a new {@code TaskGraph}.
+     * @param name the name of the graph, used to name the threads and in the report
+     */
+    public TaskGraph(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Adds a task running on the thread pool.
+     * @param name the unique name of the task
+     * @param task the task
+     * @param dependencies the names of the tasks which must be finished before this task starts.
+     * They must have been added before.
+     * @return this graph
+     */
+    public TaskGraph add(String name, Runnable task, String... dependencies) {
+        return add(name, task, Mode.POOL, dependencies);
+    }
+
+    /**
+     * Adds a task running on the thread calling {@link #run()}.
+     * @param name the unique name of the task
+     * @param task the task
+     * @param dependencies the names of the tasks which must be finished before this task starts.
+     * They must have been added before.
+     * @return this graph
+     */
+    public TaskGraph addOnCallerThread(String name, Runnable task, String... dependencies) {
+        return add(name, task, Mode.CALLER, dependencies);
+    }
+
+    /**
+     * Adds a task running on the thread pool, which {@link #run()} does not wait for.
+     * Only background tasks can depend on background tasks.
+     * @param name the unique name of the task
+     * @param task the task
+     * @param dependencies the names of the tasks which must be finished before this task starts.
+     * They must have been added before.
+     * @return this graph
+     */
+    public TaskGraph addInBackground(String name, Runnable task, String... dependencies) {
+        return add(name, task, Mode.BACKGROUND, dependencies);
+    }
+
+    private synchronized TaskGraph add(String name, Runnable task, Mode mode, String... dependencies) {
+        CheckParameterUtil.ensureParameterNotNull(name, "name");
+        CheckParameterUtil.ensureParameterNotNull(task, "task");
+        if (start >= 0)
+            throw new IllegalStateException("Task graph " + this.name + " has already been run");
+        if (tasks.containsKey(name))
+            throw new IllegalArgumentException("Duplicate task " + name);
+        List<Task> deps = new ArrayList<>(dependencies.length);
+        for (String dependency : dependencies) {
+            Task dep = tasks.get(dependency);
+            if (dep == null)
+                throw new IllegalArgumentException("Unknown dependency " + dependency + " of task " + name);
+            if (dep.mode == Mode.BACKGROUND && mode != Mode.BACKGROUND)
+                throw new IllegalArgumentException("Task " + name + " cannot depend on background task " + dependency);
+            if (!deps.contains(dep)) {
+                deps.add(dep);
+            }
+        }
+        Task t = new Task(name, task, mode, deps);
+        for (Task dep : deps) {
+            dep.dependants.add(t);
+        }
+        tasks.put(name, t);
+        return this;
+    }
+
+    /**
+     * Runs the tasks and waits until all tasks except the background tasks are finished.
+     * A graph can only be run once.
+     * @throws ExecutionException if a task has thrown an exception
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public void run() throws ExecutionException, InterruptedException {
+        List<Task> roots = new ArrayList<>();
+        synchronized (this) {
+            if (start >= 0)
+                throw new IllegalStateException("Task graph " + name + " has already been run");
+            start = System.nanoTime();
+            boolean needsPool = false;
+            for (Task t : tasks.values()) {
+                if (t.mode != Mode.BACKGROUND) {
+                    unfinishedAwaited.incrementAndGet();
+                }
+                needsPool |= t.mode != Mode.CALLER;
+                if (t.dependencies.isEmpty()) {
+                    roots.add(t);
+                }
+            }
+            unfinished.set(tasks.size());
+            if (needsPool) {
+                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                        Utils.newThreadFactory(name + "-%d", Thread.NORM_PRIORITY));
+            }
+        }
+        if (unfinishedAwaited.get() == 0) {
+            callerQueue.add(END);
+        }
+        for (Task t : roots) {
+            schedule(t);
+        }
+        for (Task t = callerQueue.take(); t != END; t = callerQueue.take()) {
+            execute(t);
+        }
+        end = System.nanoTime();
+        Throwable e = error.get();
+        if (e != null)
+            throw new ExecutionException(e);
+    }
+
+    private void schedule(Task t) {
+        if (t.mode == Mode.CALLER) {
+            callerQueue.add(t);
+        } else {
+            executor.execute(() -> execute(t));
+        }
+    }
+
+    private void execute(Task t) {
+        t.thread = Thread.currentThread().getName();
+        t.start = System.nanoTime();
+        try {
+            t.runnable.run();
+        } catch (RuntimeException | Error e) { // NOPMD
+            t.failed = true;
+            if (t.mode == Mode.BACKGROUND) {
+                Main.warn(e, "Background task " + t.name + " failed");
+            } else if (!error.compareAndSet(null, e)) {
+                error.get().addSuppressed(e);
+            }
+        } finally {
+            t.end = System.nanoTime();
+            finish(t);
+        }
+    }
+
+    private void finish(Task t) {
+        for (Task d : t.dependants) {
+            if (t.failed || t.skipped) {
+                d.skipped = true;
+            }
+            if (d.pending.decrementAndGet() == 0) {
+                if (d.skipped) {
+                    finish(d);
+                } else {
+                    schedule(d);
+                }
+            }
+        }
+        if (t.mode != Mode.BACKGROUND && unfinishedAwaited.decrementAndGet() == 0) {
+            callerQueue.add(END);
+        }
+        if (unfinished.decrementAndGet() == 0 && executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the name of this graph.
+     * @return the name of this graph
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the durations of the finished tasks.
+     * @return the durations of the finished tasks in milliseconds, by task name, in the order the tasks were added
+     */
+    public synchronized Map<String, Long> getDurations() {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        for (Task t : tasks.values()) {
+            if (t.end >= 0) {
+                durations.put(t.name, toMillis(t.end - t.start));
+            }
+        }
+        return durations;
+    }
+
+    /**
+     * Returns a human-readable report of the tasks: the total time, the critical path (the chain of dependent tasks
+     * which took the longest time), and the start time relative to the start of the graph, the duration and the
+     * thread of each task.
+     * @return the report, or an empty string if the graph has not been run yet
+     */
+    public synchronized String getReport() {
+        if (start < 0)
+            return "";
+        StringBuilder sb = new StringBuilder(name).append(": ");
+        if (end >= 0) {
+            sb.append(toMillis(end - start)).append(" ms");
+        } else {
+            sb.append("running");
+        }
+        // longest chain of dependent tasks, by sum of the task durations
+        Map<Task, Long> pathLength = new LinkedHashMap<>();
+        Map<Task, Task> pathPredecessor = new LinkedHashMap<>();
+        Task last = null;
+        for (Task t : tasks.values()) {
+            long length = 0;
+            for (Task dep : t.dependencies) {
+                if (pathLength.get(dep) > length) {
+                    length = pathLength.get(dep);
+                    pathPredecessor.put(t, dep);
+                }
+            }
+            length += t.end >= 0 ? t.end - t.start : 0;
+            pathLength.put(t, length);
+            if (last == null || length > pathLength.get(last)) {
+                last = t;
+            }
+        }
+        if (last != null) {
+            List<String> path = new ArrayList<>();
+            for (Task t = last; t != null; t = pathPredecessor.get(t)) {
+                path.add(0, t.name);
+            }
+            sb.append(", critical path ").append(toMillis(pathLength.get(last))).append(" ms: ")
+              .append(String.join(" > ", path));
+        }
+        for (Task t : tasks.values()) {
+            sb.append('\n');
+            if (t.end >= 0) {
+                sb.append(String.format(Locale.ENGLISH, "%6d ms %6d ms  %-16s %s%s", toMillis(t.start - start), toMillis(t.end - t.start),
+                        t.thread, t.name, t.failed ? " (failed)" : ""));
+            } else {
+                sb.append(String.format(Locale.ENGLISH, "%21s%-16s %s", "", t.skipped ? "skipped" : "not finished", t.name));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskGraph [name=" + name + ", tasks=" + tasks.keySet() + ']';
+    }
+}
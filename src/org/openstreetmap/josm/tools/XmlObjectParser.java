@@ -3,13 +3,20 @@ package org.openstreetmap.josm.tools;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -34,6 +41,7 @@ import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 import org.xml.sax.helpers.XMLFilterImpl;
 
@@ -63,6 +71,89 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    /**
+     * Records the elements and characters passed to the parser, see {@link XmlObjectParser#setRecording}.
+     * Strings are written once and referred to by index afterwards.
+     */
+    private static class Recorder extends XMLFilterImpl {
+        private static final byte END_OF_DOCUMENT = 0;
+        private static final byte START_ELEMENT = 1;
+        private static final byte END_ELEMENT = 2;
+        private static final byte CHARACTERS = 3;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final StringBuilder characters = new StringBuilder();
+
+        Recorder(ContentHandler handler) {
+            setContentHandler(handler);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+            try {
+                flushCharacters();
+                out.writeByte(START_ELEMENT);
+                writeString(qName);
+                out.writeInt(atts.getLength());
+                for (int i = 0; i < atts.getLength(); i++) {
+                    writeString(atts.getQName(i));
+                    writeString(atts.getValue(i));
+                }
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            try {
+                flushCharacters();
+                out.writeByte(END_ELEMENT);
+                writeString(qName);
+            } catch (IOException e) {
+                throw new SAXException(e);
+            }
+            super.endElement(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            characters.append(ch, start, length);
+            super.characters(ch, start, length);
+        }
+
+        private void flushCharacters() throws IOException {
+            if (characters.length() > 0) {
+                out.writeByte(CHARACTERS);
+                writeString(characters.toString());
+                characters.setLength(0);
+            }
+        }
+
+        private void writeString(String s) throws IOException {
+            Integer index = strings.get(s);
+            if (index != null) {
+                out.writeInt(index);
+            } else {
+                out.writeInt(-1);
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(b.length);
+                out.write(b);
+                strings.put(s, strings.size());
+            }
+        }
+
+        void writeTo(DataOutput output) throws IOException {
+            flushCharacters();
+            out.writeByte(END_OF_DOCUMENT);
+            out.flush();
+            output.write(bytes.toByteArray());
+        }
+    }
+
     private class Parser extends DefaultHandler {
         private final Stack<Object> current = new Stack<>();
         private StringBuilder characters = new StringBuilder(64);
@@ -81,9 +172,8 @@ public class XmlObjectParser implements Iterable<Object> {
         @Override
         public void startElement(String ns, String lname, String qname, Attributes a) throws SAXException {
             if (mapping.containsKey(qname)) {
-                Class<?> klass = mapping.get(qname).klass;
                 try {
-                    current.push(klass.getConstructor().newInstance());
+                    current.push(mapping.get(qname).getConstructor().newInstance());
                 } catch (ReflectiveOperationException e) {
                     throwException(e);
                 }
@@ -187,6 +277,7 @@ public class XmlObjectParser implements Iterable<Object> {
         private final boolean both;
         private final Map<String, Field> fields = new HashMap<>();
         private final Map<String, Method> methods = new HashMap<>();
+        private Constructor<?> constructor;
 
         Entry(Class<?> klass, boolean onStart, boolean both) {
             this.klass = klass;
@@ -194,6 +285,13 @@ public class XmlObjectParser implements Iterable<Object> {
             this.both = both;
         }
 
+        Constructor<?> getConstructor() throws NoSuchMethodException {
+            if (constructor == null) {
+                constructor = klass.getConstructor();
+            }
+            return constructor;
+        }
+
         Field getField(String s) {
             if (fields.containsKey(s)) {
                 return fields.get(s);
@@ -228,6 +326,8 @@ public class XmlObjectParser implements Iterable<Object> {
 
     private final Map<String, Entry> mapping = new HashMap<>();
     private final DefaultHandler parser;
+    private boolean recording;
+    private Recorder recorder;
 
     /**
      * The queue of already parsed items from the parsing thread.
@@ -245,7 +345,7 @@ public class XmlObjectParser implements Iterable<Object> {
     private Iterable<Object> start(final Reader in, final ContentHandler contentHandler) throws SAXException, IOException {
         try {
             XMLReader reader = Utils.newSafeSAXParser().getXMLReader();
-            reader.setContentHandler(contentHandler);
+            reader.setContentHandler(recording && contentHandler == parser ? recorder : contentHandler);
             try {
                 // Do not load external DTDs (fix #8191)
                 reader.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
@@ -289,7 +389,7 @@ public class XmlObjectParser implements Iterable<Object> {
         try (CachedFile cf = new CachedFile(schemaSource); InputStream mis = cf.getInputStream()) {
             Schema schema = factory.newSchema(new StreamSource(mis));
             ValidatorHandler validator = schema.newValidatorHandler();
-            validator.setContentHandler(parser);
+            validator.setContentHandler(recording ? recorder : parser);
             validator.setErrorHandler(parser);
 
             AddNamespaceFilter filter = new AddNamespaceFilter(namespace);
@@ -300,6 +400,86 @@ public class XmlObjectParser implements Iterable<Object> {
         }
     }
 
+    /**
+     * Enables or disables the recording of the parsed document. If enabled, the next {@code start} or
+     * {@code startWithValidation} call records the elements and characters passed to the parser (after validation),
+     * in a compact binary form which can be written with {@link #writeRecording} and parsed again much faster with
+     * {@link #replay}.
+     * @param recording {@code true} to record the parsed document
+     * @since xxx
+     */
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+        this.recorder = recording ? new Recorder(parser) : null;
+    }
+
+    /**
+     * Writes the document recorded during the last parsing.
+     * @param out the output
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalStateException if the recording is not enabled
+     * @since xxx
+     */
+    public void writeRecording(DataOutput out) throws IOException {
+        if (recorder == null)
+            throw new IllegalStateException("Recording is not enabled");
+        recorder.writeTo(out);
+    }
+
+    /**
+     * Parses a document recorded by {@link #writeRecording}. The document is not validated again.
+     * @param in the recorded document
+     * @return iterable collection of objects
+     * @throws SAXException if the document cannot be mapped to objects
+     * @throws IOException if an I/O error occurs, or if the input is not a recorded document
+     * @since xxx
+     */
+    public Iterable<Object> replay(DataInput in) throws SAXException, IOException {
+        List<String> strings = new ArrayList<>();
+        AttributesImpl atts = new AttributesImpl();
+        parser.startDocument();
+        for (byte event = in.readByte(); event != Recorder.END_OF_DOCUMENT; event = in.readByte()) {
+            switch (event) {
+            case Recorder.START_ELEMENT:
+                String qName = readString(in, strings);
+                atts.clear();
+                for (int i = in.readInt(); i > 0; i--) {
+                    String name = readString(in, strings);
+                    atts.addAttribute("", name, name, "CDATA", readString(in, strings));
+                }
+                parser.startElement("", qName, qName, atts);
+                break;
+            case Recorder.END_ELEMENT:
+                qName = readString(in, strings);
+                parser.endElement("", qName, qName);
+                break;
+            case Recorder.CHARACTERS:
+                char[] ch = readString(in, strings).toCharArray();
+                parser.characters(ch, 0, ch.length);
+                break;
+            default:
+                throw new IOException("Invalid event " + event);
+            }
+        }
+        parser.endDocument();
+        queueIterator = queue.iterator();
+        return this;
+    }
+
+    private static String readString(DataInput in, List<String> strings) throws IOException {
+        int index = in.readInt();
+        if (index >= 0) {
+            if (index >= strings.size())
+                throw new IOException("Invalid string index " + index);
+            return strings.get(index);
+        }
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        String s = new String(b, StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
+    }
+
     public void map(String tagName, Class<?> klass) {
         mapping.put(tagName, new Entry(klass, false, false));
     }
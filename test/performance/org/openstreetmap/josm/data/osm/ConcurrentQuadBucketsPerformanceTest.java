@@ -0,0 +1,160 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Compares the search throughput of {@link ConcurrentQuadBuckets} to a {@link QuadBuckets} guarded by a read/write lock
+ * (which is what {@link DataSet} used to do) with several reader threads and one writer thread moving nodes.
+ */
+public class ConcurrentQuadBucketsPerformanceTest {
+    private static final int NODE_COUNT = 200000;
+    private static final int[] READER_COUNTS = new int[] {1, 2, 4, 8};
+    private static final long RUN_MILLIS = 2000;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * A spatial index under test.
+     */
+    private interface Index {
+        List<Node> search(BBox bbox);
+
+        void move(Node n, LatLon newCoor);
+    }
+
+    private static final class LockedIndex implements Index {
+        private final QuadBuckets<Node> buckets = new QuadBuckets<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        @Override
+        public List<Node> search(BBox bbox) {
+            lock.readLock().lock();
+            try {
+                return buckets.search(bbox);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void move(Node n, LatLon newCoor) {
+            lock.writeLock().lock();
+            try {
+                buckets.remove(n);
+                n.setCoor(newCoor);
+                buckets.add(n);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static final class ConcurrentIndex implements Index {
+        private final QuadBuckets<Node> buckets = new ConcurrentQuadBuckets<>();
+
+        @Override
+        public List<Node> search(BBox bbox) {
+            return buckets.search(bbox);
+        }
+
+        @Override
+        public void move(Node n, LatLon newCoor) {
+            buckets.remove(n);
+            n.setCoor(newCoor);
+            buckets.add(n);
+        }
+    }
+
+    /**
+     * Measures searches per second with mixed readers and one writer.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testMixedReadersAndWriter() throws Exception {
+        for (int readers : READER_COUNTS) {
+            measure("QuadBuckets with ReadWriteLock", readers, nodes -> {
+                LockedIndex index = new LockedIndex();
+                index.buckets.addAll(nodes);
+                return index;
+            });
+            measure("ConcurrentQuadBuckets", readers, nodes -> {
+                ConcurrentIndex index = new ConcurrentIndex();
+                index.buckets.addAll(nodes);
+                return index;
+            });
+        }
+    }
+
+    private static void measure(String name, int readerCount, Function<List<Node>, Index> indexFactory) throws Exception {
+        Random random = new Random(1234);
+        List<Node> nodes = new ArrayList<>(NODE_COUNT);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodes.add(new Node(randomLatLon(random)));
+        }
+        Index index = indexFactory.apply(nodes);
+
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicLong searches = new AtomicLong();
+        AtomicLong moves = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(readerCount + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < readerCount; i++) {
+                final int seed = i;
+                futures.add(executor.submit(() -> {
+                    Random r = new Random(seed);
+                    while (!stop.get()) {
+                        LatLon corner = randomLatLon(r);
+                        index.search(new BBox(corner, new LatLon(corner.lat() + .05, corner.lon() + .05)));
+                        searches.incrementAndGet();
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                Random r = new Random(-1);
+                while (!stop.get()) {
+                    index.move(nodes.get(r.nextInt(nodes.size())), randomLatLon(r));
+                    moves.incrementAndGet();
+                }
+            }));
+            Thread.sleep(RUN_MILLIS);
+            stop.set(true);
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        PerformanceTestUtils.measurementPlotsPluginOutput(
+                name + " searches/s (" + readerCount + " readers, 1 writer)", searches.get() * 1000.0 / RUN_MILLIS);
+        PerformanceTestUtils.measurementPlotsPluginOutput(
+                name + " moves/s (" + readerCount + " readers, 1 writer)", moves.get() * 1000.0 / RUN_MILLIS);
+    }
+
+    private static LatLon randomLatLon(Random random) {
+        return new LatLon(45 + random.nextDouble() * 5, 5 + random.nextDouble() * 5);
+    }
+}
@@ -32,6 +32,7 @@ public class KeyValuePerformanceTest {
     private static final int GET_RUNS = 100000;
     private static final int TEST_STRING_COUNT = 10000;
     private static final int STRING_INTERN_TESTS = 5000000;
+    private static final int TAG_MEMORY_NODES = 200000;
     private static final double[] TAG_NODE_RATIOS = new double[] {.05, .3, 3, 20, 200};
     private ArrayList<String> testStrings = new ArrayList<>();
     private Random random;
@@ -118,6 +119,90 @@ public class KeyValuePerformanceTest {
         timer.done();
     }
 
+    /**
+     * See how fast {@link TagStringPool#intern(String)} is compared to {@link String#intern()}.
+     */
+    @Test
+    @SuppressFBWarnings(value = "DM_STRING_CTOR", justification = "test Strings that are not pooled yet")
+    public void testMeasureTagStringPool() {
+        String str1 = new String("string1");
+        String str1Pooled = TagStringPool.intern(new String("string1"));
+
+        for (int i = 0; i < STRING_INTERN_TESTS; i++) {
+            // warm up
+            assertEquals(str1Pooled, TagStringPool.intern(str1));
+        }
+
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("str1 == TagStringPool.intern(str2) succeeds");
+        for (int i = 0; i < STRING_INTERN_TESTS; i++) {
+            assertSame(str1Pooled, TagStringPool.intern(str1));
+        }
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer("TagStringPool.intern(str) for many strings");
+        for (int i = 0; i < STRING_INTERN_TESTS; i++) {
+            TagStringPool.intern(testStrings.get(i % TEST_STRING_COUNT));
+        }
+        timer.done();
+
+        timer = PerformanceTestUtils.startTimer("str.intern() for many strings");
+        for (int i = 0; i < STRING_INTERN_TESTS; i++) {
+            testStrings.get(i % TEST_STRING_COUNT).intern();
+        }
+        timer.done();
+    }
+
+    /**
+     * Measure the memory used by tags when every primitive gets its own copy of the tag strings,
+     * as a parser without string pooling would produce them.
+     * @throws InterruptedException if the test is interrupted while waiting for the garbage collector
+     */
+    @Test
+    public void testTagMemory() throws InterruptedException {
+        PerformanceTestUtils.measurementPlotsPluginOutput("Tag memory per node without string pool (bytes)", measureTagMemory(false));
+        PerformanceTestUtils.measurementPlotsPluginOutput("Tag memory per node with string pool (bytes)", measureTagMemory(true));
+    }
+
+    @SuppressFBWarnings(value = "DM_STRING_CTOR", justification = "test Strings that are not pooled yet")
+    private static double measureTagMemory(boolean pooled) throws InterruptedException {
+        final String[] tags = {"building", "yes", "highway", "residential", "source", "survey", "addr:country", "DE"};
+        Node[] nodes = new Node[TAG_MEMORY_NODES];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node();
+        }
+
+        long before = usedMemory();
+        for (Node n : nodes) {
+            if (pooled) {
+                for (int j = 0; j < tags.length; j += 2) {
+                    n.put(new String(tags[j]), new String(tags[j + 1]));
+                }
+            } else {
+                // TagMap does not pool strings passed as array
+                String[] copy = new String[tags.length];
+                for (int j = 0; j < tags.length; j++) {
+                    copy[j] = new String(tags[j]);
+                }
+                n.setKeys(new TagMap(copy));
+            }
+        }
+        double bytesPerNode = (usedMemory() - before) / (double) nodes.length;
+        for (Node n : nodes) {
+            assertEquals(tags.length / 2, n.getKeys().size());
+        }
+        return bytesPerNode;
+    }
+
+    @SuppressFBWarnings(value = "DM_GC", justification = "Performance test code")
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
     /**
      * Generate an array of test strings.
      */
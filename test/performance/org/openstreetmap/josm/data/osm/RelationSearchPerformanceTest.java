@@ -0,0 +1,79 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Measures the latency of {@link DataSet#searchRelations(BBox)} depending on the number of relations in the data set.
+ */
+public class RelationSearchPerformanceTest {
+    private static final int[] RELATION_COUNTS = new int[] {1000, 10000, 50000};
+    private static final int MEMBERS_PER_RELATION = 4;
+    private static final int SEARCH_RUNS = 1000;
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Measures the time needed to search relations in small bounding boxes, which is the typical use case of the map renderer.
+     */
+    @Test
+    public void testSearchRelations() {
+        for (int count : RELATION_COUNTS) {
+            Random random = new Random(1234);
+            DataSet ds = generateDataSet(random, count);
+            BBox[] searchBoxes = new BBox[SEARCH_RUNS];
+            for (int i = 0; i < SEARCH_RUNS; i++) {
+                LatLon corner = randomLatLon(random);
+                searchBoxes[i] = new BBox(corner, new LatLon(corner.lat() + .1, corner.lon() + .1));
+            }
+
+            // check that the index finds the same relations as a linear scan
+            for (BBox bbox : searchBoxes) {
+                List<Relation> expected = ds.getRelations().stream().filter(r -> r.getBBox().intersects(bbox)).collect(Collectors.toList());
+                assertEquals(expected.size(), ds.searchRelations(bbox).size());
+            }
+
+            PerformanceTestUtils.runPerformanceTest("DataSet#searchRelations() with " + count + " relations (" + SEARCH_RUNS + " searches)",
+                () -> {
+                    for (BBox bbox : searchBoxes) {
+                        ds.searchRelations(bbox);
+                    }
+                });
+        }
+    }
+
+    private static DataSet generateDataSet(Random random, int relationCount) {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < relationCount; i++) {
+            LatLon center = randomLatLon(random);
+            Relation r = new Relation();
+            for (int j = 0; j < MEMBERS_PER_RELATION; j++) {
+                Node n = new Node(new LatLon(center.lat() + random.nextDouble() * .05, center.lon() + random.nextDouble() * .05));
+                ds.addPrimitive(n);
+                r.addMember(new RelationMember("", n));
+            }
+            ds.addPrimitive(r);
+        }
+        return ds;
+    }
+
+    private static LatLon randomLatLon(Random random) {
+        return new LatLon(45 + random.nextDouble() * 5, 5 + random.nextDouble() * 5);
+    }
+}
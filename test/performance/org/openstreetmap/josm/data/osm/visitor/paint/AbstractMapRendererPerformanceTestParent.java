@@ -41,7 +41,8 @@ public abstract class AbstractMapRendererPerformanceTestParent {
     protected static NavigatableComponent nc;
     private static DataSet dsRestriction;
     private static DataSet dsMultipolygon;
-    private static DataSet dsCity;
+    @SuppressFBWarnings(value = "MS_PKGPROTECT")
+    protected static DataSet dsCity;
 
     /**
      * Global timeout applied to all test methods.
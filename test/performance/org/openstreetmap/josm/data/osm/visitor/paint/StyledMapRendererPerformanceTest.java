@@ -8,7 +8,14 @@ import javax.imageio.ImageIO;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.gui.mappaint.StyleCacheInvalidator;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -34,6 +41,61 @@ public class StyledMapRendererPerformanceTest extends AbstractMapRendererPerform
         return new StyledMapRenderer(g, nc, false);
     }
 
+    /**
+     * Compares rendering after a tag change, when only the styles depending on the changed way are invalidated,
+     * to rendering after the styles of all primitives have been invalidated.
+     */
+    @Test
+    public void testCityStyleInvalidation() {
+        final int iterations = 20;
+        Bounds bounds = new Bounds(53.51, 13.20, 53.59, 13.34);
+        Rendering visitor = buildRenderer();
+        nc.zoomTo(bounds);
+        dsCity.addDataSetListener(StyleCacheInvalidator.getInstance());
+        try {
+            Way way = null;
+            for (Way w : dsCity.getWays()) {
+                if (w.hasKey("highway") && w.isUsable()) {
+                    way = w;
+                    break;
+                }
+            }
+            visitor.render(dsCity, true, bounds);
+
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer("render city after a tag change " + iterations + " times");
+            int invalidated = 0;
+            for (int i = 0; i < iterations; i++) {
+                int cached = countCachedStyles();
+                way.put("name", "test " + i);
+                invalidated = cached - countCachedStyles();
+                visitor.render(dsCity, true, bounds);
+            }
+            timer.done();
+            PerformanceTestUtils.measurementPlotsPluginOutput("styles invalidated by a tag change", invalidated);
+
+            timer = PerformanceTestUtils.startTimer("render city after invalidating all styles " + iterations + " times");
+            for (int i = 0; i < iterations; i++) {
+                for (OsmPrimitive p : dsCity.allPrimitives()) {
+                    p.clearCachedStyle();
+                }
+                visitor.render(dsCity, true, bounds);
+            }
+            timer.done();
+        } finally {
+            dsCity.removeDataSetListener(StyleCacheInvalidator.getInstance());
+        }
+    }
+
+    private static int countCachedStyles() {
+        int count = 0;
+        for (OsmPrimitive p : dsCity.allPrimitives()) {
+            if (p.mappaintStyle != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * run this manually to verify that the rendering is set up properly
      * @throws IOException if any I/O error occurs
@@ -0,0 +1,66 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+
+/**
+ * Compares the conversion of arrays of coordinates with the conversion of single points.
+ */
+public class ProjectionPerformanceTest {
+
+    private static final int POINTS = 1000000;
+    private static final int BLOCK_SIZE = 1024;
+    private static final int RUNS = 5;
+
+    /**
+     * Measures the points per second projected by some transverse Mercator, Lambert conformal conic and Mercator
+     * projections, with and without datum shift.
+     */
+    @Test
+    public void testProjectionSpeed() {
+        for (String code : new String[] {"EPSG:3857", "EPSG:32633", "EPSG:2154", "EPSG:31467", "EPSG:27572"}) {
+            Projection p = Projections.getProjectionByCode(code);
+            assertNotNull(code, p);
+            Bounds b = p.getWorldBoundsLatLon();
+            Random random = new Random(42);
+            double[] latlon = new double[2 * POINTS];
+            for (int i = 0; i < POINTS; i++) {
+                latlon[2 * i] = b.getMinLat() + random.nextDouble() * (b.getMaxLat() - b.getMinLat());
+                latlon[2 * i + 1] = b.getMinLon() + random.nextDouble() * (b.getMaxLon() - b.getMinLon());
+            }
+
+            long single = Long.MAX_VALUE;
+            long bulk = Long.MAX_VALUE;
+            double sum = 0;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < POINTS; i++) {
+                    EastNorth en = p.latlon2eastNorth(new LatLon(latlon[2 * i], latlon[2 * i + 1]));
+                    sum += en.east() + en.north();
+                }
+                single = Math.min(single, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                double[] block = new double[2 * BLOCK_SIZE];
+                for (int i = 0; i < POINTS; i += BLOCK_SIZE) {
+                    int count = Math.min(BLOCK_SIZE, POINTS - i);
+                    System.arraycopy(latlon, 2 * i, block, 0, 2 * count);
+                    p.latlon2eastNorth(block, 0, count);
+                    for (int j = 0; j < 2 * count; j++) {
+                        sum += block[j];
+                    }
+                }
+                bulk = Math.min(bulk, System.nanoTime() - start);
+            }
+            System.out.println(String.format("%s %s: %.0f points/s single, %.0f points/s bulk (%s)",
+                    code, p, POINTS * 1e9 / single, POINTS * 1e9 / bulk, sum));
+        }
+    }
+}
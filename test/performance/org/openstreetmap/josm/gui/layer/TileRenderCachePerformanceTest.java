@@ -0,0 +1,130 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.osm.visitor.paint.MapRendererFactory;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.gui.mappaint.MapPaintStyles;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.OsmReader;
+
+/**
+ * Performance test of {@link TileRenderCache}: panning over a city, rendered directly or from the cached tiles.
+ */
+public class TileRenderCachePerformanceTest {
+
+    private static final int VIEW_WIDTH = 1400;
+    private static final int VIEW_HEIGHT = 1050;
+    private static final int STEPS = 40;
+    private static final int STEP_PIXELS = 25;
+
+    private static OsmDataLayer layer;
+
+    /**
+     * A component showing the data at a fixed size, without a screen.
+     */
+    private static final class ViewMock extends NavigatableComponent {
+        ViewMock() {
+            setBounds(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+            updateLocationState();
+        }
+
+        @Override
+        public Point getLocationOnScreen() {
+            return new Point(0, 0);
+        }
+
+        @Override
+        protected boolean isVisibleOnScreen() {
+            return true;
+        }
+    }
+
+    /**
+     * Loads the data.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void load() throws Exception {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+        MapPaintStyles.readFromPreferences();
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File("data_nodist/neubrandenburg.osm.bz2"))) {
+            layer = new OsmDataLayer(OsmReader.parseDataSet(in, null), "test", null);
+        }
+        TileRenderCache.PROP_MIN_PRIMITIVES.put(0);
+    }
+
+    /**
+     * Releases the data.
+     */
+    @AfterClass
+    public static void clean() {
+        TileRenderCache.PROP_MIN_PRIMITIVES.put(null);
+        layer.destroy();
+        layer = null;
+    }
+
+    private static NavigatableComponent prepareView() {
+        NavigatableComponent mv = new ViewMock();
+        mv.zoomTo(new Bounds(53.55, 13.23, 53.57, 13.27));
+        return mv;
+    }
+
+    private static void pan(NavigatableComponent mv) {
+        EastNorth center = mv.getCenter();
+        mv.zoomTo(new EastNorth(center.east() + STEP_PIXELS * mv.getScale(), center.north()));
+    }
+
+    /**
+     * Compares panning with the rendering of the whole view to panning with the tile cache.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPan() throws Exception {
+        BufferedImage img = new BufferedImage(VIEW_WIDTH, VIEW_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.setClip(0, 0, VIEW_WIDTH, VIEW_HEIGHT);
+
+        NavigatableComponent mv = prepareView();
+        MapRendererFactory.getInstance().createActiveRenderer(g, mv, false).render(layer.data, false, mv.getRealBounds());
+        PerformanceTestTimer timer = PerformanceTestUtils.startTimer("render " + STEPS + " panned views directly");
+        for (int i = 0; i < STEPS; i++) {
+            pan(mv);
+            MapRendererFactory.getInstance().createActiveRenderer(g, mv, false).render(layer.data, false, mv.getRealBounds());
+        }
+        timer.done();
+
+        TileRenderCache cache = new TileRenderCache(layer);
+        try {
+            mv = prepareView();
+            if (!cache.paint(g, mv, false, false)) {
+                cache.awaitRendering();
+            }
+            int painted = 0;
+            timer = PerformanceTestUtils.startTimer("paint " + STEPS + " panned views from tiles");
+            for (int i = 0; i < STEPS; i++) {
+                pan(mv);
+                if (cache.paint(g, mv, false, false)) {
+                    painted++;
+                }
+            }
+            timer.done();
+            PerformanceTestUtils.measurementPlotsPluginOutput("views painted from tiles", painted);
+        } finally {
+            cache.destroy();
+        }
+    }
+}
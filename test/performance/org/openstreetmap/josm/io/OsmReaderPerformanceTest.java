@@ -65,6 +65,51 @@ public class OsmReaderPerformanceTest {
         runTest(".osm-file", true);
     }
 
+    /**
+     * Compares the throughput of {@link OsmReader} (1 thread) and {@link ParallelOsmReader} reading a .osm file (from memory)
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testParallel() throws Exception {
+        InputStream is = loadFile(true);
+        double megabytes = is.available() / 1e6;
+        for (int threads : new int[] {1, 2, 4, 8}) {
+            long start = System.nanoTime();
+            DataSet ds = null;
+            for (int i = 0; i < TIMES; i++) {
+                is.reset();
+                ds = ParallelOsmReader.parseDataSet(is, null, threads);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            assertNotNull(ds);
+            PerformanceTestUtils.measurementPlotsPluginOutput(".osm-file throughput with " + threads + " threads (MB/s)",
+                    megabytes * TIMES / seconds);
+        }
+    }
+
+    /**
+     * Simulates a read of the same data written as .osm.pbf file (from memory)
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPbf() throws Exception {
+        ByteArrayOutputStream pbf = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(pbf)) {
+            writer.write(OsmReader.parseDataSet(loadFile(true), null));
+        }
+        InputStream is = new ByteArrayInputStream(pbf.toByteArray());
+        for (int threads : new int[] {1, 4}) {
+            PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load .osm.pbf-file with " + threads + " threads " + TIMES + " times");
+            DataSet ds = null;
+            for (int i = 0; i < TIMES; i++) {
+                is.reset();
+                ds = new PbfReader(threads).doParseDataSet(is, null);
+            }
+            timer.done();
+            assertNotNull(ds);
+        }
+    }
+
     private void runTest(String what, boolean decompressBeforeRead) throws IllegalDataException, IOException {
         InputStream is = loadFile(decompressBeforeRead);
         PerformanceTestTimer timer = PerformanceTestUtils.startTimer("load " + what + " " + TIMES + " times");
@@ -0,0 +1,69 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.PerformanceTestUtils;
+import org.openstreetmap.josm.PerformanceTestUtils.PerformanceTestTimer;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * This test tests how fast we are at writing an OSM file.
+ * <p>
+ * For this, we use the neubrandenburg-file, which is a good real world example of an OSM file.
+ */
+public class OsmWriterPerformanceTest {
+    private static final int TIMES = 4;
+    private static final String DATA_FILE = "data_nodist/neubrandenburg.osm.bz2";
+
+    /**
+     * Prepare the test.
+     */
+    @BeforeClass
+    public static void createJOSMFixture() {
+        JOSMFixture.createPerformanceTestFixture().init(true);
+    }
+
+    /**
+     * Compares {@link OsmWriter} and {@link ParallelOsmWriter} writing a plain and a compressed file.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testWrite() throws Exception {
+        OsmDataLayer layer;
+        try (InputStream in = Compression.getUncompressedFileInputStream(new File(DATA_FILE))) {
+            layer = new OsmDataLayer(OsmReader.parseDataSet(in, null), "test", null);
+        }
+        for (String extension : new String[] {".osm", ".osm.gz"}) {
+            File file = File.createTempFile("josm.OsmWriterPerformanceTest", extension);
+            try {
+                PerformanceTestTimer timer = PerformanceTestUtils.startTimer("write " + extension + " with OsmWriter " + TIMES + " times");
+                for (int i = 0; i < TIMES; i++) {
+                    try (Writer writer = new OutputStreamWriter(Compression.getCompressedFileOutputStream(file), StandardCharsets.UTF_8);
+                         OsmWriter w = OsmWriterFactory.createOsmWriter(new PrintWriter(writer), false, layer.data.getVersion())) {
+                        w.writeLayer(layer);
+                    }
+                }
+                timer.done();
+                for (int threads : new int[] {1, 4}) {
+                    timer = PerformanceTestUtils.startTimer("write " + extension + " with " + threads + " threads " + TIMES + " times");
+                    for (int i = 0; i < TIMES; i++) {
+                        new ParallelOsmWriter(threads).writeLayer(layer, file);
+                    }
+                    timer.done();
+                }
+            } finally {
+                Utils.deleteFile(file);
+            }
+        }
+    }
+}
@@ -3,9 +3,14 @@ package org.openstreetmap.josm.actions.search;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.actions.search.SearchCompiler.Match;
@@ -448,4 +453,39 @@ public class SearchCompilerTest {
         assertTrue(SearchCompiler.compile(search2).match(tag1));
         assertTrue(SearchCompiler.compile(search2).match(tag2));
     }
+
+    /**
+     * Tests that the candidates found with the indexes of the dataset contain all matching primitives.
+     * @throws ParseError if an error has been encountered while compiling
+     */
+    @Test
+    public void testCandidates() throws ParseError {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 30; i++) {
+            Node n = new Node(new LatLon(i, i));
+            n.put(i % 2 == 0 ? "highway" : "Highway", i % 3 == 0 ? "crossing" : "stop");
+            ds.addPrimitive(n);
+            Way w = new Way();
+            w.addNode(n);
+            w.put("highway", i % 3 == 0 ? "primary" : "residential");
+            ds.addPrimitive(w);
+            ds.addPrimitive(new Node(new LatLon(-i, i)));
+        }
+        ds.getTagIndex();
+        for (String search : new String[] {"highway=*", "highway=* type:way", "type:node", "highway:prim", "highway=stop",
+                "highway=crossing OR type:way", "highway=crossing XOR Highway=*", "-highway=crossing", "highway=crossing type:node"}) {
+            Match m = SearchCompiler.compile(search);
+            Collection<? extends OsmPrimitive> candidates = m.getCandidates(ds);
+            Set<OsmPrimitive> expected = new HashSet<>(ds.getPrimitives(m));
+            assertFalse(search, expected.isEmpty());
+            if (search.startsWith("-")) {
+                assertNull(search, candidates);
+            } else {
+                assertTrue(search, candidates.size() < ds.allPrimitives().size());
+                assertTrue(search, candidates.containsAll(expected));
+            }
+        }
+        assertEquals(30, SearchCompiler.compile("highway=* type:way").getCandidates(ds).size());
+        assertEquals(60, SearchCompiler.compile("highway:stop").getCandidates(ds).size());
+    }
 }
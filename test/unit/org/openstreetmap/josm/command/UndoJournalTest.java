@@ -0,0 +1,74 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.command;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.command.CommandTest.CommandTestData;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link UndoJournal} class.
+ */
+public class UndoJournalTest {
+
+    /**
+     * We need prefs for nodes.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().i18n();
+
+    /**
+     * Tests that the journal file is compacted when most of its entries are not needed anymore, and that the remaining
+     * entries can still be read.
+     * @throws Exception if the journal cannot be written
+     */
+    @Test
+    public void testCompaction() throws Exception {
+        CommandTestData data = new CommandTestData();
+        Node node = data.existingNode;
+        Random random = new Random(42);
+        List<Command> commands = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        UndoJournal journal = new UndoJournal();
+        try {
+            // large values which do not compress well, so that the journal exceeds the minimum compaction size
+            for (int i = 0; i < 40; i++) {
+                values.add(node.get("existing"));
+                char[] value = new char[(int) (UndoJournal.COMPACT_MIN_SIZE / 10)];
+                for (int j = 0; j < value.length; j++) {
+                    value[j] = (char) ('!' + random.nextInt(90));
+                }
+                Command c = new ChangePropertyCommand(node, "existing", new String(value));
+                c.executeCommand();
+                c.compactUndoData();
+                int hashCode = c.hashCode();
+                assertTrue(journal.spill(c));
+                assertEquals(hashCode, c.hashCode());
+                commands.add(c);
+            }
+            long size = journal.getSize();
+            for (int i = 0; i < 30; i++) {
+                journal.discard(commands.get(i));
+            }
+            assertTrue(journal.getSize() < size / 2);
+
+            for (int i = commands.size() - 1; i >= 30; i--) {
+                commands.get(i).undoCommand();
+                assertEquals(values.get(i), node.get("existing"));
+            }
+        } finally {
+            journal.clear();
+        }
+    }
+}
@@ -2,14 +2,25 @@
 package org.openstreetmap.josm.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.preferences.ColorProperty;
+import org.openstreetmap.josm.data.preferences.PreferencesSnapshot;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -26,6 +37,69 @@ public class PreferencesTest {
     @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
     public JOSMTestRules test = new JOSMTestRules().platform().preferences().fakeAPI();
 
+    /**
+     * Temporary preferences directory.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Preferences createPreferences() {
+        return new Preferences() {
+            @Override
+            public File getPreferencesDirectory() {
+                return folder.getRoot();
+            }
+
+            @Override
+            public File getCacheDirectory() {
+                return folder.getRoot();
+            }
+        };
+    }
+
+    /**
+     * Tests that changed settings are saved together by {@link Preferences#flush}, and loaded again from the snapshot,
+     * unless the XML file has been changed.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testFlushAndSnapshot() throws IOException {
+        Preferences pref = createPreferences();
+        pref.init(false);
+        File xml = pref.getPreferenceFile();
+        long length = xml.length();
+        pref.put("test.string", "foo");
+        pref.putCollection("test.list", Arrays.asList("a", "b"));
+        pref.putArray("test.lists", Collections.<Collection<String>>singletonList(Arrays.asList("c", "d")));
+        pref.putListOfStructs("test.maps", Collections.singletonList(Collections.singletonMap("key", "value")));
+        // saved later, in the background
+        assertEquals(length, xml.length());
+        pref.flush();
+        assertTrue(xml.length() > length);
+        assertTrue(pref.getSnapshotFile().isFile());
+
+        PreferencesSnapshot snapshot = PreferencesSnapshot.read(pref.getSnapshotFile(), xml);
+        assertEquals("foo", snapshot.getSettings().get("test.string").getValue());
+        Preferences loaded = createPreferences();
+        loaded.init(false);
+        assertEquals("foo", loaded.get("test.string"));
+        assertEquals(Arrays.asList("a", "b"), loaded.getCollection("test.list"));
+        assertEquals(Collections.singletonList(Arrays.asList("c", "d")), loaded.getArray("test.lists"));
+        Collection<Map<String, String>> maps = loaded.getListOfStructs("test.maps", (Collection<Map<String, String>>) null);
+        assertEquals(Collections.singletonList(Collections.singletonMap("key", "value")), maps);
+
+        // an edited XML file invalidates the snapshot
+        String edited = loaded.toXML(false).replace("value='foo'", "value='bar'");
+        try (PrintWriter out = new PrintWriter(xml, StandardCharsets.UTF_8.name())) {
+            out.print(edited);
+        }
+        assertNull(PreferencesSnapshot.read(pref.getSnapshotFile(), xml));
+        Preferences reloaded = createPreferences();
+        reloaded.init(false);
+        assertEquals("bar", reloaded.get("test.string"));
+    }
+
     /**
      * Test color name.
      */
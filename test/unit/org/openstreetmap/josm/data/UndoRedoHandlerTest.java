@@ -0,0 +1,121 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.command.ChangeNodesCommand;
+import org.openstreetmap.josm.command.ChangePropertyCommand;
+import org.openstreetmap.josm.command.ChangeRelationMemberRoleCommand;
+import org.openstreetmap.josm.command.Command;
+import org.openstreetmap.josm.command.CommandTest.CommandTestDataWithRelation;
+import org.openstreetmap.josm.command.MoveCommand;
+import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link UndoRedoHandler} class.
+ */
+public class UndoRedoHandlerTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().i18n().projection();
+
+    /**
+     * Tests that commands are undone and redone correctly when only the changes are kept, and when the undo data of
+     * the older commands has been moved to the journal.
+     */
+    @Test
+    public void testUndoRedoWithJournal() {
+        CommandTestDataWithRelation data = new CommandTestDataWithRelation();
+        Main.pref.putInteger("undo.max-memory", 0);
+        UndoRedoHandler handler = new UndoRedoHandler();
+        try {
+            Node node = data.existingNode;
+            List<Node> reversed = data.existingWay.getNodes();
+            Collections.reverse(reversed);
+
+            Command changeTag = new ChangePropertyCommand(node, "existing", "changed");
+            handler.add(changeTag);
+            assertEquals("existing", changeTag.getOrig(node).get("existing"));
+            long memoryUsage = changeTag.getMemoryUsage();
+            handler.add(new MoveCommand(data.existingNode2, 100, 100));
+            handler.add(new ChangeNodesCommand(data.existingWay, reversed));
+            handler.add(new ChangeRelationMemberRoleCommand(data.existingRelation, 0, "role"));
+            // both commands change the same tag of the same node
+            handler.add(new SequenceCommand("sequence",
+                    new ChangePropertyCommand(node, "sequence", "1"),
+                    new ChangePropertyCommand(node, "sequence", "2")));
+            assertTrue(changeTag.getMemoryUsage() < memoryUsage);
+            assertEquals(5, handler.commands.size());
+
+            handler.undo(5);
+            assertTrue(handler.commands.isEmpty());
+            assertEquals("existing", node.get("existing"));
+            assertFalse(node.hasKey("sequence"));
+            assertFalse(node.isModified());
+            assertEquals(LatLon.ZERO, data.existingNode2.getCoor());
+            assertFalse(data.existingNode2.isModified());
+            assertEquals(Arrays.asList(node, data.existingNode2), data.existingWay.getNodes());
+            assertEquals("node", data.existingRelation.getMember(0).getRole());
+            assertFalse(data.existingRelation.isModified());
+
+            handler.redo(5);
+            assertEquals("changed", node.get("existing"));
+            assertEquals("2", node.get("sequence"));
+            assertTrue(node.isModified());
+            assertFalse(LatLon.ZERO.equals(data.existingNode2.getCoor()));
+            assertEquals(reversed, data.existingWay.getNodes());
+            List<String> roles = new ArrayList<>();
+            for (RelationMember member : data.existingRelation.getMembers()) {
+                roles.add(member.getRole());
+            }
+            assertEquals(Arrays.asList("role", "way"), roles);
+
+            handler.clean();
+            assertEquals(0, handler.getMemoryUsage());
+        } finally {
+            Main.pref.put("undo.max-memory", null);
+        }
+    }
+
+    /**
+     * Tests that undoing a command after its primitive has been uploaded restores the old tags, keeps the uploaded
+     * version and marks the primitive as modified.
+     */
+    @Test
+    public void testUndoAfterUpload() {
+        CommandTestDataWithRelation data = new CommandTestDataWithRelation();
+        UndoRedoHandler handler = new UndoRedoHandler();
+        Node node = data.existingNode;
+        handler.add(new ChangePropertyCommand(node, "existing", "changed"));
+        assertTrue(node.isModified());
+
+        // what an upload does to the primitive
+        node.setOsmId(node.getId(), node.getVersion() + 1);
+        node.setModified(false);
+
+        handler.undo();
+        assertEquals("existing", node.get("existing"));
+        assertEquals(2, node.getVersion());
+        assertTrue(node.isModified());
+    }
+}
@@ -0,0 +1,117 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ConcurrentQuadBuckets}.
+ */
+public class ConcurrentQuadBucketsTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static final BBox WORLD = new BBox(-180, -90, 180, 90);
+
+    /**
+     * Searches the buckets from several threads while another thread moves nodes around.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testConcurrentSearch() throws Exception {
+        final ConcurrentQuadBuckets<Node> buckets = new ConcurrentQuadBuckets<>();
+        final List<Node> nodes = new ArrayList<>();
+        final Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            Node n = new Node(new LatLon(random.nextDouble() * 10, random.nextDouble() * 10));
+            nodes.add(n);
+            buckets.add(n);
+        }
+
+        final AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                readers.add(executor.submit(() -> {
+                    Random r = new Random();
+                    while (!stop.get()) {
+                        double lat = r.nextDouble() * 9;
+                        double lon = r.nextDouble() * 9;
+                        for (Node n : buckets.search(new BBox(lon, lat, lon + 1, lat + 1))) {
+                            assertTrue(n.getCoor() != null);
+                        }
+                        // a node is never missing from a search while it is moved
+                        assertEquals(nodes.size(), buckets.search(WORLD).size());
+                    }
+                }));
+            }
+            Future<?> writer = executor.submit(() -> {
+                Random r = new Random(1);
+                for (int i = 0; i < 20000; i++) {
+                    Node n = nodes.get(r.nextInt(nodes.size()));
+                    LatLon coor = new LatLon(r.nextDouble() * 10, r.nextDouble() * 10);
+                    buckets.reindex(n, () -> n.setCoor(coor));
+                }
+            });
+            writer.get(60, TimeUnit.SECONDS);
+            stop.set(true);
+            for (Future<?> reader : readers) {
+                reader.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            stop.set(true);
+            executor.shutdownNow();
+        }
+
+        assertEquals(nodes.size(), buckets.size());
+        assertEquals(nodes.size(), buckets.search(WORLD).size());
+        for (Node n : nodes) {
+            assertTrue(buckets.contains(n));
+            assertEquals(1, buckets.search(n.getBBox()).stream().filter(x -> x == n).count());
+        }
+    }
+
+    /**
+     * Checks that elements can be removed through the iterator.
+     */
+    @Test
+    public void testIteratorRemove() {
+        ConcurrentQuadBuckets<Node> buckets = new ConcurrentQuadBuckets<>();
+        for (int i = 0; i < 100; i++) {
+            buckets.add(new Node(new LatLon(i / 10.0, i / 10.0)));
+        }
+        Iterator<Node> it = buckets.iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        assertTrue(buckets.isEmpty());
+        assertTrue(buckets.search(WORLD).isEmpty());
+        buckets.clear();
+        assertFalse(buckets.iterator().hasNext());
+    }
+}
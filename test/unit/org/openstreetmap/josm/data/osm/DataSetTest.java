@@ -7,8 +7,12 @@ import org.junit.Assert;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.event.DataSetListenerAdapter;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
 
 /**
  * Unit tests for class {@link DataSet}.
@@ -54,4 +58,86 @@ public class DataSetTest {
         Assert.assertTrue("The item found is relation r.", result.contains(r));
         
     }
+
+    /**
+     * Checks that {@link DataSet#searchRelations} follows members that are moved or added.
+     */
+    @Test
+    public void testSearchRelationsAfterMemberChange() {
+        final DataSet ds = new DataSet();
+        Node node = new Node(LatLon.ZERO);
+        Node node2 = new Node(new LatLon(20.0, 20.0));
+        Way way = new Way();
+        way.addNode(node2);
+        Relation r = new Relation(1);
+        r.addMember(new RelationMember("role", node));
+        Relation parent = new Relation(2);
+        parent.addMember(new RelationMember("role", r));
+        ds.addPrimitive(node);
+        ds.addPrimitive(node2);
+        ds.addPrimitive(way);
+        ds.addPrimitive(r);
+        ds.addPrimitive(parent);
+        BBox bbox = new BBox(new LatLon(9.0, 9.0), new LatLon(11.0, 11.0));
+        Assert.assertTrue(ds.searchRelations(bbox).isEmpty());
+
+        // moving a node member moves the relation and its parent relation
+        node.setCoor(new LatLon(10.0, 10.0));
+        List<Relation> result = ds.searchRelations(bbox);
+        Assert.assertEquals(2, result.size());
+        Assert.assertTrue(result.contains(r));
+        Assert.assertTrue(result.contains(parent));
+        Assert.assertTrue(ds.searchRelations(new BBox(new LatLon(-1.0, -1.0), new LatLon(1.0, 1.0))).isEmpty());
+
+        // adding a member extends the bbox of the relation
+        r.addMember(new RelationMember("role", way));
+        bbox = new BBox(new LatLon(19.0, 19.0), new LatLon(21.0, 21.0));
+        Assert.assertEquals(2, ds.searchRelations(bbox).size());
+
+        // moving a node of a way member
+        node2.setCoor(new LatLon(30.0, 30.0));
+        bbox = new BBox(new LatLon(29.0, 29.0), new LatLon(31.0, 31.0));
+        Assert.assertEquals(2, ds.searchRelations(bbox).size());
+        Assert.assertTrue(ds.containsRelation(r));
+        Assert.assertTrue(ds.containsRelation(parent));
+
+        ds.removePrimitive(parent);
+        Assert.assertFalse(ds.containsRelation(parent));
+        Assert.assertEquals(1, ds.searchRelations(bbox).size());
+    }
+
+    /**
+     * Checks that a relation can lose all its members while it is indexed in a data set deep enough to split the
+     * relation index into several buckets.
+     */
+    @Test
+    public void testRemoveAllRelationMembers() {
+        final DataSet ds = new DataSet();
+        List<Relation> relations = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Node node = new Node(new LatLon(i / 10.0, i / 10.0));
+            Relation r = new Relation(i + 1);
+            r.addMember(new RelationMember("role", node));
+            ds.addPrimitive(node);
+            ds.addPrimitive(r);
+            relations.add(r);
+        }
+        Relation r = relations.get(250);
+        BBox before = r.getBBox();
+        List<BBox> oldBBoxes = new ArrayList<>();
+        ds.addDataSetListener(new DataSetListenerAdapter(event -> {
+            if (event instanceof RelationMembersChangedEvent) {
+                oldBBoxes.add(((RelationMembersChangedEvent) event).getOldBBox());
+            }
+        }));
+
+        r.setMembers(Collections.<RelationMember>emptyList());
+        Assert.assertEquals(Collections.singletonList(before), oldBBoxes);
+        Assert.assertTrue(ds.containsRelation(r));
+        Assert.assertFalse(ds.searchRelations(before).contains(r));
+        // a relation without members is indexed at 0,0
+        List<Relation> result = ds.searchRelations(new BBox(new LatLon(-0.05, -0.05), new LatLon(0.05, 0.05)));
+        Assert.assertTrue(result.contains(r));
+        Assert.assertTrue(result.contains(relations.get(0)));
+    }
 }
@@ -1,6 +1,7 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -8,9 +9,13 @@ import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -186,6 +191,105 @@ public class FilterTest {
         }
     }
 
+    /**
+     * Tests that applying the filters to the changed primitives and the primitives depending on them, with the matching
+     * primitives cached, gives the same result as applying them to all primitives again.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testIncremental() throws Exception {
+        DataSet ds;
+        try (InputStream is = new FileInputStream("data_nodist/filterTests.osm")) {
+            ds = OsmReader.parseDataSet(is, NullProgressMonitor.INSTANCE);
+        }
+        Filter f1 = new Filter();
+        f1.text = "highway";
+        f1.inverted = true;
+        f1.hiding = true;
+        Filter f2 = new Filter();
+        f2.text = "water";
+        f2.mode = SearchMode.remove;
+        Filter f3 = new Filter();
+        f3.text = "natural";
+        List<Filter> filters = Arrays.asList(f1, f2, f3);
+
+        FilterMatchCache cache = new FilterMatchCache();
+        cache.setDataSet(ds);
+        FilterMatcher cachedMatcher = new FilterMatcher(cache);
+        cachedMatcher.update(filters);
+        FilterWorker.executeFilters(ds.allPrimitives(), cachedMatcher);
+
+        List<OsmPrimitive> changed = new LinkedList<>();
+        for (Way w : ds.getWays()) {
+            if (w.hasKey("highway")) {
+                w.remove("highway");
+                w.put("natural", "water");
+                changed.add(w);
+            } else if (w.hasKey("natural")) {
+                w.put("highway", "track");
+                changed.add(w);
+            }
+        }
+        assertFalse(changed.isEmpty());
+        Set<OsmPrimitive> related = FilterWorker.getRelatedPrimitives(changed, cachedMatcher.usesParentOrChild());
+        cache.update(related);
+        for (OsmPrimitive osm : FilterWorker.getDependentPrimitives(related)) {
+            FilterWorker.executeFilters(osm, cachedMatcher);
+        }
+        Map<OsmPrimitive, String> incremental = new HashMap<>();
+        for (OsmPrimitive osm : ds.allPrimitives()) {
+            incremental.put(osm, filterCode(osm));
+        }
+
+        FilterMatcher filterMatcher = new FilterMatcher();
+        filterMatcher.update(filters);
+        FilterWorker.executeFilters(ds.allPrimitives(), filterMatcher);
+        for (OsmPrimitive osm : ds.allPrimitives()) {
+            assertEquals(osm.toString(), filterCode(osm), incremental.get(osm));
+        }
+    }
+
+    /**
+     * Tests that a filter depending on the selection is evaluated again when it is toggled after the selection changed,
+     * instead of reusing the matching primitives cached for the previous selection.
+     * @throws ParseError if the filter cannot be parsed
+     */
+    @Test
+    public void testSelectedFilterToggled() throws ParseError {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(new LatLon(1, 1));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        Filter f = new Filter();
+        f.text = "selected";
+        List<Filter> filters = Collections.singletonList(f);
+
+        FilterMatchCache cache = new FilterMatchCache();
+        cache.setDataSet(ds);
+        FilterMatcher matcher = new FilterMatcher(cache);
+        ds.setSelected(n1);
+        matcher.update(filters);
+        FilterWorker.executeFilters(ds.allPrimitives(), matcher);
+        assertTrue(n1.isDisabled());
+        assertFalse(n2.isDisabled());
+
+        // the selection changes, then the filter is disabled and enabled again
+        ds.setSelected(n2);
+        f.enable = false;
+        cache.retain(filters);
+        matcher.update(filters);
+        FilterWorker.executeFilters(ds.allPrimitives(), matcher);
+        assertFalse(n1.isDisabled());
+        assertFalse(n2.isDisabled());
+        f.enable = true;
+        cache.retain(filters);
+        matcher.update(filters);
+        FilterWorker.executeFilters(ds.allPrimitives(), matcher);
+        assertFalse(n1.isDisabled());
+        assertTrue(n2.isDisabled());
+    }
+
     private String filterCode(OsmPrimitive osm) {
         if (!osm.isDisabled())
             return "v";
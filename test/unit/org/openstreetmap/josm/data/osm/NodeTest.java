@@ -1,15 +1,22 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.data.osm;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Rule;
 import org.junit.Test;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.DataSource;
+import org.openstreetmap.josm.data.coor.EastNorth;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.data.projection.Projections;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -42,4 +49,27 @@ public class NodeTest {
         assertNull(n.getCoor());
         assertFalse(n.isOutsideDownloadArea());
     }
+
+    /**
+     * Unit test of {@link Node#updateEastNorthCache}, with more nodes than projected together in one block.
+     */
+    @Test
+    public void testUpdateEastNorthCache() {
+        Projection projection = Projections.getProjectionByCode("EPSG:32633"); // UTM 33N
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            nodes.add(new Node(new LatLon(40 + i * 1e-3, 10 + i * 1e-3)));
+        }
+        Node withoutCoor = new Node();
+        nodes.add(withoutCoor);
+        Node.updateEastNorthCache(nodes, projection);
+        for (Node n : nodes.subList(0, 2500)) {
+            // the cached coordinates are the ones of the given projection, not of the global one
+            EastNorth expected = projection.latlon2eastNorth(n.getCoor());
+            EastNorth en = n.getEastNorth(projection);
+            assertEquals(expected.east(), en.east(), 1e-6);
+            assertEquals(expected.north(), en.north(), 1e-6);
+        }
+        assertNull(withoutCoor.getEastNorth(projection));
+    }
 }
@@ -0,0 +1,164 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PrimitiveIdTable}.
+ */
+public class PrimitiveIdTableTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Tests adding, looking up and removing primitives, including growing the table.
+     */
+    @Test
+    public void testAddGetRemove() {
+        PrimitiveIdTable<Node> table = new PrimitiveIdTable<>();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            Node n = new Node(i);
+            nodes.add(n);
+            assertTrue(table.add(n));
+            Node newNode = new Node();
+            nodes.add(newNode);
+            assertTrue(table.add(newNode));
+        }
+        assertEquals(2000, table.size());
+        assertFalse(table.add(new Node(1)));
+        for (Node n : nodes) {
+            assertSame(n, table.get(n.getUniqueId()));
+        }
+        assertNull(table.get(1001));
+
+        for (int i = 0; i < nodes.size(); i += 2) {
+            assertTrue(table.remove(nodes.get(i)));
+            assertFalse(table.remove(nodes.get(i)));
+        }
+        assertEquals(1000, table.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            Node n = nodes.get(i);
+            if (i % 2 == 0) {
+                assertNull(table.get(n.getUniqueId()));
+            } else {
+                assertSame(n, table.get(n.getUniqueId()));
+            }
+        }
+
+        // removed slots are reused
+        for (int i = 0; i < nodes.size(); i += 2) {
+            assertTrue(table.add(nodes.get(i)));
+        }
+        assertEquals(2000, table.size());
+        for (Node n : nodes) {
+            assertSame(n, table.get(n.getUniqueId()));
+        }
+
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get(1));
+    }
+
+    /**
+     * Tests that the table can be modified while it is iterated over, and that the iterator goes on over the primitives
+     * it started with.
+     */
+    @Test
+    public void testModifyWhileIterating() {
+        PrimitiveIdTable<Node> table = new PrimitiveIdTable<>();
+        for (int i = 1; i <= 100; i++) {
+            table.add(new Node(i));
+        }
+        Set<Node> iterated = new HashSet<>();
+        Iterator<Node> it = table.iterator();
+        while (it.hasNext()) {
+            Node n = it.next();
+            assertTrue(iterated.add(n));
+            assertTrue(table.remove(n));
+            assertTrue(table.add(new Node(n.getUniqueId() + 100)));
+        }
+        assertEquals(100, iterated.size());
+        assertEquals(100, table.size());
+        assertNull(table.get(1));
+        assertNotNull(table.get(200));
+    }
+
+    /**
+     * Tests that the primitives of a data set are the ones of its id tables.
+     */
+    @Test
+    public void testDataSetPrimitives() {
+        DataSet ds = new DataSet();
+        Node n = new Node(1);
+        Way w = new Way(1);
+        Relation r = new Relation(1);
+        ds.addPrimitive(n);
+        ds.addPrimitive(w);
+        ds.addPrimitive(r);
+        assertEquals(3, ds.allPrimitives().size());
+        assertEquals(new HashSet<>(Arrays.asList(n, w, r)), new HashSet<>(ds.allPrimitives()));
+        assertTrue(ds.allPrimitives().contains(w));
+        assertFalse(ds.allPrimitives().contains(new Way(2)));
+
+        // primitives can be removed while the primitives of the data set are iterated over
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            ds.removePrimitive(p);
+        }
+        assertTrue(ds.allPrimitives().isEmpty());
+    }
+
+    /**
+     * Tests that {@link DataSet#getPrimitiveById} finds primitives of the requested type only.
+     */
+    @Test
+    public void testDataSetLookup() {
+        DataSet ds = new DataSet();
+        Node n = new Node(1);
+        Way w = new Way(1);
+        Relation r = new Relation(1);
+        ds.addPrimitive(n);
+        ds.addPrimitive(w);
+        ds.addPrimitive(r);
+        assertSame(n, ds.getPrimitiveById(1, OsmPrimitiveType.NODE));
+        assertSame(w, ds.getPrimitiveById(1, OsmPrimitiveType.WAY));
+        assertSame(r, ds.getPrimitiveById(new SimplePrimitiveId(1, OsmPrimitiveType.RELATION)));
+        assertNull(ds.getPrimitiveById(1, OsmPrimitiveType.CLOSEDWAY));
+        assertNull(ds.getPrimitiveById(2, OsmPrimitiveType.NODE));
+
+        ds.removePrimitive(w);
+        assertNull(ds.getPrimitiveById(1, OsmPrimitiveType.WAY));
+
+        n.setOsmId(5, 1);
+        n.setCoor(LatLon.ZERO);
+        assertNull(ds.getPrimitiveById(1, OsmPrimitiveType.NODE));
+        assertSame(n, ds.getPrimitiveById(5, OsmPrimitiveType.NODE));
+
+        ds.clear();
+        assertNull(ds.getPrimitiveById(5, OsmPrimitiveType.NODE));
+    }
+}
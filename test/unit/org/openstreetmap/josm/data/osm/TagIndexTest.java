@@ -0,0 +1,82 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TagIndex}.
+ */
+public class TagIndexTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Tests that the index built by the dataset follows the added and removed primitives and the changed tags.
+     */
+    @Test
+    public void testUpdates() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        n1.put("amenity", "bench");
+        ds.addPrimitive(n1);
+        TagIndex index = ds.getTagIndex();
+        assertEquals(Collections.singleton(n1), new HashSet<>(index.getPrimitives("amenity")));
+
+        Node n2 = new Node(LatLon.NORTH_POLE);
+        n2.put("amenity", "cafe");
+        n2.put("name", "Foo");
+        ds.addPrimitive(n2);
+        assertEquals(new HashSet<>(Arrays.asList(n1, n2)), new HashSet<>(index.getPrimitives("amenity")));
+        assertEquals(new HashSet<>(Arrays.asList("amenity", "name")), index.getKeys());
+
+        n2.remove("name");
+        n1.put("amenity", "waste_basket");
+        n1.put("highway", "street_lamp");
+        assertFalse(index.getKeys().contains("name"));
+        assertTrue(index.getPrimitives("name").isEmpty());
+        assertEquals(Collections.singleton(n1), new HashSet<>(index.getPrimitives("highway")));
+        assertEquals(2, index.getPrimitives("amenity").size());
+
+        ds.removePrimitive(n1);
+        assertEquals(Collections.singleton(n2), new HashSet<>(index.getPrimitives("amenity")));
+        assertTrue(index.getPrimitives("highway").isEmpty());
+
+        n2.setDeleted(true);
+        ds.cleanupDeletedPrimitives();
+        assertTrue(index.getKeys().isEmpty());
+    }
+
+    /**
+     * Tests {@link DataSet#getPrimitivesByType}.
+     */
+    @Test
+    public void testPrimitivesByType() {
+        DataSet ds = new DataSet();
+        Node n = new Node(LatLon.ZERO);
+        ds.addPrimitive(n);
+        Way w = new Way();
+        w.addNode(n);
+        ds.addPrimitive(w);
+        assertEquals(Collections.singletonList(n), Arrays.asList(ds.getPrimitivesByType(OsmPrimitiveType.NODE).toArray()));
+        assertEquals(Collections.singletonList(w), Arrays.asList(ds.getPrimitivesByType(OsmPrimitiveType.CLOSEDWAY).toArray()));
+        assertTrue(ds.getPrimitivesByType(OsmPrimitiveType.RELATION).isEmpty());
+    }
+}
@@ -0,0 +1,168 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.osm.visitor.paint.relations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.visitor.paint.relations.Multipolygon.PolyData;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MultipolygonCache} class.
+ */
+public class MultipolygonCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences().projection();
+
+    private DataSet ds;
+    private NavigatableComponent nc;
+
+    /**
+     * Creates the data set, listened to by the cache.
+     */
+    @Before
+    public void setUp() {
+        ds = new DataSet();
+        ds.addDataSetListener(MultipolygonCache.getInstance());
+        nc = new NavigatableComponent();
+    }
+
+    private Way addSquare(double lat, double lon, double size) {
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(new Node(new LatLon(lat, lon)));
+        nodes.add(new Node(new LatLon(lat, lon + size)));
+        nodes.add(new Node(new LatLon(lat + size, lon + size)));
+        nodes.add(new Node(new LatLon(lat + size, lon)));
+        for (Node n : nodes) {
+            ds.addPrimitive(n);
+        }
+        nodes.add(nodes.get(0));
+        Way w = new Way();
+        w.setNodes(nodes);
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    private Relation addMultipolygon(List<Way> outers, List<Way> inners) {
+        Relation r = new Relation();
+        r.put("type", "multipolygon");
+        for (Way w : outers) {
+            r.addMember(new RelationMember("outer", w));
+        }
+        for (Way w : inners) {
+            r.addMember(new RelationMember("inner", w));
+        }
+        ds.addPrimitive(r);
+        return r;
+    }
+
+    private static boolean contains(PolyData pd, LatLon ll) {
+        EastNorth en = Main.getProjection().latlon2eastNorth(ll);
+        return pd.get().contains(en.east(), en.north());
+    }
+
+    /**
+     * Tests that moved nodes of outer and inner rings are reflected by the cached multipolygon.
+     */
+    @Test
+    public void testNodeMoved() {
+        Way outer = addSquare(0, 0, 1);
+        Way inner = addSquare(0.4, 0.4, 0.2);
+        Relation r = addMultipolygon(Collections.singletonList(outer), Collections.singletonList(inner));
+        Multipolygon mp = MultipolygonCache.getInstance().get(nc, r);
+        PolyData pd = mp.getCombinedPolygons().get(0);
+        assertTrue(contains(pd, new LatLon(0.9, 0.9)));
+        assertFalse(contains(pd, new LatLon(0.5, 0.5)));
+
+        // enlarge the outer ring
+        outer.getNode(2).setCoor(new LatLon(1.5, 1.5));
+        // move the inner ring away from the center
+        inner.getNode(0).setCoor(new LatLon(0.2, 0.2));
+        inner.getNode(1).setCoor(new LatLon(0.2, 0.3));
+        inner.getNode(2).setCoor(new LatLon(0.3, 0.3));
+        inner.getNode(3).setCoor(new LatLon(0.3, 0.2));
+
+        assertSame(mp, MultipolygonCache.getInstance().get(nc, r));
+        assertTrue(contains(pd, new LatLon(1.2, 1.2)));
+        assertTrue(contains(pd, new LatLon(0.5, 0.5)));
+        assertFalse(contains(pd, new LatLon(0.25, 0.25)));
+        EastNorth corner = Main.getProjection().latlon2eastNorth(new LatLon(1.5, 1.5));
+        assertEquals(corner.east(), pd.getBounds().getMaxX(), 1e-6);
+    }
+
+    /**
+     * Tests that a changed inner way is joined again without changing the outer ring.
+     */
+    @Test
+    public void testWayNodesChanged() {
+        Way outer = addSquare(0, 0, 1);
+        Way inner = addSquare(0.4, 0.4, 0.2);
+        Relation r = addMultipolygon(Collections.singletonList(outer), Collections.singletonList(inner));
+        PolyData pd = MultipolygonCache.getInstance().get(nc, r).getCombinedPolygons().get(0);
+        assertTrue(contains(pd, new LatLon(0.65, 0.5)));
+
+        Node n = new Node(new LatLon(0.7, 0.5));
+        ds.addPrimitive(n);
+        List<Node> nodes = inner.getNodes();
+        nodes.add(3, n);
+        inner.setNodes(nodes);
+
+        assertEquals(outer.getNodes(), pd.getNodes());
+        assertEquals(nodes, pd.getInners().get(0).getNodes());
+        assertFalse(contains(pd, new LatLon(0.65, 0.5)));
+        assertTrue(contains(pd, new LatLon(0.9, 0.5)));
+    }
+
+    /**
+     * Tests that inner rings are assigned to the outer ring containing them when there are many outer rings.
+     */
+    @Test
+    public void testInnerAssignment() {
+        List<Way> outers = new ArrayList<>();
+        List<Way> inners = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                outers.add(addSquare(i, j, 0.9));
+                inners.add(addSquare(i + 0.4, j + 0.4, 0.1));
+            }
+        }
+        // a large outer ring around the others, with an inner ring in a gap
+        outers.add(addSquare(-1, -1, 12));
+        inners.add(addSquare(-0.5, -0.5, 0.2));
+        Relation r = addMultipolygon(outers, inners);
+
+        List<PolyData> combined = MultipolygonCache.getInstance().get(nc, r).getCombinedPolygons();
+        assertEquals(outers.size(), combined.size());
+        for (int i = 0; i < combined.size(); i++) {
+            PolyData pd = combined.get(i);
+            assertEquals(Collections.singletonList(outers.get(i).getUniqueId()), new ArrayList<>(pd.getWayIds()));
+            assertEquals(1, pd.getInners().size());
+            assertEquals(Collections.singletonList(inners.get(i).getUniqueId()), new ArrayList<>(pd.getInners().get(0).getWayIds()));
+        }
+    }
+}
@@ -213,4 +213,65 @@ public class ProjectionRegressionTest {
             throw new AssertionError(fail.toString());
         }
     }
+
+    /**
+     * Non-regression unit test of the conversion of arrays of coordinates.
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testBulkNonRegression() throws IOException {
+        Map<String, List<TestData>> dataByCode = new HashMap<>();
+        for (TestData data : readData()) {
+            dataByCode.computeIfAbsent(data.code, k -> new ArrayList<>()).add(data);
+        }
+
+        StringBuilder fail = new StringBuilder();
+
+        for (Map.Entry<String, List<TestData>> e : dataByCode.entrySet()) {
+            Projection proj = Projections.getProjectionByCode(e.getKey());
+            if (proj == null) {
+                continue; // reported by testNonRegression
+            }
+            List<TestData> list = e.getValue();
+            // the coordinates start at an offset, to check that it is taken into account
+            double[] latlon = new double[2 * list.size() + 1];
+            double[] eastnorth = new double[2 * list.size() + 1];
+            for (int i = 0; i < list.size(); i++) {
+                latlon[2 * i + 1] = list.get(i).ll.lat();
+                latlon[2 * i + 2] = list.get(i).ll.lon();
+                eastnorth[2 * i + 1] = list.get(i).en.east();
+                eastnorth[2 * i + 2] = list.get(i).en.north();
+            }
+            proj.latlon2eastNorth(latlon, 1, list.size());
+            proj.eastNorth2latlon(eastnorth, 1, list.size());
+            for (int i = 0; i < list.size(); i++) {
+                TestData data = list.get(i);
+                EastNorth en = new EastNorth(latlon[2 * i + 1], latlon[2 * i + 2]);
+                LatLon ll2 = new LatLon(eastnorth[2 * i + 1], eastnorth[2 * i + 2]);
+                if (TestUtils.getJavaVersion() >= 9) {
+                    en = getRoundedToOsmPrecision(en.east(), en.north());
+                    ll2 = ll2.getRoundedToOsmPrecision();
+                    data.en = getRoundedToOsmPrecision(data.en.east(), data.en.north());
+                    data.ll2 = data.ll2.getRoundedToOsmPrecision();
+                }
+                if (!en.equals(data.en)) {
+                    fail.append(String.format("%s (%s): Projecting latlon(%s,%s) in bulk:%n" +
+                            "        expected: eastnorth(%s,%s),%n" +
+                            "        but got:  eastnorth(%s,%s)!%n",
+                            proj.toString(), data.code, data.ll.lat(), data.ll.lon(), data.en.east(), data.en.north(), en.east(), en.north()));
+                }
+                if (!ll2.equals(data.ll2)) {
+                    fail.append(String.format("%s (%s): Inverse projecting eastnorth(%s,%s) in bulk:%n" +
+                            "        expected: latlon(%s,%s),%n" +
+                            "        but got:  latlon(%s,%s)!%n",
+                            proj.toString(), data.code, data.en.east(), data.en.north(), data.ll2.lat(), data.ll2.lon(), ll2.lat(), ll2.lon()));
+                }
+            }
+        }
+
+        if (fail.length() > 0) {
+            System.err.println(fail.toString());
+            throw new AssertionError(fail.toString());
+        }
+    }
 }
@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.projection.datum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.io.CachedFile;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link NTV2GridShiftFile}.
+ */
+public class NTV2GridShiftFileTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static void assertShift(NTV2GridShiftFile file, double lat, double lon, double latShift, double lonShift) {
+        NTV2GridShift gs = new NTV2GridShift(new LatLon(lat, lon));
+        assertTrue(file.gridShiftForward(gs));
+        assertEquals(latShift, gs.getLatShiftDegrees(), 1e-12);
+        assertEquals(lonShift, gs.getLonShiftPositiveEastDegrees(), 1e-12);
+    }
+
+    private static void assertNtfShifts(NTV2GridShiftFile file) {
+        assertShift(file, 48.85, 2.35, -6.643743047283755E-5, -7.044063177373674E-4);
+        assertShift(file, 43.3, 5.4, 2.384444491730796E-5, -5.324138866530524E-4);
+        assertShift(file, 47.2, -1.55, -7.093291729688644E-5, -8.702998691134982E-4);
+        assertFalse(file.gridShiftForward(new NTV2GridShift(LatLon.ZERO)));
+    }
+
+    /**
+     * Tests that a grid shift file read from a stream, from a byte array and from a memory mapped file gives the same
+     * shifts, and that the node data is only decoded when needed.
+     * @throws IOException if the grid file cannot be read
+     */
+    @Test
+    public void testLoad() throws IOException {
+        NTV2GridShiftFile mapped = new NTV2GridShiftFileWrapper("data/projection/ntf_r93_b.gsb").getShiftFile();
+        assertEquals(0, mapped.getDecodedSubGridCount());
+        assertNtfShifts(mapped);
+        assertEquals(1, mapped.getDecodedSubGridCount());
+
+        byte[] content;
+        try (CachedFile cf = new CachedFile("resource://data/projection/ntf_r93_b.gsb")) {
+            content = cf.getByteContent();
+        }
+        NTV2GridShiftFile wrapped = new NTV2GridShiftFile();
+        wrapped.loadGridShiftFile(ByteBuffer.wrap(content), true);
+        assertNtfShifts(wrapped);
+
+        NTV2GridShiftFile read = new NTV2GridShiftFile();
+        try (InputStream in = new ByteArrayInputStream(content)) {
+            read.loadGridShiftFile(in, false);
+        }
+        assertNtfShifts(read);
+        assertEquals("NTF", read.getFromEllipsoid().trim());
+        assertEquals("RGF93", read.getToEllipsoid().trim());
+    }
+
+    /**
+     * Tests that data which is not a grid shift file is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalid() {
+        new NTV2GridShiftFile().loadGridShiftFile(ByteBuffer.wrap(new byte[200]), false);
+    }
+}
@@ -0,0 +1,155 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link LiveValidator} class.
+ */
+public class LiveValidatorTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules rules = new JOSMTestRules().platform().projection();
+
+    private DataSet ds;
+    private List<TestError> errors;
+    private LiveValidator validator;
+
+    /**
+     * Enables the live validation and creates the validator.
+     */
+    @Before
+    public void setUp() {
+        LiveValidator.PROP_ENABLED.put(true);
+        // validated explicitly by the tests
+        LiveValidator.PROP_DELAY.put(Integer.MAX_VALUE);
+        OsmValidator.initializeGridDetail();
+        ds = new DataSet();
+        errors = new ArrayList<>();
+        validator = new LiveValidator(ds, () -> Collections.<Test>singletonList(new CrossingWays.Ways()),
+                (validated, found) -> errors = LiveValidator.mergeErrors(errors, validated, found));
+    }
+
+    /**
+     * Releases the validator.
+     */
+    @After
+    public void tearDown() {
+        validator.destroy();
+    }
+
+    private Way addHighway(double lat1, double lon1, double lat2, double lon2) {
+        Node a = new Node(new LatLon(lat1, lon1));
+        Node b = new Node(new LatLon(lat2, lon2));
+        ds.addPrimitive(a);
+        ds.addPrimitive(b);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(a, b));
+        w.put("highway", "residential");
+        ds.addPrimitive(w);
+        return w;
+    }
+
+    /**
+     * Tests that the errors of changed ways and their neighbours are updated, and that other errors are kept.
+     */
+    @org.junit.Test
+    public void testValidateChanged() {
+        Way a = addHighway(0, 0, 0.001, 0.001);
+        Way b = addHighway(0.001, 0, 0, 0.001);
+        Way c = addHighway(1, 1, 1.001, 1.001);
+        Way d = addHighway(1.001, 1, 1, 1.001);
+        validator.validateChanged();
+        assertEquals(2, errors.size());
+        TestError far = errors.get(1).getPrimitives().contains(c) ? errors.get(1) : errors.get(0);
+        assertTrue(far.getPrimitives().containsAll(Arrays.asList(c, d)));
+
+        // move one end of b so that the ways do not cross anymore
+        b.firstNode().setCoor(new LatLon(0.001, 0.0015));
+        validator.validateChanged();
+        assertEquals(Collections.singletonList(far), errors);
+
+        // move it back, a has not been changed but is a neighbour
+        b.firstNode().setCoor(new LatLon(0.001, 0));
+        validator.validateChanged();
+        assertEquals(2, errors.size());
+        assertTrue(errors.contains(far));
+        assertTrue(errors.get(1).getPrimitives().containsAll(Arrays.asList(a, b)));
+
+        // deleting a way removes its errors
+        b.setDeleted(true);
+        validator.validateChanged();
+        assertEquals(Collections.singletonList(far), errors);
+    }
+
+    /**
+     * Tests that no change is validated once the validator is destroyed or disabled.
+     */
+    @org.junit.Test
+    public void testDisabled() {
+        LiveValidator.PROP_ENABLED.put(false);
+        addHighway(0, 0, 0.001, 0.001);
+        addHighway(0.001, 0, 0, 0.001);
+        validator.validateChanged();
+        assertTrue(errors.isEmpty());
+
+        LiveValidator.PROP_ENABLED.put(true);
+        validator.destroy();
+        addHighway(0.001, 0.0005, 0, 0.0005);
+        validator.validateChanged();
+        assertTrue(errors.isEmpty());
+    }
+
+    /**
+     * Tests that the tests are created again when a validator preference changes.
+     */
+    @org.junit.Test
+    public void testPreferenceChange() {
+        validator.destroy();
+        AtomicInteger created = new AtomicInteger();
+        validator = new LiveValidator(ds, () -> {
+            created.incrementAndGet();
+            return Collections.<Test>singletonList(new CrossingWays.Ways());
+        }, (validated, found) -> errors = LiveValidator.mergeErrors(errors, validated, found));
+        addHighway(0, 0, 0.001, 0.001);
+        validator.validateChanged();
+        addHighway(0.001, 0, 0, 0.001);
+        validator.validateChanged();
+        assertEquals(1, created.get());
+        assertEquals(1, errors.size());
+
+        Main.pref.put("validator.live-validator-test", "changed");
+        try {
+            addHighway(0.001, 0.0005, 0, 0.0005);
+            validator.validateChanged();
+            assertEquals(2, created.get());
+            assertEquals(3, errors.size());
+        } finally {
+            Main.pref.put("validator.live-validator-test", null);
+        }
+    }
+}
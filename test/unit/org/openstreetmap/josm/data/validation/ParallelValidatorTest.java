@@ -0,0 +1,162 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.data.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.tests.CrossingWays;
+import org.openstreetmap.josm.data.validation.tests.DuplicatedWayNodes;
+import org.openstreetmap.josm.data.validation.tests.UnconnectedWays;
+import org.openstreetmap.josm.data.validation.tests.UntaggedNode;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParallelValidator} class.
+ */
+public class ParallelValidatorTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules rules = new JOSMTestRules().platform().projection();
+
+    private static List<OsmPrimitive> createData() {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 5000; i++) {
+            Node n = new Node(new LatLon(i * 0.0001, 0));
+            if (i % 3 == 0) {
+                n.put("fixme", "check");
+            } else if (i % 3 == 1) {
+                n.put("note", "-");
+            }
+            ds.addPrimitive(n);
+            if (i % 10 == 9) {
+                Way w = new Way();
+                w.addNode((Node) ds.getPrimitiveById(n.getUniqueId() + 1, n.getType()));
+                w.addNode(n);
+                w.addNode(n);
+                ds.addPrimitive(w);
+            }
+        }
+        return new ArrayList<>(ds.allPrimitives());
+    }
+
+    private static List<TestError> runSequentially(Collection<OsmPrimitive> primitives, Test... tests) {
+        List<TestError> errors = new ArrayList<>();
+        for (Test test : tests) {
+            test.startTest(null);
+            test.visit(primitives);
+            test.endTest();
+            errors.addAll(test.getErrors());
+        }
+        return errors;
+    }
+
+    private static void assertSameErrors(List<TestError> expected, List<TestError> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCode(), actual.get(i).getCode());
+            assertEquals(expected.get(i).getPrimitives(), actual.get(i).getPrimitives());
+        }
+    }
+
+    /**
+     * Tests that the errors are the same as if the tests were run one after another.
+     */
+    @org.junit.Test
+    public void testValidate() {
+        Main.pref.putInteger("validator.numberOfThreads", 4);
+        List<OsmPrimitive> primitives = createData();
+        List<TestError> expected = runSequentially(primitives, new UntaggedNode(), new DuplicatedWayNodes());
+        assertTrue(expected.size() > 4000);
+
+        UntaggedNode untaggedNode = new UntaggedNode();
+        DuplicatedWayNodes duplicatedWayNodes = new DuplicatedWayNodes();
+        ParallelValidator validator = new ParallelValidator(Arrays.<Test>asList(untaggedNode, duplicatedWayNodes));
+        assertSameErrors(expected, validator.validate(primitives, false, null));
+        assertEquals(Arrays.asList(untaggedNode, duplicatedWayNodes), new ArrayList<>(validator.getTimings().keySet()));
+    }
+
+    private static List<OsmPrimitive> createCrossingWays() {
+        DataSet ds = new DataSet();
+        for (int i = 0; i < 40; i++) {
+            Way horizontal = new Way();
+            Way vertical = new Way();
+            for (int j = 0; j < 5; j++) {
+                Node h = new Node(new LatLon(i * 0.0003, j * 0.003 + i * 0.00001));
+                Node v = new Node(new LatLon(j * 0.003, i * 0.0003 + 0.00005));
+                ds.addPrimitive(h);
+                ds.addPrimitive(v);
+                horizontal.addNode(h);
+                vertical.addNode(v);
+            }
+            horizontal.put("highway", "residential");
+            vertical.put(i % 3 == 0 ? "waterway" : i % 3 == 1 ? "highway" : "man_made", "stream");
+            if (i % 4 == 0) {
+                vertical.put("layer", "1");
+            }
+            // crossing itself
+            for (double lon : new double[] {-0.0001, 0.0001}) {
+                Node n = new Node(new LatLon(0.0015, i * 0.0003 + 0.00005 + lon));
+                ds.addPrimitive(n);
+                vertical.addNode(n);
+            }
+            ds.addPrimitive(horizontal);
+            ds.addPrimitive(vertical);
+            // ending near the horizontal way
+            Node a = new Node(new LatLon(i * 0.0003 + 0.00002, 0.0101));
+            Node b = new Node(new LatLon(i * 0.0003 + 0.0002, 0.0102));
+            ds.addPrimitive(a);
+            ds.addPrimitive(b);
+            Way end = new Way();
+            end.setNodes(Arrays.asList(a, b));
+            end.put("highway", "service");
+            ds.addPrimitive(end);
+        }
+        return new ArrayList<>(ds.allPrimitives());
+    }
+
+    private static Set<List<Object>> toSet(List<TestError> errors) {
+        Set<List<Object>> set = new HashSet<>();
+        for (TestError error : errors) {
+            // the way reported with an unconnected node depends on the iteration order of a hash set
+            Collection<?> primitives = error.getCode() == 1301 ? error.getHighlighted() : error.getPrimitives();
+            set.add(Arrays.asList(error.getCode(), error.getMessage(), new HashSet<>(primitives)));
+        }
+        assertEquals(errors.size(), set.size());
+        return set;
+    }
+
+    /**
+     * Tests that the geometric tests find the same errors with the shared geometry index as with their own.
+     */
+    @org.junit.Test
+    public void testSharedGeometryIndex() {
+        List<OsmPrimitive> primitives = createCrossingWays();
+        List<TestError> expected = runSequentially(primitives, new CrossingWays.Ways(), new CrossingWays.SelfCrossing(),
+                new UnconnectedWays.UnconnectedHighways());
+        assertTrue(expected.size() > 500);
+
+        ParallelValidator validator = new ParallelValidator(Arrays.<Test>asList(new CrossingWays.Ways(), new CrossingWays.SelfCrossing(),
+                new UnconnectedWays.UnconnectedHighways()));
+        assertEquals(toSet(expected), toSet(validator.validate(primitives, false, null)));
+    }
+}
@@ -159,6 +159,32 @@ public class MapCSSTagCheckerTest {
         assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("way bar=1"), false).size());
     }
 
+    /**
+     * Tests that the rule index only skips checks which cannot match, and keeps the order of the checks.
+     * @throws ParseException if a parsing error occurs
+     */
+    @Test
+    public void testRuleIndex() throws ParseException {
+        final MapCSSTagChecker test = buildTagChecker("" +
+                "node[amenity=bench] { throwWarning: \"bench\"; }\n" +
+                "way[highway][!name], way[highway=residential] { throwWarning: \"highway\"; }\n" +
+                "area[building] { throwWarning: \"building\"; }\n" +
+                "*[fixme] { set fixme; }\n" +
+                "*.fixme[note] { throwWarning: \"fixme and note\"; }\n");
+        assertEquals(1, test.getErrorsForPrimitive(OsmUtils.createPrimitive("node amenity=bench"), false).size());
+        assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("way amenity=bench"), false).size());
+        assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("node amenity=bar"), false).size());
+        assertEquals(1, test.getErrorsForPrimitive(OsmUtils.createPrimitive("way highway=residential"), false).size());
+        assertEquals(1, test.getErrorsForPrimitive(OsmUtils.createPrimitive("way highway=residential name=a"), false).size());
+        assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("way highway=primary name=a"), false).size());
+        assertEquals(1, test.getErrorsForPrimitive(OsmUtils.createPrimitive("way building=yes"), false).size());
+        assertEquals(1, test.getErrorsForPrimitive(OsmUtils.createPrimitive("relation type=multipolygon building=yes"), false).size());
+        assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("relation building=yes"), false).size());
+        assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("node building=yes"), false).size());
+        assertEquals(1, test.getErrorsForPrimitive(OsmUtils.createPrimitive("node fixme=a note=b"), false).size());
+        assertEquals(0, test.getErrorsForPrimitive(OsmUtils.createPrimitive("node note=b"), false).size());
+    }
+
     @Test
     public void testInit() throws Exception {
         MapCSSTagChecker c = new MapCSSTagChecker();
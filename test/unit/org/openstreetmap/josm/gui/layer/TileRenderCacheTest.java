@@ -0,0 +1,212 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.layer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openstreetmap.josm.JOSMFixture;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.NavigatableComponent;
+
+/**
+ * Unit tests of {@link TileRenderCache} class.
+ */
+public class TileRenderCacheTest {
+
+    private static final int SIZE = 600;
+
+    /**
+     * A component showing the data at a fixed size, without a screen.
+     */
+    private static final class ViewMock extends NavigatableComponent {
+        ViewMock() {
+            setBounds(0, 0, SIZE, SIZE);
+            updateLocationState();
+        }
+
+        @Override
+        public Point getLocationOnScreen() {
+            return new Point(0, 0);
+        }
+
+        @Override
+        protected boolean isVisibleOnScreen() {
+            return true;
+        }
+    }
+
+    private DataSet ds;
+    private OsmDataLayer layer;
+    private TileRenderCache cache;
+    private NavigatableComponent mv;
+    private Node first;
+    private Node single;
+
+    /**
+     * Setup tests
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() {
+        JOSMFixture.createUnitTestFixture().init(true);
+    }
+
+    /**
+     * Creates a data set with a grid of ways and a cache using tiles for it.
+     */
+    @Before
+    public void setUp() {
+        TileRenderCache.PROP_MIN_PRIMITIVES.put(0);
+        mv = new ViewMock();
+        mv.zoomTo(new Bounds(0, 0, 0.01, 0.01));
+        ds = new DataSet();
+        for (int i = 0; i < 20; i++) {
+            Way w = new Way();
+            for (int j = 0; j < 20; j++) {
+                Node n = new Node(mv.getLatLon(j * SIZE / 20, i * SIZE / 20));
+                ds.addPrimitive(n);
+                w.addNode(n);
+                if (first == null) {
+                    first = n;
+                }
+            }
+            w.put("highway", "residential");
+            ds.addPrimitive(w);
+        }
+        single = new Node(mv.getLatLon(SIZE - 10, 10));
+        ds.addPrimitive(single);
+        layer = new OsmDataLayer(ds, "", null);
+        cache = new TileRenderCache(layer);
+    }
+
+    /**
+     * Restores the preferences and releases the cache.
+     */
+    @After
+    public void tearDown() {
+        cache.destroy();
+        layer.destroy();
+        TileRenderCache.PROP_MIN_PRIMITIVES.put(null);
+    }
+
+    private boolean paint(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setClip(0, 0, SIZE, SIZE);
+            return cache.paint(g, mv, false, false);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static int[] getPixels(BufferedImage image) {
+        return image.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+    }
+
+    private static int countPaintedPixels(BufferedImage image) {
+        int count = 0;
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if (image.getRGB(x, y) != 0) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests that the data is rendered in the background first, then painted from the tiles.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPaint() throws Exception {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        assertFalse(paint(image));
+        cache.awaitRendering();
+        assertTrue(cache.getTileCount() >= 9);
+        assertEquals(0, cache.getStaleTileCount());
+
+        assertTrue(paint(image));
+        assertTrue(countPaintedPixels(image) > 0);
+    }
+
+    /**
+     * Tests that only the tiles showing a changed primitive become stale.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testInvalidation() throws Exception {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        paint(image);
+        cache.awaitRendering();
+        int tiles = cache.getTileCount();
+
+        single.put("amenity", "bench");
+        int stale = cache.getStaleTileCount();
+        assertTrue(stale > 0);
+        assertTrue(stale < tiles);
+
+        // the tiles are painted while they are rendered again
+        assertTrue(paint(image));
+        cache.awaitRendering();
+        assertEquals(0, cache.getStaleTileCount());
+
+        // the area the node has been moved from needs to be rendered again
+        single.setCoor(mv.getLatLon(10, SIZE - 10));
+        assertTrue(cache.getStaleTileCount() > stale);
+        assertTrue(paint(image));
+        cache.awaitRendering();
+        assertEquals(0, cache.getStaleTileCount());
+
+        // the selection is checked when painting, and shown before the tiles are rendered again
+        BufferedImage unselected = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        assertTrue(paint(unselected));
+        ds.setSelected(first.getReferrers());
+        BufferedImage selected = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        assertTrue(paint(selected));
+        assertFalse(Arrays.equals(getPixels(unselected), getPixels(selected)));
+        cache.awaitRendering();
+        assertEquals(0, cache.getStaleTileCount());
+        BufferedImage fromTiles = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        assertTrue(paint(fromTiles));
+        assertFalse(Arrays.equals(getPixels(unselected), getPixels(fromTiles)));
+
+        cache.invalidateAll();
+        assertEquals(tiles, cache.getStaleTileCount());
+    }
+
+    /**
+     * Tests that only the preferences used for rendering mark the tiles as stale.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testPreferences() throws Exception {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        paint(image);
+        cache.awaitRendering();
+        int tiles = cache.getTileCount();
+        try {
+            Main.pref.put("tile-render-cache-test", "unrelated");
+            assertEquals(0, cache.getStaleTileCount());
+            Main.pref.putInteger("mappaint.node.selected-size", 7);
+            assertEquals(tiles, cache.getStaleTileCount());
+        } finally {
+            Main.pref.put("tile-render-cache-test", null);
+            Main.pref.put("mappaint.node.selected-size", null);
+        }
+    }
+}
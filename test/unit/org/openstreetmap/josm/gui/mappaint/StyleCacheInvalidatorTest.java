@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.mappaint.StyleCacheInvalidator.Dependencies;
+import org.openstreetmap.josm.gui.mappaint.mapcss.MapCSSStyleSource;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link StyleCacheInvalidator} class.
+ */
+public class StyleCacheInvalidatorTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static Dependencies dependencies(String css) {
+        MapCSSStyleSource source = new MapCSSStyleSource(css);
+        source.loadStyleSource();
+        return StyleCacheInvalidator.computeDependencies(Collections.<StyleSource>singletonList(source));
+    }
+
+    /**
+     * Tests the analysis of the selectors.
+     */
+    @Test
+    public void testDependencies() {
+        Dependencies d = dependencies("way[highway] { color: red; }");
+        assertEquals(1, d.parentLevels);
+        assertEquals(1, d.childLevels);
+        assertFalse(d.global);
+
+        d = dependencies("relation[type=route] > way { color: red; } way < node[tourism] { color: blue; }");
+        assertEquals(1, d.parentLevels);
+        assertEquals(1, d.childLevels);
+        assertFalse(d.global);
+
+        d = dependencies("node[highway=crossing] + node[highway=traffic_signals] { symbol-shape: circle; }");
+        assertEquals(2, d.parentLevels);
+        assertEquals(2, d.childLevels);
+        assertFalse(d.global);
+
+        d = dependencies("way[building] ∈ *[landuse] { color: red; }");
+        assertTrue(d.global);
+    }
+
+    /**
+     * Tests that tag changes clear the styles of the changed primitive, its children and parents.
+     */
+    @Test
+    public void testTagsChanged() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.NORTH_POLE);
+        Node other = new Node(LatLon.SOUTH_POLE);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        Relation r = new Relation();
+        r.addMember(new RelationMember("", w));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(other);
+        ds.addPrimitive(w);
+        ds.addPrimitive(r);
+        ds.addDataSetListener(StyleCacheInvalidator.getInstance());
+
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            p.mappaintStyle = StyleCache.EMPTY_STYLECACHE;
+        }
+        w.put("highway", "residential");
+        assertNull(w.mappaintStyle);
+        assertNull(n1.mappaintStyle);
+        assertNull(n2.mappaintStyle);
+        assertNull(r.mappaintStyle);
+        assertNotNull(other.mappaintStyle);
+
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            p.mappaintStyle = StyleCache.EMPTY_STYLECACHE;
+        }
+        n1.setCoor(LatLon.SOUTH_POLE);
+        assertNull(n1.mappaintStyle);
+        assertNull(w.mappaintStyle);
+        assertNotNull(other.mappaintStyle);
+    }
+
+    /**
+     * Tests that the styles of referrers are cleared on tag changes in data sets without {@link StyleCacheInvalidator}.
+     */
+    @Test
+    public void testWithoutInvalidator() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(LatLon.ZERO);
+        Node n2 = new Node(LatLon.NORTH_POLE);
+        Way w = new Way();
+        w.setNodes(Arrays.asList(n1, n2));
+        ds.addPrimitive(n1);
+        ds.addPrimitive(n2);
+        ds.addPrimitive(w);
+
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            p.mappaintStyle = StyleCache.EMPTY_STYLECACHE;
+        }
+        n1.put("barrier", "gate");
+        assertNull(n1.mappaintStyle);
+        assertNull(w.mappaintStyle);
+        assertNotNull(n2.mappaintStyle);
+    }
+}
@@ -0,0 +1,82 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.mappaint.mapcss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmUtils;
+import org.openstreetmap.josm.gui.mappaint.Cascade;
+import org.openstreetmap.josm.gui.mappaint.MultiCascade;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link MapCSSStyleSource} class.
+ */
+public class MapCSSStyleSourceTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary style directory.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static MapCSSStyleSource load(File file) {
+        MapCSSStyleSource source = new MapCSSStyleSource(file.getAbsolutePath(), "test", "Test");
+        source.loadStyleSource();
+        assertTrue(source.getErrors().toString(), source.isValid());
+        return source;
+    }
+
+    private static Cascade apply(MapCSSStyleSource source, String primitive) {
+        OsmPrimitive osm = OsmUtils.createPrimitive(primitive);
+        MultiCascade mc = new MultiCascade();
+        source.apply(mc, osm, 1, false);
+        return mc.getCascade("default");
+    }
+
+    /**
+     * Tests that the rules read from the cache are the same as the parsed rules, and that they are parsed again when
+     * a preference color used by the style has changed.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testCachedRules() throws IOException {
+        File file = folder.newFile("style.mapcss");
+        Files.write(file.toPath(), ("meta { title: \"Test\"; }\n"
+                + "node[amenity=parking][/^addr:/]:tagged!:closed { text: concat(tag(\"name\"), \"!\"); color: parking#ff0000; }\n"
+                + "node[name=~/^F/]::halo { width: eval(2 * 3); }\n"
+                + "relation[type=route] > node { symbol-size: 5; }\n").getBytes(StandardCharsets.UTF_8));
+        MapCSSStyleSource parsed = load(file);
+        MapCSSStyleSource cached = load(file);
+        assertEquals(parsed.toString().replaceAll("@\\p{XDigit}+", ""), cached.toString().replaceAll("@\\p{XDigit}+", ""));
+
+        Cascade c = apply(cached, "n amenity=parking addr:street=Main name=Foo");
+        assertEquals("Foo!", c.get("text", null, String.class));
+        assertEquals(Color.RED, c.get("color", null, Color.class));
+
+        Main.pref.put("color.mappaint.test.parking", "#00ff00");
+        c = apply(load(file), "n amenity=parking addr:street=Main name=Foo");
+        assertEquals(Color.GREEN, c.get("color", null, Color.class));
+    }
+}
@@ -0,0 +1,122 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.ac;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.gui.tagging.presets.TaggingPreset;
+import org.openstreetmap.josm.gui.tagging.presets.items.Combo;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link AutoCompletionManager}.
+ */
+public class AutoCompletionManagerTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    private static Node addNode(DataSet ds, String key, String value) {
+        Node n = new Node(LatLon.ZERO);
+        n.put(key, value);
+        ds.addPrimitive(n);
+        return n;
+    }
+
+    /**
+     * Tests that the tag counts follow the added, removed, deleted and changed primitives.
+     */
+    @Test
+    public void testTagCounts() {
+        DataSet ds = new DataSet();
+        Node n1 = addNode(ds, "amenity", "bench");
+        addNode(ds, "amenity", "bench");
+        addNode(ds, "amenity", "cafe");
+        AutoCompletionManager manager = ds.getAutoCompletionManager();
+        assertEquals(3, manager.getDataCount("amenity", null));
+        assertEquals(Arrays.asList("bench", "cafe"), manager.getDataValues("amenity"));
+
+        Node n4 = addNode(ds, "amenity", "cafe");
+        addNode(ds, "amenity", "cafe");
+        assertEquals(Arrays.asList("cafe", "bench"), manager.getDataValues("amenity"));
+
+        // several changes of the same primitive are received at the end of the update
+        ds.beginUpdate();
+        try {
+            n1.put("amenity", "waste_basket");
+            n1.put("name", "Foo");
+            n1.put("amenity", "drinking_water");
+        } finally {
+            ds.endUpdate();
+        }
+        assertEquals(1, manager.getDataCount("amenity", "bench"));
+        assertEquals(1, manager.getDataCount("amenity", "drinking_water"));
+        assertEquals(0, manager.getDataCount("amenity", "waste_basket"));
+        assertEquals(1, manager.getDataCount("name", "Foo"));
+
+        n1.remove("name");
+        assertEquals(Collections.emptyList(), manager.getDataValues("name"));
+        assertFalse(manager.getDataKeys().contains("name"));
+
+        n4.setDeleted(true);
+        assertEquals(2, manager.getDataCount("amenity", "cafe"));
+        n4.setDeleted(false);
+        assertEquals(3, manager.getDataCount("amenity", "cafe"));
+        n4.setDeleted(true);
+        ds.removePrimitive(n4);
+        assertEquals(2, manager.getDataCount("amenity", "cafe"));
+        ds.removePrimitive(n1);
+        assertEquals(0, manager.getDataCount("amenity", "drinking_water"));
+        assertEquals(3, manager.getDataCount("amenity", null));
+    }
+
+    /**
+     * Tests that the member roles follow the changed relations.
+     */
+    @Test
+    public void testMemberRoles() {
+        DataSet ds = new DataSet();
+        Node n = addNode(ds, "amenity", "bench");
+        Relation r = new Relation();
+        r.addMember(new RelationMember("foo", n));
+        ds.addPrimitive(r);
+        AutoCompletionManager manager = ds.getAutoCompletionManager();
+        assertEquals(Collections.singletonList("foo"), manager.getMemberRoles());
+        r.setMembers(Collections.singletonList(new RelationMember("bar", n)));
+        assertEquals(Collections.singletonList("bar"), manager.getMemberRoles());
+        r.setDeleted(true);
+        assertEquals(Collections.emptyList(), manager.getMemberRoles());
+    }
+
+    /**
+     * Tests that the values of the cached presets are available once the preset values are accessed.
+     */
+    @Test
+    public void testCachedPresets() {
+        Combo combo = new Combo();
+        combo.key = "test:cached_presets";
+        combo.values = "a,b";
+        TaggingPreset preset = new TaggingPreset();
+        preset.data.add(combo);
+        AutoCompletionManager.cachePresets(Collections.singletonList(preset));
+        assertEquals(Arrays.asList("a", "b"), AutoCompletionManager.getPresetValues("test:cached_presets"));
+        assertTrue(new AutoCompletionManager(new DataSet()).getPresetKeys().contains("test:cached_presets"));
+    }
+}
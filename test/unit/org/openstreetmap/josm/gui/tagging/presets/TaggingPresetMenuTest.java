@@ -0,0 +1,101 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.gui.tagging.presets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+import javax.swing.Action;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+import javax.swing.JSeparator;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.xml.sax.SAXException;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link TaggingPresetMenu} class.
+ */
+public class TaggingPresetMenuTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary preset directory.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the menu items of a group, and the icons of its presets, are only created when the menu is populated.
+     * @throws IOException if an I/O error occurs
+     * @throws SAXException if an XML error occurs
+     */
+    @Test
+    public void testLazyMenu() throws IOException, SAXException {
+        File file = folder.newFile("presets.xml");
+        Files.write(file.toPath(), ("<presets xmlns=\"http://josm.openstreetmap.de/tagging-preset-1.0\">\n"
+                + "<group name=\"Leisure\" icon=\"presets/leisure/bbq.svg\">\n"
+                + "<item name=\"Barbecue\" icon=\"presets/leisure/bbq.svg\" type=\"node\"><key key=\"amenity\" value=\"bbq\"/></item>\n"
+                + "<separator/>\n"
+                + "<item name=\"Beach Resort\" icon=\"presets/leisure/beach_resort.svg\" type=\"node,closedway\">"
+                + "<key key=\"leisure\" value=\"beach_resort\"/></item>\n"
+                + "</group>\n"
+                + "</presets>\n").getBytes(StandardCharsets.UTF_8));
+        boolean loadIcons = TaggingPresetReader.isLoadIcons();
+        TaggingPresetReader.setLoadIcons(true);
+        Collection<TaggingPreset> presets;
+        try {
+            presets = TaggingPresetReader.readAll(file.getAbsolutePath(), false);
+        } finally {
+            TaggingPresetReader.setLoadIcons(loadIcons);
+        }
+        Iterator<TaggingPreset> it = presets.iterator();
+        TaggingPresetMenu group = (TaggingPresetMenu) it.next();
+        TaggingPreset bbq = it.next();
+        TaggingPreset separator = it.next();
+        TaggingPreset beach = it.next();
+        for (TaggingPreset p : Arrays.asList(bbq, separator, beach)) {
+            group.addMenuItem(p);
+        }
+        assertFalse(Arrays.asList(bbq.getKeys()).contains(Action.SMALL_ICON));
+
+        GuiHelper.runInEDTAndWaitWithException(() -> {
+            JMenu menu = (JMenu) TaggingPresetMenu.createMenuComponent(group);
+            assertEquals(0, menu.getMenuComponentCount());
+            assertNotNull(group.getIcon());
+            assertFalse(Arrays.asList(bbq.getKeys()).contains(Action.SMALL_ICON));
+
+            group.populateMenu();
+            assertEquals(3, menu.getMenuComponentCount());
+            assertEquals(bbq, ((JMenuItem) menu.getMenuComponent(0)).getAction());
+            assertTrue(menu.getMenuComponent(1) instanceof JSeparator);
+            assertNotNull(bbq.getIcon());
+            assertNotNull(beach.getIcon(Action.LARGE_ICON_KEY));
+
+            group.populateMenu();
+            assertEquals(3, menu.getMenuComponentCount());
+        });
+    }
+}
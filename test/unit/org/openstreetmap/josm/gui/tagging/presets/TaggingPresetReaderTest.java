@@ -64,6 +64,27 @@ public class TaggingPresetReaderTest {
         assertEquals("[A1, A2, A3, B1, B2, B3, C1, C2, C3]", keys.toString());
     }
 
+    /**
+     * Test that the presets replayed from the cache are the same as the parsed presets, and that a document recorded
+     * without validation is not used when validation is requested.
+     * @throws SAXException if any XML error occurs
+     * @throws IOException if any I/O error occurs
+     */
+    @Test
+    public void testCachedPresets() throws SAXException, IOException {
+        String presetfile = TestUtils.getTestDataRoot() + "preset_chunk.xml";
+        final String parsed = getKeys(TaggingPresetReader.readAll(presetfile, false));
+        assertEquals("[A1, A2, A3, B1, B2, B3, C1, C2, C3]", parsed);
+        assertEquals(parsed, getKeys(TaggingPresetReader.readAll(presetfile, false)));
+        assertEquals(parsed, getKeys(TaggingPresetReader.readAll(presetfile, true)));
+        assertEquals(parsed, getKeys(TaggingPresetReader.readAll(presetfile, false)));
+    }
+
+    private static String getKeys(Collection<TaggingPreset> presets) {
+        assertThat(presets, hasSize(1));
+        return presets.iterator().next().data.stream().map(x -> ((Key) x).key).collect(Collectors.toList()).toString();
+    }
+
     /**
      * Validate internal presets
      * See #9027
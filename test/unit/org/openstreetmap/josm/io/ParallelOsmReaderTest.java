@@ -0,0 +1,221 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParallelOsmReader}.
+ */
+public class ParallelOsmReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Tests that real world files are read exactly like {@link OsmReader} does.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testSameAsOsmReader() throws Exception {
+        for (String name : new String[] {"multipolygon.osm", "relation_analysis_2lane.osm", "Join_Areas_Tests.osm", "restriction.osm"}) {
+            File file = new File("data_nodist", name);
+            DataSet expected;
+            try (InputStream in = new FileInputStream(file)) {
+                expected = OsmReader.parseDataSet(in, null);
+            }
+            DataSet actual;
+            try (InputStream in = new FileInputStream(file)) {
+                actual = ParallelOsmReader.parseDataSet(in, null, 4);
+            }
+            assertSameData(expected, actual);
+        }
+    }
+
+    /**
+     * Tests new, modified, deleted and incomplete primitives spread over several batches.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testNewAndIncompletePrimitives() throws Exception {
+        StringBuilder sb = new StringBuilder("<osm version='0.6' upload='false' generator='test'>\n");
+        sb.append("<bounds minlat='50' minlon='10' maxlat='51' maxlon='11'/>\n");
+        for (int i = 1; i <= 2500; i++) {
+            sb.append("<node id='-").append(i).append("' lat='50.").append(i).append("' lon='10.").append(i).append("'>")
+              .append("<tag k='i' v='").append(i % 7).append("'/></node>\n");
+            sb.append("<node id='").append(i).append("' version='2' changeset='3' timestamp='2016-01-0").append(1 + i % 9)
+              .append("T12:00:00Z' user='u").append(i % 3).append("' uid='").append(i % 3 + 1)
+              .append("' lat='51' lon='11'").append(i % 10 == 0 ? " action='modify'" : "").append("/>\n");
+        }
+        for (int i = 1; i <= 1500; i++) {
+            sb.append("<way id='-").append(i).append("'><nd ref='-").append(i).append("'/><nd ref='").append(i)
+              .append("'/><nd ref='").append(100000 + i).append("'/><tag k='highway' v='residential'/></way>\n");
+        }
+        sb.append("<way id='7' version='1' visible='false' action='delete'/>\n");
+        sb.append("<relation id='-1'><member type='way' ref='-1' role='outer'/><member type='relation' ref='-2' role=''/>")
+          .append("<member type='node' ref='123456' role='x'/><member type='way' ref='7' role='y'/></relation>\n");
+        sb.append("<relation id='-2'><member type='node' ref='-5'/><tag k='type' v='multipolygon'/></relation>\n");
+        sb.append("<changeset><tag k='comment' v='test'/></changeset>\n");
+        sb.append("</osm>");
+        String osm = sb.toString();
+
+        DataSet expected = OsmReader.parseDataSet(stream(osm), null);
+        DataSet actual = ParallelOsmReader.parseDataSet(stream(osm), null, 3);
+        assertSameData(expected, actual);
+        assertEquals(expected.getChangeSetTags(), actual.getChangeSetTags());
+        assertEquals(expected.getDataSourceBounds(), actual.getDataSourceBounds());
+        assertEquals(expected.isUploadDiscouraged(), actual.isUploadDiscouraged());
+    }
+
+    /**
+     * Tests that errors are reported like {@link OsmReader} does, including the order of several errors.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testErrors() throws Exception {
+        StringBuilder nodes = new StringBuilder();
+        for (int i = 1; i <= 2500; i++) {
+            nodes.append("<node id='").append(i).append("' version='1' lat='50' lon='10'/>\n");
+        }
+        String[] errors = {
+            "<node id='0' version='1'/>",
+            "<node id='1' version='0'/>",
+            "<node id='1' version='1' uid='x' user='y'/>",
+            "<node id='1'/>",
+            "<node id='1' version='1' changeset='-1'/>",
+            "<node id='1' version='1'><tag k='a'/></node>",
+            "<way id='1' version='1'><nd/></way>",
+            "<way id='1' version='1'><nd ref='0'/></way>",
+            "<way id='-1'><nd ref='x'/></way>",
+            "<way id='1' version='1'><nd ref='-3'/></way>",
+            "<relation id='1' version='1'><member type='foo' ref='1'/></relation>",
+            "<relation id='1' version='1'><member type='node'/></relation>",
+            "<relation id='-1'><member type='node' ref='-1'/></relation>",
+            "<node id='1' version='x'><tag k='a'/></node>",
+            "<way id='1' version='1'><nd ref='1'/><tag v='a'/><nd ref='0'/></way>",
+            "<node id='1' version='x'/><node id='2' version='1'><tag/>",
+            "<node id='1' version='1' lat='50' lon='10'/><node id='2' version='0'/><node id='3' version='1'/><unclosed>",
+        };
+        for (String error : errors) {
+            String osm = "<osm version='0.6'>\n" + nodes + error + "\n</osm>";
+            String expected = errorMessage(() -> OsmReader.parseDataSet(stream(osm), null));
+            String actual = errorMessage(() -> ParallelOsmReader.parseDataSet(stream(osm), null, 2));
+            assertEquals(error, expected, actual);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        DataSet parse() throws IllegalDataException;
+    }
+
+    private static String errorMessage(Parser parser) {
+        try {
+            parser.parse();
+            fail("Expected IllegalDataException");
+            return null;
+        } catch (IllegalDataException e) {
+            // error locations differ between the readers
+            String message = e.getMessage();
+            int location = message.indexOf(" (at line ");
+            return location >= 0 ? message.substring(0, location) : message.replaceFirst("^Line \\d+ column \\d+: ", "");
+        }
+    }
+
+    private static InputStream stream(String osm) {
+        return new ByteArrayInputStream(osm.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Asserts that two data sets contain the same primitives. Primitives are matched by the order of their unique ids,
+     * so that new primitives, which get different ids each time a file is read, can be compared as well.
+     * @param expected the expected data set
+     * @param actual the actual data set
+     */
+    private static void assertSameData(DataSet expected, DataSet actual) {
+        List<OsmPrimitive> expectedPrimitives = sorted(expected);
+        List<OsmPrimitive> actualPrimitives = sorted(actual);
+        assertEquals(expectedPrimitives.size(), actualPrimitives.size());
+        assertTrue(expectedPrimitives.size() > 0);
+        Map<OsmPrimitive, Integer> expectedIndex = index(expectedPrimitives);
+        Map<OsmPrimitive, Integer> actualIndex = index(actualPrimitives);
+        for (int i = 0; i < expectedPrimitives.size(); i++) {
+            OsmPrimitive e = expectedPrimitives.get(i);
+            OsmPrimitive a = actualPrimitives.get(i);
+            String msg = e.toString();
+            assertEquals(msg, e.getType(), a.getType());
+            assertEquals(msg, e.isNew() ? 0 : e.getUniqueId(), a.isNew() ? 0 : a.getUniqueId());
+            assertTrue(msg, e.hasEqualTechnicalAttributes(a));
+            assertEquals(msg, e.isModified(), a.isModified());
+            assertEquals(msg, e.getKeys(), a.getKeys());
+            if (e instanceof Node) {
+                assertEquals(msg, ((Node) e).getCoor(), ((Node) a).getCoor());
+            } else if (e instanceof Way) {
+                List<Integer> expectedNodes = new ArrayList<>();
+                for (Node n : ((Way) e).getNodes()) {
+                    expectedNodes.add(expectedIndex.get(n));
+                }
+                List<Integer> actualNodes = new ArrayList<>();
+                for (Node n : ((Way) a).getNodes()) {
+                    actualNodes.add(actualIndex.get(n));
+                }
+                assertEquals(msg, expectedNodes, actualNodes);
+            } else {
+                List<String> expectedMembers = new ArrayList<>();
+                for (RelationMember m : ((Relation) e).getMembers()) {
+                    expectedMembers.add(m.getRole() + '=' + expectedIndex.get(m.getMember()));
+                }
+                List<String> actualMembers = new ArrayList<>();
+                for (RelationMember m : ((Relation) a).getMembers()) {
+                    actualMembers.add(m.getRole() + '=' + actualIndex.get(m.getMember()));
+                }
+                assertEquals(msg, expectedMembers, actualMembers);
+            }
+        }
+        assertNotNull(actual.getVersion());
+        assertEquals(expected.getVersion(), actual.getVersion());
+    }
+
+    private static List<OsmPrimitive> sorted(DataSet ds) {
+        List<OsmPrimitive> primitives = new ArrayList<>(ds.allPrimitives());
+        primitives.sort(Comparator.<OsmPrimitive, Integer>comparing(p -> p.getType().ordinal()).thenComparingLong(OsmPrimitive::getUniqueId));
+        return primitives;
+    }
+
+    private static Map<OsmPrimitive, Integer> index(List<OsmPrimitive> primitives) {
+        Map<OsmPrimitive, Integer> index = new HashMap<>();
+        for (int i = 0; i < primitives.size(); i++) {
+            index.put(primitives.get(i), i);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,129 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Utils;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParallelOsmWriter} class.
+ */
+public class ParallelOsmWriterTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Tests that the written files are identical to the ones written by {@link OsmWriter}, for several numbers of threads
+     * and compressions.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testSameOutput() throws Exception {
+        DataSet ds;
+        try (InputStream in = new FileInputStream("data_nodist/multipolygon.osm")) {
+            ds = OsmReader.parseDataSet(in, null);
+        }
+        // enough primitives for several chunks
+        for (int i = 0; i < 5000; i++) {
+            Node n = new Node(new LatLon(i * 1e-3, -i * 1e-3));
+            n.put("name", "<" + i + "> & 'quoted'");
+            ds.addPrimitive(n);
+            if (i % 2 == 1) {
+                Way w = new Way();
+                w.addNode((Node) ds.getPrimitiveById(n.getUniqueId() + 1, n.getType()));
+                w.addNode(n);
+                ds.addPrimitive(w);
+            }
+        }
+        OsmDataLayer layer = new OsmDataLayer(ds, "test", null);
+        String expected = writeWithOsmWriter(layer);
+
+        for (String extension : new String[] {".osm", ".osm.gz", ".osm.bz2"}) {
+            for (int threads : new int[] {1, 3}) {
+                File file = File.createTempFile("josm.ParallelOsmWriterTest", extension);
+                try {
+                    new ParallelOsmWriter(threads).writeLayer(layer, file);
+                    try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+                        assertEquals(extension + ' ' + threads, expected, new String(Utils.readBytesFromStream(in), StandardCharsets.UTF_8));
+                    }
+                } finally {
+                    Utils.deleteFile(file);
+                }
+            }
+        }
+    }
+
+    private static String writeWithOsmWriter(OsmDataLayer layer) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OsmWriter w = OsmWriterFactory.createOsmWriter(
+                new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)), false, layer.data.getVersion())) {
+            w.writeLayer(layer);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that files are written by the writer of a custom {@link OsmWriterFactory}, even when several threads
+     * are configured.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testCustomFactory() throws Exception {
+        DataSet ds = new DataSet();
+        ds.addPrimitive(new Node(new LatLon(1, 2)));
+        OsmDataLayer layer = new OsmDataLayer(ds, "test", null);
+        OsmWriterFactory factory = OsmWriterFactory.theFactory;
+        ParallelOsmWriter.THREADS.put(3);
+        File file = File.createTempFile("josm.ParallelOsmWriterTest", ".osm");
+        try {
+            assertTrue(ParallelOsmWriter.isSupported());
+            OsmWriterFactory.theFactory = new OsmWriterFactory() {
+                @Override
+                protected OsmWriter createOsmWriterImpl(PrintWriter out, boolean osmConform, String version) {
+                    return new OsmWriter(out, osmConform, version) {
+                        @Override
+                        public void writeContent(DataSet ds) {
+                            out.println("  <!-- custom -->");
+                            super.writeContent(ds);
+                        }
+                    };
+                }
+            };
+            assertFalse(ParallelOsmWriter.isSupported());
+            new OsmExporter().doSave(file, layer);
+            String written = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            assertEquals(writeWithOsmWriter(layer), written);
+            assertTrue(written.contains("<!-- custom -->"));
+        } finally {
+            OsmWriterFactory.theFactory = factory;
+            ParallelOsmWriter.THREADS.remove();
+            Utils.deleteFile(file);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link ParsedSourceCache} class.
+ */
+public class ParsedSourceCacheTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules().preferences();
+
+    /**
+     * Temporary source directory.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ParsedSourceCache cache = new ParsedSourceCache("test", ParsedSourceCacheTest.class);
+
+    private String createSource() throws IOException {
+        File file = folder.newFile("source.txt");
+        Files.write(file.toPath(), "source".getBytes(StandardCharsets.UTF_8));
+        return file.getAbsolutePath();
+    }
+
+    private void write(String source) throws IOException {
+        try (CachedFile cf = new CachedFile(source)) {
+            cache.write(source, cf.getLastModified(), out -> out.writeUTF("parsed"));
+        }
+    }
+
+    private String read(String source) throws IOException {
+        try (CachedFile cf = new CachedFile(source); DataInputStream in = cache.read(source, cf)) {
+            return in == null ? null : in.readUTF();
+        }
+    }
+
+    /**
+     * Tests that the written data is read back.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testWriteRead() throws IOException {
+        String source = createSource();
+        assertNull(read(source));
+        write(source);
+        assertEquals("parsed", read(source));
+        cache.remove(source);
+        assertNull(read(source));
+    }
+
+    /**
+     * Tests that the cached data is not used once the source has been modified.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testModifiedSource() throws IOException {
+        String source = createSource();
+        write(source);
+        File file = new File(source);
+        assertTrue(file.setLastModified(file.lastModified() - 10_000));
+        assertNull(read(source));
+    }
+
+    /**
+     * Tests that the cached data of internal resources is used.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testResource() throws IOException {
+        String source = "resource://data/tagging-preset.xsd";
+        try (CachedFile cf = new CachedFile(source)) {
+            assertTrue(cf.getLastModified() > 0);
+        }
+        write(source);
+        assertEquals("parsed", read(source));
+    }
+
+    /**
+     * Tests that nothing is cached if the cache is disabled.
+     * @throws IOException if an I/O error occurs
+     */
+    @Test
+    public void testDisabled() throws IOException {
+        String source = createSource();
+        Main.pref.put("cache.parsed-sources", false);
+        write(source);
+        assertNull(read(source));
+        Main.pref.put("cache.parsed-sources", true);
+        assertNull(read(source));
+        write(source);
+        assertNotNull(read(source));
+    }
+}
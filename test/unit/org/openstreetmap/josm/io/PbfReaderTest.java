@@ -0,0 +1,280 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.Bounds;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Unit tests of {@link PbfReader} and {@link PbfWriter}.
+ */
+public class PbfReaderTest {
+
+    /**
+     * Setup test.
+     */
+    @Rule
+    @SuppressFBWarnings(value = "URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
+    public JOSMTestRules test = new JOSMTestRules();
+
+    /**
+     * Tests the protocol buffer encoding with the examples of its documentation.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testProtobufEncoding() throws Exception {
+        ProtobufOutput out = new ProtobufOutput();
+        out.writeVarint(1, 150);
+        out.writeString(2, "testing");
+        out.writeSignedVarint(3, -2);
+        byte[] bytes = Arrays.copyOf(out.getBuffer(), out.size());
+        assertArrayEquals(new byte[] {0x08, (byte) 0x96, 0x01, 0x12, 0x07, 't', 'e', 's', 't', 'i', 'n', 'g', 0x18, 0x03}, bytes);
+
+        ProtobufInput in = new ProtobufInput(bytes, 0, bytes.length);
+        assertEquals(1, in.readField());
+        assertEquals(150, in.readVarint());
+        assertEquals(2, in.readField());
+        assertEquals("testing", in.readString());
+        assertEquals(3, in.readField());
+        assertEquals(-2, in.readSignedVarint());
+        assertTrue(!in.hasNext());
+    }
+
+    /**
+     * Tests that data written by {@link PbfWriter} is read back by {@link PbfReader}, independently of the number of threads.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (String name : new String[] {"multipolygon.osm", "relation_analysis_2lane.osm", "restriction.osm", "filterTests.osm"}) {
+            DataSet expected;
+            try (InputStream in = new FileInputStream(new File("data_nodist", name))) {
+                expected = OsmReader.parseDataSet(in, null);
+            }
+            byte[] pbf = write(expected);
+            DataSet actual = new PbfReader(1).doParseDataSet(new ByteArrayInputStream(pbf), null);
+            assertSameData(name, expected, actual);
+            assertSameData(name, expected, new PbfReader(3).doParseDataSet(new ByteArrayInputStream(pbf), null));
+            assertEquals("0.6", actual.getVersion());
+        }
+    }
+
+    /**
+     * Tests data spread over several blocks, and the bounds of the header block.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testSeveralBlocks() throws Exception {
+        DataSet expected = new DataSet();
+        expected.dataSources.add(new org.openstreetmap.josm.data.DataSource(new Bounds(50, 10, 51, 11), "test"));
+        Relation r = new Relation(1, 3);
+        for (int i = 1; i <= 20000; i++) {
+            Node n = new Node(i, 1);
+            n.setCoor(new org.openstreetmap.josm.data.coor.LatLon(50 + i * 1e-5, 10 + i * 1e-5));
+            if (i % 3 == 0) {
+                n.put("ref", Integer.toString(i % 100));
+            }
+            expected.addPrimitive(n);
+            if (i % 2 == 0) {
+                Way w = new Way(i / 2, 2);
+                w.setNodes(Arrays.asList((Node) expected.getPrimitiveById(i - 1, n.getType()), n));
+                w.put("highway", "track");
+                expected.addPrimitive(w);
+                r.addMember(new RelationMember("", w));
+            }
+        }
+        Node newNode = new Node(new org.openstreetmap.josm.data.coor.LatLon(50.5, 10.5));
+        expected.addPrimitive(newNode);
+        r.addMember(new RelationMember("new", newNode));
+        expected.addPrimitive(r);
+
+        DataSet actual = new PbfReader(2).doParseDataSet(new ByteArrayInputStream(write(expected)), null);
+        assertSameData("blocks", expected, actual);
+        assertEquals(expected.getDataSourceBounds(), actual.getDataSourceBounds());
+    }
+
+    /**
+     * Tests that a block is written once it reaches the maximum size, even if it has less primitives than recommended.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testBlockSizeLimit() throws Exception {
+        DataSet expected = new DataSet();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            Node n = new Node(i, 1);
+            n.setCoor(new org.openstreetmap.josm.data.coor.LatLon(50 + i * 1e-5, 10 + i * 1e-5));
+            expected.addPrimitive(n);
+            nodes.add(n);
+        }
+        for (int i = 1; i <= 100; i++) {
+            Way w = new Way(i, 1);
+            w.setNodes(nodes);
+            expected.addPrimitive(w);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(out, 10_000)) {
+            writer.write(expected);
+        }
+        byte[] data = out.toByteArray();
+        // a way takes about 1000 bytes, so that ten ways fill a block
+        assertTrue(countBlocks(data) >= 10);
+        assertSameData("limit", expected, new PbfReader(1).doParseDataSet(new ByteArrayInputStream(data), null));
+    }
+
+    private static int countBlocks(byte[] data) {
+        byte[] type = "OSMData".getBytes(StandardCharsets.US_ASCII);
+        int count = 0;
+        for (int i = 0; i + type.length <= data.length; i++) {
+            if (Arrays.equals(type, Arrays.copyOfRange(data, i, i + type.length))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests that invalid files are rejected.
+     * @throws Exception if any error occurs
+     */
+    @Test
+    public void testInvalidData() throws Exception {
+        DataSet ds = new DataSet();
+        Node n = new Node(1, 1);
+        n.setCoor(new org.openstreetmap.josm.data.coor.LatLon(1, 2));
+        ds.addPrimitive(n);
+        byte[] pbf = write(ds);
+        assertInvalid(Arrays.copyOf(pbf, pbf.length - 3));
+        assertInvalid(new byte[] {0, 0, 0, 0});
+        assertInvalid("<osm version='0.6'/>".getBytes("UTF-8"));
+
+        ProtobufOutput header = new ProtobufOutput();
+        header.writeString(4, "HistoricalInformation");
+        ProtobufOutput blob = new ProtobufOutput();
+        blob.writeBytes(1, header.getBuffer(), 0, header.size());
+        ProtobufOutput blobHeader = new ProtobufOutput();
+        blobHeader.writeString(1, "OSMHeader");
+        blobHeader.writeVarint(3, blob.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {0, 0, 0, (byte) blobHeader.size()});
+        blobHeader.writeTo(out);
+        blob.writeTo(out);
+        assertInvalid(out.toByteArray());
+    }
+
+    private static void assertInvalid(byte[] pbf) {
+        try {
+            PbfReader.parseDataSet(new ByteArrayInputStream(pbf), null);
+            fail("Expected IllegalDataException");
+        } catch (IllegalDataException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    private static byte[] write(DataSet ds) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PbfWriter writer = new PbfWriter(out)) {
+            writer.write(ds);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Asserts that a data set read from a .osm.pbf file contains the same data as the written one.
+     * Primitives are matched by the order of their unique ids, so that new primitives can be compared as well.
+     * Deleted primitives and the modified flags are not written to .osm.pbf files.
+     */
+    private static void assertSameData(String name, DataSet expected, DataSet actual) {
+        List<OsmPrimitive> expectedPrimitives = sorted(expected);
+        List<OsmPrimitive> actualPrimitives = sorted(actual);
+        assertEquals(name, expectedPrimitives.size(), actualPrimitives.size());
+        Map<OsmPrimitive, Integer> expectedIndex = index(expectedPrimitives);
+        Map<OsmPrimitive, Integer> actualIndex = index(actualPrimitives);
+        for (int i = 0; i < expectedPrimitives.size(); i++) {
+            OsmPrimitive e = expectedPrimitives.get(i);
+            OsmPrimitive a = actualPrimitives.get(i);
+            String msg = name + ": " + e;
+            assertEquals(msg, e.getType(), a.getType());
+            assertEquals(msg, e.isNew() ? 0 : e.getUniqueId(), a.isNew() ? 0 : a.getUniqueId());
+            assertEquals(msg, e.isIncomplete(), a.isIncomplete());
+            assertEquals(msg, e.getKeys(), a.getKeys());
+            assertEquals(msg, e.isNew() ? 0 : e.getVersion(), a.getVersion());
+            assertEquals(msg, e.getRawTimestamp(), a.getRawTimestamp());
+            assertEquals(msg, e.getChangesetId(), a.getChangesetId());
+            assertEquals(msg, e.getUser(), a.getUser());
+            if (e instanceof Node) {
+                if (!e.isIncomplete()) {
+                    assertEquals(msg, ((Node) e).getCoor().lat(), ((Node) a).getCoor().lat(), 1e-7);
+                    assertEquals(msg, ((Node) e).getCoor().lon(), ((Node) a).getCoor().lon(), 1e-7);
+                }
+            } else if (e instanceof Way) {
+                List<Integer> expectedNodes = new ArrayList<>();
+                for (Node n : ((Way) e).getNodes()) {
+                    expectedNodes.add(expectedIndex.get(n));
+                }
+                List<Integer> actualNodes = new ArrayList<>();
+                for (Node n : ((Way) a).getNodes()) {
+                    actualNodes.add(actualIndex.get(n));
+                }
+                assertEquals(msg, expectedNodes, actualNodes);
+            } else {
+                List<String> expectedMembers = new ArrayList<>();
+                for (RelationMember m : ((Relation) e).getMembers()) {
+                    expectedMembers.add(m.getRole() + '=' + expectedIndex.get(m.getMember()));
+                }
+                List<String> actualMembers = new ArrayList<>();
+                for (RelationMember m : ((Relation) a).getMembers()) {
+                    actualMembers.add(m.getRole() + '=' + actualIndex.get(m.getMember()));
+                }
+                assertEquals(msg, expectedMembers, actualMembers);
+            }
+        }
+    }
+
+    private static List<OsmPrimitive> sorted(DataSet ds) {
+        List<OsmPrimitive> primitives = new ArrayList<>();
+        for (OsmPrimitive p : ds.allPrimitives()) {
+            if (!p.isDeleted()) {
+                primitives.add(p);
+            }
+        }
+        primitives.sort(Comparator.<OsmPrimitive, Integer>comparing(p -> p.getType().ordinal()).thenComparingLong(OsmPrimitive::getUniqueId));
+        return primitives;
+    }
+
+    private static Map<OsmPrimitive, Integer> index(List<OsmPrimitive> primitives) {
+        Map<OsmPrimitive, Integer> index = new HashMap<>();
+        for (int i = 0; i < primitives.size(); i++) {
+            index.put(primitives.get(i), i);
+        }
+        return index;
+    }
+}
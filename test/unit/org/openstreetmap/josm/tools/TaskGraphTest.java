@@ -0,0 +1,133 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link TaskGraph} class.
+ */
+public class TaskGraphTest {
+
+    /**
+     * Tests that the tasks run after their dependencies, independent tasks in parallel and caller thread tasks on the
+     * caller thread, and that the report contains all tasks.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testRun() throws Exception {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch parallel = new CountDownLatch(2);
+        Thread caller = Thread.currentThread();
+        TaskGraph graph = new TaskGraph("test")
+            .addOnCallerThread("a", () -> {
+                assertSame(caller, Thread.currentThread());
+                order.add("a");
+            })
+            .add("b", () -> awaitOther(parallel, order, "b"), "a")
+            .add("c", () -> awaitOther(parallel, order, "c"), "a")
+            .addOnCallerThread("d", () -> {
+                assertSame(caller, Thread.currentThread());
+                order.add("d");
+            }, "b", "c");
+        graph.run();
+        assertEquals("a", order.get(0));
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), new HashSet<>(order.subList(1, 3)));
+        assertEquals("d", order.get(3));
+        assertEquals(Arrays.asList("a", "b", "c", "d"), Arrays.asList(graph.getDurations().keySet().toArray()));
+        String report = graph.getReport();
+        assertTrue(report, report.startsWith("test: "));
+        assertTrue(report, report.contains("critical path"));
+        for (String task : order) {
+            assertTrue(report, report.contains(' ' + task + '\n') || report.endsWith(' ' + task));
+        }
+    }
+
+    private static void awaitOther(CountDownLatch latch, List<String> order, String name) {
+        latch.countDown();
+        try {
+            // only finishes if the other task runs at the same time, there is one thread per processor
+            assertTrue(Runtime.getRuntime().availableProcessors() == 1 || latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        order.add(name);
+    }
+
+    /**
+     * Tests that the tasks depending on a failed task are skipped, and that the failure is reported.
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testFailure() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        IllegalStateException failure = new IllegalStateException();
+        TaskGraph graph = new TaskGraph("test")
+            .add("a", () -> {
+                throw failure;
+            })
+            .add("b", () -> order.add("b"))
+            .addOnCallerThread("c", () -> order.add("c"), "a", "b")
+            .add("d", () -> order.add("d"), "c");
+        try {
+            graph.run();
+            fail("ExecutionException expected");
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(Arrays.asList("b"), order);
+        assertTrue(graph.getReport().contains("(failed)"));
+        assertTrue(graph.getReport().contains("skipped"));
+    }
+
+    /**
+     * Tests that the background tasks are run eventually, and that their failures are not reported by
+     * {@link TaskGraph#run()}.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void testBackground() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        new TaskGraph("test")
+            .add("a", () -> { })
+            .addInBackground("b", () -> {
+                throw new IllegalStateException();
+            }, "a")
+            .addInBackground("c", done::countDown, "a")
+            .run();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Tests that unknown dependencies and dependencies of waited for tasks on background tasks are rejected.
+     */
+    @Test
+    public void testInvalidDependencies() {
+        TaskGraph graph = new TaskGraph("test").addInBackground("a", () -> { });
+        try {
+            graph.add("b", () -> { }, "unknown");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertFalse(e.getMessage().isEmpty());
+        }
+        try {
+            graph.add("b", () -> { }, "a");
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            assertFalse(e.getMessage().isEmpty());
+        }
+    }
+}